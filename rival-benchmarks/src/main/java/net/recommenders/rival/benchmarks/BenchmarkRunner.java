@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks. The arguments are the usual JMH arguments (e.g., a
+ * regular expression with the benchmarks to run, or "-p users=1000" to run a
+ * single scale); the GC profiler is always enabled, so the allocation rate of
+ * every benchmark is reported along with its time. Unless other format is
+ * given ("-rf"), the results are also written as JSON (to
+ * {@link #DEFAULT_RESULT} if no file is given with "-rff"), so that they can
+ * be compared across runs.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * File where the results are written by default.
+     */
+    public static final String DEFAULT_RESULT = "rival-benchmarks.json";
+
+    /**
+     * Utility classes should not have a public or default constructor.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args the JMH arguments
+     * @throws CommandLineOptionException when the arguments are not valid
+     * @throws RunnerException when the benchmarks cannot be run
+     */
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(options)
+                .addProfiler(GCProfiler.class);
+        if (!options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+            if (!options.getResult().hasValue()) {
+                builder.result(DEFAULT_RESULT);
+            }
+        }
+        new Runner(builder.build()).run();
+    }
+}
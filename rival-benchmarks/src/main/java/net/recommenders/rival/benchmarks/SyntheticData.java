@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * Synthetic interactions for the benchmarks: every user rates the same number
+ * of distinct items, chosen uniformly at random, with integer ratings from 1
+ * to 5 and increasing timestamps. The data only depends on the size and the
+ * seed, so every benchmark run uses the same data.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class SyntheticData {
+
+    /**
+     * Seed used by default.
+     */
+    public static final long DEFAULT_SEED = 2016L;
+    /**
+     * Maximum rating.
+     */
+    private static final int MAX_RATING = 5;
+    /**
+     * First timestamp.
+     */
+    private static final long FIRST_TIMESTAMP = 1000000000L;
+
+    /**
+     * Format of files, one line per interaction.
+     */
+    public enum Format {
+
+        /**
+         * user, item, rating and timestamp, separated by tabs (as read by
+         * {@link net.recommenders.rival.core.SimpleParser}).
+         */
+        SIMPLE,
+        /**
+         * user, item, rating and timestamp, separated by "::" (as the
+         * MovieLens 1M files read by
+         * {@link net.recommenders.rival.split.parser.MovielensParser}).
+         */
+        MOVIELENS,
+        /**
+         * user, item, rating and timestamp, separated by commas (as read by
+         * {@link net.recommenders.rival.core.UIPParser}).
+         */
+        CSV,
+        /**
+         * the ratings as a ranking in trec_eval format: user, "Q0", item,
+         * rank, score and run, separated by tabs (as read by
+         * {@link net.recommenders.rival.evaluation.parser.TrecEvalParser}).
+         */
+        TREC
+    }
+
+    /**
+     * Users of the interactions.
+     */
+    private final long[] users;
+    /**
+     * Items of the interactions.
+     */
+    private final long[] items;
+    /**
+     * Ratings of the interactions.
+     */
+    private final double[] ratings;
+    /**
+     * Timestamps of the interactions.
+     */
+    private final long[] timestamps;
+    /**
+     * Number of items.
+     */
+    private final int numItems;
+
+    /**
+     * Constructor.
+     *
+     * @param nUsers number of users
+     * @param nItems number of items
+     * @param itemsPerUser number of items rated by each user (at most nItems)
+     * @param seed seed of the random generator
+     */
+    public SyntheticData(final int nUsers, final int nItems, final int itemsPerUser, final long seed) {
+        if (itemsPerUser > nItems) {
+            throw new IllegalArgumentException("Users cannot rate " + itemsPerUser + " out of " + nItems + " items");
+        }
+        int n = nUsers * itemsPerUser;
+        this.users = new long[n];
+        this.items = new long[n];
+        this.ratings = new double[n];
+        this.timestamps = new long[n];
+        this.numItems = nItems;
+        Random rnd = new Random(seed);
+        Set<Long> rated = new HashSet<>();
+        int k = 0;
+        for (int u = 0; u < nUsers; u++) {
+            rated.clear();
+            while (rated.size() < itemsPerUser) {
+                long i = rnd.nextInt(nItems);
+                if (rated.add(i)) {
+                    users[k] = u;
+                    items[k] = i;
+                    ratings[k] = 1 + rnd.nextInt(MAX_RATING);
+                    timestamps[k] = FIRST_TIMESTAMP + k;
+                    k++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of interactions.
+     *
+     * @return the number of interactions
+     */
+    public int size() {
+        return users.length;
+    }
+
+    /**
+     * Gets the number of items.
+     *
+     * @return the number of items
+     */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * Gets the user of an interaction.
+     *
+     * @param k the interaction
+     * @return the user
+     */
+    public long getUser(final int k) {
+        return users[k];
+    }
+
+    /**
+     * Gets the item of an interaction.
+     *
+     * @param k the interaction
+     * @return the item
+     */
+    public long getItem(final int k) {
+        return items[k];
+    }
+
+    /**
+     * Gets the rating of an interaction.
+     *
+     * @param k the interaction
+     * @return the rating
+     */
+    public double getRating(final int k) {
+        return ratings[k];
+    }
+
+    /**
+     * Gets the timestamp of an interaction.
+     *
+     * @param k the interaction
+     * @return the timestamp
+     */
+    public long getTimestamp(final int k) {
+        return timestamps[k];
+    }
+
+    /**
+     * Creates a data model with the ratings.
+     *
+     * @return the data model
+     */
+    public DataModelIF<Long, Long> toDataModel() {
+        DataModelIF<Long, Long> model = DataModelFactory.getDefaultModel();
+        for (int k = 0; k < users.length; k++) {
+            model.addPreference(users[k], items[k], ratings[k]);
+        }
+        return model;
+    }
+
+    /**
+     * Creates a temporal data model with the ratings and the timestamps.
+     *
+     * @return the data model
+     */
+    public TemporalDataModelIF<Long, Long> toTemporalDataModel() {
+        TemporalDataModelIF<Long, Long> model = DataModelFactory.getDefaultTemporalModel();
+        for (int k = 0; k < users.length; k++) {
+            model.addPreference(users[k], items[k], ratings[k]);
+            model.addTimestamp(users[k], items[k], timestamps[k]);
+        }
+        return model;
+    }
+
+    /**
+     * Writes the interactions to a file.
+     *
+     * @param file the file
+     * @param format the format of the file
+     * @throws IOException when the file cannot be written
+     */
+    public void write(final File file, final Format format) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            int rank = 0;
+            for (int k = 0; k < users.length; k++) {
+                rank = (k > 0 && users[k] == users[k - 1]) ? rank + 1 : 1;
+                switch (format) {
+                    case MOVIELENS:
+                        out.write(users[k] + "::" + items[k] + "::" + (int) ratings[k] + "::" + timestamps[k] + "\n");
+                        break;
+                    case CSV:
+                        out.write(users[k] + "," + items[k] + "," + ratings[k] + "," + timestamps[k] + "\n");
+                        break;
+                    case TREC:
+                        out.write(users[k] + "\tQ0\t" + items[k] + "\t" + rank + "\t" + ratings[k] + "\tsynthetic\n");
+                        break;
+                    case SIMPLE:
+                    default:
+                        out.write(users[k] + "\t" + items[k] + "\t" + ratings[k] + "\t" + timestamps[k] + "\n");
+                        break;
+                }
+            }
+        }
+    }
+}
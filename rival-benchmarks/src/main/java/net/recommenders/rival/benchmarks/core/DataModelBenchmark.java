@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.core;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.recommenders.rival.benchmarks.SyntheticData;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of {@link net.recommenders.rival.core.DataModel} and
+ * {@link net.recommenders.rival.core.TemporalDataModel}: building a model
+ * with {@link DataModelIF#addPreference(java.lang.Object, java.lang.Object, java.lang.Double)}
+ * and {@link TemporalDataModelIF#addTimestamp(java.lang.Object, java.lang.Object, java.lang.Long)},
+ * looking up preferences, and iterating over the items of every user.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DataModelBenchmark {
+
+    /**
+     * Number of lookups per invocation of {@link #getUserItemPreference(org.openjdk.jmh.infra.Blackhole)}.
+     */
+    private static final int LOOKUPS = 100000;
+    /**
+     * Number of users.
+     */
+    @Param({"1000", "10000", "50000"})
+    public int users;
+    /**
+     * Number of items.
+     */
+    @Param({"5000"})
+    public int items;
+    /**
+     * Number of items rated by each user.
+     */
+    @Param({"20"})
+    public int itemsPerUser;
+    /**
+     * The interactions.
+     */
+    private SyntheticData data;
+    /**
+     * Model with the interactions.
+     */
+    private DataModelIF<Long, Long> model;
+    /**
+     * Users of the lookups.
+     */
+    private Long[] lookupUsers;
+    /**
+     * Items of the lookups (about half of the pairs are in the model).
+     */
+    private Long[] lookupItems;
+
+    /**
+     * Generates the data.
+     */
+    @Setup
+    public void setup() {
+        data = new SyntheticData(users, items, itemsPerUser, SyntheticData.DEFAULT_SEED);
+        model = data.toDataModel();
+        Random rnd = new Random(SyntheticData.DEFAULT_SEED);
+        lookupUsers = new Long[LOOKUPS];
+        lookupItems = new Long[LOOKUPS];
+        for (int k = 0; k < LOOKUPS; k++) {
+            int j = rnd.nextInt(data.size());
+            lookupUsers[k] = data.getUser(j);
+            lookupItems[k] = rnd.nextBoolean() ? data.getItem(j) : (long) rnd.nextInt(items);
+        }
+    }
+
+    /**
+     * Builds a model with every preference.
+     *
+     * @return the model
+     */
+    @Benchmark
+    public DataModelIF<Long, Long> addPreference() {
+        DataModelIF<Long, Long> m = DataModelFactory.getDefaultModel();
+        for (int k = 0; k < data.size(); k++) {
+            m.addPreference(data.getUser(k), data.getItem(k), data.getRating(k));
+        }
+        return m;
+    }
+
+    /**
+     * Adds every timestamp to an empty temporal model.
+     *
+     * @return the model
+     */
+    @Benchmark
+    public TemporalDataModelIF<Long, Long> addTimestamp() {
+        TemporalDataModelIF<Long, Long> m = DataModelFactory.getDefaultTemporalModel();
+        for (int k = 0; k < data.size(); k++) {
+            m.addTimestamp(data.getUser(k), data.getItem(k), data.getTimestamp(k));
+        }
+        return m;
+    }
+
+    /**
+     * Looks up preferences, present or not.
+     *
+     * @param bh the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void getUserItemPreference(final Blackhole bh) {
+        for (int k = 0; k < LOOKUPS; k++) {
+            bh.consume(model.getUserItemPreference(lookupUsers[k], lookupItems[k]));
+        }
+    }
+
+    /**
+     * Iterates over the items of every user.
+     *
+     * @return the number of items visited
+     */
+    @Benchmark
+    public long iterateUserItems() {
+        long n = 0;
+        for (Long u : model.getUsers()) {
+            for (Long i : model.getUserItems(u)) {
+                n += i;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.recommenders.rival.benchmarks.SyntheticData;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.DataModelUtils;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link DataModelUtils#saveDataModel(net.recommenders.rival.core.DataModelIF, java.lang.String, boolean, java.lang.String)}
+ * and its temporal version, writing to a temporary file.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DataModelUtilsBenchmark {
+
+    /**
+     * Number of users.
+     */
+    @Param({"1000", "10000", "50000"})
+    public int users;
+    /**
+     * Number of items.
+     */
+    @Param({"5000"})
+    public int items;
+    /**
+     * Number of items rated by each user.
+     */
+    @Param({"20"})
+    public int itemsPerUser;
+    /**
+     * Model with the ratings.
+     */
+    private DataModelIF<Long, Long> model;
+    /**
+     * Model with the ratings and the timestamps.
+     */
+    private TemporalDataModelIF<Long, Long> temporalModel;
+    /**
+     * The file where the models are written.
+     */
+    private File file;
+
+    /**
+     * Generates the data.
+     *
+     * @throws IOException when the temporary file cannot be created
+     */
+    @Setup
+    public void setup() throws IOException {
+        SyntheticData data = new SyntheticData(users, items, itemsPerUser, SyntheticData.DEFAULT_SEED);
+        model = data.toDataModel();
+        temporalModel = data.toTemporalDataModel();
+        file = File.createTempFile("rival-benchmark", ".tsv");
+    }
+
+    /**
+     * Deletes the file.
+     */
+    @TearDown
+    public void tearDown() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Writes the ratings.
+     *
+     * @return the length of the file
+     * @throws IOException when the file cannot be written
+     */
+    @Benchmark
+    public long saveDataModel() throws IOException {
+        DataModelUtils.saveDataModel(model, file.getPath(), true, "\t");
+        return file.length();
+    }
+
+    /**
+     * Writes the ratings and the timestamps.
+     *
+     * @return the length of the file
+     * @throws IOException when the file cannot be written
+     */
+    @Benchmark
+    public long saveTemporalDataModel() throws IOException {
+        DataModelUtils.saveDataModel(temporalModel, file.getPath(), true, "\t");
+        return file.length();
+    }
+}
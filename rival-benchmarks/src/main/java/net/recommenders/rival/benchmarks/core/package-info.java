@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks of the RiVal data models.
+ */
+package net.recommenders.rival.benchmarks.core;
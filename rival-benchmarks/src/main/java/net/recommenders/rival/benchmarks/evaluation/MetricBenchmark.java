@@ -0,0 +1,338 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.evaluation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.recommenders.rival.benchmarks.SyntheticData;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.evaluation.metric.error.MAE;
+import net.recommenders.rival.evaluation.metric.error.RMSE;
+import net.recommenders.rival.evaluation.metric.ranking.AbstractRankingMetric;
+import net.recommenders.rival.evaluation.metric.ranking.MAP;
+import net.recommenders.rival.evaluation.metric.ranking.NDCG;
+import net.recommenders.rival.evaluation.metric.ranking.PopularityStratifiedRecall;
+import net.recommenders.rival.evaluation.metric.ranking.Precision;
+import net.recommenders.rival.evaluation.metric.ranking.Recall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the metrics: ranking the recommended items, building the
+ * ranked relevance lists, and computing every metric (the ranking ones at
+ * every cutoff). The metrics cache their values, so a new metric is created
+ * in every invocation.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MetricBenchmark {
+
+    /**
+     * Relevance threshold.
+     */
+    private static final double REL_TH = 3.0;
+    /**
+     * Smoothing parameter of {@link PopularityStratifiedRecall}.
+     */
+    private static final double GAMMA = 1.0;
+    /**
+     * Number of users.
+     */
+    @Param({"1000", "5000"})
+    public int users;
+    /**
+     * Number of items.
+     */
+    @Param({"5000"})
+    public int items;
+    /**
+     * Number of test items of each user.
+     */
+    @Param({"20"})
+    public int itemsPerUser;
+    /**
+     * Number of recommended items for each user.
+     */
+    @Param({"20", "100", "500"})
+    public int listLength;
+    /**
+     * Cutoffs, separated by commas.
+     */
+    @Param({"5,10,20", "1,5,10,20,50,100,200,500"})
+    public String cutoffs;
+    /**
+     * Groundtruth.
+     */
+    private DataModelIF<Long, Long> test;
+    /**
+     * Recommendations.
+     */
+    private DataModelIF<Long, Long> predictions;
+    /**
+     * Recommendations of every user, as given to
+     * {@link net.recommenders.rival.evaluation.metric.AbstractMetric#rankItems(java.util.Map)}.
+     */
+    private List<Map<Long, Double>> userPredictions;
+    /**
+     * Number of relevant ratings of each item.
+     */
+    private Map<Long, Integer> itemRelevance;
+    /**
+     * Parsed cutoffs.
+     */
+    private int[] ats;
+    /**
+     * Ranking metrics already computed.
+     */
+    private List<AbstractRankingMetric<Long, Long>> computed;
+
+    /**
+     * Exposes the ranking of {@link net.recommenders.rival.evaluation.metric.AbstractMetric}.
+     */
+    private static final class Ranker extends Precision<Long, Long> {
+
+        /**
+         * Constructor.
+         */
+        Ranker() {
+            super(DataModelFactory.<Long, Long>getDefaultModel(), DataModelFactory.<Long, Long>getDefaultModel());
+        }
+
+        /**
+         * Ranks the items by score.
+         *
+         * @param userItems map with scores for each item
+         * @return the ranked list
+         */
+        List<Long> rank(final Map<Long, Double> userItems) {
+            return rankItems(userItems);
+        }
+    }
+
+    /**
+     * Generates the groundtruth and the recommendations: each user gets
+     * {@link #listLength} items with random scores, among them every test
+     * item with probability 1/2.
+     */
+    @Setup
+    public void setup() {
+        SyntheticData data = new SyntheticData(users, items, itemsPerUser, SyntheticData.DEFAULT_SEED);
+        test = data.toDataModel();
+        ats = parseCutoffs(cutoffs);
+        itemRelevance = new HashMap<>();
+        for (int k = 0; k < data.size(); k++) {
+            if (data.getRating(k) >= REL_TH) {
+                Integer n = itemRelevance.get(data.getItem(k));
+                itemRelevance.put(data.getItem(k), n == null ? 1 : n + 1);
+            }
+        }
+        predictions = DataModelFactory.getDefaultModel();
+        userPredictions = new ArrayList<>();
+        Random rnd = new Random(SyntheticData.DEFAULT_SEED);
+        int length = Math.min(listLength, items);
+        for (Long u : test.getUsers()) {
+            Map<Long, Double> scores = new HashMap<>();
+            for (Long i : test.getUserItems(u)) {
+                if (scores.size() < length && rnd.nextBoolean()) {
+                    scores.put(i, rnd.nextDouble());
+                }
+            }
+            while (scores.size() < length) {
+                long i = rnd.nextInt(items);
+                if (!scores.containsKey(i)) {
+                    scores.put(i, rnd.nextDouble());
+                }
+            }
+            for (Map.Entry<Long, Double> e : scores.entrySet()) {
+                predictions.addPreference(u, e.getKey(), e.getValue());
+            }
+            userPredictions.add(scores);
+        }
+        computed = new ArrayList<>();
+        computed.add(new NDCG<>(predictions, test, REL_TH, ats, NDCG.TYPE.EXP));
+        computed.add(new MAP<>(predictions, test, REL_TH, ats));
+        computed.add(new Precision<>(predictions, test, REL_TH, ats));
+        computed.add(new Recall<>(predictions, test, REL_TH, ats));
+        computed.add(new PopularityStratifiedRecall<>(predictions, test, REL_TH, ats, GAMMA, itemRelevance));
+        for (AbstractRankingMetric<Long, Long> m : computed) {
+            m.compute();
+        }
+    }
+
+    /**
+     * Parses a list of cutoffs.
+     *
+     * @param cutoffs the cutoffs, separated by commas
+     * @return the cutoffs
+     */
+    static int[] parseCutoffs(final String cutoffs) {
+        String[] toks = cutoffs.split(",");
+        int[] ats = new int[toks.length];
+        for (int k = 0; k < toks.length; k++) {
+            ats[k] = Integer.parseInt(toks[k].trim());
+        }
+        return ats;
+    }
+
+    /**
+     * Computes a ranking metric and its value at every cutoff.
+     *
+     * @param metric the metric
+     * @return the sum of the values
+     */
+    private double compute(final AbstractRankingMetric<Long, Long> metric) {
+        metric.compute();
+        double sum = metric.getValue();
+        for (int at : ats) {
+            sum += metric.getValueAt(at);
+        }
+        return sum;
+    }
+
+    /**
+     * Ranks the recommendations of every user.
+     *
+     * @param bh the blackhole
+     */
+    @Benchmark
+    public void rankItems(final Blackhole bh) {
+        Ranker ranker = new Ranker();
+        for (Map<Long, Double> scores : userPredictions) {
+            bh.consume(ranker.rank(scores));
+        }
+    }
+
+    /**
+     * Builds the ranked relevance lists of every user.
+     *
+     * @return the lists
+     */
+    @Benchmark
+    public Object processDataAsRankedTestRelevance() {
+        return new Precision<>(predictions, test, REL_TH, ats).processDataAsRankedTestRelevance();
+    }
+
+    /**
+     * Computes {@link NDCG}.
+     *
+     * @return the sum of the values
+     */
+    @Benchmark
+    public double ndcg() {
+        return compute(new NDCG<>(predictions, test, REL_TH, ats, NDCG.TYPE.EXP));
+    }
+
+    /**
+     * Computes {@link MAP}.
+     *
+     * @return the sum of the values
+     */
+    @Benchmark
+    public double map() {
+        return compute(new MAP<>(predictions, test, REL_TH, ats));
+    }
+
+    /**
+     * Computes {@link Precision}.
+     *
+     * @return the sum of the values
+     */
+    @Benchmark
+    public double precision() {
+        return compute(new Precision<>(predictions, test, REL_TH, ats));
+    }
+
+    /**
+     * Computes {@link Recall}.
+     *
+     * @return the sum of the values
+     */
+    @Benchmark
+    public double recall() {
+        return compute(new Recall<>(predictions, test, REL_TH, ats));
+    }
+
+    /**
+     * Computes {@link PopularityStratifiedRecall}.
+     *
+     * @return the sum of the values
+     */
+    @Benchmark
+    public double popularityStratifiedRecall() {
+        return compute(new PopularityStratifiedRecall<>(predictions, test, REL_TH, ats, GAMMA, itemRelevance));
+    }
+
+    /**
+     * Computes {@link MAE}.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public double mae() {
+        MAE<Long, Long> metric = new MAE<>(predictions, test);
+        metric.compute();
+        return metric.getValue();
+    }
+
+    /**
+     * Computes {@link RMSE}.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public double rmse() {
+        RMSE<Long, Long> metric = new RMSE<>(predictions, test);
+        metric.compute();
+        return metric.getValue();
+    }
+
+    /**
+     * Gets the value at every cutoff of the ranking metrics already computed.
+     *
+     * @return the sum of the values
+     */
+    @Benchmark
+    public double getValueAt() {
+        double sum = 0.0;
+        for (AbstractRankingMetric<Long, Long> m : computed) {
+            for (int at : ats) {
+                sum += m.getValueAt(at);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.evaluation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.recommenders.rival.benchmarks.SyntheticData;
+import net.recommenders.rival.evaluation.statistics.ConfidenceInterval;
+import net.recommenders.rival.evaluation.statistics.EffectSize;
+import net.recommenders.rival.evaluation.statistics.StatisticalSignificance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the statistical tests, confidence intervals and effect sizes
+ * when comparing the metric values per user of two (or three) systems.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StatisticsBenchmark {
+
+    /**
+     * Probability of incorrectly rejecting the null hypothesis.
+     */
+    private static final double ALPHA = 0.05;
+    /**
+     * Number of users.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int users;
+    /**
+     * Values of the baseline.
+     */
+    private Map<Long, Double> baseline;
+    /**
+     * Values of the tested system, slightly better than the baseline.
+     */
+    private Map<Long, Double> tested;
+    /**
+     * Values of three systems.
+     */
+    private Map<Long, Double>[] systems;
+
+    /**
+     * Generates the values.
+     */
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Random rnd = new Random(SyntheticData.DEFAULT_SEED);
+        baseline = new HashMap<>();
+        tested = new HashMap<>();
+        Map<Long, Double> third = new HashMap<>();
+        for (long u = 0; u < users; u++) {
+            double v = rnd.nextDouble();
+            baseline.put(u, v);
+            tested.put(u, Math.min(1.0, v + 0.1 * rnd.nextDouble()));
+            third.put(u, rnd.nextDouble());
+        }
+        systems = (Map<Long, Double>[]) new Map<?, ?>[]{baseline, tested, third};
+    }
+
+    /**
+     * Computes the p-value of the t test.
+     *
+     * @return the p-value
+     */
+    @Benchmark
+    public double tTest() {
+        return new StatisticalSignificance(baseline, tested).getPValue("t");
+    }
+
+    /**
+     * Computes the p-value of the paired t test.
+     *
+     * @return the p-value
+     */
+    @Benchmark
+    public double pairedTTest() {
+        return new StatisticalSignificance(baseline, tested).getPValue("pairedT");
+    }
+
+    /**
+     * Computes the p-value of the Wilcoxon signed-rank test.
+     *
+     * @return the p-value
+     */
+    @Benchmark
+    public double wilcoxon() {
+        return new StatisticalSignificance(baseline, tested).getPValue("wilcoxon");
+    }
+
+    /**
+     * Computes the confidence interval of the paired difference.
+     *
+     * @return the interval
+     */
+    @Benchmark
+    public double[] confidenceIntervalPaired() {
+        return new ConfidenceInterval().getConfidenceInterval(ALPHA, baseline, tested, true);
+    }
+
+    /**
+     * Computes the confidence interval of the unpaired difference.
+     *
+     * @return the interval
+     */
+    @Benchmark
+    public double[] confidenceIntervalUnpaired() {
+        return new ConfidenceInterval().getConfidenceInterval(ALPHA, baseline, tested, false);
+    }
+
+    /**
+     * Computes the confidence intervals of three systems.
+     *
+     * @return the intervals
+     */
+    @Benchmark
+    public double[][] confidenceIntervalSystems() {
+        return new ConfidenceInterval().getConfidenceInterval(ALPHA, systems);
+    }
+
+    /**
+     * Computes Cohen's d.
+     *
+     * @return the effect size
+     */
+    @Benchmark
+    public double effectSizeD() {
+        return new EffectSize<>(baseline, tested).getEffectSize("d");
+    }
+
+    /**
+     * Computes Cohen's d with the least squares estimation.
+     *
+     * @return the effect size
+     */
+    @Benchmark
+    public double effectSizeDLS() {
+        return new EffectSize<>(baseline, tested).getEffectSize("dLS");
+    }
+
+    /**
+     * Computes the effect size of the paired t test.
+     *
+     * @return the effect size
+     */
+    @Benchmark
+    public double effectSizePairedT() {
+        return new EffectSize<>(baseline, tested).getEffectSize("pairedT");
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.evaluation;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import net.recommenders.rival.benchmarks.SyntheticData;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.evaluation.strategy.EvaluationStrategy;
+import net.recommenders.rival.evaluation.strategy.StrategyRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of
+ * {@link EvaluationStrategy#getCandidateItemsToRank(java.lang.Object)} for
+ * every strategy, instantiated as {@link StrategyRunner} does. One in five
+ * synthetic interactions goes to the test split.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StrategyBenchmark {
+
+    /**
+     * Relevance threshold.
+     */
+    private static final double REL_TH = 3.0;
+    /**
+     * Number of not relevant items of {@link net.recommenders.rival.evaluation.strategy.RelPlusN}.
+     */
+    private static final int RELPLUSN_N = 100;
+    /**
+     * One in this number of interactions goes to the test split.
+     */
+    private static final int TEST_RATIO = 5;
+    /**
+     * Number of users.
+     */
+    @Param({"1000", "5000"})
+    public int users;
+    /**
+     * Number of items.
+     */
+    @Param({"1000", "10000"})
+    public int items;
+    /**
+     * Number of items rated by each user.
+     */
+    @Param({"50"})
+    public int itemsPerUser;
+    /**
+     * Simple name of the strategy.
+     */
+    @Param({"AllItems", "RelPlusN", "TestItems", "TrainItems", "UserTest"})
+    public String strategy;
+    /**
+     * The test split.
+     */
+    private DataModelIF<Long, Long> test;
+    /**
+     * The strategy.
+     */
+    private EvaluationStrategy<Long, Long> evaluationStrategy;
+
+    /**
+     * Generates the splits and instantiates the strategy.
+     *
+     * @throws Exception when the strategy cannot be instantiated
+     */
+    @Setup
+    public void setup() throws Exception {
+        SyntheticData data = new SyntheticData(users, items, itemsPerUser, SyntheticData.DEFAULT_SEED);
+        DataModelIF<Long, Long> training = DataModelFactory.getDefaultModel();
+        test = DataModelFactory.getDefaultModel();
+        for (int k = 0; k < data.size(); k++) {
+            DataModelIF<Long, Long> split = (k % TEST_RATIO == 0) ? test : training;
+            split.addPreference(data.getUser(k), data.getItem(k), data.getRating(k));
+        }
+        Properties properties = new Properties();
+        properties.setProperty(StrategyRunner.STRATEGY, EvaluationStrategy.class.getPackage().getName() + "." + strategy);
+        properties.setProperty(StrategyRunner.RELEVANCE_THRESHOLD, Double.toString(REL_TH));
+        properties.setProperty(StrategyRunner.RELPLUSN_N, Integer.toString(RELPLUSN_N));
+        properties.setProperty(StrategyRunner.RELPLUSN_SEED, Long.toString(SyntheticData.DEFAULT_SEED));
+        evaluationStrategy = StrategyRunner.instantiateStrategy(properties, training, test);
+    }
+
+    /**
+     * Gets the candidate items of every test user.
+     *
+     * @param bh the blackhole
+     */
+    @Benchmark
+    public void getCandidateItemsToRank(final Blackhole bh) {
+        for (Long u : test.getUsers()) {
+            bh.consume(evaluationStrategy.getCandidateItemsToRank(u));
+        }
+    }
+}
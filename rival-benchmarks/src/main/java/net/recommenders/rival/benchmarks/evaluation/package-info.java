@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks of the RiVal metrics, strategies and statistics.
+ */
+package net.recommenders.rival.benchmarks.evaluation;
@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks of RiVal on synthetic data.
+ */
+package net.recommenders.rival.benchmarks;
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.recommenders.rival.benchmarks.SyntheticData;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.SimpleParser;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.core.UIPParser;
+import net.recommenders.rival.evaluation.parser.TrecEvalParser;
+import net.recommenders.rival.split.parser.MovielensParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the parsers: each benchmark parses a file with the same
+ * synthetic interactions in the format of the parser.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+    /**
+     * Number of users.
+     */
+    @Param({"1000", "10000", "50000"})
+    public int users;
+    /**
+     * Number of items.
+     */
+    @Param({"5000"})
+    public int items;
+    /**
+     * Number of items rated by each user.
+     */
+    @Param({"20"})
+    public int itemsPerUser;
+    /**
+     * File in {@link SyntheticData.Format#SIMPLE} format.
+     */
+    private File simpleFile;
+    /**
+     * File in {@link SyntheticData.Format#MOVIELENS} format.
+     */
+    private File movielensFile;
+    /**
+     * File in {@link SyntheticData.Format#CSV} format.
+     */
+    private File csvFile;
+    /**
+     * File in {@link SyntheticData.Format#TREC} format.
+     */
+    private File trecFile;
+
+    /**
+     * Writes the files.
+     *
+     * @throws IOException when the files cannot be written
+     */
+    @Setup
+    public void setup() throws IOException {
+        SyntheticData data = new SyntheticData(users, items, itemsPerUser, SyntheticData.DEFAULT_SEED);
+        simpleFile = write(data, SyntheticData.Format.SIMPLE);
+        movielensFile = write(data, SyntheticData.Format.MOVIELENS);
+        csvFile = write(data, SyntheticData.Format.CSV);
+        trecFile = write(data, SyntheticData.Format.TREC);
+    }
+
+    /**
+     * Writes the data to a temporary file.
+     *
+     * @param data the data
+     * @param format the format
+     * @return the file
+     * @throws IOException when the file cannot be written
+     */
+    private static File write(final SyntheticData data, final SyntheticData.Format format) throws IOException {
+        File file = File.createTempFile("rival-benchmark-" + format.name().toLowerCase(), ".dat");
+        file.deleteOnExit();
+        data.write(file, format);
+        return file;
+    }
+
+    /**
+     * Deletes the files.
+     */
+    @TearDown
+    public void tearDown() {
+        for (File f : new File[]{simpleFile, movielensFile, csvFile, trecFile}) {
+            if (!f.delete()) {
+                f.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Parses with {@link SimpleParser}.
+     *
+     * @return the model
+     * @throws IOException when the file cannot be read
+     */
+    @Benchmark
+    public TemporalDataModelIF<Long, Long> simpleParser() throws IOException {
+        return new SimpleParser().parseTemporalData(simpleFile);
+    }
+
+    /**
+     * Parses with {@link MovielensParser}.
+     *
+     * @return the model
+     * @throws IOException when the file cannot be read
+     */
+    @Benchmark
+    public TemporalDataModelIF<Long, Long> movielensParser() throws IOException {
+        return new MovielensParser().parseTemporalData(movielensFile);
+    }
+
+    /**
+     * Parses with {@link UIPParser}.
+     *
+     * @return the model
+     * @throws IOException when the file cannot be read
+     */
+    @Benchmark
+    public TemporalDataModelIF<Long, Long> uipParser() throws IOException {
+        return new UIPParser().parseTemporalData(csvFile);
+    }
+
+    /**
+     * Parses with {@link TrecEvalParser}.
+     *
+     * @return the model
+     * @throws IOException when the file cannot be read
+     */
+    @Benchmark
+    public DataModelIF<Long, Long> trecEvalParser() throws IOException {
+        return new TrecEvalParser().parseData(trecFile);
+    }
+}
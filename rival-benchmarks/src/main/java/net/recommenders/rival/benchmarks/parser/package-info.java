@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks of the RiVal parsers.
+ */
+package net.recommenders.rival.benchmarks.parser;
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.pipeline;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples the used heap through JMX at a fixed interval, keeping its peak
+ * since the last reset, and reads the collection counts and times of the
+ * garbage collectors. The used heap includes garbage not collected yet, so
+ * the peak is an upper bound of the live data.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class HeapSampler implements Runnable {
+
+    /**
+     * The memory bean.
+     */
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    /**
+     * Peak of the used heap since the last reset.
+     */
+    private final AtomicLong peak = new AtomicLong();
+    /**
+     * Sampling interval in milliseconds.
+     */
+    private final long interval;
+    /**
+     * Executor of the sampling, when started.
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructor.
+     *
+     * @param intervalMillis sampling interval in milliseconds
+     */
+    public HeapSampler(final long intervalMillis) {
+        this.interval = intervalMillis;
+    }
+
+    /**
+     * Starts sampling in a daemon thread.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(r, "heap-sampler");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.scheduleAtFixedRate(this, 0L, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Takes a sample.
+     */
+    @Override
+    public void run() {
+        long used = memory.getHeapMemoryUsage().getUsed();
+        long current = peak.get();
+        while (used > current && !peak.compareAndSet(current, used)) {
+            current = peak.get();
+        }
+    }
+
+    /**
+     * Restarts the peak from the heap used now.
+     */
+    public void resetPeak() {
+        peak.set(memory.getHeapMemoryUsage().getUsed());
+    }
+
+    /**
+     * Gets the peak of the used heap since the last reset, including a sample
+     * taken now.
+     *
+     * @return the peak in bytes
+     */
+    public long getPeak() {
+        run();
+        return peak.get();
+    }
+
+    /**
+     * Gets the number of collections of all the garbage collectors.
+     *
+     * @return the number of collections
+     */
+    public static long getGcCount() {
+        long n = 0L;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            n += Math.max(0L, gc.getCollectionCount());
+        }
+        return n;
+    }
+
+    /**
+     * Gets the accumulated collection time of all the garbage collectors.
+     *
+     * @return the time in milliseconds
+     */
+    public static long getGcTime() {
+        long t = 0L;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            t += Math.max(0L, gc.getCollectionTime());
+        }
+        return t;
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.pipeline;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.evaluation.metric.MultipleEvaluationMetricRunner;
+import net.recommenders.rival.evaluation.statistics.StatisticsRunner;
+import net.recommenders.rival.evaluation.strategy.MultipleStrategyRunner;
+import net.recommenders.rival.recommend.frameworks.MultipleRecommendationRunner;
+import net.recommenders.rival.recommend.frameworks.RecommendationSink;
+import net.recommenders.rival.split.generator.GeneratorRunner;
+import net.recommenders.rival.split.generator.SyntheticDataGenerator;
+import net.recommenders.rival.split.parser.MovielensParser;
+import net.recommenders.rival.split.parser.ParserRunner;
+import net.recommenders.rival.split.splitter.RandomSplitter;
+import net.recommenders.rival.split.splitter.SplitterRunner;
+
+/**
+ * End-to-end throughput harness: for each requested number of interactions,
+ * it generates a synthetic data set (see {@link SyntheticDataGenerator}) and
+ * runs the whole pipeline on it with the usual runners (parse with
+ * {@link ParserRunner}, split with {@link SplitterRunner}, recommend with
+ * {@link MultipleRecommendationRunner}, generate the rankings with
+ * {@link MultipleStrategyRunner}, evaluate with
+ * {@link MultipleEvaluationMetricRunner}, and compare the recommenders with
+ * {@link StatisticsRunner}), measuring the wall time, the peak heap and the
+ * garbage collections of every stage through JMX (see {@link HeapSampler}).
+ *
+ * The properties are those of the runners (the files and folders are set by
+ * the harness) plus the {@code harness.*} ones; the report is written as JSON,
+ * so that the numbers of different releases can be compared.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class PipelineHarness {
+
+    /**
+     * Property key: numbers of interactions, separated by commas.
+     */
+    public static final String SIZES = "harness.sizes";
+    /**
+     * Property key: folder where the data of every run is written.
+     */
+    public static final String FOLDER = "harness.folder";
+    /**
+     * Property key: file where the report is written.
+     */
+    public static final String REPORT = "harness.report";
+    /**
+     * Property key: heap sampling interval in milliseconds.
+     */
+    public static final String SAMPLING_INTERVAL = "harness.sampling.interval";
+    /**
+     * Property key: when true, the data of every run is deleted afterwards.
+     */
+    public static final String CLEAN = "harness.clean";
+    /**
+     * Properties used when no file is given.
+     */
+    public static final String DEFAULT_PROPERTIES = "pipeline.harness.properties";
+    /**
+     * Prefix of the split files.
+     */
+    private static final String SPLIT_PREFIX = "split";
+    /**
+     * Suffix of the training files, as expected by
+     * {@link MultipleRecommendationRunner}.
+     */
+    private static final String TRAINING_SUFFIX = "_train.dat";
+    /**
+     * Suffix of the test files, as expected by
+     * {@link MultipleRecommendationRunner}.
+     */
+    private static final String TEST_SUFFIX = "_test.dat";
+    /**
+     * Prefix of the rankings written by {@link MultipleStrategyRunner}.
+     */
+    private static final String RANKING_PREFIX = "out__";
+
+    /**
+     * A stage of the pipeline.
+     */
+    private interface Stage {
+
+        /**
+         * Runs the stage.
+         *
+         * @throws Exception when the stage fails
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Utility classes should not have a public or default constructor.
+     */
+    private PipelineHarness() {
+    }
+
+    /**
+     * Main method that loads the properties from a file (given by the system
+     * property "propertyFile", or {@link #DEFAULT_PROPERTIES} from the
+     * classpath) and runs the harness.
+     *
+     * @param args program arguments (not used)
+     * @throws Exception when a stage fails
+     */
+    public static void main(final String[] args) throws Exception {
+        String propertyFile = System.getProperty("propertyFile");
+        Properties properties = new Properties();
+        InputStream in = (propertyFile == null)
+                ? PipelineHarness.class.getClassLoader().getResourceAsStream(DEFAULT_PROPERTIES)
+                : new FileInputStream(propertyFile);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        run(properties);
+    }
+
+    /**
+     * Runs the pipeline for every number of interactions and writes the
+     * report.
+     *
+     * @param properties the properties
+     * @return the report, as JSON
+     * @throws Exception when a stage fails
+     */
+    public static String run(final Properties properties) throws Exception {
+        String[] sizes = properties.getProperty(SIZES, "1000000").split(",");
+        File folder = new File(properties.getProperty(FOLDER, "pipeline"));
+        boolean clean = Boolean.parseBoolean(properties.getProperty(CLEAN, "true"));
+        HeapSampler sampler = new HeapSampler(Long.parseLong(properties.getProperty(SAMPLING_INTERVAL, "100")));
+        List<String> runs = new ArrayList<>();
+        sampler.start();
+        try {
+            for (String size : sizes) {
+                File runFolder = new File(folder, size.trim());
+                runs.add(runPipeline(properties, Long.parseLong(size.trim()), runFolder, sampler));
+                if (clean) {
+                    delete(runFolder);
+                }
+            }
+        } finally {
+            sampler.stop();
+        }
+        String report = toJson(runs);
+        File reportFile = new File(properties.getProperty(REPORT, "rival-pipeline.json"));
+        try (PrintStream out = new PrintStream(reportFile, "UTF-8")) {
+            out.println(report);
+        }
+        System.out.println("Report written to " + reportFile);
+        return report;
+    }
+
+    /**
+     * Runs the pipeline once.
+     *
+     * @param properties the properties
+     * @param size the (approximate) number of interactions
+     * @param runFolder folder for the data of this run
+     * @param sampler the heap sampler
+     * @return the report of the run, as JSON
+     * @throws Exception when a stage fails
+     */
+    private static String runPipeline(final Properties properties, final long size, final File runFolder,
+            final HeapSampler sampler) throws Exception {
+        final File dataFile = new File(runFolder, "data.dat");
+        final File splitFolder = new File(runFolder, "splits");
+        final File recFolder = new File(runFolder, "recommendations");
+        final File rankingFolder = new File(runFolder, "rankings");
+        final File groundtruthFolder = new File(runFolder, "groundtruth");
+        final File evalFolder = new File(runFolder, "evaluation");
+        final File statisticsFile = new File(runFolder, "statistics.txt");
+        for (File f : new File[]{splitFolder, recFolder, rankingFolder, groundtruthFolder, evalFolder}) {
+            if (!f.mkdirs() && !f.isDirectory()) {
+                throw new IOException("Cannot create " + f);
+            }
+        }
+
+        final Properties generator = copy(properties);
+        int minActivity = Integer.parseInt(generator.getProperty(GeneratorRunner.MIN_ACTIVITY, "1"));
+        int maxActivity = Integer.parseInt(generator.getProperty(GeneratorRunner.MAX_ACTIVITY, generator.getProperty(GeneratorRunner.ITEMS)));
+        double activityExponent = Double.parseDouble(generator.getProperty(GeneratorRunner.ACTIVITY_EXPONENT, GeneratorRunner.DEFAULT_EXPONENT));
+        long users = Math.max(1L, Math.round(size / meanActivity(minActivity, maxActivity, activityExponent)));
+        generator.setProperty(GeneratorRunner.USERS, Long.toString(users));
+        generator.setProperty(GeneratorRunner.OUTPUT_FILE, dataFile.getPath());
+        generator.setProperty(GeneratorRunner.OUTPUT_FORMAT, SyntheticDataGenerator.Format.MOVIELENS.toString());
+
+        final Properties parser = copy(properties);
+        parser.setProperty(ParserRunner.DATASET_FILE, dataFile.getPath());
+        parser.setProperty(ParserRunner.DATASET_PARSER, MovielensParser.class.getName());
+
+        final Properties splitter = copy(properties);
+        splitter.setProperty(SplitterRunner.DATASET_SPLITTER, splitter.getProperty(SplitterRunner.DATASET_SPLITTER, RandomSplitter.class.getName()));
+        splitter.setProperty(SplitterRunner.SPLIT_OUTPUT_FOLDER, splitFolder.getPath() + File.separator);
+        splitter.setProperty(SplitterRunner.SPLIT_OUTPUT_OVERWRITE, "true");
+        splitter.setProperty(SplitterRunner.SPLIT_TRAINING_PREFIX, SPLIT_PREFIX);
+        splitter.setProperty(SplitterRunner.SPLIT_TRAINING_SUFFIX, TRAINING_SUFFIX);
+        splitter.setProperty(SplitterRunner.SPLIT_TEST_PREFIX, SPLIT_PREFIX);
+        splitter.setProperty(SplitterRunner.SPLIT_TEST_SUFFIX, TEST_SUFFIX);
+
+        final Properties recommender = copy(properties);
+        recommender.setProperty(MultipleRecommendationRunner.INPUT, splitFolder.getPath());
+        recommender.setProperty(MultipleRecommendationRunner.OUTPUT, recFolder.getPath());
+
+        final Properties strategy = copy(properties);
+        strategy.setProperty(MultipleStrategyRunner.SPLITS_FOLDER, splitFolder.getPath());
+        strategy.setProperty(MultipleStrategyRunner.TRAINING_SUFFIX, TRAINING_SUFFIX);
+        strategy.setProperty(MultipleStrategyRunner.TEST_SUFFIX, TEST_SUFFIX);
+        strategy.setProperty(MultipleStrategyRunner.RECOMMENDATION_FOLDER, recFolder.getPath());
+        strategy.setProperty(MultipleStrategyRunner.RECOMMENDATION_SUFFIX, "." + RecommendationSink.FORMAT_TEXT);
+        strategy.setProperty(MultipleStrategyRunner.OUTPUT_FORMAT, "SIMPLE");
+        strategy.setProperty(MultipleStrategyRunner.OUTPUT_FOLDER, rankingFolder.getPath());
+        strategy.setProperty(MultipleStrategyRunner.GROUNDTRUTH_FOLDER, groundtruthFolder.getPath());
+
+        final Properties metric = copy(properties);
+        metric.setProperty(MultipleEvaluationMetricRunner.PREDICTION_FOLDER, rankingFolder.getPath());
+        metric.setProperty(MultipleEvaluationMetricRunner.PREDICTION_PREFIX, RANKING_PREFIX);
+        metric.setProperty(MultipleEvaluationMetricRunner.PREDICTION_FILE_FORMAT, "SIMPLE");
+        metric.setProperty(MultipleEvaluationMetricRunner.TEST_FILE, new File(splitFolder, SPLIT_PREFIX + 0 + TEST_SUFFIX).getPath());
+        metric.setProperty(MultipleEvaluationMetricRunner.OUTPUT_FOLDER, evalFolder.getPath());
+        // the metrics of a recommender are appended to the same (new) file
+        metric.setProperty(MultipleEvaluationMetricRunner.OUTPUT_OVERWRITE, "false");
+        metric.setProperty(MultipleEvaluationMetricRunner.OUTPUT_APPEND, "true");
+        metric.setProperty(MultipleEvaluationMetricRunner.METRIC_PER_USER, "true");
+
+        final Properties statistics = copy(properties);
+        statistics.setProperty(StatisticsRunner.INPUT_FORMAT, "default");
+        statistics.setProperty(StatisticsRunner.OUTPUT_FILE, statisticsFile.getPath());
+        statistics.setProperty(StatisticsRunner.OUTPUT_OVERWRITE, "true");
+
+        final long[] generated = new long[1];
+        final List<TemporalDataModelIF<Long, Long>> data = new ArrayList<>();
+        List<StageReport> stages = new ArrayList<>();
+        System.out.println("Pipeline started: " + size + " interactions, " + users + " users");
+        StageReport generation = measure("generate", sampler, new Stage() {
+            @Override
+            public void run() throws Exception {
+                generated[0] = GeneratorRunner.run(generator);
+            }
+        });
+        stages.add(measure("parse", sampler, new Stage() {
+            @Override
+            public void run() throws Exception {
+                data.add(ParserRunner.run(parser));
+            }
+        }));
+        stages.add(measure("split", sampler, new Stage() {
+            @Override
+            public void run() throws Exception {
+                SplitterRunner.run(splitter, data.remove(0), true);
+            }
+        }));
+        stages.add(measure("recommend", sampler, new Stage() {
+            @Override
+            public void run() throws Exception {
+                Set<String> paths = new HashSet<>();
+                MultipleRecommendationRunner.listAllFiles(paths, recommender.getProperty(MultipleRecommendationRunner.INPUT));
+                MultipleRecommendationRunner.runLenskitRecommenders(paths, recommender);
+                MultipleRecommendationRunner.runMahoutRecommenders(paths, recommender);
+                MultipleRecommendationRunner.runRivalRecommenders(paths, recommender);
+            }
+        }));
+        stages.add(measure("strategy", sampler, new Stage() {
+            @Override
+            public void run() throws Exception {
+                MultipleStrategyRunner.run(strategy);
+            }
+        }));
+        stages.add(measure("evaluate", sampler, new Stage() {
+            @Override
+            public void run() throws Exception {
+                MultipleEvaluationMetricRunner.run(metric);
+            }
+        }));
+        File[] evaluations = evalFolder.listFiles();
+        if (evaluations != null && evaluations.length > 1) {
+            Arrays.sort(evaluations);
+            StringBuilder methods = new StringBuilder();
+            for (int k = 1; k < evaluations.length; k++) {
+                methods.append(k > 1 ? "," : "").append(evaluations[k].getPath());
+            }
+            statistics.setProperty(StatisticsRunner.BASELINE_FILE, evaluations[0].getPath());
+            statistics.setProperty(StatisticsRunner.TEST_METHODS_FILES, methods.toString());
+            stages.add(measure("statistics", sampler, new Stage() {
+                @Override
+                public void run() throws Exception {
+                    StatisticsRunner.run(statistics);
+                }
+            }));
+        } else {
+            System.out.println("Statistics skipped: at least two recommenders are needed");
+        }
+
+        long time = 0L;
+        long peakHeap = 0L;
+        long gcCount = 0L;
+        long gcTime = 0L;
+        StringBuilder json = new StringBuilder();
+        for (StageReport s : stages) {
+            time += s.getTime();
+            peakHeap = Math.max(peakHeap, s.getPeakHeap());
+            gcCount += s.getGcCount();
+            gcTime += s.getGcTime();
+            json.append(json.length() == 0 ? "" : ",\n        ").append(s.toJson());
+        }
+        System.out.println("Pipeline finished: " + time + " ms, peak heap " + (peakHeap >> 20) + " MB");
+        return "{\n      \"interactions\": " + size + ", \"generatedInteractions\": " + generated[0]
+                + ", \"users\": " + users + ", \"items\": " + generator.getProperty(GeneratorRunner.ITEMS)
+                + ",\n      \"wallTimeMs\": " + time + ", \"peakHeapBytes\": " + peakHeap
+                + ", \"gcCount\": " + gcCount + ", \"gcTimeMs\": " + gcTime
+                + ",\n      \"generation\": " + generation.toJson()
+                + ",\n      \"stages\": [\n        " + json + "\n      ]\n    }";
+    }
+
+    /**
+     * Runs a stage and measures it.
+     *
+     * @param name the name of the stage
+     * @param sampler the heap sampler
+     * @param stage the stage
+     * @return the measures
+     * @throws Exception when the stage fails
+     */
+    private static StageReport measure(final String name, final HeapSampler sampler, final Stage stage) throws Exception {
+        long gcCount = HeapSampler.getGcCount();
+        long gcTime = HeapSampler.getGcTime();
+        sampler.resetPeak();
+        long time = System.currentTimeMillis();
+        stage.run();
+        time = System.currentTimeMillis() - time;
+        StageReport report = new StageReport(name, time, sampler.getPeak(),
+                HeapSampler.getGcCount() - gcCount, HeapSampler.getGcTime() - gcTime);
+        System.out.println(report);
+        return report;
+    }
+
+    /**
+     * Computes the expected number of items per user of the generator.
+     *
+     * @param minActivity minimum number of items per user
+     * @param maxActivity maximum number of items per user
+     * @param exponent exponent of the activity distribution
+     * @return the expected number of items per user
+     */
+    static double meanActivity(final int minActivity, final int maxActivity, final double exponent) {
+        double norm = 0.0;
+        double sum = 0.0;
+        for (int k = 1; k <= maxActivity - minActivity + 1; k++) {
+            double p = Math.pow(k, -exponent);
+            norm += p;
+            sum += p * (minActivity - 1 + k);
+        }
+        return sum / norm;
+    }
+
+    /**
+     * Writes the report of all the runs.
+     *
+     * @param runs the reports of the runs, as JSON
+     * @return the report
+     */
+    private static String toJson(final List<String> runs) {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String version = PipelineHarness.class.getPackage().getImplementationVersion();
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"version\": \"").append(version == null ? "unknown" : version).append("\",\n");
+        json.append("  \"date\": \"").append(iso.format(new Date())).append("\",\n");
+        json.append("  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"jvmArguments\": \"").append(ManagementFactory.getRuntimeMXBean().getInputArguments().toString()
+                .replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\n");
+        json.append("  \"processors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"maxHeapBytes\": ").append(Runtime.getRuntime().maxMemory()).append(",\n");
+        json.append("  \"runs\": [\n    ");
+        for (int k = 0; k < runs.size(); k++) {
+            json.append(k > 0 ? ",\n    " : "").append(runs.get(k));
+        }
+        json.append("\n  ]\n}");
+        return json.toString();
+    }
+
+    /**
+     * Copies properties.
+     *
+     * @param properties the properties
+     * @return the copy
+     */
+    private static Properties copy(final Properties properties) {
+        Properties p = new Properties();
+        p.putAll(properties);
+        return p;
+    }
+
+    /**
+     * Deletes a file or a folder with all its contents.
+     *
+     * @param file the file or folder
+     */
+    private static void delete(final File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.benchmarks.pipeline;
+
+/**
+ * Measures of a stage of the pipeline.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class StageReport {
+
+    /**
+     * Name of the stage.
+     */
+    private final String name;
+    /**
+     * Wall time in milliseconds.
+     */
+    private final long time;
+    /**
+     * Peak of the used heap in bytes.
+     */
+    private final long peakHeap;
+    /**
+     * Number of garbage collections.
+     */
+    private final long gcCount;
+    /**
+     * Time spent in garbage collections in milliseconds.
+     */
+    private final long gcTime;
+
+    /**
+     * Constructor.
+     *
+     * @param theName name of the stage
+     * @param theTime wall time in milliseconds
+     * @param thePeakHeap peak of the used heap in bytes
+     * @param theGcCount number of garbage collections
+     * @param theGcTime time spent in garbage collections in milliseconds
+     */
+    public StageReport(final String theName, final long theTime, final long thePeakHeap, final long theGcCount, final long theGcTime) {
+        this.name = theName;
+        this.time = theTime;
+        this.peakHeap = thePeakHeap;
+        this.gcCount = theGcCount;
+        this.gcTime = theGcTime;
+    }
+
+    /**
+     * Gets the name of the stage.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the wall time.
+     *
+     * @return the time in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the peak of the used heap.
+     *
+     * @return the peak in bytes
+     */
+    public long getPeakHeap() {
+        return peakHeap;
+    }
+
+    /**
+     * Gets the number of garbage collections.
+     *
+     * @return the number of collections
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * Gets the time spent in garbage collections.
+     *
+     * @return the time in milliseconds
+     */
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    /**
+     * Writes the measures as a JSON object.
+     *
+     * @return the JSON object
+     */
+    public String toJson() {
+        return "{\"name\": \"" + name + "\", \"timeMs\": " + time + ", \"peakHeapBytes\": " + peakHeap
+                + ", \"gcCount\": " + gcCount + ", \"gcTimeMs\": " + gcTime + "}";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return name + ": " + time + " ms, peak heap " + (peakHeap >> 20) + " MB, " + gcCount + " GCs (" + gcTime + " ms)";
+    }
+}
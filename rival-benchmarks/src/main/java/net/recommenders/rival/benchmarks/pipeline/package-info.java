@@ -0,0 +1,4 @@
+/**
+ * RiVal end-to-end pipeline harness.
+ */
+package net.recommenders.rival.benchmarks.pipeline;
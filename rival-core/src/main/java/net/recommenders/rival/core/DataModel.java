@@ -15,6 +15,7 @@
  */
 package net.recommenders.rival.core;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -30,7 +31,12 @@ import java.util.Set;
  * @param <U> generic type for users
  * @param <I> generic type for items
  */
-public class DataModel<U, I> implements DataModelIF<U, I> {
+public class DataModel<U, I> implements DataModelIF<U, I>, Serializable {
+
+    /**
+     * Serial version.
+     */
+    private static final long serialVersionUID = 1L;
 
     /**
      * Preference map between users and items.
@@ -28,6 +28,17 @@ import java.io.IOException;
  */
 public interface Parser<U, I> {
 
+    /**
+     * Name of the counter of lines read by the parsers, in the default
+     * {@link net.recommenders.rival.core.metrics.MetricsRegistry}.
+     */
+    String LINES = "parser.lines";
+    /**
+     * The parsers add the lines read to {@link #LINES} in batches of this
+     * size, so that counting does not slow down parsing.
+     */
+    int LINES_BATCH = 65536;
+
     /**
      * Parse a temporal data file.
      *
@@ -21,6 +21,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.zip.GZIPInputStream;
+import net.recommenders.rival.core.metrics.Counter;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
 
 /**
  * Data parser for tab-separated data files.
@@ -75,14 +77,21 @@ public class SimpleParser implements Parser<Long, Long> {
     public TemporalDataModelIF<Long, Long> parseData(final File f, final String token, final boolean isTemporal) throws IOException {
         TemporalDataModelIF<Long, Long> dataset = DataModelFactory.getDefaultTemporalModel();
 
+        Counter lines = MetricsRegistry.getDefault().counter(LINES);
         BufferedReader br = SimpleParser.getBufferedReader(f);
         String line = br.readLine();
         if ((line != null) && (!line.matches(".*[a-zA-Z].*"))) {
             parseLine(line, dataset, token, isTemporal);
         }
+        int n = line == null ? 0 : 1;
         while ((line = br.readLine()) != null) {
             parseLine(line, dataset, token, isTemporal);
+            if (++n == LINES_BATCH) {
+                lines.inc(n);
+                n = 0;
+            }
         }
+        lines.inc(n);
         br.close();
 
         return dataset;
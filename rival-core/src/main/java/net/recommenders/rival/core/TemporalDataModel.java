@@ -15,6 +15,11 @@ import java.util.Set;
  * @param <I> generic type for items
  */
 public class TemporalDataModel<U extends java.lang.Object, I extends java.lang.Object> extends DataModel<U, I> implements TemporalDataModelIF<U, I> {
+  /**
+     * Serial version.
+     */
+  private static final long serialVersionUID = 1L;
+
   /**
      * The map with the timestamps between users and items.
      */
@@ -23,6 +23,8 @@ import java.io.FileInputStream;
 import java.io.Reader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import net.recommenders.rival.core.metrics.Counter;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
 
 /**
  * User-Item-Preference (rating) Parser.
@@ -52,6 +54,8 @@ public class UIPParser extends AbstractParser implements Parser<Long, Long> {
         } else {
             records = CSVFormat.EXCEL.withDelimiter(getDelimiter()).parse(in);
         }
+        Counter lines = MetricsRegistry.getDefault().counter(LINES);
+        int n = 0;
         for (CSVRecord record : records) {
             long userID = Long.parseLong(record.get(getUserTok()));
             long itemID = Long.parseLong(record.get(getItemTok()));
@@ -62,7 +66,12 @@ public class UIPParser extends AbstractParser implements Parser<Long, Long> {
             double preference = Double.parseDouble(record.get(getPrefTok()));
             dataset.addPreference(userID, itemID, preference);
             dataset.addTimestamp(userID, itemID, timestamp);
+            if (++n == LINES_BATCH) {
+                lines.inc(n);
+                n = 0;
+            }
         }
+        lines.inc(n);
         in.close();
         return dataset;
     }
@@ -81,12 +90,19 @@ public class UIPParser extends AbstractParser implements Parser<Long, Long> {
         } else {
             records = CSVFormat.EXCEL.withDelimiter(getDelimiter()).parse(in);
         }
+        Counter lines = MetricsRegistry.getDefault().counter(LINES);
+        int n = 0;
         for (CSVRecord record : records) {
             long userID = Long.parseLong(record.get(getUserTok()));
             long itemID = Long.parseLong(record.get(getItemTok()));
             double preference = Double.parseDouble(record.get(getPrefTok()));
             dataset.addPreference(userID, itemID, preference);
+            if (++n == LINES_BATCH) {
+                lines.inc(n);
+                n = 0;
+            }
         }
+        lines.inc(n);
         in.close();
         return dataset;
     }
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.experiment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs {@link ExperimentNode}s. Every node is identified by a key, the
+ * SHA-256 of its type, its parameters, its fingerprint and the keys of its
+ * inputs, so the key of a node changes whenever anything upstream changes.
+ * The outputs of the nodes are stored in a directory under their keys; when
+ * the graph is run again, the nodes whose output is stored are read instead
+ * of computed, and the nodes upstream of them are not even visited. The
+ * remaining nodes are run in a pool of threads as soon as their inputs are
+ * available, and nodes with the same key are run only once.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class ExperimentGraph {
+
+    /**
+     * Extension of the files with the outputs of the nodes.
+     */
+    private static final String EXTENSION = ".ser";
+    /**
+     * Extension of the files being written.
+     */
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    /**
+     * The directory where the outputs are stored (null if they are not).
+     */
+    private final File dir;
+    /**
+     * The number of threads.
+     */
+    private final int threads;
+    /**
+     * The names of the nodes computed in the last run.
+     */
+    private final List<String> executed;
+    /**
+     * The names of the nodes read in the last run.
+     */
+    private final List<String> loaded;
+
+    /**
+     * Constructor.
+     *
+     * @param directory the directory where the outputs of the nodes are
+     * stored (created if needed), or null to compute every node in every run
+     * @param nThreads the number of threads
+     */
+    public ExperimentGraph(final File directory, final int nThreads) {
+        this.dir = directory;
+        this.threads = Math.max(1, nThreads);
+        this.executed = Collections.synchronizedList(new ArrayList<String>());
+        this.loaded = Collections.synchronizedList(new ArrayList<String>());
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            System.out.println("Directory " + dir + " could not be created");
+        }
+    }
+
+    /**
+     * Gets the names of the nodes computed in the last run.
+     *
+     * @return the names of the nodes, in the order they finished
+     */
+    public List<String> getExecutedNodes() {
+        synchronized (executed) {
+            return new ArrayList<>(executed);
+        }
+    }
+
+    /**
+     * Gets the names of the nodes whose output was read in the last run.
+     *
+     * @return the names of the nodes, in the order they finished
+     */
+    public List<String> getLoadedNodes() {
+        synchronized (loaded) {
+            return new ArrayList<>(loaded);
+        }
+    }
+
+    /**
+     * Computes the key of a node.
+     *
+     * @param node the node
+     * @return the key of the node (SHA-256, in hexadecimal)
+     * @throws IOException when the fingerprint of a node cannot be computed
+     */
+    public String getKey(final ExperimentNode<?> node) throws IOException {
+        return getKey(node, new IdentityHashMap<ExperimentNode<?>, String>());
+    }
+
+    /**
+     * Runs a node and the nodes it depends on.
+     *
+     * @param <T> type of the output of the node
+     * @param target the node
+     * @return the output of the node
+     * @throws IOException see {@link #run(net.recommenders.rival.core.experiment.ExperimentNode[])}
+     * @throws InterruptedException see {@link #run(net.recommenders.rival.core.experiment.ExperimentNode[])}
+     * @throws ExecutionException see {@link #run(net.recommenders.rival.core.experiment.ExperimentNode[])}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T run(final ExperimentNode<T> target) throws IOException, InterruptedException, ExecutionException {
+        return (T) run(new ExperimentNode<?>[]{target}).get(target);
+    }
+
+    /**
+     * Runs some nodes and the nodes they depend on.
+     *
+     * @param targets the nodes
+     * @return the output of each node
+     * @throws IOException when the fingerprint of a node cannot be computed
+     * @throws InterruptedException when the run is interrupted
+     * @throws ExecutionException when a node cannot be computed, read or
+     * stored (the cause is the exception thrown)
+     */
+    public Map<ExperimentNode<?>, Object> run(final ExperimentNode<?>... targets) throws IOException, InterruptedException, ExecutionException {
+        executed.clear();
+        loaded.clear();
+        Map<ExperimentNode<?>, String> keys = new IdentityHashMap<>();
+        Map<String, Task> tasks = new LinkedHashMap<>();
+        for (ExperimentNode<?> target : targets) {
+            schedule(target, keys, tasks).target = true;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<Task> completion = new ExecutorCompletionService<>(executor);
+        try {
+            int running = 0;
+            for (Task task : tasks.values()) {
+                if (task.waiting == 0) {
+                    completion.submit(task);
+                    running++;
+                }
+            }
+            while (running > 0) {
+                Task done = completion.take().get();
+                running--;
+                for (Task dependent : done.dependents) {
+                    dependent.waiting--;
+                    if (dependent.waiting == 0) {
+                        completion.submit(dependent);
+                        running++;
+                    }
+                }
+                for (Task input : new LinkedHashSet<>(done.inputs)) {
+                    input.release();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Map<ExperimentNode<?>, Object> outputs = new LinkedHashMap<>();
+        for (ExperimentNode<?> target : targets) {
+            outputs.put(target, tasks.get(keys.get(target)).value);
+        }
+        return outputs;
+    }
+
+    /**
+     * Computes the key of a node.
+     *
+     * @param node the node
+     * @param keys the keys already computed
+     * @return the key of the node
+     * @throws IOException when the fingerprint of a node cannot be computed
+     */
+    private String getKey(final ExperimentNode<?> node, final Map<ExperimentNode<?>, String> keys) throws IOException {
+        String key = keys.get(node);
+        if (key != null) {
+            return key;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(node.getClass().getName()).append('\u0000');
+        for (Map.Entry<String, String> e : node.getParameters().entrySet()) {
+            sb.append(e.getKey()).append('=').append(e.getValue()).append('\u0000');
+        }
+        sb.append(node.fingerprint()).append('\u0000');
+        for (ExperimentNode<?> input : node.getInputs()) {
+            sb.append(getKey(input, keys)).append('\u0000');
+        }
+        MessageDigest digest = ExperimentNode.newDigest();
+        key = ExperimentNode.toHex(digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        keys.put(node, key);
+        return key;
+    }
+
+    /**
+     * Creates the task of a node and, unless its output is stored, the tasks
+     * of its inputs.
+     *
+     * @param node the node
+     * @param keys the keys already computed
+     * @param tasks the tasks already created, by key
+     * @return the task of the node
+     * @throws IOException when the fingerprint of a node cannot be computed
+     */
+    private Task schedule(final ExperimentNode<?> node, final Map<ExperimentNode<?>, String> keys, final Map<String, Task> tasks) throws IOException {
+        String key = getKey(node, keys);
+        Task task = tasks.get(key);
+        if (task != null) {
+            return task;
+        }
+        File file = (dir == null || !node.isMemoized()) ? null : new File(dir, key + EXTENSION);
+        task = new Task(node, file, file != null && file.isFile());
+        tasks.put(key, task);
+        if (!task.load) {
+            for (ExperimentNode<?> input : node.getInputs()) {
+                Task inputTask = schedule(input, keys, tasks);
+                task.inputs.add(inputTask);
+                if (!inputTask.dependents.contains(task)) {
+                    inputTask.dependents.add(task);
+                    inputTask.consumers++;
+                    task.waiting++;
+                }
+            }
+        }
+        return task;
+    }
+
+    /**
+     * The computation (or reading) of the output of a node. The counters are
+     * only updated by the thread running the graph; the output is published
+     * to the tasks depending on it through the completion of the task.
+     */
+    private final class Task implements Callable<Task> {
+
+        /**
+         * The node.
+         */
+        private final ExperimentNode<?> node;
+        /**
+         * The file where the output is stored (null if it is not stored).
+         */
+        private final File file;
+        /**
+         * Whether the output is read from the file.
+         */
+        private final boolean load;
+        /**
+         * The tasks of the inputs, in order.
+         */
+        private final List<Task> inputs;
+        /**
+         * The tasks taking this output as input.
+         */
+        private final List<Task> dependents;
+        /**
+         * Number of inputs not available yet.
+         */
+        private int waiting;
+        /**
+         * Number of dependents not finished yet.
+         */
+        private int consumers;
+        /**
+         * Whether the output has been requested.
+         */
+        private boolean target;
+        /**
+         * The output.
+         */
+        private volatile Object value;
+
+        /**
+         * Constructor.
+         *
+         * @param experimentNode the node
+         * @param outputFile the file where the output is stored, or null
+         * @param read whether the output is read from the file
+         */
+        private Task(final ExperimentNode<?> experimentNode, final File outputFile, final boolean read) {
+            this.node = experimentNode;
+            this.file = outputFile;
+            this.load = read;
+            this.inputs = new ArrayList<>();
+            this.dependents = new ArrayList<>();
+        }
+
+        /**
+         * Notifies that a dependent has finished; the output is discarded
+         * when no other node needs it.
+         */
+        private void release() {
+            consumers--;
+            if (consumers == 0 && !target) {
+                value = null;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Task call() throws Exception {
+            if (load) {
+                try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    value = in.readObject();
+                }
+                loaded.add(node.getName());
+                return this;
+            }
+            List<Object> inputValues = new ArrayList<>(inputs.size());
+            for (Task input : inputs) {
+                inputValues.add(input.value);
+            }
+            Object output = node.compute(inputValues);
+            if (file != null) {
+                if (output instanceof Serializable) {
+                    store(output);
+                } else {
+                    System.out.println("Output of " + node.getName() + " is not serializable, it will not be stored");
+                }
+            }
+            value = output;
+            executed.add(node.getName());
+            return this;
+        }
+
+        /**
+         * Stores the output in the file, through a temporary file so that an
+         * incomplete output is never read. If some object reachable from the
+         * output is not serializable (e.g., the elements of an array), the
+         * temporary file is deleted and the output is not stored.
+         *
+         * @param output the output
+         * @throws IOException when the output cannot be written
+         */
+        private void store(final Object output) throws IOException {
+            File tmp = new File(file.getPath() + TEMPORARY_EXTENSION);
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeObject(output);
+            } catch (NotSerializableException e) {
+                if (!tmp.delete()) {
+                    tmp.deleteOnExit();
+                }
+                System.out.println("Output of " + node.getName() + " is not serializable (" + e.getMessage() + "), it will not be stored");
+                return;
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
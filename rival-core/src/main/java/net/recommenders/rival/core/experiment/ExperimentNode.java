@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.experiment;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A step of an experiment (parsing, splitting, recommending, filtering,
+ * evaluating...). A node declares the nodes whose outputs it takes as inputs
+ * and the parameters that determine its output; its output is computed from
+ * the outputs of the inputs by {@link #compute(java.util.List)}. Nodes are
+ * run by an {@link ExperimentGraph}, which memoizes their outputs under a
+ * hash of the node type, the parameters, {@link #fingerprint()} and the
+ * hashes of the inputs.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ *
+ * @param <T> type of the output of the node
+ */
+public abstract class ExperimentNode<T> {
+
+    /**
+     * Size of the buffer used to read files.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * The name of the node.
+     */
+    private final String name;
+    /**
+     * The parameters of the node, sorted by key.
+     */
+    private final SortedMap<String, String> parameters;
+    /**
+     * The inputs of the node.
+     */
+    private final List<ExperimentNode<?>> inputs;
+
+    /**
+     * Constructor.
+     *
+     * @param nodeName the name of the node (only used to identify it in the
+     * output, it does not determine the output)
+     * @param properties the parameters of the node
+     * @param nodeInputs the inputs of the node, in the order they are passed
+     * to {@link #compute(java.util.List)}
+     */
+    protected ExperimentNode(final String nodeName, final Properties properties, final ExperimentNode<?>... nodeInputs) {
+        this.name = nodeName;
+        this.parameters = new TreeMap<>();
+        for (Map.Entry<Object, Object> e : properties.entrySet()) {
+            parameters.put(e.getKey().toString(), String.valueOf(e.getValue()));
+        }
+        this.inputs = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(nodeInputs)));
+    }
+
+    /**
+     * Gets the name of the node.
+     *
+     * @return the name of the node
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the parameters of the node.
+     *
+     * @return a copy of the parameters of the node
+     */
+    public Properties getProperties() {
+        Properties properties = new Properties();
+        properties.putAll(parameters);
+        return properties;
+    }
+
+    /**
+     * Gets the parameters of the node, sorted by key.
+     *
+     * @return the parameters of the node
+     */
+    public SortedMap<String, String> getParameters() {
+        return Collections.unmodifiableSortedMap(parameters);
+    }
+
+    /**
+     * Gets the inputs of the node.
+     *
+     * @return the inputs of the node
+     */
+    public List<ExperimentNode<?>> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Gets a fingerprint of whatever determines the output of the node and
+     * is neither a parameter nor an input, typically the content of the
+     * files the node reads.
+     *
+     * @return the fingerprint (empty by default)
+     * @throws IOException when the fingerprint cannot be computed
+     */
+    public String fingerprint() throws IOException {
+        return "";
+    }
+
+    /**
+     * Whether the output of the node should be stored between runs. Nodes
+     * that are cheaper to compute than to read may return false.
+     *
+     * @return true by default
+     */
+    public boolean isMemoized() {
+        return true;
+    }
+
+    /**
+     * Computes the output of the node.
+     *
+     * @param inputValues the outputs of the inputs, in the same order as
+     * {@link #getInputs()}
+     * @return the output of the node
+     * @throws Exception when the output cannot be computed
+     */
+    public abstract T compute(List<Object> inputValues) throws Exception;
+
+    /**
+     * Computes the fingerprint of the content of a file.
+     *
+     * @param file the file
+     * @return the SHA-256 of the content of the file, in hexadecimal
+     * @throws IOException when the file cannot be read
+     */
+    public static String fingerprint(final File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Copies some properties without the keys that do not determine the
+     * output of a node (output files, number of threads...).
+     *
+     * @param properties the properties
+     * @param keys the keys to remove
+     * @return the copy of the properties
+     */
+    public static Properties exclude(final Properties properties, final String... keys) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        for (String key : keys) {
+            copy.remove(key);
+        }
+        return copy;
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return the digest
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Converts a digest to hexadecimal.
+     *
+     * @param digest the digest
+     * @return the digest in hexadecimal
+     */
+    static String toHex(final byte[] digest) {
+        StringBuilder hex = new StringBuilder(2 * digest.length);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.experiment;
+
+import java.util.List;
+import java.util.Properties;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * Selects one fold of the output of a splitter (training sets at even
+ * positions, test sets at odd positions): the output is an array with the
+ * training and the test set of the fold. The output is not stored, since it
+ * is part of the output of the splitter.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class FoldNode extends ExperimentNode<TemporalDataModelIF<Long, Long>[]> {
+
+    /**
+     * Parameter with the fold.
+     */
+    public static final String FOLD = "experiment.fold";
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the node
+     * @param splits the node with the splits
+     * @param fold the fold
+     */
+    public FoldNode(final String name, final ExperimentNode<? extends TemporalDataModelIF<Long, Long>[]> splits, final int fold) {
+        super(name, fold(fold), splits);
+    }
+
+    /**
+     * Creates the parameters of the node.
+     *
+     * @param fold the fold
+     * @return the parameters
+     */
+    private static Properties fold(final int fold) {
+        Properties properties = new Properties();
+        properties.setProperty(FOLD, "" + fold);
+        return properties;
+    }
+
+    /**
+     * Gets the training set from the output of a fold node.
+     *
+     * @param fold the output of a fold node
+     * @return the training set
+     */
+    @SuppressWarnings("unchecked")
+    public static TemporalDataModelIF<Long, Long> getTraining(final Object fold) {
+        return ((TemporalDataModelIF<Long, Long>[]) fold)[0];
+    }
+
+    /**
+     * Gets the test set from the output of a fold node.
+     *
+     * @param fold the output of a fold node
+     * @return the test set
+     */
+    @SuppressWarnings("unchecked")
+    public static TemporalDataModelIF<Long, Long> getTest(final Object fold) {
+        return ((TemporalDataModelIF<Long, Long>[]) fold)[1];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isMemoized() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public TemporalDataModelIF<Long, Long>[] compute(final List<Object> inputValues) {
+        TemporalDataModelIF<Long, Long>[] splits = (TemporalDataModelIF<Long, Long>[]) inputValues.get(0);
+        int fold = Integer.parseInt(getProperties().getProperty(FOLD));
+        if (2 * fold + 1 >= splits.length) {
+            throw new IllegalArgumentException("Fold " + fold + " not found in " + splits.length / 2 + " folds");
+        }
+        return new TemporalDataModelIF[]{splits[2 * fold], splits[2 * fold + 1]};
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * RiVal experiment graphs: the steps of an experiment as nodes whose outputs
+ * are memoized between runs.
+ */
+package net.recommenders.rival.core.experiment;
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * Prints every metric of the registry, one per line (timers in
+ * milliseconds).
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class ConsoleReporter implements MetricsReporter {
+
+    /**
+     * Where the metrics are printed.
+     */
+    private final PrintStream out;
+
+    /**
+     * Constructor.
+     *
+     * @param output where the metrics are printed
+     */
+    public ConsoleReporter(final PrintStream output) {
+        this.out = output;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void report(final MetricsRegistry registry) {
+        Map<String, Object> metrics = registry.getMetrics();
+        if (metrics.isEmpty()) {
+            return;
+        }
+        synchronized (out) {
+            for (Map.Entry<String, Object> e : metrics.entrySet()) {
+                out.print(e.getKey() + ": ");
+                MetricsRegistry.print(e.getValue(), out);
+                out.println();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
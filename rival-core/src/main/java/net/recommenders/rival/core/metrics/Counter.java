@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter of events (lines, users, bytes...). Increments are cheap and
+ * scale with the number of threads, so counters can be updated in hot
+ * loops; still, loops over millions of elements should add their count in
+ * batches.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class Counter implements CounterMBean {
+
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /**
+     * The count.
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * When the counter was created.
+     */
+    private final long created = System.nanoTime();
+
+    /**
+     * Adds one event.
+     */
+    public void inc() {
+        count.increment();
+    }
+
+    /**
+     * Adds several events.
+     *
+     * @param n the number of events
+     */
+    public void inc(final long n) {
+        count.add(n);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getRate() {
+        long elapsed = System.nanoTime() - created;
+        return elapsed <= 0 ? 0.0 : getCount() * NANOS_PER_SECOND / elapsed;
+    }
+}
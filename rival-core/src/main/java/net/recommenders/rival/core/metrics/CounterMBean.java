@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+/**
+ * Management interface of a {@link Counter}, see {@link JmxReporter}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public interface CounterMBean {
+
+    /**
+     * Gets the count.
+     *
+     * @return the count
+     */
+    long getCount();
+
+    /**
+     * Gets the mean number of events per second since the counter was
+     * created.
+     *
+     * @return the rate
+     */
+    double getRate();
+}
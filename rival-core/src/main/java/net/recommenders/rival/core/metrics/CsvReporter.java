@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Appends the metrics of the registry to a CSV file, one row per metric and
+ * report: time (milliseconds since the epoch), name, count, rate (events per
+ * second, counters only), mean, min, median, 95th and 99th percentiles and
+ * max (histograms and timers, timers in nanoseconds). The header is only
+ * written when the file is new, so that several runs can be appended.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class CsvReporter implements MetricsReporter {
+
+    /**
+     * The header of the file.
+     */
+    public static final String HEADER = "time,name,count,rate,mean,min,p50,p95,p99,max";
+    /**
+     * The file.
+     */
+    private final PrintWriter out;
+
+    /**
+     * Constructor.
+     *
+     * @param file the file where the metrics are appended
+     * @throws FileNotFoundException when the file cannot be created
+     */
+    public CsvReporter(final File file) throws FileNotFoundException {
+        boolean isNew = !file.exists() || file.length() == 0;
+        this.out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        if (isNew) {
+            out.println(HEADER);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void report(final MetricsRegistry registry) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Object> e : registry.getMetrics().entrySet()) {
+            Object metric = e.getValue();
+            out.print(now + "," + e.getKey() + ",");
+            if (metric instanceof Counter) {
+                Counter c = (Counter) metric;
+                out.println(c.getCount() + "," + c.getRate() + ",,,,,,");
+            } else if (metric instanceof Histogram) {
+                Histogram h = (Histogram) metric;
+                out.println(h.getCount() + ",," + h.getMean() + "," + h.getMin() + "," + h.getMedian() + ","
+                        + h.get95thPercentile() + "," + h.get99thPercentile() + "," + h.getMax());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() {
+        out.close();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative values (negative values are taken as 0). The
+ * values are not kept: they are counted in buckets whose width grows with
+ * the value (eight buckets per power of two), so percentiles are estimated
+ * with a relative error below 12.5% and updates take constant time and
+ * memory.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class Histogram implements HistogramMBean {
+
+    /**
+     * Bits of the linear sub-buckets within a power of two.
+     */
+    private static final int SUB_BITS = 3;
+    /**
+     * Number of sub-buckets within a power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /**
+     * Number of buckets (values up to {@link Long#MAX_VALUE}).
+     */
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BITS) * SUB_BUCKETS;
+    /**
+     * Median.
+     */
+    private static final double MEDIAN = 0.5;
+    /**
+     * 95th percentile.
+     */
+    private static final double P95 = 0.95;
+    /**
+     * 99th percentile.
+     */
+    private static final double P99 = 0.99;
+
+    /**
+     * Number of values in each bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    /**
+     * Number of values.
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * Sum of the values.
+     */
+    private final LongAdder sum = new LongAdder();
+    /**
+     * Minimum value.
+     */
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    /**
+     * Maximum value.
+     */
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value
+     */
+    public void update(final long value) {
+        long v = Math.max(0L, value);
+        buckets.incrementAndGet(bucket(v));
+        count.increment();
+        sum.add(v);
+        long m = min.get();
+        while (v < m && !min.compareAndSet(m, v)) {
+            m = min.get();
+        }
+        m = max.get();
+        while (v > m && !max.compareAndSet(m, v)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Gets the bucket of a value.
+     *
+     * @param v the value (non-negative)
+     * @return the bucket
+     */
+    private static int bucket(final long v) {
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        int exp = Long.SIZE - 1 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exp - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the largest value of a bucket.
+     *
+     * @param b the bucket
+     * @return the largest value
+     */
+    private static long upperBound(final int b) {
+        if (b < SUB_BUCKETS) {
+            return b;
+        }
+        int shift = (b - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (b - SUB_BUCKETS) % SUB_BUCKETS;
+        long next = (SUB_BUCKETS + sub + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+
+    /**
+     * Estimates a percentile: the largest value of the bucket where it is,
+     * bounded by the minimum and maximum values.
+     *
+     * @param q the percentile, between 0 and 1
+     * @return the estimated percentile (0 if there are no values)
+     */
+    public long getPercentile(final double q) {
+        long n = 0L;
+        for (int b = 0; b < BUCKETS; b++) {
+            n += buckets.get(b);
+        }
+        if (n == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(q * n));
+        long seen = 0L;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= rank) {
+                return Math.max(getMin(), Math.min(upperBound(b), getMax()));
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Gets the sum of the values.
+     *
+     * @return the sum
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMean() {
+        long n = getCount();
+        return n == 0L ? Double.NaN : (double) getSum() / n;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMin() {
+        long m = min.get();
+        return m == Long.MAX_VALUE ? 0L : m;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMax() {
+        long m = max.get();
+        return m == Long.MIN_VALUE ? 0L : m;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMedian() {
+        return getPercentile(MEDIAN);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long get95thPercentile() {
+        return getPercentile(P95);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long get99thPercentile() {
+        return getPercentile(P99);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+/**
+ * Management interface of a {@link Histogram}, see {@link JmxReporter}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public interface HistogramMBean {
+
+    /**
+     * Gets the number of values.
+     *
+     * @return the number of values
+     */
+    long getCount();
+
+    /**
+     * Gets the mean of the values.
+     *
+     * @return the mean (NaN if there are no values)
+     */
+    double getMean();
+
+    /**
+     * Gets the minimum value.
+     *
+     * @return the minimum (0 if there are no values)
+     */
+    long getMin();
+
+    /**
+     * Gets the maximum value.
+     *
+     * @return the maximum (0 if there are no values)
+     */
+    long getMax();
+
+    /**
+     * Gets the (estimated) median.
+     *
+     * @return the median
+     */
+    long getMedian();
+
+    /**
+     * Gets the (estimated) 95th percentile.
+     *
+     * @return the percentile
+     */
+    long get95thPercentile();
+
+    /**
+     * Gets the (estimated) 99th percentile.
+     *
+     * @return the percentile
+     */
+    long get99thPercentile();
+}
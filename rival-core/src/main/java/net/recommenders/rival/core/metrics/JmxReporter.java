@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers every metric of the registry in the platform MBean server, as
+ * "net.recommenders.rival:type=Metrics,name=&lt;name&gt;", so that they can be
+ * watched with a JMX console while the runners work. Metrics created after a
+ * report are registered in the next one; the MBeans are unregistered when
+ * the reporter is closed.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class JmxReporter implements MetricsReporter {
+
+    /**
+     * Domain of the MBeans.
+     */
+    public static final String DOMAIN = "net.recommenders.rival";
+    /**
+     * The MBean server.
+     */
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    /**
+     * Names of the MBeans registered by this reporter.
+     */
+    private final Set<ObjectName> registered = new HashSet<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void report(final MetricsRegistry registry) {
+        for (Map.Entry<String, Object> e : registry.getMetrics().entrySet()) {
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(e.getKey()));
+                if (!registered.contains(name) && !server.isRegistered(name)) {
+                    server.registerMBean(e.getValue(), name);
+                    registered.add(name);
+                }
+            } catch (JMException ex) {
+                System.out.println("Metric " + e.getKey() + " could not be registered: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() {
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ex) {
+                System.out.println("MBean " + name + " could not be unregistered: " + ex.getMessage());
+            }
+        }
+        registered.clear();
+    }
+}
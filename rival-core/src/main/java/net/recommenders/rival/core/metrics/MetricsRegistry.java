@@ -0,0 +1,312 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named metrics ({@link Counter}, {@link Timer} and {@link Histogram})
+ * published by the runners, and the reporters that output them. Metrics are
+ * created the first time they are requested and live as long as the
+ * registry, so their values accumulate over the runs in the same JVM. The
+ * runners publish their metrics in {@link #getDefault()}; reporters are
+ * enabled with {@link #configure(java.util.Properties)} and called every
+ * {@link #PERIOD} milliseconds from a background thread, so updating a
+ * metric never blocks on reporting.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class MetricsRegistry {
+
+    /**
+     * Variable that represent the name of a property in the file: the
+     * reporters to enable, separated by commas ({@link #CONSOLE},
+     * {@link #CSV}, {@link #JMX} and {@link #PROGRESS}).
+     */
+    public static final String REPORTERS = "metrics.reporters";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String PERIOD = "metrics.period";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String CSV_FILE = "metrics.csv.file";
+    /**
+     * Reporter printing every metric, see {@link ConsoleReporter}.
+     */
+    public static final String CONSOLE = "console";
+    /**
+     * Reporter appending every metric to {@link #CSV_FILE}, see
+     * {@link CsvReporter}.
+     */
+    public static final String CSV = "csv";
+    /**
+     * Reporter registering every metric as an MBean, see
+     * {@link JmxReporter}.
+     */
+    public static final String JMX = "jmx";
+    /**
+     * Reporter printing the progress of the tasks, see
+     * {@link #getProgress()}.
+     */
+    public static final String PROGRESS = "progress";
+    /**
+     * Default reporting period, in milliseconds.
+     */
+    public static final long DEFAULT_PERIOD = 10000L;
+    /**
+     * Default CSV file.
+     */
+    public static final String DEFAULT_CSV_FILE = "rival-metrics.csv";
+    /**
+     * The default registry.
+     */
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    /**
+     * The metrics, by name.
+     */
+    private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+    /**
+     * The enabled reporters.
+     */
+    private final List<MetricsReporter> reporters = new CopyOnWriteArrayList<>();
+    /**
+     * The progress of the tasks.
+     */
+    private final ProgressReporter progress = new ProgressReporter(System.out);
+    /**
+     * The reporting thread (null if not started).
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Gets the registry where the runners publish their metrics.
+     *
+     * @return the default registry
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets (or creates) a counter.
+     *
+     * @param name the name of the counter
+     * @return the counter
+     */
+    public Counter counter(final String name) {
+        return get(name, Counter.class);
+    }
+
+    /**
+     * Gets (or creates) a histogram.
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     */
+    public Histogram histogram(final String name) {
+        return get(name, Histogram.class);
+    }
+
+    /**
+     * Gets (or creates) a timer.
+     *
+     * @param name the name of the timer
+     * @return the timer
+     */
+    public Timer timer(final String name) {
+        return get(name, Timer.class);
+    }
+
+    /**
+     * Gets (or creates) a metric.
+     *
+     * @param <M> the type of metric
+     * @param name the name of the metric
+     * @param type the type of metric
+     * @return the metric
+     */
+    private <M> M get(final String name, final Class<M> type) {
+        Object metric = metrics.get(name);
+        if (metric == null) {
+            try {
+                metrics.putIfAbsent(name, type.newInstance());
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            metric = metrics.get(name);
+        }
+        if (metric.getClass() != type) {
+            throw new IllegalArgumentException(name + " is a " + metric.getClass().getSimpleName() + ", not a " + type.getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * Gets every metric.
+     *
+     * @return the metrics, sorted by name
+     */
+    public SortedMap<String, Object> getMetrics() {
+        return new TreeMap<>(metrics);
+    }
+
+    /**
+     * Gets the progress of the tasks of the runners, which is only reported
+     * when added as a reporter (see {@link #PROGRESS}).
+     *
+     * @return the progress reporter
+     */
+    public ProgressReporter getProgress() {
+        return progress;
+    }
+
+    /**
+     * Adds a reporter.
+     *
+     * @param reporter the reporter
+     */
+    public void addReporter(final MetricsReporter reporter) {
+        reporters.add(reporter);
+    }
+
+    /**
+     * Calls every reporter.
+     */
+    public void report() {
+        for (MetricsReporter reporter : reporters) {
+            reporter.report(this);
+        }
+    }
+
+    /**
+     * Starts calling the reporters periodically.
+     *
+     * @param periodMillis the period, in milliseconds
+     */
+    public synchronized void start(final long periodMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(r, "rival-metrics");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                report();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic reports, reports one last time, and closes and
+     * removes the reporters.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        report();
+        List<MetricsReporter> closed = new ArrayList<>(reporters);
+        reporters.clear();
+        for (MetricsReporter reporter : closed) {
+            reporter.close();
+        }
+    }
+
+    /**
+     * Enables the reporters in {@link #REPORTERS} and starts reporting every
+     * {@link #PERIOD} milliseconds (if any reporter is enabled). Unknown
+     * reporters are ignored.
+     *
+     * @param properties the properties
+     * @throws FileNotFoundException when the CSV file cannot be created
+     */
+    public void configure(final Properties properties) throws FileNotFoundException {
+        String names = properties.getProperty(REPORTERS, "").trim();
+        if (names.isEmpty()) {
+            return;
+        }
+        for (String name : names.split(",")) {
+            switch (name.trim()) {
+                case CONSOLE:
+                    addReporter(new ConsoleReporter(System.out));
+                    break;
+                case CSV:
+                    addReporter(new CsvReporter(new File(properties.getProperty(CSV_FILE, DEFAULT_CSV_FILE))));
+                    break;
+                case JMX:
+                    addReporter(new JmxReporter());
+                    break;
+                case PROGRESS:
+                    addReporter(progress);
+                    break;
+                default:
+                    System.out.println("Unknown metrics reporter: " + name);
+            }
+        }
+        start(Long.parseLong(properties.getProperty(PERIOD, "" + DEFAULT_PERIOD)));
+    }
+
+    /**
+     * Formats the value of a metric.
+     *
+     * @param metric the metric
+     * @param out where the value is printed
+     */
+    static void print(final Object metric, final PrintStream out) {
+        if (metric instanceof Counter) {
+            Counter c = (Counter) metric;
+            out.printf("count=%d rate=%.1f/s", c.getCount(), c.getRate());
+        } else if (metric instanceof Timer) {
+            Timer t = (Timer) metric;
+            out.printf("count=%d mean=%.3fms p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms", t.getCount(), t.getMean() / 1e6,
+                    t.getMedian() / 1e6, t.get95thPercentile() / 1e6, t.get99thPercentile() / 1e6, t.getMax() / 1e6);
+        } else if (metric instanceof Histogram) {
+            Histogram h = (Histogram) metric;
+            out.printf("count=%d mean=%.1f p50=%d p95=%d p99=%d max=%d", h.getCount(), h.getMean(),
+                    h.getMedian(), h.get95thPercentile(), h.get99thPercentile(), h.getMax());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+/**
+ * Reports the metrics of a {@link MetricsRegistry}, either on demand or
+ * periodically (see {@link MetricsRegistry#start(long)}).
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public interface MetricsReporter {
+
+    /**
+     * Reports the current value of the metrics.
+     *
+     * @param registry the registry
+     */
+    void report(MetricsRegistry registry);
+
+    /**
+     * Releases the resources of the reporter, after the last report.
+     */
+    void close();
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Prints the progress of long tasks: for each task being tracked, the events
+ * done so far (read from a {@link Counter} updated by the task), and, when
+ * the total is known, the percentage and the estimated time to finish at the
+ * current rate. The tasks do nothing besides updating their counter, the
+ * progress is only computed when reported.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class ProgressReporter implements MetricsReporter {
+
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /**
+     * Seconds in a minute.
+     */
+    private static final long SECONDS_PER_MINUTE = 60L;
+    /**
+     * Seconds in an hour.
+     */
+    private static final long SECONDS_PER_HOUR = 3600L;
+    /**
+     * Where the progress is printed.
+     */
+    private final PrintStream out;
+    /**
+     * The tasks being tracked, by name.
+     */
+    private final Map<String, Task> tasks = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param output where the progress is printed
+     */
+    public ProgressReporter(final PrintStream output) {
+        this.out = output;
+    }
+
+    /**
+     * Starts tracking a task.
+     *
+     * @param task the name of the task
+     * @param counter the counter updated by the task
+     * @param total the number of events of the task (0 or less if unknown)
+     */
+    public void track(final String task, final Counter counter, final long total) {
+        tasks.put(task, new Task(counter, total));
+    }
+
+    /**
+     * Stops tracking a task.
+     *
+     * @param task the name of the task
+     */
+    public void untrack(final String task) {
+        tasks.remove(task);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void report(final MetricsRegistry registry) {
+        for (Map.Entry<String, Task> e : tasks.entrySet()) {
+            out.println(e.getKey() + ": " + e.getValue().progress());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        tasks.clear();
+        out.flush();
+    }
+
+    /**
+     * Formats a duration.
+     *
+     * @param seconds the duration, in seconds
+     * @return the duration as h:mm:ss
+     */
+    static String formatDuration(final long seconds) {
+        return String.format("%d:%02d:%02d", seconds / SECONDS_PER_HOUR,
+                (seconds % SECONDS_PER_HOUR) / SECONDS_PER_MINUTE, seconds % SECONDS_PER_MINUTE);
+    }
+
+    /**
+     * A task being tracked.
+     */
+    private static final class Task {
+
+        /**
+         * The counter updated by the task.
+         */
+        private final Counter counter;
+        /**
+         * Events done when the tracking started.
+         */
+        private final long first;
+        /**
+         * When the tracking started.
+         */
+        private final long started = System.nanoTime();
+        /**
+         * The number of events of the task.
+         */
+        private final long total;
+
+        /**
+         * Constructor.
+         *
+         * @param c the counter updated by the task
+         * @param t the number of events of the task
+         */
+        Task(final Counter c, final long t) {
+            this.counter = c;
+            this.first = c.getCount();
+            this.total = t;
+        }
+
+        /**
+         * Formats the progress of the task.
+         *
+         * @return the progress
+         */
+        String progress() {
+            long done = counter.getCount() - first;
+            double seconds = (System.nanoTime() - started) / NANOS_PER_SECOND;
+            double rate = seconds <= 0 ? 0.0 : done / seconds;
+            StringBuilder sb = new StringBuilder();
+            sb.append(done);
+            if (total > 0) {
+                sb.append("/").append(total).append(String.format(" (%.1f%%)", 100.0 * done / total));
+            }
+            sb.append(String.format(" %.1f/s", rate));
+            if (total > 0 && rate > 0) {
+                sb.append(" ETA ").append(formatDuration((long) Math.ceil(Math.max(0, total - done) / rate)));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+/**
+ * Histogram of latencies, in nanoseconds:
+ *
+ * <pre>
+ * long t = timer.start();
+ * ...
+ * timer.stop(t);
+ * </pre>
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class Timer extends Histogram {
+
+    /**
+     * Starts timing an event.
+     *
+     * @return the current time, to be passed to {@link #stop(long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Finishes timing an event.
+     *
+     * @param start the time returned by {@link #start()}
+     * @return the latency, in nanoseconds
+     */
+    public long stop(final long start) {
+        long elapsed = System.nanoTime() - start;
+        update(elapsed);
+        return elapsed;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * RiVal lightweight metrics: counters, timers and histograms, and their reporters.
+ */
+package net.recommenders.rival.core.metrics;
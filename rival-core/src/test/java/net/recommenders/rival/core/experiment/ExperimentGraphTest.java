@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.experiment;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ExperimentGraph}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@RunWith(JUnit4.class)
+public class ExperimentGraphTest {
+
+    /**
+     * Folder where the outputs are stored.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Node producing a constant.
+     */
+    private static final class ValueNode extends ExperimentNode<Integer> {
+
+        /**
+         * Constructor.
+         *
+         * @param name the name of the node
+         * @param value the constant
+         */
+        ValueNode(final String name, final int value) {
+            super(name, properties("value", value));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Integer compute(final List<Object> inputValues) {
+            return Integer.parseInt(getProperties().getProperty("value"));
+        }
+    }
+
+    /**
+     * Node adding its inputs, multiplied by a factor.
+     */
+    private static final class SumNode extends ExperimentNode<Integer> {
+
+        /**
+         * Constructor.
+         *
+         * @param name the name of the node
+         * @param factor the factor
+         * @param inputs the nodes to add
+         */
+        SumNode(final String name, final int factor, final ExperimentNode<?>... inputs) {
+            super(name, properties("factor", factor), inputs);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Integer compute(final List<Object> inputValues) {
+            int sum = 0;
+            for (Object v : inputValues) {
+                sum += (Integer) v;
+            }
+            return sum * Integer.parseInt(getProperties().getProperty("factor"));
+        }
+    }
+
+    /**
+     * Creates the parameters of a node.
+     *
+     * @param key the parameter
+     * @param value the value
+     * @return the parameters
+     */
+    private static Properties properties(final String key, final int value) {
+        Properties props = new Properties();
+        props.setProperty(key, "" + value);
+        return props;
+    }
+
+    /**
+     * Tests that a rerun only computes the nodes whose key has changed.
+     *
+     * @throws Exception if the graph cannot be run
+     */
+    @Test
+    public void testRerunComputesOnlyInvalidatedNodes() throws Exception {
+        ExperimentGraph graph = new ExperimentGraph(folder.newFolder("outputs"), 2);
+        assertEquals(Integer.valueOf(10), graph.run(new SumNode("total", 2, new ValueNode("a", 2), new ValueNode("b", 3))));
+        assertEquals(3, graph.getExecutedNodes().size());
+
+        assertEquals(Integer.valueOf(10), graph.run(new SumNode("total", 2, new ValueNode("a", 2), new ValueNode("b", 3))));
+        assertEquals(Collections.emptyList(), graph.getExecutedNodes());
+        assertEquals(Arrays.asList("total"), graph.getLoadedNodes());
+
+        assertEquals(Integer.valueOf(12), graph.run(new SumNode("total", 2, new ValueNode("a", 2), new ValueNode("b", 4))));
+        assertEquals(2, graph.getExecutedNodes().size());
+        assertTrue(graph.getExecutedNodes().containsAll(Arrays.asList("b", "total")));
+        assertEquals(Arrays.asList("a"), graph.getLoadedNodes());
+    }
+
+    /**
+     * Tests that nodes with the same key are computed once.
+     *
+     * @throws Exception if the graph cannot be run
+     */
+    @Test
+    public void testEqualNodesComputedOnce() throws Exception {
+        ExperimentGraph graph = new ExperimentGraph(null, 4);
+        ValueNode a = new ValueNode("a", 5);
+        ValueNode copy = new ValueNode("copy", 5);
+        assertEquals(Integer.valueOf(10), graph.run(new SumNode("total", 1, a, copy)));
+        assertEquals(2, graph.getExecutedNodes().size());
+    }
+
+    /**
+     * Tests that the failure of a node is reported.
+     *
+     * @throws Exception if the graph cannot be run
+     */
+    @Test
+    public void testFailure() throws Exception {
+        ExperimentGraph graph = new ExperimentGraph(folder.newFolder("failures"), 2);
+        ExperimentNode<Integer> failing = new ExperimentNode<Integer>("failing", new Properties()) {
+            @Override
+            public Integer compute(final List<Object> inputValues) {
+                throw new IllegalStateException("failed");
+            }
+        };
+        try {
+            graph.run(new SumNode("total", 1, new ValueNode("a", 1), failing));
+            fail("the failure should be reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Tests that an output with objects that are not serializable is not
+     * stored, and computed again in the next run.
+     *
+     * @throws Exception if the graph cannot be run
+     */
+    @Test
+    public void testNotSerializableOutput() throws Exception {
+        File dir = folder.newFolder("arrays");
+        ExperimentGraph graph = new ExperimentGraph(dir, 2);
+        ExperimentNode<Object[]> array = new ExperimentNode<Object[]>("array", new Properties()) {
+            @Override
+            public Object[] compute(final List<Object> inputValues) {
+                return new Object[]{new Object()};
+            }
+        };
+        for (int run = 0; run < 2; run++) {
+            assertEquals(1, graph.run(array).length);
+            assertEquals(Arrays.asList("array"), graph.getExecutedNodes());
+            assertEquals(0, dir.list().length);
+        }
+    }
+}
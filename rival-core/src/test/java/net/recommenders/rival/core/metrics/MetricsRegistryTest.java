@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.core.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link MetricsRegistry}, its metrics and reporters.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@RunWith(JUnit4.class)
+public class MetricsRegistryTest {
+
+    /**
+     * Folder where the CSV files are written.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that metrics are created once and keep their type.
+     */
+    @Test
+    public void testGetOrCreate() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter c = registry.counter("a");
+        c.inc();
+        c.inc(2);
+        assertSame(c, registry.counter("a"));
+        assertEquals(3, registry.counter("a").getCount());
+        assertSame(registry.timer("b"), registry.timer("b"));
+        assertEquals(2, registry.getMetrics().size());
+    }
+
+    /**
+     * Tests that a name cannot be used by two types of metric.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeClash() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("a");
+        registry.histogram("a");
+    }
+
+    /**
+     * Tests the statistics of a histogram, whose percentiles are
+     * approximated within the width of a bucket.
+     */
+    @Test
+    public void testHistogram() {
+        Histogram h = new Histogram();
+        for (long v = 1; v <= 1000; v++) {
+            h.update(v);
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(1, h.getMin());
+        assertEquals(1000, h.getMax());
+        assertEquals(500.5, h.getMean(), 0.0);
+        assertEquals(500, h.getMedian(), 500 / 8);
+        assertEquals(950, h.get95thPercentile(), 950 / 8);
+        assertEquals(990, h.get99thPercentile(), 990 / 8);
+    }
+
+    /**
+     * Tests that the CSV reporter writes the header only once.
+     *
+     * @throws IOException when the file cannot be read
+     */
+    @Test
+    public void testCsvReporter() throws IOException {
+        File file = new File(folder.getRoot(), "metrics.csv");
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("lines").inc(10);
+        registry.timer("time").update(1000000L);
+        for (int run = 0; run < 2; run++) {
+            registry.addReporter(new CsvReporter(file));
+            registry.stop();
+        }
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertEquals(CsvReporter.HEADER, lines.get(0));
+        assertTrue(lines.get(1).contains(",lines,10,"));
+        assertTrue(lines.get(2).contains(",time,1,,"));
+    }
+
+    /**
+     * Tests the progress of a task with a known total.
+     */
+    @Test
+    public void testProgress() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProgressReporter progress = new ProgressReporter(new PrintStream(bytes));
+        Counter c = new Counter();
+        progress.track("task", c, 4);
+        c.inc();
+        progress.report(null);
+        String output = bytes.toString();
+        assertTrue(output, output.startsWith("task: 1/4 (25.0%)"));
+        assertTrue(output, output.contains("ETA"));
+        assertEquals("1:01:01", ProgressReporter.formatDuration(3661));
+    }
+}
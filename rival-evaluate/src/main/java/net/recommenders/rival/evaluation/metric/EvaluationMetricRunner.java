@@ -29,6 +29,7 @@ import net.recommenders.rival.core.SimpleParser;
 import net.recommenders.rival.evaluation.metric.error.AbstractErrorMetric;
 import net.recommenders.rival.evaluation.metric.ranking.AbstractRankingMetric;
 import net.recommenders.rival.evaluation.metric.ranking.NDCG;
+import net.recommenders.rival.evaluation.parser.BinaryRankingParser;
 import net.recommenders.rival.evaluation.parser.TrecEvalParser;
 import net.recommenders.rival.evaluation.strategy.EvaluationStrategy;
 
@@ -132,12 +133,7 @@ public final class EvaluationMetricRunner {
         System.out.println("Parsing started: recommendation file");
         File recommendationFile = new File(properties.getProperty(PREDICTION_FILE));
         DataModelIF<Long, Long> predictions;
-        EvaluationStrategy.OUTPUT_FORMAT recFormat;
-        if (properties.getProperty(PREDICTION_FILE_FORMAT).equals(EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL.toString())) {
-            recFormat = EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL;
-        } else {
-            recFormat = EvaluationStrategy.OUTPUT_FORMAT.SIMPLE;
-        }
+        EvaluationStrategy.OUTPUT_FORMAT recFormat = EvaluationStrategy.OUTPUT_FORMAT.fromName(properties.getProperty(PREDICTION_FILE_FORMAT));
         switch (recFormat) {
             case SIMPLE:
                 predictions = new SimpleParser().parseData(recommendationFile);
@@ -145,6 +141,9 @@ public final class EvaluationMetricRunner {
             case TRECEVAL:
                 predictions = new TrecEvalParser().parseData(recommendationFile);
                 break;
+            case BINARY:
+                predictions = new BinaryRankingParser().parseData(recommendationFile);
+                break;
             default:
                 throw new AssertionError();
         }
@@ -174,8 +173,20 @@ public final class EvaluationMetricRunner {
      * @return an array with the ranking cutoffs (if available).
      */
     public static int[] getRankingCutoffs(final Properties properties) {
+        return getRankingCutoffs(properties, properties.getProperty(METRIC));
+    }
+
+    /**
+     *
+     * Gets the ranking cutoffs requested in a properties mapping for a metric
+     * (the metric in the properties, if any, is ignored).
+     *
+     * @param properties the properties mapping to be parsed.
+     * @param metricClassName the class name of the metric.
+     * @return an array with the ranking cutoffs (if available).
+     */
+    public static int[] getRankingCutoffs(final Properties properties, final String metricClassName) {
         int[] rankingCutoffs = new int[0];
-        String metricClassName = properties.getProperty(METRIC);
         if (metricClassName.contains(".ranking.")) {
             String[] cutoffs = properties.getProperty(RANKING_CUTOFFS).split(",");
             rankingCutoffs = new int[cutoffs.length];
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.metric;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.experiment.ExperimentNode;
+import net.recommenders.rival.core.experiment.FoldNode;
+import net.recommenders.rival.evaluation.pipeline.UserMetricAccumulator;
+
+/**
+ * Experiment node that evaluates some recommendations against the test set
+ * of a fold with the metrics in {@link MultipleEvaluationMetricRunner#METRICS}.
+ * The output has, for each metric (and each ranking metric at each cutoff,
+ * named metric@cutoff), the value of every user and the global value under
+ * {@link UserMetricAccumulator#ALL}, as computed by
+ * {@link UserMetricAccumulator}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class MetricNode extends ExperimentNode<Map<String, Map<String, Double>>> {
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the node
+     * @param properties the properties of the metrics (see
+     * {@link MultipleEvaluationMetricRunner})
+     * @param fold the node with the training and test sets
+     * @param recommendations the node with the recommendations to evaluate
+     */
+    public MetricNode(final String name, final Properties properties, final FoldNode fold, final ExperimentNode<? extends DataModelIF<Long, Long>> recommendations) {
+        super(name, exclude(properties, MultipleEvaluationMetricRunner.PREDICTION_FOLDER, MultipleEvaluationMetricRunner.PREDICTION_PREFIX,
+                MultipleEvaluationMetricRunner.PREDICTION_FILE_FORMAT, MultipleEvaluationMetricRunner.TEST_FILE, MultipleEvaluationMetricRunner.OUTPUT_OVERWRITE,
+                MultipleEvaluationMetricRunner.OUTPUT_APPEND, MultipleEvaluationMetricRunner.OUTPUT_FOLDER, MultipleEvaluationMetricRunner.METRIC_PER_USER),
+                fold, recommendations);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Double>> compute(final List<Object> inputValues) throws Exception {
+        DataModelIF<Long, Long> recModel = (DataModelIF<Long, Long>) inputValues.get(1);
+        UserMetricAccumulator accumulator = new UserMetricAccumulator(getProperties(), FoldNode.getTest(inputValues.get(0)));
+        for (Long user : recModel.getUsers()) {
+            Map<Long, Double> recommendations = new HashMap<>();
+            for (Long item : recModel.getUserItems(user)) {
+                recommendations.put(item, recModel.getUserItemPreference(user, item));
+            }
+            accumulator.evaluate(user, recommendations);
+        }
+        accumulator.evaluateMissingUsers();
+        return accumulator.getResults();
+    }
+}
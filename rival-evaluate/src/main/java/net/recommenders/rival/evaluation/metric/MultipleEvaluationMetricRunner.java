@@ -26,11 +26,19 @@ import java.util.Properties;
 import java.util.Set;
 import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.SimpleParser;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
+import net.recommenders.rival.core.metrics.Timer;
+import net.recommenders.rival.evaluation.parser.BinaryRankingParser;
 import net.recommenders.rival.evaluation.parser.TrecEvalParser;
 import net.recommenders.rival.evaluation.strategy.EvaluationStrategy;
 
 /**
- * Runner for multiple evaluation metrics.
+ * Runner for multiple evaluation metrics. The prediction files evaluated
+ * ({@link #FILES}, whose progress is reported), the users with predictions
+ * in them ({@link #USERS}), the bytes read ({@link #BYTES}), and the time
+ * spent parsing each file ({@link #PARSE_TIME}) and computing and writing
+ * each metric ({@link #METRIC_TIME}) are published in the default
+ * {@link MetricsRegistry}.
  *
  * @author <a href="http://github.com/abellogin">Alejandro</a>
  */
@@ -88,6 +96,30 @@ public final class MultipleEvaluationMetricRunner {
      * Variable that represents the name of a property in the file.
      */
     public static final String METRIC_PER_USER = "evaluation.peruser";
+    /**
+     * Name of the counter of prediction files evaluated.
+     */
+    public static final String FILES = "evaluation.files";
+    /**
+     * Name of the counter of users with predictions.
+     */
+    public static final String USERS = "evaluation.users";
+    /**
+     * Name of the counter of bytes read.
+     */
+    public static final String BYTES = "evaluation.bytes";
+    /**
+     * Name of the timer of the prediction files parsed.
+     */
+    public static final String PARSE_TIME = "evaluation.parse";
+    /**
+     * Name of the timer of the metrics computed.
+     */
+    public static final String METRIC_TIME = "evaluation.metric";
+    /**
+     * Name of the task whose progress is reported.
+     */
+    private static final String TASK = "evaluation";
 
     /**
      * Utility classes should not have a public or default constructor.
@@ -111,7 +143,12 @@ public final class MultipleEvaluationMetricRunner {
             ie.printStackTrace();
         }
 
-        run(properties);
+        MetricsRegistry.getDefault().configure(properties);
+        try {
+            run(properties);
+        } finally {
+            MetricsRegistry.getDefault().stop();
+        }
     }
 
     /**
@@ -136,12 +173,7 @@ public final class MultipleEvaluationMetricRunner {
     @SuppressWarnings("unchecked")
     public static void run(final Properties properties)
             throws IOException, ClassNotFoundException, IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchMethodException {
-        EvaluationStrategy.OUTPUT_FORMAT recFormat;
-        if (properties.getProperty(PREDICTION_FILE_FORMAT).equals(EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL.toString())) {
-            recFormat = EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL;
-        } else {
-            recFormat = EvaluationStrategy.OUTPUT_FORMAT.SIMPLE;
-        }
+        EvaluationStrategy.OUTPUT_FORMAT recFormat = EvaluationStrategy.OUTPUT_FORMAT.fromName(properties.getProperty(PREDICTION_FILE_FORMAT));
 
         System.out.println("Parsing started: test file");
         File testFile = new File(properties.getProperty(TEST_FILE));
@@ -157,12 +189,16 @@ public final class MultipleEvaluationMetricRunner {
         Boolean overwrite = Boolean.parseBoolean(properties.getProperty(OUTPUT_OVERWRITE, "false"));
         Boolean doAppend = Boolean.parseBoolean(properties.getProperty(OUTPUT_APPEND, "true"));
         Boolean perUser = Boolean.parseBoolean(properties.getProperty(METRIC_PER_USER, "false"));
-        int[] rankingCutoffs = EvaluationMetricRunner.getRankingCutoffs(properties);
         // process info for each result file
         File resultsFolder = new File(properties.getProperty(OUTPUT_FOLDER));
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        Timer parseTimer = registry.timer(PARSE_TIME);
+        Timer metricTimer = registry.timer(METRIC_TIME);
+        registry.getProgress().track(TASK, registry.counter(FILES), predictionFiles.size());
         for (String file : predictionFiles) {
-            File predictionFile = new File(predictionsPrefix + file);
+            File predictionFile = new File(file);
             System.out.println("Parsing started: recommendation file");
+            long start = parseTimer.start();
             DataModelIF<Long, Long> predictions;
             switch (recFormat) {
                 case SIMPLE:
@@ -171,18 +207,30 @@ public final class MultipleEvaluationMetricRunner {
                 case TRECEVAL:
                     predictions = new TrecEvalParser().parseData(predictionFile);
                     break;
+                case BINARY:
+                    predictions = new BinaryRankingParser().parseData(predictionFile);
+                    break;
                 default:
                     throw new AssertionError();
             }
+            parseTimer.stop(start);
+            registry.counter(BYTES).inc(predictionFile.length());
+            registry.counter(USERS).inc(predictions.getNumUsers());
             System.out.println("Parsing finished: recommendation file");
             File resultsFile = new File(resultsFolder, "eval" + "__" + predictionFile.getName());
 
             // get metrics
             for (EvaluationMetric<Long> metric : instantiateEvaluationMetrics(properties, predictions, testModel)) {
+                // cutoffs of this metric (none for error metrics)
+                int[] rankingCutoffs = EvaluationMetricRunner.getRankingCutoffs(properties, metric.getClass().getName());
                 // generate output
+                start = metricTimer.start();
                 EvaluationMetricRunner.generateOutput(testModel, rankingCutoffs, metric, metric.getClass().getSimpleName(), perUser, resultsFile, overwrite, doAppend);
+                metricTimer.stop(start);
             }
+            registry.counter(FILES).inc();
         }
+        registry.getProgress().untrack(TASK);
     }
 
     /**
@@ -209,11 +257,11 @@ public final class MultipleEvaluationMetricRunner {
         List<EvaluationMetric<Long>> metricList = new ArrayList<>();
         String[] metricClassNames = properties.getProperty(METRICS).split(",");
         for (String metricClassName : metricClassNames) {
-            // get metric
-            properties.put(EvaluationMetricRunner.METRIC, metricClassName);
-            EvaluationMetric<Long> metric = EvaluationMetricRunner.instantiateEvaluationMetric(properties, predictions, testModel);
+            // get metric (the properties of the caller are not modified)
+            Properties metricProperties = new Properties(properties);
+            metricProperties.setProperty(EvaluationMetricRunner.METRIC, metricClassName);
+            EvaluationMetric<Long> metric = EvaluationMetricRunner.instantiateEvaluationMetric(metricProperties, predictions, testModel);
             metricList.add(metric);
-            properties.remove(EvaluationMetricRunner.METRIC);
         }
 
     @SuppressWarnings("unchecked")
@@ -224,7 +272,7 @@ public final class MultipleEvaluationMetricRunner {
     /**
      * Gets all prediction files.
      *
-     * @param predictionFiles The prediction files.
+     * @param predictionFiles The prediction files (absolute paths).
      * @param path The path where the splits are.
      * @param predictionPrefix The prefix of the prediction files.
      */
@@ -240,7 +288,7 @@ public final class MultipleEvaluationMetricRunner {
             if (file.isDirectory()) {
                 getAllPredictionFiles(predictionFiles, file, predictionPrefix);
             } else if (file.getName().startsWith(predictionPrefix)) {
-                predictionFiles.add(file.getAbsolutePath().replaceAll(predictionPrefix, ""));
+                predictionFiles.add(file.getAbsolutePath());
             }
         }
     }
@@ -103,8 +103,10 @@ public abstract class AbstractRankingMetric<U, I> extends AbstractMetric<U, I> i
 
         for (U testUser : getTest().getUsers()) {
             Map<I, Double> userPredictedRatings = new HashMap<>();
-            for (I i : getPredictions().getUserItems(testUser)) {
-                userPredictedRatings.put(i, getPredictions().getUserItemPreference(testUser, i));
+            if (getPredictions().getUserItems(testUser) != null) {
+                for (I i : getPredictions().getUserItems(testUser)) {
+                    userPredictedRatings.put(i, getPredictions().getUserItemPreference(testUser, i));
+                }
             }
             if (!userPredictedRatings.isEmpty()) {
                 List<Pair<I, Double>> rankedTestRel = new ArrayList<Pair<I, Double>>();
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.parser;
+
+import java.io.File;
+import java.io.IOException;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.Parser;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.evaluation.strategy.BinaryRanking;
+
+/**
+ * A parser of the rankings and ground truth files written by the strategies
+ * in {@link net.recommenders.rival.evaluation.strategy.EvaluationStrategy.OUTPUT_FORMAT#BINARY}
+ * format (no timestamp info).
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class BinaryRankingParser implements Parser<Long, Long> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TemporalDataModelIF<Long, Long> parseTemporalData(final File f) throws IOException {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataModelIF<Long, Long> parseData(final File f) throws IOException {
+        DataModelIF<Long, Long> dataset = DataModelFactory.getDefaultModel();
+        try (BinaryRanking.Reader in = new BinaryRanking.Reader(f)) {
+            while (in.next()) {
+                Long userId = Long.parseLong(in.getUser());
+                for (int k = 0; k < in.size(); k++) {
+                    dataset.addPreference(userId, in.getItem(k), (double) in.getScore(k));
+                }
+            }
+        }
+        return dataset;
+    }
+}
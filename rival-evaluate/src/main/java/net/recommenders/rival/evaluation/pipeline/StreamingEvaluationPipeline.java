@@ -0,0 +1,407 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.pipeline;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.evaluation.strategy.EvaluationStrategy;
+import net.recommenders.rival.evaluation.strategy.MultipleStrategyRunner;
+
+/**
+ * Streams the recommendations of several recommenders through the strategies
+ * and the metrics without materializing them. Each recommender writes the
+ * recommendations of one user at a time to its {@link Stream}; a strategy
+ * worker per stream filters them with every strategy (in the order they
+ * arrive, as some strategies are randomized) and a pool of metric workers
+ * evaluates each filtered block with a {@link UserMetricAccumulator}. The
+ * stages are connected by bounded queues, so a fast stage waits for a slow
+ * one, and the memory used is bounded by the size of the queues instead of
+ * the number of users, items and recommenders.
+ *
+ * The strategies and metrics are those of
+ * {@link MultipleStrategyRunner#instantiateStrategies(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+ * and {@link UserMetricAccumulator}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class StreamingEvaluationPipeline {
+
+    /**
+     * Property key for the capacity of each queue (in users).
+     */
+    public static final String QUEUE_CAPACITY = "pipeline.queue.capacity";
+    /**
+     * Property key for the number of metric workers (by default, the number
+     * of processors).
+     */
+    public static final String METRIC_WORKERS = "pipeline.metric.workers";
+    /**
+     * Default capacity of each queue.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    /**
+     * Marks the end of a queue.
+     */
+    private static final Block END = new Block(null, null);
+    /**
+     * Stops a metric worker.
+     */
+    private static final Callable<Void> STOP = new Callable<Void>() {
+        @Override
+        public Void call() {
+            return null;
+        }
+    };
+    /**
+     * The properties.
+     */
+    private final Properties properties;
+    /**
+     * The training set.
+     */
+    private final DataModelIF<Long, Long> training;
+    /**
+     * The test set.
+     */
+    private final DataModelIF<Long, Long> test;
+    /**
+     * Capacity of each queue.
+     */
+    private final int capacity;
+    /**
+     * Blocks waiting to be evaluated.
+     */
+    private final BlockingQueue<Callable<Void>> metricQueue;
+    /**
+     * Strategy workers (one per stream).
+     */
+    private final ExecutorService strategyPool;
+    /**
+     * Metric workers.
+     */
+    private final ExecutorService metricPool;
+    /**
+     * The strategy workers, to wait for them.
+     */
+    private final List<Future<?>> strategyWorkers;
+    /**
+     * The metric workers, to wait for them.
+     */
+    private final List<Future<?>> metricWorkers;
+    /**
+     * Accumulators by strategy and recommender.
+     */
+    private final Map<String, Map<String, UserMetricAccumulator>> accumulators;
+    /**
+     * First failure of a worker.
+     */
+    private final AtomicReference<Exception> failure;
+
+    /**
+     * Constructor; the metric workers are started.
+     *
+     * @param props properties of the strategies, the metrics and the pipeline
+     * @param trainingModel the training set
+     * @param testModel the test set
+     */
+    public StreamingEvaluationPipeline(final Properties props, final DataModelIF<Long, Long> trainingModel, final DataModelIF<Long, Long> testModel) {
+        this.properties = new Properties();
+        this.properties.putAll(props);
+        this.training = trainingModel;
+        this.test = testModel;
+        this.capacity = Integer.parseInt(props.getProperty(QUEUE_CAPACITY, "" + DEFAULT_QUEUE_CAPACITY));
+        this.metricQueue = new ArrayBlockingQueue<>(capacity);
+        this.strategyPool = Executors.newCachedThreadPool();
+        int nWorkers = Integer.parseInt(props.getProperty(METRIC_WORKERS, "" + Runtime.getRuntime().availableProcessors()));
+        this.metricPool = Executors.newFixedThreadPool(Math.max(1, nWorkers));
+        this.strategyWorkers = Collections.synchronizedList(new ArrayList<Future<?>>());
+        this.metricWorkers = new ArrayList<>();
+        this.accumulators = new LinkedHashMap<>();
+        this.failure = new AtomicReference<>();
+        for (int w = 0; w < Math.max(1, nWorkers); w++) {
+            metricWorkers.add(metricPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    evaluateBlocks();
+                }
+            }));
+        }
+    }
+
+    /**
+     * Opens the stream of a recommender. Every stream must be opened before
+     * calling {@link #await()}.
+     *
+     * @param recommender the name of the recommender
+     * @return the stream
+     * @throws ClassNotFoundException see
+     * {@link MultipleStrategyRunner#instantiateStrategies(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * @throws IllegalAccessException see
+     * {@link MultipleStrategyRunner#instantiateStrategies(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * @throws InstantiationException see
+     * {@link MultipleStrategyRunner#instantiateStrategies(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * @throws InvocationTargetException see
+     * {@link MultipleStrategyRunner#instantiateStrategies(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * @throws NoSuchMethodException see
+     * {@link MultipleStrategyRunner#instantiateStrategies(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     */
+    public Stream open(final String recommender)
+            throws ClassNotFoundException, IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchMethodException {
+        EvaluationStrategy<Long, Long>[] strategies;
+        synchronized (properties) {
+            strategies = MultipleStrategyRunner.instantiateStrategies(properties, training, test);
+        }
+        UserMetricAccumulator[] stratAccumulators = new UserMetricAccumulator[strategies.length];
+        synchronized (accumulators) {
+            for (int s = 0; s < strategies.length; s++) {
+                Map<String, UserMetricAccumulator> recs = accumulators.get(strategies[s].toString());
+                if (recs == null) {
+                    recs = new LinkedHashMap<>();
+                    accumulators.put(strategies[s].toString(), recs);
+                }
+                stratAccumulators[s] = new UserMetricAccumulator(properties, test);
+                recs.put(recommender, stratAccumulators[s]);
+            }
+        }
+        final Stream stream = new Stream(strategies, stratAccumulators);
+        strategyWorkers.add(strategyPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                stream.filterBlocks();
+            }
+        }));
+        return stream;
+    }
+
+    /**
+     * Waits until every stream is closed and its recommendations are
+     * evaluated, and stops the workers.
+     *
+     * @return the results by strategy, recommender, metric and user (with the
+     * global value under {@link UserMetricAccumulator#ALL}), as in
+     * {@link UserMetricAccumulator#getResults()}
+     * @throws InterruptedException when interrupted while waiting
+     * @throws ExecutionException when a stage fails
+     */
+    public Map<String, Map<String, Map<String, Map<String, Double>>>> await() throws InterruptedException, ExecutionException {
+        try {
+            List<Future<?>> workers;
+            synchronized (strategyWorkers) {
+                workers = new ArrayList<>(strategyWorkers);
+            }
+            for (Future<?> w : workers) {
+                w.get();
+            }
+            for (int w = 0; w < metricWorkers.size(); w++) {
+                metricQueue.put(STOP);
+            }
+            for (Future<?> w : metricWorkers) {
+                w.get();
+            }
+            // test users without recommendations count for some error metrics;
+            // only once every user has been evaluated, or a user being
+            // evaluated by a worker could also be taken as missing
+            if (failure.get() == null) {
+                List<Future<Void>> missing = new ArrayList<>();
+                synchronized (accumulators) {
+                    for (Map<String, UserMetricAccumulator> recs : accumulators.values()) {
+                        for (final UserMetricAccumulator acc : recs.values()) {
+                            missing.add(metricPool.submit(new Callable<Void>() {
+                                @Override
+                                public Void call() throws Exception {
+                                    acc.evaluateMissingUsers();
+                                    return null;
+                                }
+                            }));
+                        }
+                    }
+                }
+                for (Future<Void> f : missing) {
+                    f.get();
+                }
+            }
+        } finally {
+            strategyPool.shutdownNow();
+            metricPool.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new ExecutionException(failure.get());
+        }
+        Map<String, Map<String, Map<String, Map<String, Double>>>> results = new LinkedHashMap<>();
+        synchronized (accumulators) {
+            for (Map.Entry<String, Map<String, UserMetricAccumulator>> e : accumulators.entrySet()) {
+                Map<String, Map<String, Map<String, Double>>> recs = new HashMap<>();
+                for (Map.Entry<String, UserMetricAccumulator> e2 : e.getValue().entrySet()) {
+                    recs.put(e2.getKey(), e2.getValue().getResults());
+                }
+                results.put(e.getKey(), recs);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Loop of a metric worker: evaluates blocks until it is stopped. After a
+     * failure, the blocks are discarded so that the other stages do not wait
+     * forever.
+     */
+    private void evaluateBlocks() {
+        try {
+            for (Callable<Void> task = metricQueue.take(); task != STOP; task = metricQueue.take()) {
+                if (failure.get() == null) {
+                    try {
+                        task.call();
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The recommendations of a user.
+     */
+    private static final class Block {
+
+        /**
+         * The user.
+         */
+        private final Long user;
+        /**
+         * The scores of the recommended items.
+         */
+        private final Map<Long, Double> scores;
+
+        /**
+         * Constructor.
+         *
+         * @param u the user
+         * @param s the scores of the recommended items
+         */
+        private Block(final Long u, final Map<Long, Double> s) {
+            this.user = u;
+            this.scores = s;
+        }
+    }
+
+    /**
+     * The recommendations of a recommender, one user at a time.
+     */
+    public final class Stream {
+
+        /**
+         * Blocks waiting to be filtered.
+         */
+        private final BlockingQueue<Block> queue;
+        /**
+         * The strategies.
+         */
+        private final EvaluationStrategy<Long, Long>[] strategies;
+        /**
+         * The accumulator of each strategy.
+         */
+        private final UserMetricAccumulator[] stratAccumulators;
+
+        /**
+         * Constructor.
+         *
+         * @param strats the strategies
+         * @param accs the accumulator of each strategy
+         */
+        private Stream(final EvaluationStrategy<Long, Long>[] strats, final UserMetricAccumulator[] accs) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.strategies = strats;
+            this.stratAccumulators = accs;
+        }
+
+        /**
+         * Adds the recommendations of a user, waiting if the queue is full.
+         * Each user must be added once.
+         *
+         * @param user the user
+         * @param scores the scores of the recommended items
+         * @throws InterruptedException when interrupted while waiting
+         */
+        public void recommended(final Long user, final Map<Long, Double> scores) throws InterruptedException {
+            queue.put(new Block(user, scores));
+        }
+
+        /**
+         * Marks the end of the recommendations.
+         *
+         * @throws InterruptedException when interrupted while waiting
+         */
+        public void close() throws InterruptedException {
+            queue.put(END);
+        }
+
+        /**
+         * Loop of the strategy worker: filters the blocks with every strategy
+         * until the stream is closed.
+         */
+        private void filterBlocks() {
+            try {
+                for (Block block = queue.take(); block != END; block = queue.take()) {
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    try {
+                        for (int s = 0; s < strategies.length; s++) {
+                            final Long user = block.user;
+                            final Map<Long, Double> filtered = new HashMap<>();
+                            for (Long item : strategies[s].getCandidateItemsToRank(user)) {
+                                Double score = block.scores.get(item);
+                                if (score != null && !Double.isNaN(score)) {
+                                    filtered.put(item, score);
+                                }
+                            }
+                            final UserMetricAccumulator acc = stratAccumulators[s];
+                            metricQueue.put(new Callable<Void>() {
+                                @Override
+                                public Void call() throws Exception {
+                                    acc.evaluate(user, filtered);
+                                    return null;
+                                }
+                            });
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.pipeline;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.evaluation.metric.EvaluationMetric;
+import net.recommenders.rival.evaluation.metric.EvaluationMetricRunner;
+import net.recommenders.rival.evaluation.metric.MultipleEvaluationMetricRunner;
+import net.recommenders.rival.evaluation.metric.error.AbstractErrorMetric;
+import net.recommenders.rival.evaluation.metric.error.RMSE;
+import net.recommenders.rival.evaluation.metric.ranking.AbstractRankingMetric;
+
+/**
+ * Evaluates the recommendations of one user at a time and accumulates the
+ * results, so that the recommendations of every user do not need to be kept
+ * in memory. The metrics in {@link MultipleEvaluationMetricRunner#METRICS}
+ * are computed on models containing only the user, and the global values are
+ * aggregated as the metrics do: error metrics over all the test ratings,
+ * ranking metrics as the average over the users. Only the per-user values
+ * and a few sums are kept. This class is thread-safe.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class UserMetricAccumulator {
+
+    /**
+     * Key of the global value in the results.
+     */
+    public static final String ALL = "all";
+    /**
+     * The test set.
+     */
+    private final DataModelIF<Long, Long> test;
+    /**
+     * Properties to instantiate each metric (read-only).
+     */
+    private final List<Properties> metricProperties;
+    /**
+     * Values per user of each metric (and of each ranking metric at each
+     * cutoff).
+     */
+    private final Map<String, Map<String, Double>> results;
+    /**
+     * Sums of each metric: sum of values, number of values, and number of
+     * users with a ranking.
+     */
+    private final Map<String, double[]> sums;
+    /**
+     * True for the metrics aggregated as a root mean square.
+     */
+    private final Set<String> rootMean;
+    /**
+     * Users already evaluated.
+     */
+    private final Set<Long> users;
+
+    /**
+     * Constructor.
+     *
+     * @param properties the properties of the metrics (see
+     * {@link MultipleEvaluationMetricRunner#instantiateEvaluationMetrics(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)})
+     * @param testModel the test set
+     */
+    public UserMetricAccumulator(final Properties properties, final DataModelIF<Long, Long> testModel) {
+        this.test = testModel;
+        this.metricProperties = new ArrayList<>();
+        for (String metricClassName : properties.getProperty(MultipleEvaluationMetricRunner.METRICS).split(",")) {
+            Properties props = new Properties();
+            props.putAll(properties);
+            props.put(EvaluationMetricRunner.METRIC, metricClassName);
+            metricProperties.add(props);
+        }
+        this.results = new LinkedHashMap<>();
+        this.sums = new HashMap<>();
+        this.rootMean = new HashSet<>();
+        this.users = new HashSet<>();
+    }
+
+    /**
+     * Evaluates the recommendations of a user. Each user must be evaluated
+     * once.
+     *
+     * @param user the user
+     * @param recommendations the scores of the recommended items
+     * @throws ClassNotFoundException see
+     * {@link EvaluationMetricRunner#instantiateEvaluationMetric(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * @throws IllegalAccessException see
+     * {@link EvaluationMetricRunner#instantiateEvaluationMetric(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * @throws InstantiationException see
+     * {@link EvaluationMetricRunner#instantiateEvaluationMetric(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * @throws InvocationTargetException see
+     * {@link EvaluationMetricRunner#instantiateEvaluationMetric(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * @throws NoSuchMethodException see
+     * {@link EvaluationMetricRunner#instantiateEvaluationMetric(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     */
+    @SuppressWarnings("unchecked")
+    public void evaluate(final Long user, final Map<Long, Double> recommendations)
+            throws ClassNotFoundException, IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchMethodException {
+        synchronized (this) {
+            users.add(user);
+        }
+        DataModelIF<Long, Long> userPredictions = DataModelFactory.getDefaultModel();
+        for (Map.Entry<Long, Double> e : recommendations.entrySet()) {
+            userPredictions.addPreference(user, e.getKey(), e.getValue());
+        }
+        DataModelIF<Long, Long> userTest = DataModelFactory.getDefaultModel();
+        Iterable<Long> testItems = test.getUserItems(user);
+        if (testItems != null) {
+            for (Long i : testItems) {
+                userTest.addPreference(user, i, test.getUserItemPreference(user, i));
+            }
+        }
+        for (Properties props : metricProperties) {
+            EvaluationMetric<Long> metric = EvaluationMetricRunner.instantiateEvaluationMetric(props, userPredictions, userTest);
+            if (recommendations.isEmpty() && !(metric instanceof AbstractErrorMetric)) {
+                // ranking metrics ignore the users without recommendations
+                continue;
+            }
+            metric.compute();
+            String name = metric.toString();
+            Map<Long, Double> perUser = metric.getValuePerUser();
+            if (metric instanceof AbstractErrorMetric) {
+                List<Double> differences = ((AbstractErrorMetric<Long, Long>) metric).processDataAsPredictedDifferencesToTest().get(user);
+                int n = differences == null ? 0 : differences.size();
+                synchronized (this) {
+                    values(name);
+                    if (metric instanceof RMSE) {
+                        rootMean.add(name);
+                    }
+                    if (perUser.containsKey(user)) {
+                        double v = perUser.get(user);
+                        put(name, user, v);
+                        if (n > 0) {
+                            add(name, rootMean.contains(name) ? v * v * n : v * n, n, 0);
+                        }
+                    }
+                }
+            } else {
+                synchronized (this) {
+                    boolean ranked = userPredictions.getUserItems(user) != null && testItems != null;
+                    values(name);
+                    if (perUser.containsKey(user)) {
+                        put(name, user, perUser.get(user));
+                        add(name, perUser.get(user), 1, 0);
+                    }
+                    if (metric instanceof AbstractRankingMetric) {
+                        AbstractRankingMetric<Long, Long> rankingMetric = (AbstractRankingMetric<Long, Long>) metric;
+                        for (int at : rankingMetric.getCutoffs()) {
+                            String nameAt = name + "@" + at;
+                            double v = rankingMetric.getValueAt(user, at);
+                            values(nameAt);
+                            if (perUser.containsKey(user)) {
+                                put(nameAt, user, v);
+                            }
+                            if (!Double.isNaN(v)) {
+                                add(nameAt, v, 1, 0);
+                            }
+                            if (ranked) {
+                                add(nameAt, 0.0, 0, 1);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the test users that have not been evaluated yet, with no
+     * recommendations (they count for the error metrics, depending on their
+     * error strategy).
+     *
+     * @throws ClassNotFoundException see
+     * {@link #evaluate(java.lang.Long, java.util.Map)}
+     * @throws IllegalAccessException see
+     * {@link #evaluate(java.lang.Long, java.util.Map)}
+     * @throws InstantiationException see
+     * {@link #evaluate(java.lang.Long, java.util.Map)}
+     * @throws InvocationTargetException see
+     * {@link #evaluate(java.lang.Long, java.util.Map)}
+     * @throws NoSuchMethodException see
+     * {@link #evaluate(java.lang.Long, java.util.Map)}
+     */
+    public void evaluateMissingUsers()
+            throws ClassNotFoundException, IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchMethodException {
+        Map<Long, Double> none = new HashMap<>();
+        for (Long u : test.getUsers()) {
+            boolean seen;
+            synchronized (this) {
+                seen = users.contains(u);
+            }
+            if (!seen) {
+                evaluate(u, none);
+            }
+        }
+    }
+
+    /**
+     * Gets the results: for each metric (and each ranking metric at each
+     * cutoff, named metric@cutoff), the value of every user and the global
+     * value (under the key {@link #ALL}), as in the output of
+     * {@link EvaluationMetric#getValuePerUser()} and
+     * {@link EvaluationMetric#getValue()}.
+     *
+     * @return the results
+     */
+    public synchronized Map<String, Map<String, Double>> getResults() {
+        Map<String, Map<String, Double>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Double>> e : results.entrySet()) {
+            Map<String, Double> values = new HashMap<>(e.getValue());
+            values.put(ALL, getValue(e.getKey()));
+            copy.put(e.getKey(), values);
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the global value of a metric.
+     *
+     * @param name the metric
+     * @return the global value
+     */
+    private double getValue(final String name) {
+        double[] s = sums.get(name);
+        if (s == null) {
+            return Double.NaN;
+        }
+        if (name.contains("@")) {
+            // as AbstractRankingMetric.getValueAt: NaN without rankings, 0 without values
+            if (s[2] == 0) {
+                return Double.NaN;
+            }
+            return s[1] == 0 ? 0.0 : s[0] / s[1];
+        }
+        if (s[1] == 0) {
+            return Double.NaN;
+        }
+        return rootMean.contains(name) ? Math.sqrt(s[0] / s[1]) : s[0] / s[1];
+    }
+
+    /**
+     * Gets the values per user of a metric, created if needed.
+     *
+     * @param name the metric
+     * @return the values per user
+     */
+    private Map<String, Double> values(final String name) {
+        Map<String, Double> values = results.get(name);
+        if (values == null) {
+            values = new HashMap<>();
+            results.put(name, values);
+        }
+        return values;
+    }
+
+    /**
+     * Stores the value of a user.
+     *
+     * @param name the metric
+     * @param user the user
+     * @param value the value
+     */
+    private void put(final String name, final Long user, final double value) {
+        values(name).put(user.toString(), value);
+    }
+
+    /**
+     * Adds to the sums of a metric.
+     *
+     * @param name the metric
+     * @param value the value to add
+     * @param count the number of values
+     * @param ranked the number of users with a ranking
+     */
+    private void add(final String name, final double value, final int count, final int ranked) {
+        double[] s = sums.get(name);
+        if (s == null) {
+            s = new double[3];
+            sums.put(name, s);
+        }
+        s[0] += value;
+        s[1] += count;
+        s[2] += ranked;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * RiVal streaming evaluation pipeline.
+ */
+package net.recommenders.rival.evaluation.pipeline;
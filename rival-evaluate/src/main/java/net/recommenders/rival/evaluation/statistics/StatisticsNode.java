@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.statistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import net.recommenders.rival.core.experiment.ExperimentNode;
+import net.recommenders.rival.evaluation.pipeline.UserMetricAccumulator;
+
+/**
+ * Experiment node that compares the results of some methods against the
+ * results of a baseline with the functions in
+ * {@link StatisticsRunner#STATISTICS} (see
+ * {@link StatisticsRunner#run(java.util.Properties, java.io.PrintStream, java.lang.String, java.util.Map, java.util.Map)}).
+ * The methods are named after their nodes, and the output is the report of
+ * the statistics. The users in {@link StatisticsRunner#AVOID_USERS} (by
+ * default, the global value {@link UserMetricAccumulator#ALL}) are ignored.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class StatisticsNode extends ExperimentNode<String> {
+
+    /**
+     * Parameter with the names of the baseline and the methods, which appear
+     * in the output.
+     */
+    public static final String METHODS = "statistics.methods";
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the node
+     * @param properties the properties of the statistics (see
+     * {@link StatisticsRunner})
+     * @param baseline the node with the results of the baseline
+     * @param methods the nodes with the results of the methods
+     */
+    @SafeVarargs
+    public StatisticsNode(final String name, final Properties properties, final ExperimentNode<? extends Map<String, Map<String, Double>>> baseline,
+            final ExperimentNode<? extends Map<String, Map<String, Double>>>... methods) {
+        super(name, parameters(properties, baseline, methods), inputs(baseline, methods));
+    }
+
+    /**
+     * Creates the parameters of the node.
+     *
+     * @param properties the properties of the statistics
+     * @param baseline the node with the results of the baseline
+     * @param methods the nodes with the results of the methods
+     * @return the parameters
+     */
+    private static Properties parameters(final Properties properties, final ExperimentNode<?> baseline, final ExperimentNode<?>[] methods) {
+        Properties parameters = exclude(properties, StatisticsRunner.BASELINE_FILE, StatisticsRunner.TEST_METHODS_FILES, StatisticsRunner.INPUT_FORMAT,
+                StatisticsRunner.OUTPUT_OVERWRITE, StatisticsRunner.OUTPUT_FILE);
+        StringBuilder names = new StringBuilder(baseline.getName());
+        for (ExperimentNode<?> m : methods) {
+            names.append(',').append(m.getName());
+        }
+        parameters.setProperty(METHODS, names.toString());
+        return parameters;
+    }
+
+    /**
+     * Creates the inputs of the node.
+     *
+     * @param baseline the node with the results of the baseline
+     * @param methods the nodes with the results of the methods
+     * @return the baseline followed by the methods
+     */
+    private static ExperimentNode<?>[] inputs(final ExperimentNode<?> baseline, final ExperimentNode<?>[] methods) {
+        ExperimentNode<?>[] inputs = new ExperimentNode<?>[methods.length + 1];
+        inputs[0] = baseline;
+        System.arraycopy(methods, 0, inputs, 1, methods.length);
+        return inputs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public String compute(final List<Object> inputValues) throws Exception {
+        Properties properties = getProperties();
+        Set<String> usersToAvoid = new HashSet<>();
+        for (String u : properties.getProperty(StatisticsRunner.AVOID_USERS, UserMetricAccumulator.ALL).split(",")) {
+            usersToAvoid.add(u);
+        }
+        String[] names = properties.getProperty(METHODS).split(",");
+        Map<String, Map<String, Map<String, Double>>> methodsResults = new LinkedHashMap<>();
+        for (int i = 1; i < names.length; i++) {
+            methodsResults.put(names[i], withoutUsers((Map<String, Map<String, Double>>) inputValues.get(i), usersToAvoid));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes, true, "UTF-8")) {
+            StatisticsRunner.run(properties, out, names[0], withoutUsers((Map<String, Map<String, Double>>) inputValues.get(0), usersToAvoid), methodsResults);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies the results of a method without some users.
+     *
+     * @param results the results of a method
+     * @param usersToAvoid the users to remove
+     * @return the copy of the results
+     */
+    private static Map<String, Map<String, Double>> withoutUsers(final Map<String, Map<String, Double>> results, final Set<String> usersToAvoid) {
+        Map<String, Map<String, Double>> copy = new HashMap<>();
+        for (Map.Entry<String, Map<String, Double>> e : results.entrySet()) {
+            Map<String, Double> values = new HashMap<>(e.getValue());
+            values.keySet().removeAll(usersToAvoid);
+            copy.put(e.getKey(), values);
+        }
+        return copy;
+    }
+}
@@ -15,7 +15,9 @@
  */
 package net.recommenders.rival.evaluation.strategy;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -110,6 +112,23 @@ public abstract class AbstractStrategy implements EvaluationStrategy<Long, Long>
         return items;
     }
 
+    /**
+     * Get the items to rank, from the item sets of the user shared by several
+     * strategies (see {@link UserItemSets}). By default, the item sets are
+     * ignored and {@link #getCandidateItemsToRank(java.lang.Object)} is
+     * called; the strategies of RiVal read their candidates from the item
+     * sets instead, so subclasses that override
+     * {@link #getCandidateItemsToRank(java.lang.Object)} should override this
+     * method as well. The returned set should not be modified.
+     *
+     * @param user The user.
+     * @param itemSets The item sets of the user.
+     * @return The items to rank.
+     */
+    public Set<Long> getCandidateItemsToRank(final Long user, final UserItemSets itemSets) {
+        return getCandidateItemsToRank(user);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -131,6 +150,10 @@ public abstract class AbstractStrategy implements EvaluationStrategy<Long, Long>
      * @param format The format of the printer.
      */
     protected void printRanking(final String user, final Map<Long, Double> scoredItems, final PrintStream out, final OUTPUT_FORMAT format) {
+        if (format == OUTPUT_FORMAT.BINARY) {
+            printBlock(user, scoredItems, out);
+            return;
+        }
         final Map<Double, Set<Long>> preferenceMap = new HashMap<Double, Set<Long>>();
         for (Map.Entry<Long, Double> e : scoredItems.entrySet()) {
             long item = e.getKey();
@@ -190,6 +213,10 @@ public abstract class AbstractStrategy implements EvaluationStrategy<Long, Long>
      * @param format The format of the printer.
      */
     protected void printGroundtruth(final String user, final Map<Long, Double> groundtruthItems, final PrintStream out, final OUTPUT_FORMAT format) {
+        if (format == OUTPUT_FORMAT.BINARY) {
+            printBlock(user, groundtruthItems, out);
+            return;
+        }
         for (Entry<Long, Double> e : groundtruthItems.entrySet()) {
             switch (format) {
                 case TRECEVAL:
@@ -202,4 +229,20 @@ public abstract class AbstractStrategy implements EvaluationStrategy<Long, Long>
             }
         }
     }
+
+    /**
+     * Prints the block of a user in {@link OUTPUT_FORMAT#BINARY} format.
+     *
+     * @param user The user (as a String).
+     * @param scoredItems The items and their scores.
+     * @param out Where to print.
+     */
+    private static void printBlock(final String user, final Map<Long, Double> scoredItems, final PrintStream out) {
+        try {
+            BinaryRanking.writeBlock(out, user, scoredItems);
+        } catch (IOException e) {
+            // PrintStream does not throw, it only records the error
+            throw new UncheckedIOException(e);
+        }
+    }
 }
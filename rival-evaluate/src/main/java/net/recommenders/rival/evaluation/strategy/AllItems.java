@@ -32,6 +32,13 @@ public class AllItems extends AbstractStrategy {
     return items;
   }
 
+  /**
+     * {@inheritDoc}
+     */
+  @Override public Set<Long> getCandidateItemsToRank(final Long user, final UserItemSets itemSets) {
+    return itemSets.getAllDifference();
+  }
+
   /**
      * {@inheritDoc}
      */
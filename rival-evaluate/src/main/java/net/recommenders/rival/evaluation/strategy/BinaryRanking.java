@@ -0,0 +1,321 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.strategy;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The {@link EvaluationStrategy.OUTPUT_FORMAT#BINARY} format of rankings and
+ * ground truth files. A file is a sequence of blocks, one per user (as
+ * printed by the strategy, so {@link RelPlusN} writes one block per user and
+ * relevant item), without any header, so that files can be appended or
+ * concatenated like the text formats. Each block contains:
+ * <ul>
+ * <li>the user, as a varint with the number of bytes followed by the bytes
+ * (UTF-8),</li>
+ * <li>the number of items n, as a varint,</li>
+ * <li>the n items in increasing order, the first one as a zig-zag varint
+ * and the rest as varints with the difference to the previous item,</li>
+ * <li>the n scores of the items (in the same order), as big-endian
+ * floats.</li>
+ * </ul>
+ * Varints store 7 bits per byte, least significant first, with the high bit
+ * set in every byte but the last. The position of an item in the ranking is
+ * not stored: metrics rank the items by score. Scores are stored with float
+ * precision.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class BinaryRanking {
+
+    /**
+     * Size of the buffer of the readers, in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Maximum size of a varint, in bytes.
+     */
+    private static final int MAX_VARINT = 10;
+    /**
+     * Size of a float, in bytes.
+     */
+    private static final int FLOAT_BYTES = 4;
+    /**
+     * Bits stored in each byte of a varint.
+     */
+    private static final int VARINT_BITS = 7;
+    /**
+     * Mask of the bits stored in each byte of a varint.
+     */
+    private static final int VARINT_MASK = 0x7F;
+    /**
+     * Flag of the bytes of a varint followed by more bytes.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Utility classes should not have a public or default constructor.
+     */
+    private BinaryRanking() {
+    }
+
+    /**
+     * Writes the block of a user. Items with NaN scores are ignored.
+     *
+     * @param out where the block is written
+     * @param user the user
+     * @param scoredItems the scores of the items
+     * @throws IOException when the block cannot be written
+     */
+    public static void writeBlock(final OutputStream out, final String user, final Map<Long, Double> scoredItems) throws IOException {
+        long[] items = new long[scoredItems.size()];
+        int n = 0;
+        for (Map.Entry<Long, Double> e : scoredItems.entrySet()) {
+            if (!Double.isNaN(e.getValue())) {
+                items[n++] = e.getKey();
+            }
+        }
+        Arrays.sort(items, 0, n);
+        byte[] userBytes = user.getBytes(StandardCharsets.UTF_8);
+        byte[] block = new byte[2 * MAX_VARINT + userBytes.length + n * (MAX_VARINT + FLOAT_BYTES)];
+        int pos = writeVarint(block, 0, userBytes.length);
+        System.arraycopy(userBytes, 0, block, pos, userBytes.length);
+        pos += userBytes.length;
+        pos = writeVarint(block, pos, n);
+        for (int k = 0; k < n; k++) {
+            pos = writeVarint(block, pos, k == 0 ? (items[0] << 1) ^ (items[0] >> (Long.SIZE - 1)) : items[k] - items[k - 1]);
+        }
+        for (int k = 0; k < n; k++) {
+            int bits = Float.floatToIntBits(scoredItems.get(items[k]).floatValue());
+            for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                block[pos++] = (byte) (bits >>> shift);
+            }
+        }
+        out.write(block, 0, pos);
+    }
+
+    /**
+     * Writes a varint in a buffer.
+     *
+     * @param buffer the buffer
+     * @param offset where the varint is written
+     * @param value the value (written as unsigned)
+     * @return the position after the varint
+     */
+    private static int writeVarint(final byte[] buffer, final int offset, final long value) {
+        int pos = offset;
+        long v = value;
+        while ((v & ~VARINT_MASK) != 0) {
+            buffer[pos++] = (byte) ((v & VARINT_MASK) | VARINT_MORE);
+            v >>>= VARINT_BITS;
+        }
+        buffer[pos++] = (byte) v;
+        return pos;
+    }
+
+    /**
+     * Reads the blocks of a file, one at a time. The arrays with the items
+     * and scores of the current block are reused for the next blocks.
+     */
+    public static final class Reader implements Closeable {
+
+        /**
+         * The input.
+         */
+        private final InputStream in;
+        /**
+         * The user of the current block.
+         */
+        private String user;
+        /**
+         * The number of items of the current block.
+         */
+        private int size;
+        /**
+         * The items of the current block.
+         */
+        private long[] items = new long[0];
+        /**
+         * The scores of the current block.
+         */
+        private float[] scores = new float[0];
+        /**
+         * Scratch space to read the users.
+         */
+        private byte[] bytes = new byte[0];
+
+        /**
+         * Constructor.
+         *
+         * @param file the file (compressed with GZIP if its name ends with
+         * ".gz")
+         * @throws IOException when the file cannot be opened
+         */
+        public Reader(final File file) throws IOException {
+            InputStream is = new FileInputStream(file);
+            if (file.getName().endsWith(".gz")) {
+                is = new GZIPInputStream(is, BUFFER_SIZE);
+            }
+            this.in = new BufferedInputStream(is, BUFFER_SIZE);
+        }
+
+        /**
+         * Reads the next block.
+         *
+         * @return false if there are no more blocks
+         * @throws IOException when the block cannot be read or is truncated
+         */
+        public boolean next() throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                return false;
+            }
+            int length = (int) readVarint(first);
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            readFully(bytes, length);
+            user = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            size = (int) readVarint(readByte());
+            if (items.length < size) {
+                items = new long[size];
+                scores = new float[size];
+            }
+            long item = 0;
+            for (int k = 0; k < size; k++) {
+                long v = readVarint(readByte());
+                item = k == 0 ? (v >>> 1) ^ -(v & 1) : item + v;
+                items[k] = item;
+            }
+            for (int k = 0; k < size; k++) {
+                int bits = 0;
+                for (int b = 0; b < FLOAT_BYTES; b++) {
+                    bits = (bits << Byte.SIZE) | readByte();
+                }
+                scores[k] = Float.intBitsToFloat(bits);
+            }
+            return true;
+        }
+
+        /**
+         * Gets the user of the current block.
+         *
+         * @return the user
+         */
+        public String getUser() {
+            return user;
+        }
+
+        /**
+         * Gets the number of items of the current block.
+         *
+         * @return the number of items
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets an item of the current block (items are sorted).
+         *
+         * @param k the position of the item, from 0 to {@link #size()} - 1
+         * @return the item
+         */
+        public long getItem(final int k) {
+            return items[k];
+        }
+
+        /**
+         * Gets the score of an item of the current block.
+         *
+         * @param k the position of the item, from 0 to {@link #size()} - 1
+         * @return the score
+         */
+        public float getScore(final int k) {
+            return scores[k];
+        }
+
+        /**
+         * Reads a byte that must exist.
+         *
+         * @return the byte
+         * @throws IOException when the end of the file is reached
+         */
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated block");
+            }
+            return b;
+        }
+
+        /**
+         * Reads bytes that must exist.
+         *
+         * @param buffer where the bytes are read
+         * @param length the number of bytes
+         * @throws IOException when the end of the file is reached
+         */
+        private void readFully(final byte[] buffer, final int length) throws IOException {
+            int read = 0;
+            while (read < length) {
+                int r = in.read(buffer, read, length - read);
+                if (r < 0) {
+                    throw new EOFException("Truncated block");
+                }
+                read += r;
+            }
+        }
+
+        /**
+         * Reads a varint.
+         *
+         * @param first the first byte of the varint
+         * @return the value
+         * @throws IOException when the end of the file is reached
+         */
+        private long readVarint(final int first) throws IOException {
+            long v = first & VARINT_MASK;
+            int b = first;
+            int shift = VARINT_BITS;
+            while ((b & VARINT_MORE) != 0) {
+                b = readByte();
+                v |= (long) (b & VARINT_MASK) << shift;
+                shift += VARINT_BITS;
+            }
+            return v;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
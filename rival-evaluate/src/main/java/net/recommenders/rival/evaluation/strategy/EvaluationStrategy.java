@@ -31,8 +31,9 @@ import net.recommenders.rival.evaluation.Pair;
 public interface EvaluationStrategy<U, I> {
 
     /**
-     * Enumeration that defines two output formats: a simple one (tab-separated)
-     * and another compatible with the one used by the treceval program.
+     * Enumeration that defines the output formats: a simple one
+     * (tab-separated), another compatible with the one used by the treceval
+     * program, and a compact binary one.
      */
     public enum OUTPUT_FORMAT {
 
@@ -43,7 +44,26 @@ public interface EvaluationStrategy<U, I> {
         /**
          * Format as followed by the trec_eval program.
          */
-        TRECEVAL;
+        TRECEVAL,
+        /**
+         * Binary format, one block per user (see {@link BinaryRanking}).
+         */
+        BINARY;
+
+        /**
+         * Gets the format with a name, as written in the property files.
+         *
+         * @param name the name of the format
+         * @return the format, {@link #SIMPLE} if the name is not known
+         */
+        public static OUTPUT_FORMAT fromName(final String name) {
+            for (OUTPUT_FORMAT format : values()) {
+                if (format.toString().equals(name)) {
+                    return format;
+                }
+            }
+            return SIMPLE;
+        }
     }
 
     /**
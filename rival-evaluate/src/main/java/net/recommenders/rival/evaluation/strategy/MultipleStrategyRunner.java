@@ -21,21 +21,37 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.SimpleParser;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
+import net.recommenders.rival.core.metrics.Timer;
 import net.recommenders.rival.evaluation.Pair;
 
 /**
- * Runner of multiple evaluation strategies.
+ * Runner of multiple evaluation strategies. By default, the output of each
+ * strategy instance (class, threshold and, for {@link RelPlusN}, N and seed)
+ * is generated in turn; with {@link #STRATEGY_FANOUT}, the outputs of every
+ * instance are generated at the same time, going through the users and
+ * their recommendations only once (see
+ * {@link #generateOutputs(net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF, java.util.Map, java.util.List, java.util.List, java.util.List,
+ * net.recommenders.rival.evaluation.strategy.EvaluationStrategy.OUTPUT_FORMAT, java.lang.Boolean)}).
+ * Besides the metrics of
+ * {@link StrategyRunner}, the time spent reading each recommendation file
+ * ({@link #READ_TIME}) and generating each output ({@link #OUTPUT_TIME}),
+ * and the outputs generated ({@link #OUTPUTS}, whose progress is reported
+ * against the outputs expected) are published in the default
+ * {@link MetricsRegistry}.
  *
  * @author <a href="http://github.com/abellogin">Alejandro</a>
  */
@@ -89,6 +105,31 @@ public final class MultipleStrategyRunner {
      * Variable that represents the name of a property in the file.
      */
     public static final String RELPLUSN_SEED = "strategy.relplusn.seed";
+    /**
+     * Variable that represents the name of a property in the file.
+     */
+    public static final String STRATEGY_FANOUT = "strategy.fanout";
+    /**
+     * Name of the timer of the recommendation files read.
+     */
+    public static final String READ_TIME = "strategy.read";
+    /**
+     * Name of the timer of the outputs generated.
+     */
+    public static final String OUTPUT_TIME = "strategy.output";
+    /**
+     * Name of the counter of outputs generated.
+     */
+    public static final String OUTPUTS = "strategy.outputs";
+    /**
+     * Name of the timer of the outputs generated together (with
+     * {@link #STRATEGY_FANOUT}).
+     */
+    public static final String FANOUT_TIME = "strategy.fanout.time";
+    /**
+     * Name of the task whose progress is reported.
+     */
+    private static final String TASK = "strategies";
 
     /**
      * Utility classes should not have a public or default constructor.
@@ -119,7 +160,12 @@ public final class MultipleStrategyRunner {
             System.out.println(pr + " : " + properties.getProperty(pr));
         }
 
-        run(properties);
+        MetricsRegistry.getDefault().configure(properties);
+        try {
+            run(properties);
+        } finally {
+            MetricsRegistry.getDefault().stop();
+        }
     }
 
     /**
@@ -152,14 +198,22 @@ public final class MultipleStrategyRunner {
         File rankingFolder = new File(properties.getProperty(OUTPUT_FOLDER));
         Boolean overwrite = Boolean.parseBoolean(properties.getProperty(StrategyRunner.OUTPUT_OVERWRITE, "true"));
         File groundtruthFolder = new File(properties.getProperty(GROUNDTRUTH_FOLDER));
-        EvaluationStrategy.OUTPUT_FORMAT format = null;
-        if (properties.getProperty(OUTPUT_FORMAT).equals(EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL.toString())) {
-            format = EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL;
-        } else {
-            format = EvaluationStrategy.OUTPUT_FORMAT.SIMPLE;
-        }
+        EvaluationStrategy.OUTPUT_FORMAT format = EvaluationStrategy.OUTPUT_FORMAT.fromName(properties.getProperty(OUTPUT_FORMAT));
         String[] thresholds = properties.getProperty(RELEVANCE_THRESHOLDS).split(",");
         String[] strategyClassNames = properties.getProperty(STRATEGIES).split(",");
+        boolean fanOut = Boolean.parseBoolean(properties.getProperty(STRATEGY_FANOUT, "false"));
+        // find the recommendation files of every split, to know how many outputs will be generated
+        Map<String, Set<String>> splitRecommendationFiles = new HashMap<String, Set<String>>();
+        long nOutputs = 0;
+        for (String split : splits) {
+            Set<String> recommendationFiles = new HashSet<String>();
+            getAllRecommendationFiles(recommendationFiles, inputFolder, new File(split).getName(), inputSuffix);
+            splitRecommendationFiles.put(split, recommendationFiles);
+            nOutputs += recommendationFiles.size();
+        }
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        Timer readTimer = metrics.timer(READ_TIME);
+        metrics.getProgress().track(TASK, metrics.counter(OUTPUTS), nOutputs * countStrategies(properties));
         // process info for each split
         for (String split : splits) {
             File trainingFile = new File(split + trainingSuffix);
@@ -170,13 +224,12 @@ public final class MultipleStrategyRunner {
             System.out.println("Parsing started: test file" + testFile);
             DataModelIF<Long, Long> testModel = new SimpleParser().parseData(testFile);
             System.out.println("Parsing finished: test file");
-            Set<String> recommendationFiles = new HashSet<String>();
-            getAllRecommendationFiles(recommendationFiles, inputFolder, new File(split).getName(), inputSuffix);
-            for (String inputFile : recommendationFiles) {
+            for (String inputFile : splitRecommendationFiles.get(split)) {
                 System.out.println("Recommendation file: " + inputFile);
                 String inputFileName = new File(inputFile).getName();
                 // read recommendations: user \t item \t score
                 final Map<Long, List<Pair<Long, Double>>> mapUserRecommendations = new HashMap<Long, List<Pair<Long, Double>>>();
+                long start = readTimer.start();
                 BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), "UTF-8"));
                 try {
                     String line = null;
@@ -186,7 +239,11 @@ public final class MultipleStrategyRunner {
                 } finally {
                     in.close();
                 }
-                // generate output for each strategy
+                readTimer.stop(start);
+                // generate output for each strategy (or collect the outputs, to generate them together)
+                List<EvaluationStrategy<Long, Long>> strategies = new ArrayList<EvaluationStrategy<Long, Long>>();
+                List<File> rankingFiles = new ArrayList<File>();
+                List<File> groundtruthFiles = new ArrayList<File>();
                 // improvement: call to instantiateStrategies instead of having duplicated code. Current problem: how to obtain nice suffix text and threshold information in a generic way
                 for (String strategyClassName : strategyClassNames) {
                     Class<?> strategyClass = Class.forName(strategyClassName);
@@ -199,8 +256,15 @@ public final class MultipleStrategyRunner {
                             for (String number : numbers) {
                                 for (String seed : seeds) {
                                     EvaluationStrategy<Long, Long> strategy = new RelPlusN(trainingModel, testModel, Integer.parseInt(number), Double.parseDouble(threshold), Long.parseLong(seed));
-                                    generateOutput(testModel, mapUserRecommendations, strategy, format, rankingFolder, groundtruthFolder,
-                                            inputFileName, strategyClass.getSimpleName(), threshold, "__" + number + "__" + seed, overwrite);
+                                    String name = getOutputName(inputFileName, strategyClass.getSimpleName(), threshold, "__" + number + "__" + seed);
+                                    if (fanOut) {
+                                        strategies.add(strategy);
+                                        rankingFiles.add(new File(rankingFolder, "out" + name));
+                                        groundtruthFiles.add(new File(groundtruthFolder, "gr" + name));
+                                    } else {
+                                        generateOutput(testModel, mapUserRecommendations, strategy, format, rankingFolder, groundtruthFolder,
+                                                inputFileName, strategyClass.getSimpleName(), threshold, "__" + number + "__" + seed, overwrite);
+                                    }
                                 }
                             }
                         } else {
@@ -208,14 +272,46 @@ public final class MultipleStrategyRunner {
                             if (strategyObj instanceof EvaluationStrategy) {
                                 @SuppressWarnings("unchecked")
                                 EvaluationStrategy<Long, Long> strategy = (EvaluationStrategy<Long, Long>) strategyObj;
-                                generateOutput(testModel, mapUserRecommendations, strategy, format, rankingFolder, groundtruthFolder,
-                                        inputFileName, strategyClass.getSimpleName(), threshold, "", overwrite);
+                                String name = getOutputName(inputFileName, strategyClass.getSimpleName(), threshold, "");
+                                if (fanOut) {
+                                    strategies.add(strategy);
+                                    rankingFiles.add(new File(rankingFolder, "out" + name));
+                                    groundtruthFiles.add(new File(groundtruthFolder, "gr" + name));
+                                } else {
+                                    generateOutput(testModel, mapUserRecommendations, strategy, format, rankingFolder, groundtruthFolder,
+                                            inputFileName, strategyClass.getSimpleName(), threshold, "", overwrite);
+                                }
                             }
                         }
                     }
                 }
+                if (fanOut) {
+                    generateOutputs(trainingModel, testModel, mapUserRecommendations, strategies, rankingFiles, groundtruthFiles, format, overwrite);
+                }
             }
         }
+        metrics.getProgress().untrack(TASK);
+    }
+
+    /**
+     * Counts the strategy instances generated for each recommendation file
+     * (as many as {@link #instantiateStrategies(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}
+     * would return).
+     *
+     * @param properties the properties to be used.
+     * @return the number of strategy instances
+     */
+    static int countStrategies(final Properties properties) {
+        int thresholds = properties.getProperty(RELEVANCE_THRESHOLDS).split(",").length;
+        int n = 0;
+        for (String strategyClassName : properties.getProperty(STRATEGIES).split(",")) {
+            if (strategyClassName.contains("RelPlusN")) {
+                n += thresholds * properties.getProperty(RELPLUSN_N).split(",").length * properties.getProperty(RELPLUSN_SEED).split(",").length;
+            } else {
+                n += thresholds;
+            }
+        }
+        return n;
     }
 
     /**
@@ -302,9 +398,142 @@ public final class MultipleStrategyRunner {
             final File rankingFolder, final File groundtruthFolder, final String inputFileName,
             final String strategyClassSimpleName, final String threshold, final String suffix, final Boolean overwrite)
             throws FileNotFoundException, UnsupportedEncodingException {
-        File outRanking = new File(rankingFolder, "out" + "__" + inputFileName + "__" + strategyClassSimpleName + "__" + threshold + suffix);
-        File outGroundtruth = new File(groundtruthFolder, "gr" + "__" + inputFileName + "__" + strategyClassSimpleName + "__" + threshold + suffix);
+        String name = getOutputName(inputFileName, strategyClassSimpleName, threshold, suffix);
+        File outRanking = new File(rankingFolder, "out" + name);
+        File outGroundtruth = new File(groundtruthFolder, "gr" + name);
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        Timer timer = metrics.timer(OUTPUT_TIME);
+        long start = timer.start();
         StrategyRunner.generateOutput(testModel, mapUserRecommendations, strategy, format, outRanking, outGroundtruth, overwrite);
+        timer.stop(start);
+        metrics.counter(OUTPUTS).inc();
+    }
+
+    /**
+     * Gets the name of the output files of a strategy (without the "out" or
+     * "gr" prefix).
+     *
+     * @param inputFileName The name of the recommendation file.
+     * @param strategyClassSimpleName The class name of the strategy.
+     * @param threshold The relevance threshold.
+     * @param suffix The file suffix.
+     * @return the name of the output files
+     */
+    private static String getOutputName(final String inputFileName, final String strategyClassSimpleName, final String threshold, final String suffix) {
+        return "__" + inputFileName + "__" + strategyClassSimpleName + "__" + threshold + suffix;
+    }
+
+    /**
+     * Generates the output of several strategies on the same recommendations
+     * in one pass: the users and their recommendations are visited once, the
+     * item sets of each user that the strategies derive their candidates
+     * from are computed once for all the strategies (see
+     * {@link UserItemSets}), and the recommendations are filtered once for
+     * each different set of candidates (e.g., {@link TestItems} gives the
+     * same candidates for any threshold). The output files are the same as
+     * those generated by
+     * {@link StrategyRunner#generateOutput(net.recommenders.rival.core.DataModelIF, java.util.Map, net.recommenders.rival.evaluation.strategy.EvaluationStrategy,
+     * net.recommenders.rival.evaluation.strategy.EvaluationStrategy.OUTPUT_FORMAT, java.io.File, java.io.File, java.lang.Boolean)}
+     * for each strategy, but they are all open at the same time.
+     *
+     * @param trainingModel The training datamodel of the strategies.
+     * @param testModel The test datamodel of the strategies.
+     * @param mapUserRecommendations A map with the recommendations for the
+     * users.
+     * @param strategies The strategies.
+     * @param rankingFiles The ranking file of each strategy.
+     * @param groundtruthFiles The ground truth file of each strategy.
+     * @param format The format of the printer
+     * @param overwrite Whether or not to overwrite the results files.
+     * @throws FileNotFoundException If a file cannot be created.
+     * @throws UnsupportedEncodingException If the default encoding (UTF-8) is
+     * not supported.
+     */
+    public static void generateOutputs(final DataModelIF<Long, Long> trainingModel, final DataModelIF<Long, Long> testModel,
+            final Map<Long, List<Pair<Long, Double>>> mapUserRecommendations, final List<EvaluationStrategy<Long, Long>> strategies,
+            final List<File> rankingFiles, final List<File> groundtruthFiles, final EvaluationStrategy.OUTPUT_FORMAT format, final Boolean overwrite)
+            throws FileNotFoundException, UnsupportedEncodingException {
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        Timer timer = metrics.timer(FANOUT_TIME);
+        long start = timer.start();
+        int n = strategies.size();
+        PrintStream[] outRankings = new PrintStream[n];
+        PrintStream[] outGroundtruths = new PrintStream[n];
+        long users = 0;
+        try {
+            for (int s = 0; s < n; s++) {
+                outRankings[s] = openOutput(rankingFiles.get(s), overwrite);
+                outGroundtruths[s] = openOutput(groundtruthFiles.get(s), overwrite);
+            }
+            // recommendations of the user filtered by each set of candidates
+            final Map<Set<Long>, List<Pair<Long, Double>>> filteredItems = new IdentityHashMap<Set<Long>, List<Pair<Long, Double>>>();
+            for (Long user : testModel.getUsers()) {
+                users++;
+                final List<Pair<Long, Double>> allScoredItems = mapUserRecommendations.get(user);
+                final UserItemSets itemSets = new UserItemSets(trainingModel, testModel, user);
+                filteredItems.clear();
+                for (int s = 0; s < n; s++) {
+                    EvaluationStrategy<Long, Long> strategy = strategies.get(s);
+                    if (outRankings[s] != null) {
+                        if (allScoredItems == null) {
+                            continue;
+                        }
+                        final Set<Long> items;
+                        if (strategy instanceof AbstractStrategy) {
+                            items = ((AbstractStrategy) strategy).getCandidateItemsToRank(user, itemSets);
+                        } else {
+                            items = strategy.getCandidateItemsToRank(user);
+                        }
+                        List<Pair<Long, Double>> scoredItems = filteredItems.get(items);
+                        if (scoredItems == null) {
+                            scoredItems = new ArrayList<Pair<Long, Double>>();
+                            for (Pair<Long, Double> scoredItem : allScoredItems) {
+                                if (items.contains(scoredItem.getFirst())) {
+                                    scoredItems.add(scoredItem);
+                                }
+                            }
+                            filteredItems.put(items, scoredItems);
+                        }
+                        strategy.printRanking(user, scoredItems, outRankings[s], format);
+                    }
+                    if (outGroundtruths[s] != null) {
+                        strategy.printGroundtruth(user, outGroundtruths[s], format);
+                    }
+                }
+            }
+        } finally {
+            for (int s = 0; s < n; s++) {
+                if (outRankings[s] != null) {
+                    outRankings[s].close();
+                    metrics.counter(StrategyRunner.BYTES).inc(rankingFiles.get(s).length());
+                }
+                if (outGroundtruths[s] != null) {
+                    outGroundtruths[s].close();
+                    metrics.counter(StrategyRunner.BYTES).inc(groundtruthFiles.get(s).length());
+                }
+            }
+        }
+        timer.stop(start);
+        metrics.counter(StrategyRunner.USERS).inc(users * n);
+        metrics.counter(OUTPUTS).inc(n);
+    }
+
+    /**
+     * Opens an output file, unless it exists and should not be overwritten.
+     *
+     * @param file The file.
+     * @param overwrite Whether or not to overwrite the file.
+     * @return the stream, or null if the file is ignored
+     * @throws FileNotFoundException If the file cannot be created.
+     * @throws UnsupportedEncodingException If the default encoding (UTF-8) is
+     * not supported.
+     */
+    private static PrintStream openOutput(final File file, final Boolean overwrite) throws FileNotFoundException, UnsupportedEncodingException {
+        if (file.exists() && !overwrite) {
+            System.out.println("Ignoring " + file);
+            return null;
+        }
+        return StrategyIO.openOutput(file);
     }
 
     /**
@@ -145,12 +145,7 @@ public final class MultipleStrategyRunnerInfile {
         File rankingFolder = new File(properties.getProperty(OUTPUT_FOLDER));
         Boolean overwrite = Boolean.parseBoolean(properties.getProperty(StrategyRunner.OUTPUT_OVERWRITE, "true"));
         File groundtruthFolder = new File(properties.getProperty(GROUNDTRUTH_FOLDER));
-        EvaluationStrategy.OUTPUT_FORMAT format = null;
-        if (properties.getProperty(OUTPUT_FORMAT).equals(EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL.toString())) {
-            format = EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL;
-        } else {
-            format = EvaluationStrategy.OUTPUT_FORMAT.SIMPLE;
-        }
+        EvaluationStrategy.OUTPUT_FORMAT format = EvaluationStrategy.OUTPUT_FORMAT.fromName(properties.getProperty(OUTPUT_FORMAT));
         String[] thresholds = properties.getProperty(RELEVANCE_THRESHOLDS).split(",");
         String[] strategyClassNames = properties.getProperty(STRATEGIES).split(",");
         // process info for each split
@@ -87,17 +87,38 @@ public class RelPlusN extends AbstractStrategy {
     public Set<Long> getCandidateItemsToRank(final Long user) {
         final Set<Long> allItems = getModelTrainingDifference(getTraining(), user);
         allItems.addAll(getModelTrainingDifference(getTest(), user));
+        final Set<Long> relItems = new HashSet<Long>();
+        for (Long i : getTest().getUserItems(user)) {
+            if (getTest().getUserItemPreference(user, i) >= getThreshold()) {
+                relItems.add(i);
+            }
+        }
+        return getCandidateItems(allItems, relItems);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Long> getCandidateItemsToRank(final Long user, final UserItemSets itemSets) {
+        return getCandidateItems(itemSets.getAllDifference(), itemSets.getRelevantItems(getThreshold()).keySet());
+    }
+
+    /**
+     * Chooses the candidate items: N random items and the relevant ones.
+     *
+     * @param allItems The items that can be chosen at random.
+     * @param relItems The relevant items.
+     * @return The candidate items.
+     */
+    private Set<Long> getCandidateItems(final Set<Long> allItems, final Set<Long> relItems) {
         // return only N not relevant items
         List<Long> shuffledItems = new ArrayList<Long>(allItems);
         Collections.shuffle(shuffledItems, rnd);
         shuffledItems = shuffledItems.subList(0, Math.min(shuffledItems.size(), n));
         final Set<Long> items = new HashSet<Long>(shuffledItems);
         // add relevant ones
-        for (Long i : getTest().getUserItems(user)) {
-            if (getTest().getUserItemPreference(user, i) >= getThreshold()) {
-                items.add(i);
-            }
-        }
+        items.addAll(relItems);
         return items;
     }
 
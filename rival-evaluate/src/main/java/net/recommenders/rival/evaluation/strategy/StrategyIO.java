@@ -15,6 +15,12 @@
  */
 package net.recommenders.rival.evaluation.strategy;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -27,12 +33,31 @@ import net.recommenders.rival.evaluation.Pair;
  */
 public final class StrategyIO {
 
+    /**
+     * Size of the buffer of the output files, in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
     /**
      * Utility classes should not have a public or default constructor.
      */
     private StrategyIO() {
     }
 
+    /**
+     * Opens a file where the output of a strategy is printed. The stream is
+     * buffered (a {@link PrintStream} created from a file writes to it on
+     * every print), so it must be closed.
+     *
+     * @param file the file
+     * @return the stream
+     * @throws FileNotFoundException when the file cannot be created
+     * @throws UnsupportedEncodingException if UTF-8 is not supported
+     */
+    public static PrintStream openOutput(final File file) throws FileNotFoundException, UnsupportedEncodingException {
+        return new PrintStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE), false, "UTF-8");
+    }
+
     /**
      * Read a file from the recommended items file.
      *
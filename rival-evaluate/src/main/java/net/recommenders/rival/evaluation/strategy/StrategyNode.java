@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.strategy;
+
+import java.util.List;
+import java.util.Properties;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.experiment.ExperimentNode;
+import net.recommenders.rival.core.experiment.FoldNode;
+
+/**
+ * Experiment node that keeps, from the recommendations of a user, the items
+ * that the strategy in {@link StrategyRunner#STRATEGY} would rank (see
+ * {@link StrategyRunner#instantiateStrategy(java.util.Properties, net.recommenders.rival.core.DataModelIF, net.recommenders.rival.core.DataModelIF)}).
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class StrategyNode extends ExperimentNode<DataModelIF<Long, Long>> {
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the node
+     * @param properties the properties of the strategy
+     * ({@link StrategyRunner#STRATEGY},
+     * {@link StrategyRunner#RELEVANCE_THRESHOLD} and, for {@link RelPlusN},
+     * {@link StrategyRunner#RELPLUSN_N} and
+     * {@link StrategyRunner#RELPLUSN_SEED})
+     * @param fold the node with the training and test sets
+     * @param recommendations the node with the recommendations
+     */
+    public StrategyNode(final String name, final Properties properties, final FoldNode fold, final ExperimentNode<? extends DataModelIF<Long, Long>> recommendations) {
+        super(name, exclude(properties, StrategyRunner.TRAINING_FILE, StrategyRunner.TEST_FILE, StrategyRunner.INPUT_FILE, StrategyRunner.OUTPUT_FORMAT,
+                StrategyRunner.OUTPUT_OVERWRITE, StrategyRunner.OUTPUT_FILE, StrategyRunner.GROUNDTRUTH_FILE), fold, recommendations);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataModelIF<Long, Long> compute(final List<Object> inputValues) throws Exception {
+        DataModelIF<Long, Long> recModel = (DataModelIF<Long, Long>) inputValues.get(1);
+        EvaluationStrategy<Long, Long> strategy = StrategyRunner.instantiateStrategy(getProperties(),
+                FoldNode.getTraining(inputValues.get(0)), FoldNode.getTest(inputValues.get(0)));
+        DataModelIF<Long, Long> modelToEval = DataModelFactory.getDefaultModel();
+        for (Long user : recModel.getUsers()) {
+            for (Long item : strategy.getCandidateItemsToRank(user)) {
+                Double score = recModel.getUserItemPreference(user, item);
+                if (!Double.isNaN(score)) {
+                    modelToEval.addPreference(user, item, score);
+                }
+            }
+        }
+        return modelToEval;
+    }
+}
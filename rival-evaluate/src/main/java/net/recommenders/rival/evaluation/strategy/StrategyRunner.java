@@ -32,10 +32,15 @@ import java.util.Properties;
 import java.util.Set;
 import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.SimpleParser;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
+import net.recommenders.rival.core.metrics.Timer;
 import net.recommenders.rival.evaluation.Pair;
 
 /**
- * Runner for a single strategy.
+ * Runner for a single strategy. The users whose output is generated
+ * ({@link #USERS}), the time spent on each of them ({@link #USER_TIME}) and
+ * the bytes written ({@link #BYTES}) are published in the default
+ * {@link MetricsRegistry}.
  *
  * @author <a href="http://github.com/abellogin">Alejandro</a>
  */
@@ -85,6 +90,18 @@ public final class StrategyRunner {
      * Variable that represents the name of a property in the file.
      */
     public static final String RELPLUSN_SEED = "strategy.relplusn.seed";
+    /**
+     * Name of the counter of users whose output is generated.
+     */
+    public static final String USERS = "strategy.users";
+    /**
+     * Name of the timer of the output of each user.
+     */
+    public static final String USER_TIME = "strategy.user";
+    /**
+     * Name of the counter of bytes written.
+     */
+    public static final String BYTES = "strategy.bytes";
 
     /**
      * Utility classes should not have a public or default constructor.
@@ -110,7 +127,12 @@ public final class StrategyRunner {
             ie.printStackTrace();
         }
 
-        run(properties);
+        MetricsRegistry.getDefault().configure(properties);
+        try {
+            run(properties);
+        } finally {
+            MetricsRegistry.getDefault().stop();
+        }
     }
 
     /**
@@ -140,12 +162,7 @@ public final class StrategyRunner {
         Boolean overwrite = Boolean.parseBoolean(properties.getProperty(OUTPUT_OVERWRITE, "false"));
         File rankingFile = new File(properties.getProperty(OUTPUT_FILE));
         File groundtruthFile = new File(properties.getProperty(GROUNDTRUTH_FILE));
-        EvaluationStrategy.OUTPUT_FORMAT format = null;
-        if (properties.getProperty(OUTPUT_FORMAT).equals(EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL.toString())) {
-            format = EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL;
-        } else {
-            format = EvaluationStrategy.OUTPUT_FORMAT.SIMPLE;
-        }
+        EvaluationStrategy.OUTPUT_FORMAT format = EvaluationStrategy.OUTPUT_FORMAT.fromName(properties.getProperty(OUTPUT_FORMAT));
 
         // get strategy
         EvaluationStrategy<Long, Long> strategy = instantiateStrategy(properties, trainingModel, testModel);
@@ -225,21 +242,26 @@ public final class StrategyRunner {
             final EvaluationStrategy<Long, Long> strategy, final EvaluationStrategy.OUTPUT_FORMAT format,
             final File rankingFile, final File groundtruthFile, final Boolean overwrite)
             throws FileNotFoundException, UnsupportedEncodingException {
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        Timer timer = metrics.timer(USER_TIME);
+        long users = 0;
         PrintStream outRanking = null;
         if (rankingFile.exists() && !overwrite) {
             System.out.println("Ignoring " + rankingFile);
         } else {
-            outRanking = new PrintStream(rankingFile, "UTF-8");
+            outRanking = StrategyIO.openOutput(rankingFile);
         }
         try {
             PrintStream outGroundtruth = null;
             if (groundtruthFile.exists() && !overwrite) {
                 System.out.println("Ignoring " + groundtruthFile);
             } else {
-                outGroundtruth = new PrintStream(groundtruthFile, "UTF-8");
+                outGroundtruth = StrategyIO.openOutput(groundtruthFile);
             }
             try {
                 for (Long user : testModel.getUsers()) {
+                    long start = timer.start();
+                    users++;
                     if (outRanking != null) {
                         final List<Pair<Long, Double>> allScoredItems = mapUserRecommendations.get(user);
                         if (allScoredItems == null) {
@@ -257,16 +279,20 @@ public final class StrategyRunner {
                     if (outGroundtruth != null) {
                         strategy.printGroundtruth(user, outGroundtruth, format);
                     }
+                    timer.stop(start);
                 }
             } finally {
                 if (outGroundtruth != null) {
                     outGroundtruth.close();
+                    metrics.counter(BYTES).inc(groundtruthFile.length());
                 }
             }
         } finally {
             if (outRanking != null) {
                 outRanking.close();
+                metrics.counter(BYTES).inc(rankingFile.length());
             }
+            metrics.counter(USERS).inc(users);
         }
     }
 }
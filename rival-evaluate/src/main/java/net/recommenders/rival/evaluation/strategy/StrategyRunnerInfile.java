@@ -146,12 +146,7 @@ public final class StrategyRunnerInfile {
         Boolean overwrite = Boolean.parseBoolean(properties.getProperty(OUTPUT_OVERWRITE, "false"));
         File rankingFile = new File(properties.getProperty(OUTPUT_FILE));
         File groundtruthFile = new File(properties.getProperty(GROUNDTRUTH_FILE));
-        EvaluationStrategy.OUTPUT_FORMAT format = null;
-        if (properties.getProperty(OUTPUT_FORMAT).equals(EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL.toString())) {
-            format = EvaluationStrategy.OUTPUT_FORMAT.TRECEVAL;
-        } else {
-            format = EvaluationStrategy.OUTPUT_FORMAT.SIMPLE;
-        }
+        EvaluationStrategy.OUTPUT_FORMAT format = EvaluationStrategy.OUTPUT_FORMAT.fromName(properties.getProperty(OUTPUT_FORMAT));
         Double threshold = Double.parseDouble(properties.getProperty(RELEVANCE_THRESHOLD));
         String strategyClassName = properties.getProperty(STRATEGY);
         Class<?> strategyClass = Class.forName(strategyClassName);
@@ -195,13 +190,13 @@ public final class StrategyRunnerInfile {
         if (rankingFile.exists() && !overwrite) {
             System.out.println("Ignoring " + rankingFile);
         } else {
-            outRanking = new PrintStream(rankingFile, "UTF-8");
+            outRanking = StrategyIO.openOutput(rankingFile);
         }
         PrintStream outGroundtruth = null;
         if (groundtruthFile.exists() && !overwrite) {
             System.out.println("Ignoring " + groundtruthFile);
         } else {
-            outGroundtruth = new PrintStream(groundtruthFile, "UTF-8");
+            outGroundtruth = StrategyIO.openOutput(groundtruthFile);
         }
         for (Long user : testModel.getUsers()) {
             if (outRanking != null) {
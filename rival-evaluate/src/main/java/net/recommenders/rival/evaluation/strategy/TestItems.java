@@ -30,6 +30,13 @@ public class TestItems extends AbstractStrategy {
     return getModelTrainingDifference(getTest(), user);
   }
 
+  /**
+     * {@inheritDoc}
+     */
+  @Override public Set<Long> getCandidateItemsToRank(final Long user, final UserItemSets itemSets) {
+    return itemSets.getTestDifference();
+  }
+
   /**
      * {@inheritDoc}
      */
@@ -31,6 +31,13 @@ public class TrainItems extends AbstractStrategy {
     return getModelTrainingDifference(getTraining(), user);
   }
 
+  /**
+     * {@inheritDoc}
+     */
+  @Override public Set<Long> getCandidateItemsToRank(final Long user, final UserItemSets itemSets) {
+    return itemSets.getTrainingDifference();
+  }
+
   /**
      * {@inheritDoc}
      */
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.strategy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import net.recommenders.rival.core.DataModelIF;
+
+/**
+ * The item sets of a user that the strategies derive their candidates and
+ * ground truth from, computed once (when first needed) and shared by every
+ * strategy instance generated for the user (see
+ * {@link AbstractStrategy#getCandidateItemsToRank(java.lang.Long, net.recommenders.rival.evaluation.strategy.UserItemSets)}).
+ * The sets are built in the same way as
+ * {@link AbstractStrategy#getModelTrainingDifference(net.recommenders.rival.core.DataModelIF, java.lang.Long)},
+ * so they are iterated in the same order (which matters to the random
+ * candidates of {@link RelPlusN}). They cannot be modified.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class UserItemSets {
+
+    /**
+     * The training set.
+     */
+    private final DataModelIF<Long, Long> training;
+    /**
+     * The test set.
+     */
+    private final DataModelIF<Long, Long> test;
+    /**
+     * The user.
+     */
+    private final Long user;
+    /**
+     * The items of the user in the training set (null if not computed yet,
+     * empty if the user is not in the training set).
+     */
+    private Set<Long> trainingItems;
+    /**
+     * The items of the training set not rated by the user in it.
+     */
+    private Set<Long> trainingDifference;
+    /**
+     * The items of the test set not rated by the user in the training set.
+     */
+    private Set<Long> testDifference;
+    /**
+     * The union of {@link #trainingDifference} and {@link #testDifference}.
+     */
+    private Set<Long> allDifference;
+    /**
+     * The items of the user in the test set.
+     */
+    private Set<Long> testItems;
+    /**
+     * The relevant test items of the user (and their relevance), by
+     * threshold.
+     */
+    private final Map<Double, Map<Long, Double>> relevantItems = new HashMap<Double, Map<Long, Double>>();
+
+    /**
+     * Constructor.
+     *
+     * @param theTraining The training set.
+     * @param theTest The test set.
+     * @param theUser The user.
+     */
+    public UserItemSets(final DataModelIF<Long, Long> theTraining, final DataModelIF<Long, Long> theTest, final Long theUser) {
+        this.training = theTraining;
+        this.test = theTest;
+        this.user = theUser;
+    }
+
+    /**
+     * Gets the user.
+     *
+     * @return the user
+     */
+    public Long getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the items of the training set not rated by the user in it (empty
+     * if the user is not in the training set).
+     *
+     * @return the items
+     */
+    public Set<Long> getTrainingDifference() {
+        if (trainingDifference == null) {
+            trainingDifference = Collections.unmodifiableSet(difference(training));
+        }
+        return trainingDifference;
+    }
+
+    /**
+     * Gets the items of the test set not rated by the user in the training
+     * set (empty if the user is not in the training set).
+     *
+     * @return the items
+     */
+    public Set<Long> getTestDifference() {
+        if (testDifference == null) {
+            testDifference = Collections.unmodifiableSet(difference(test));
+        }
+        return testDifference;
+    }
+
+    /**
+     * Gets the items of the training or the test set not rated by the user in
+     * the training set (empty if the user is not in the training set).
+     *
+     * @return the items
+     */
+    public Set<Long> getAllDifference() {
+        if (allDifference == null) {
+            // built as a new set, as AllItems and RelPlusN do, to keep the iteration order
+            Set<Long> items = difference(training);
+            items.addAll(getTestDifference());
+            allDifference = Collections.unmodifiableSet(items);
+        }
+        return allDifference;
+    }
+
+    /**
+     * Gets the items of the user in the test set.
+     *
+     * @return the items
+     */
+    public Set<Long> getTestItems() {
+        if (testItems == null) {
+            Set<Long> items = new HashSet<Long>();
+            for (Long i : test.getUserItems(user)) {
+                items.add(i);
+            }
+            testItems = Collections.unmodifiableSet(items);
+        }
+        return testItems;
+    }
+
+    /**
+     * Gets the relevant items of the user in the test set.
+     *
+     * @param threshold The relevance threshold.
+     * @return the relevant items and their relevance
+     */
+    public Map<Long, Double> getRelevantItems(final double threshold) {
+        Map<Long, Double> items = relevantItems.get(threshold);
+        if (items == null) {
+            items = new HashMap<Long, Double>();
+            for (Long i : test.getUserItems(user)) {
+                Double d = test.getUserItemPreference(user, i);
+                if (d >= threshold) {
+                    items.put(i, d);
+                }
+            }
+            items = Collections.unmodifiableMap(items);
+            relevantItems.put(threshold, items);
+        }
+        return items;
+    }
+
+    /**
+     * Gets the items of a model not rated by the user in the training set, as
+     * {@link AbstractStrategy#getModelTrainingDifference(net.recommenders.rival.core.DataModelIF, java.lang.Long)}.
+     *
+     * @param model The data model.
+     * @return a new set with the items
+     */
+    private Set<Long> difference(final DataModelIF<Long, Long> model) {
+        final Set<Long> items = new HashSet<Long>();
+        if (trainingItems == null) {
+            trainingItems = new HashSet<>();
+            if (training.getUserItems(user) != null) {
+                for (Long i : training.getUserItems(user)) {
+                    trainingItems.add(i);
+                }
+            }
+        }
+        if (training.getUserItems(user) != null) {
+            for (Long item : model.getItems()) {
+                if (!trainingItems.contains(item)) {
+                    items.add(item);
+                }
+            }
+        }
+        return items;
+    }
+}
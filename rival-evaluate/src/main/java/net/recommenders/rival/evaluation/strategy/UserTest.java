@@ -36,6 +36,13 @@ public class UserTest extends AbstractStrategy {
     return items;
   }
 
+  /**
+     * {@inheritDoc}
+     */
+  @Override public Set<Long> getCandidateItemsToRank(final Long user, final UserItemSets itemSets) {
+    return itemSets.getTestItems();
+  }
+
   /**
      * {@inheritDoc}
      */
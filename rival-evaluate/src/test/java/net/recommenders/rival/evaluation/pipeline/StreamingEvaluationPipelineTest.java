@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.evaluation.metric.EvaluationMetric;
+import net.recommenders.rival.evaluation.metric.MultipleEvaluationMetricRunner;
+import net.recommenders.rival.evaluation.metric.ranking.AbstractRankingMetric;
+import net.recommenders.rival.evaluation.strategy.EvaluationStrategy;
+import net.recommenders.rival.evaluation.strategy.MultipleStrategyRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link StreamingEvaluationPipeline}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@RunWith(JUnit4.class)
+public class StreamingEvaluationPipelineTest {
+
+    @Test
+    public void testSameResultsAsMaterializedModels() throws Exception {
+        Random rnd = new Random(2016L);
+        DataModelIF<Long, Long> training = DataModelFactory.getDefaultModel();
+        DataModelIF<Long, Long> test = DataModelFactory.getDefaultModel();
+        for (long u = 1L; u <= 30L; u++) {
+            for (long i = 1L; i <= 40L; i++) {
+                if (rnd.nextDouble() < 0.3) {
+                    training.addPreference(u, i, 1.0 + rnd.nextInt(5));
+                } else if (rnd.nextDouble() < 0.2 || i == u) {
+                    test.addPreference(u, i, 1.0 + rnd.nextInt(5));
+                }
+            }
+        }
+        Properties props = new Properties();
+        props.put(MultipleStrategyRunner.STRATEGIES, "net.recommenders.rival.evaluation.strategy.TestItems,net.recommenders.rival.evaluation.strategy.UserTest");
+        props.put(MultipleStrategyRunner.RELEVANCE_THRESHOLDS, "4");
+        props.put(MultipleEvaluationMetricRunner.METRICS, "net.recommenders.rival.evaluation.metric.error.RMSE,"
+                + "net.recommenders.rival.evaluation.metric.ranking.NDCG,net.recommenders.rival.evaluation.metric.ranking.Precision");
+        props.put(MultipleEvaluationMetricRunner.RELEVANCE_THRESHOLD, "4");
+        props.put(MultipleEvaluationMetricRunner.RANKING_CUTOFFS, "1,5,10");
+        props.put(MultipleEvaluationMetricRunner.ERROR_STRATEGY, "CONSIDER_NAN_AS_3");
+        props.put(StreamingEvaluationPipeline.QUEUE_CAPACITY, "2");
+        props.put(StreamingEvaluationPipeline.METRIC_WORKERS, "3");
+
+        Map<String, DataModelIF<Long, Long>> recommenders = new HashMap<>();
+        for (String rec : new String[]{"a", "b"}) {
+            DataModelIF<Long, Long> recs = DataModelFactory.getDefaultModel();
+            for (Long u : test.getUsers()) {
+                for (long i = 1L; i <= 40L; i++) {
+                    if (Double.isNaN(training.getUserItemPreference(u, i))) {
+                        recs.addPreference(u, i, rnd.nextDouble() * 5.0);
+                    }
+                }
+            }
+            recommenders.put(rec, recs);
+        }
+
+        StreamingEvaluationPipeline pipeline = new StreamingEvaluationPipeline(props, training, test);
+        for (Map.Entry<String, DataModelIF<Long, Long>> e : recommenders.entrySet()) {
+            StreamingEvaluationPipeline.Stream stream = pipeline.open(e.getKey());
+            DataModelIF<Long, Long> recs = e.getValue();
+            for (Long u : recs.getUsers()) {
+                Map<Long, Double> scores = new HashMap<>();
+                for (Long i : recs.getUserItems(u)) {
+                    scores.put(i, recs.getUserItemPreference(u, i));
+                }
+                stream.recommended(u, scores);
+            }
+            stream.close();
+        }
+        Map<String, Map<String, Map<String, Map<String, Double>>>> results = pipeline.await();
+
+        for (Map.Entry<String, DataModelIF<Long, Long>> e : recommenders.entrySet()) {
+            DataModelIF<Long, Long> recs = e.getValue();
+            for (EvaluationStrategy<Long, Long> strategy : MultipleStrategyRunner.instantiateStrategies(props, training, test)) {
+                DataModelIF<Long, Long> filtered = DataModelFactory.getDefaultModel();
+                for (Long u : recs.getUsers()) {
+                    for (Long i : strategy.getCandidateItemsToRank(u)) {
+                        if (!Double.isNaN(recs.getUserItemPreference(u, i))) {
+                            filtered.addPreference(u, i, recs.getUserItemPreference(u, i));
+                        }
+                    }
+                }
+                Map<String, Map<String, Double>> streamed = results.get(strategy.toString()).get(e.getKey());
+                for (EvaluationMetric<Long> metric : MultipleEvaluationMetricRunner.instantiateEvaluationMetrics(props, filtered, test)) {
+                    metric.compute();
+                    Map<String, Double> values = streamed.get(metric.toString());
+                    assertEquals(metric.getValue(), values.get(UserMetricAccumulator.ALL), 1e-9);
+                    for (Map.Entry<Long, Double> v : metric.getValuePerUser().entrySet()) {
+                        assertEquals(v.getValue(), values.get(v.getKey().toString()), 1e-9);
+                    }
+                    if (metric instanceof AbstractRankingMetric) {
+                        AbstractRankingMetric<?, ?> ranking = (AbstractRankingMetric<?, ?>) metric;
+                        for (int at : ranking.getCutoffs()) {
+                            assertEquals(ranking.getValueAt(at), streamed.get(metric.toString() + "@" + at).get(UserMetricAccumulator.ALL), 1e-9);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.strategy;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.SimpleParser;
+import net.recommenders.rival.evaluation.Pair;
+import net.recommenders.rival.evaluation.parser.BinaryRankingParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BinaryRanking}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@RunWith(JUnit4.class)
+public class BinaryRankingTest {
+
+    /**
+     * Folder where the outputs are written.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the rankings and ground truth printed in binary format are
+     * read back as the ones printed in the simple format (up to float
+     * precision), and take less space.
+     *
+     * @throws Exception when the files cannot be written or read
+     */
+    @Test
+    public void testSameAsSimpleFormat() throws Exception {
+        Random rnd = new Random(2016L);
+        DataModelIF<Long, Long> training = DataModelFactory.getDefaultModel();
+        DataModelIF<Long, Long> test = DataModelFactory.getDefaultModel();
+        for (long u = 1L; u <= 30L; u++) {
+            for (long i = 1L; i <= 200L; i++) {
+                if (rnd.nextDouble() < 0.3) {
+                    training.addPreference(u, i * 1000L, 1.0 + rnd.nextInt(5));
+                } else if (rnd.nextDouble() < 0.2) {
+                    test.addPreference(u, i * 1000L, 1.0 + rnd.nextInt(5));
+                }
+            }
+        }
+        EvaluationStrategy<Long, Long> strategy = new UserTest(training, test, 4.0);
+        File[] files = new File[4];
+        for (int f = 0; f < 2; f++) {
+            EvaluationStrategy.OUTPUT_FORMAT format = f == 0 ? EvaluationStrategy.OUTPUT_FORMAT.SIMPLE : EvaluationStrategy.OUTPUT_FORMAT.BINARY;
+            files[2 * f] = folder.newFile();
+            files[2 * f + 1] = folder.newFile();
+            Random scores = new Random(1L);
+            try (PrintStream ranking = StrategyIO.openOutput(files[2 * f]); PrintStream groundtruth = StrategyIO.openOutput(files[2 * f + 1])) {
+                for (Long u : test.getUsers()) {
+                    List<Pair<Long, Double>> scoredItems = new ArrayList<>();
+                    for (Long i : strategy.getCandidateItemsToRank(u)) {
+                        scoredItems.add(new Pair<>(i, scores.nextDouble() * 5.0));
+                    }
+                    strategy.printRanking(u, scoredItems, ranking, format);
+                    strategy.printGroundtruth(u, groundtruth, format);
+                }
+            }
+        }
+        for (int k = 0; k < 2; k++) {
+            DataModelIF<Long, Long> simple = new SimpleParser().parseData(files[k]);
+            DataModelIF<Long, Long> binary = new BinaryRankingParser().parseData(files[2 + k]);
+            assertTrue(files[2 + k].length() < files[k].length());
+            assertEquals(simple.getNumUsers(), binary.getNumUsers());
+            assertEquals(simple.getNumItems(), binary.getNumItems());
+            for (Long u : simple.getUsers()) {
+                for (Long i : simple.getUserItems(u)) {
+                    assertEquals(simple.getUserItemPreference(u, i), binary.getUserItemPreference(u, i), 1e-6);
+                }
+            }
+        }
+    }
+}
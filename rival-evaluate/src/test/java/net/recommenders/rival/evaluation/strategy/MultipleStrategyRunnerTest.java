@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.evaluation.strategy;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.evaluation.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link MultipleStrategyRunner}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+@RunWith(JUnit4.class)
+public class MultipleStrategyRunnerTest {
+
+    /**
+     * Folder where the outputs are written.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the outputs generated together are the same as the ones
+     * generated for each strategy in turn.
+     *
+     * @throws Exception when the files cannot be written or read
+     */
+    @Test
+    public void testGenerateOutputsSameAsGenerateOutput() throws Exception {
+        Random rnd = new Random(2016L);
+        DataModelIF<Long, Long> training = DataModelFactory.getDefaultModel();
+        DataModelIF<Long, Long> test = DataModelFactory.getDefaultModel();
+        Map<Long, List<Pair<Long, Double>>> recommendations = new HashMap<>();
+        for (long u = 1L; u <= 40L; u++) {
+            for (long i = 1L; i <= 150L; i++) {
+                if (rnd.nextDouble() < 0.3) {
+                    training.addPreference(u, i, 1.0 + rnd.nextInt(5));
+                } else if (rnd.nextDouble() < 0.2) {
+                    test.addPreference(u, i, 1.0 + rnd.nextInt(5));
+                }
+            }
+            // some users do not have recommendations
+            if (u % 7 != 0) {
+                List<Pair<Long, Double>> userRecommendations = new ArrayList<>();
+                for (long i = 1L; i <= 150L; i++) {
+                    if (rnd.nextDouble() < 0.5) {
+                        userRecommendations.add(new Pair<>(i, rnd.nextDouble() * 5.0));
+                    }
+                }
+                recommendations.put(u, userRecommendations);
+            }
+        }
+        for (EvaluationStrategy.OUTPUT_FORMAT format : EvaluationStrategy.OUTPUT_FORMAT.values()) {
+            // the RelPlusN strategies are created twice, so that both runs start from the same seeds
+            List<EvaluationStrategy<Long, Long>> strategies = createStrategies(training, test);
+            List<File> rankingFiles = new ArrayList<>();
+            List<File> groundtruthFiles = new ArrayList<>();
+            for (EvaluationStrategy<Long, Long> strategy : strategies) {
+                File rankingFile = folder.newFile();
+                File groundtruthFile = folder.newFile();
+                StrategyRunner.generateOutput(test, recommendations, strategy, format, rankingFile, groundtruthFile, true);
+                rankingFiles.add(rankingFile);
+                groundtruthFiles.add(groundtruthFile);
+            }
+            List<File> fanOutRankingFiles = new ArrayList<>();
+            List<File> fanOutGroundtruthFiles = new ArrayList<>();
+            for (int s = 0; s < strategies.size(); s++) {
+                fanOutRankingFiles.add(folder.newFile());
+                fanOutGroundtruthFiles.add(folder.newFile());
+            }
+            MultipleStrategyRunner.generateOutputs(training, test, recommendations, createStrategies(training, test),
+                    fanOutRankingFiles, fanOutGroundtruthFiles, format, true);
+            for (int s = 0; s < strategies.size(); s++) {
+                assertTrue(rankingFiles.get(s).length() > 0);
+                assertArrayEquals(Files.readAllBytes(rankingFiles.get(s).toPath()), Files.readAllBytes(fanOutRankingFiles.get(s).toPath()));
+                assertArrayEquals(Files.readAllBytes(groundtruthFiles.get(s).toPath()), Files.readAllBytes(fanOutGroundtruthFiles.get(s).toPath()));
+            }
+        }
+    }
+
+    /**
+     * Creates the strategies of the test.
+     *
+     * @param training the training model
+     * @param test the test model
+     * @return the strategies
+     */
+    private static List<EvaluationStrategy<Long, Long>> createStrategies(final DataModelIF<Long, Long> training, final DataModelIF<Long, Long> test) {
+        List<EvaluationStrategy<Long, Long>> strategies = new ArrayList<>();
+        for (double threshold : new double[]{3.0, 4.0}) {
+            strategies.add(new AllItems(training, test, threshold));
+            strategies.add(new TestItems(training, test, threshold));
+            strategies.add(new TrainItems(training, test, threshold));
+            strategies.add(new UserTest(training, test, threshold));
+            for (int n : new int[]{10, 50}) {
+                for (long seed : new long[]{1L, 2L}) {
+                    strategies.add(new RelPlusN(training, test, n, threshold, seed));
+                }
+            }
+        }
+        return strategies;
+    }
+}
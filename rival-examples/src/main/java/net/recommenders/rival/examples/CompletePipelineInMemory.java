@@ -2,13 +2,21 @@ package net.recommenders.rival.examples;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.recommenders.rival.core.DataModelFactory;
 import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.Parser;
@@ -16,11 +24,15 @@ import net.recommenders.rival.core.TemporalDataModelIF;
 import net.recommenders.rival.evaluation.metric.EvaluationMetric;
 import net.recommenders.rival.evaluation.metric.MultipleEvaluationMetricRunner;
 import net.recommenders.rival.evaluation.metric.ranking.AbstractRankingMetric;
+import net.recommenders.rival.evaluation.pipeline.StreamingEvaluationPipeline;
+import net.recommenders.rival.evaluation.pipeline.UserMetricAccumulator;
 import net.recommenders.rival.evaluation.statistics.StatisticsRunner;
 import net.recommenders.rival.evaluation.strategy.EvaluationStrategy;
 import net.recommenders.rival.evaluation.strategy.MultipleStrategyRunner;
 import net.recommenders.rival.recommend.frameworks.AbstractRunner;
 import net.recommenders.rival.recommend.frameworks.MultipleRecommendationRunner;
+import net.recommenders.rival.recommend.frameworks.RecommendationListener;
+import net.recommenders.rival.recommend.frameworks.RecommenderIO;
 import net.recommenders.rival.split.parser.ParserRunner;
 import net.recommenders.rival.split.splitter.Splitter;
 import net.recommenders.rival.split.splitter.SplitterRunner;
@@ -28,7 +40,11 @@ import net.recommenders.rival.split.splitter.SplitterRunner;
 /**
  * Class that demonstrates the complete pipeline (at the moment) in RiVal,
  * starting from a file read from disk and without printing anything else to
- * disk (the whole process is hence done in memory).
+ * disk (the whole process is hence done in memory). With the
+ * {@code streaming} system property set to true, the recommendations are
+ * streamed through the strategies and the metrics (see
+ * {@link #runExampleStreaming(java.util.Properties)}) instead of being
+ * materialized at every step.
  *
  * @author <a href="http://github.com/abellogin">Alejandro</a>
  */
@@ -98,7 +114,11 @@ public final class CompletePipelineInMemory {
       fillDefaultProperties(properties);
       ie.printStackTrace();
     }
-    runExampleInMemory(properties);
+    if (Boolean.getBoolean("streaming")) {
+      runExampleStreaming(properties);
+    } else {
+      runExampleInMemory(properties);
+    }
   }
 
   /**
@@ -155,6 +175,125 @@ public final class CompletePipelineInMemory {
     }
   }
 
+  /**
+     *
+     * Runs each of the steps of the pipeline as
+     * {@link #runExampleInMemory(java.util.Properties)}, but the
+     * recommendations of every user flow through the strategies and the
+     * metrics as they are generated, so that the recommendations, the
+     * filtered recommendations and the per-user metric maps of every
+     * recommender are never in memory at the same time (see
+     * {@link #streamRecommenders(java.util.Properties, net.recommenders.rival.core.TemporalDataModelIF, net.recommenders.rival.core.TemporalDataModelIF)}).
+     *
+     * @param properties properties that will be used for this execution. It
+     * should contain properties for all steps: parsing, splitting,
+     * recommendation, strategies, evaluation, statistics.
+     */
+  public static void runExampleStreaming(final Properties properties) {
+    try {
+      TemporalDataModelIF<Long, Long>[] splits = prepareSplitsInMemory(properties);
+      for (int i = 0; i < splits.length / 2; i++) {
+        System.out.println(">>> Processing split " + i);
+        TemporalDataModelIF<Long, Long> training = splits[2 * i];
+        TemporalDataModelIF<Long, Long> test = splits[2 * i + 1];
+        Map<String, Map<String, Map<String, Map<String, Double>>>> mapStrategyRecommenderMetricUserValue = streamRecommenders(properties, training, test);
+        for (Entry<String, Map<String, Map<String, Map<String, Double>>>> e : mapStrategyRecommenderMetricUserValue.entrySet()) {
+          String strat = e.getKey();
+          for (Entry<String, Map<String, Map<String, Double>>> e2 : e.getValue().entrySet()) {
+            String rec = e2.getKey();
+            for (Entry<String, Map<String, Double>> e3 : e2.getValue().entrySet()) {
+              String metric = e3.getKey();
+              Map<String, Double> metricResults = e3.getValue();
+              System.out.println(rec + "\t" + strat + "\t" + metric + "\t" + metricResults.get(UserMetricAccumulator.ALL));
+              metricResults.remove(UserMetricAccumulator.ALL);
+            }
+          }
+        }
+        for (Entry<String, Map<String, Map<String, Map<String, Double>>>> e : mapStrategyRecommenderMetricUserValue.entrySet()) {
+          System.out.println("----> Statistics for strategy " + e.getKey());
+          computeStatistics(properties, e.getValue(), System.out);
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+     *
+     * Runs the recommenders in a {@link StreamingEvaluationPipeline}: the
+     * recommenders run concurrently (see
+     * {@link MultipleRecommendationRunner#WORKERS}) and the recommendations
+     * of every user are passed to the pipeline as they are generated.
+     *
+     * @param properties properties to be used.
+     * @param trainingModel model to train the recommenders.
+     * @param testModel model to test the recommenders.
+     * @return the evaluation results by strategy, recommender, metric and user
+     * (see {@link StreamingEvaluationPipeline#await()}).
+     * @throws Exception when a recommender or a stage of the pipeline fails.
+     */
+  public static Map<String, Map<String, Map<String, Map<String, Double>>>> streamRecommenders(final Properties properties, final TemporalDataModelIF<Long, Long> trainingModel, final TemporalDataModelIF<Long, Long> testModel) throws Exception {
+    List<AbstractRunner<Long, Long>> recs = new ArrayList<>();
+    HashSet<String> paths = new HashSet<>();
+    paths.add(".");
+    for (AbstractRunner<Long, Long> rec : MultipleRecommendationRunner.instantiateMahoutRecommenders(paths, properties)) {
+      recs.add(rec);
+    }
+    for (AbstractRunner<Long, Long> rec : MultipleRecommendationRunner.instantiateLenskitRecommenders(paths, properties)) {
+      recs.add(rec);
+    }
+    StreamingEvaluationPipeline pipeline = new StreamingEvaluationPipeline(properties, trainingModel, testModel);
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Integer.parseInt(properties.getProperty(MultipleRecommendationRunner.WORKERS, "1"))));
+    List<Future<Void>> runs = new ArrayList<>();
+    // every stream is opened before waiting for the pipeline
+    for (final AbstractRunner<Long, Long> rec : recs) {
+      final StreamingEvaluationPipeline.Stream stream = pipeline.open(rec.getCanonicalFileName());
+      rec.setRecommendationListener(new RecommendationListener() {
+        @Override
+        public void recommended(final long user, final List<RecommenderIO.Preference<Long, Long>> recommendations) throws IOException {
+          Map<Long, Double> scores = new HashMap<>();
+          for (RecommenderIO.Preference<Long, Long> p : recommendations) {
+            scores.put(p.getItem(), p.getScore());
+          }
+          try {
+            stream.recommended(user, scores);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while streaming recommendations");
+          }
+        }
+      });
+      runs.add(pool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          try {
+            rec.run(AbstractRunner.RUN_OPTIONS.STREAM_RECS, trainingModel, testModel);
+          } finally {
+            stream.close();
+          }
+          return null;
+        }
+      }));
+    }
+    ExecutionException error = null;
+    for (Future<Void> run : runs) {
+      try {
+        run.get();
+      } catch (ExecutionException e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+    }
+    pool.shutdown();
+    Map<String, Map<String, Map<String, Map<String, Double>>>> results = pipeline.await();
+    if (error != null) {
+      throw error;
+    }
+    return results;
+  }
+
   /**
      *
      * Parses and splits a given dataset file as provided in the properties
@@ -11,6 +11,7 @@ import net.recommenders.rival.evaluation.metric.ranking.Recall;
 import net.recommenders.rival.evaluation.strategy.EvaluationStrategy;
 import net.recommenders.rival.evaluation.strategy.UserTest;
 import net.recommenders.rival.split.splitter.CrossValidationSplitter;
+import net.recommenders.rival.split.splitter.SplitManifest;
 import org.apache.mahout.cf.taste.common.NoSuchUserException;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
@@ -69,6 +70,20 @@ public abstract class CrossValidationRecSysEvaluator {
          if (delimiter == null)
             delimiter = this.delimiter;
 
+         SplitManifest manifest = new SplitManifest();
+         File manifestFile = Paths.get(outPath, SplitManifest.MANIFEST_NAME).toFile();
+         manifest.setSource(new File(inFile));
+         manifest.setParameter("splitter", CrossValidationSplitter.class.getName());
+         manifest.setParameter("folds", "" + this.numFolds);
+         manifest.setParameter("perUser", "" + perUser);
+         manifest.setParameter("seed", "" + seed);
+         manifest.setParameter("delimiter", delimiter);
+         manifest.setParameter("temporal", "" + isTemporalData);
+         if (manifest.isUpToDate(manifestFile)) {
+            log.info("Splits are up to date according to {}", manifestFile);
+            return;
+         }
+
          DataModelIF<Long, Long>[] splits = new CrossValidationSplitter<Long, Long>(this.numFolds, perUser, seed).split(
                  new SimpleParser().parseData(new File(inFile), delimiter, isTemporalData));
 
@@ -89,10 +104,14 @@ public abstract class CrossValidationRecSysEvaluator {
             try {
                DataModelUtils.saveDataModel(training, trainingFile, true, "\t");
                DataModelUtils.saveDataModel(test, testFile, true, "\t");
-            } catch (FileNotFoundException | UnsupportedEncodingException e) {
+               manifest.recordFile(trainingFile);
+               manifest.recordFile(testFile);
+            } catch (IOException e) {
                e.printStackTrace();
             }
          }
+         manifest.setSplitFileCount(splits.length);
+         manifest.write(manifestFile);
       } catch (IOException e) {
          e.printStackTrace();
       }
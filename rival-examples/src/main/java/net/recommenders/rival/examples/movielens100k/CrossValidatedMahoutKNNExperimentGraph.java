@@ -0,0 +1,153 @@
+package net.recommenders.rival.examples.movielens100k;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import net.recommenders.rival.core.experiment.ExperimentGraph;
+import net.recommenders.rival.core.experiment.ExperimentNode;
+import net.recommenders.rival.core.experiment.FoldNode;
+import net.recommenders.rival.evaluation.metric.MetricNode;
+import net.recommenders.rival.evaluation.metric.MultipleEvaluationMetricRunner;
+import net.recommenders.rival.evaluation.pipeline.UserMetricAccumulator;
+import net.recommenders.rival.evaluation.statistics.StatisticsNode;
+import net.recommenders.rival.evaluation.statistics.StatisticsRunner;
+import net.recommenders.rival.evaluation.strategy.StrategyNode;
+import net.recommenders.rival.evaluation.strategy.StrategyRunner;
+import net.recommenders.rival.examples.DataDownloader;
+import net.recommenders.rival.recommend.frameworks.RecommendNode;
+import net.recommenders.rival.recommend.frameworks.RecommendationRunner;
+import net.recommenders.rival.split.parser.ParseNode;
+import net.recommenders.rival.split.parser.ParserRunner;
+import net.recommenders.rival.split.splitter.SplitNode;
+import net.recommenders.rival.split.splitter.SplitterRunner;
+
+/**
+ * RiVal Movielens100k Mahout Example, using 5-fold cross validation, as
+ * {@link CrossValidatedMahoutKNNRecommenderEvaluator} but declaring the steps
+ * as an {@link ExperimentGraph}: the folds and the recommenders are run in
+ * parallel, and the outputs of every step are kept between runs, so running
+ * the example again (or after changing, e.g., the metrics) only runs the
+ * steps that changed.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class CrossValidatedMahoutKNNExperimentGraph {
+  /**
+     * Default number of folds.
+     */
+  public static final int N_FOLDS = 5;
+
+  /**
+     * Default neighbohood sizes (the first one is the baseline).
+     */
+  public static final int[] NEIGH_SIZES = { 50, 100 };
+
+  /**
+     * Default cutoff for evaluation metrics.
+     */
+  public static final int AT = 10;
+
+  /**
+     * Default relevance threshold.
+     */
+  public static final double REL_TH = 3.0;
+
+  /**
+     * Default seed.
+     */
+  public static final long SEED = 2048L;
+
+  /**
+     * Utility classes should not have a public or default constructor.
+     */
+  private CrossValidatedMahoutKNNExperimentGraph() {
+  }
+
+  /**
+     * Main method. Parameter is not used.
+     *
+     * @param args the arguments (not used)
+     */
+  public static void main(final String[] args) {
+    String url = "http://files.grouplens.org/datasets/movielens/ml-100k.zip";
+    String folder = "data/ml-100k";
+    String dataFile = "data/ml-100k/ml-100k/u.data";
+    String outputPath = "data/ml-100k/experiment/";
+    new DataDownloader(url, folder).downloadAndUnzip();
+    ExperimentGraph graph = new ExperimentGraph(new File(outputPath), Runtime.getRuntime().availableProcessors());
+    try {
+      List<ExperimentNode<?>> targets = buildGraph(dataFile, N_FOLDS);
+      Map<ExperimentNode<?>, Object> outputs = graph.run(targets.toArray(new ExperimentNode<?>[0]));
+      for (Map.Entry<ExperimentNode<?>, Object> e : outputs.entrySet()) {
+        if (e.getKey() instanceof MetricNode) {
+          @SuppressWarnings("unchecked") Map<String, Map<String, Double>> results = (Map<String, Map<String, Double>>) e.getValue();
+          for (Map.Entry<String, Map<String, Double>> m : results.entrySet()) {
+            System.out.println(e.getKey().getName() + "\t" + m.getKey() + "\t" + m.getValue().get(UserMetricAccumulator.ALL));
+          }
+        } else {
+          System.out.print(e.getValue());
+        }
+      }
+      System.out.println("Steps run: " + graph.getExecutedNodes());
+      System.out.println("Steps read from " + outputPath + ": " + graph.getLoadedNodes());
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+     * Builds the nodes of the experiment: the dataset is parsed and split,
+     * and for each fold the recommenders are run, their recommendations are
+     * filtered with the UserTest strategy and evaluated, and the recommenders
+     * are compared against the baseline.
+     *
+     * @param dataFile the dataset
+     * @param nFolds number of folds
+     * @return the nodes whose output is requested (metrics and statistics)
+     */
+  public static List<ExperimentNode<?>> buildGraph(final String dataFile, final int nFolds) {
+    Properties parser = new Properties();
+    parser.setProperty(ParserRunner.DATASET_FILE, dataFile);
+    parser.setProperty(ParserRunner.DATASET_PARSER, "net.recommenders.rival.split.parser.MovielensParser");
+    Properties splitter = new Properties();
+    splitter.setProperty(SplitterRunner.DATASET_SPLITTER, "net.recommenders.rival.split.splitter.CrossValidationSplitter");
+    splitter.setProperty(SplitterRunner.SPLIT_CV_NFOLDS, "" + nFolds);
+    splitter.setProperty(SplitterRunner.SPLIT_PERUSER, "true");
+    splitter.setProperty(SplitterRunner.SPLIT_SEED, "" + SEED);
+    Properties strategy = new Properties();
+    strategy.setProperty(StrategyRunner.STRATEGY, "net.recommenders.rival.evaluation.strategy.UserTest");
+    strategy.setProperty(StrategyRunner.RELEVANCE_THRESHOLD, "" + REL_TH);
+    Properties metrics = new Properties();
+    metrics.setProperty(MultipleEvaluationMetricRunner.METRICS, "net.recommenders.rival.evaluation.metric.ranking.NDCG," + "net.recommenders.rival.evaluation.metric.ranking.Precision," + "net.recommenders.rival.evaluation.metric.error.RMSE");
+    metrics.setProperty(MultipleEvaluationMetricRunner.RELEVANCE_THRESHOLD, "" + REL_TH);
+    metrics.setProperty(MultipleEvaluationMetricRunner.RANKING_CUTOFFS, "" + AT);
+    metrics.setProperty(MultipleEvaluationMetricRunner.NDCG_TYPE, "exp");
+    metrics.setProperty(MultipleEvaluationMetricRunner.ERROR_STRATEGY, "NOT_CONSIDER_NAN");
+    Properties statistics = new Properties();
+    statistics.setProperty(StatisticsRunner.ALPHA, "0.05");
+    statistics.setProperty(StatisticsRunner.STATISTICS, "confidence_interval,effect_size_pairedT,statistical_significance_pairedT,statistical_significance_wilcoxon");
+
+    ParseNode data = new ParseNode("parse", parser);
+    SplitNode splits = new SplitNode("split", splitter, data);
+    List<ExperimentNode<?>> targets = new ArrayList<>();
+    for (int i = 0; i < nFolds; i++) {
+      FoldNode fold = new FoldNode("fold_" + i, splits, i);
+      List<MetricNode> evaluations = new ArrayList<>();
+      for (int n : NEIGH_SIZES) {
+        Properties recommender = new Properties();
+        recommender.setProperty(RecommendationRunner.FRAMEWORK, RecommendationRunner.MAHOUT);
+        recommender.setProperty(RecommendationRunner.RECOMMENDER, "org.apache.mahout.cf.taste.impl.recommender.GenericUserBasedRecommender");
+        recommender.setProperty(RecommendationRunner.SIMILARITY, "org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity");
+        recommender.setProperty(RecommendationRunner.NEIGHBORHOOD, "" + n);
+        String name = "UB_Pearson_" + n + "_" + i;
+        RecommendNode recs = new RecommendNode("recommend_" + name, recommender, fold);
+        StrategyNode filtered = new StrategyNode("strategy_" + name, strategy, fold, recs);
+        evaluations.add(new MetricNode(name, metrics, fold, filtered));
+      }
+      targets.addAll(evaluations);
+      targets.add(new StatisticsNode("statistics_" + i, statistics, evaluations.get(0), evaluations.subList(1, evaluations.size()).toArray(new MetricNode[0])));
+    }
+    return targets;
+  }
+}
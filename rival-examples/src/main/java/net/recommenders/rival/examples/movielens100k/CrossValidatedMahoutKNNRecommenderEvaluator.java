@@ -12,6 +12,7 @@ import net.recommenders.rival.recommend.frameworks.mahout.GenericRecommenderBuil
 import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
 import net.recommenders.rival.split.parser.MovielensParser;
 import net.recommenders.rival.split.splitter.CrossValidationSplitter;
+import net.recommenders.rival.split.splitter.SplitManifest;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
 import org.apache.mahout.cf.taste.impl.model.file.FileDataModel;
@@ -95,6 +96,21 @@ public final class CrossValidatedMahoutKNNRecommenderEvaluator {
     dd.downloadAndUnzip();
     boolean perUser = true;
     long seed = SEED;
+    SplitManifest manifest = new SplitManifest();
+    File manifestFile = new File(outPath + SplitManifest.MANIFEST_NAME);
+    try {
+      manifest.setSource(new File(inFile));
+      manifest.setParameter("splitter", CrossValidationSplitter.class.getName());
+      manifest.setParameter("folds", "" + nFolds);
+      manifest.setParameter("perUser", "" + perUser);
+      manifest.setParameter("seed", "" + seed);
+      if (manifest.isUpToDate(manifestFile)) {
+        System.out.println("Splits are up to date according to " + manifestFile);
+        return;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
     Parser<Long, Long> parser = new MovielensParser();
     DataModelIF<Long, Long> data = null;
     try {
@@ -121,10 +137,18 @@ public final class CrossValidatedMahoutKNNRecommenderEvaluator {
       try {
         DataModelUtils.saveDataModel(training, trainingFile, overwrite, "\t");
         DataModelUtils.saveDataModel(test, testFile, overwrite, "\t");
-      } catch (FileNotFoundException | UnsupportedEncodingException e) {
+        manifest.recordFile(trainingFile);
+        manifest.recordFile(testFile);
+      } catch (IOException e) {
         e.printStackTrace();
       }
     }
+    manifest.setSplitFileCount(splits.length);
+    try {
+      manifest.write(manifestFile);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
   }
 
   /**
@@ -28,6 +28,7 @@ import net.recommenders.rival.recommend.frameworks.mahout.GenericRecommenderBuil
 import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
 import net.recommenders.rival.split.parser.MovielensParser;
 import net.recommenders.rival.split.splitter.IterativeCrossValidationSplitter;
+import net.recommenders.rival.split.splitter.SplitManifest;
 
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
@@ -118,6 +119,21 @@ public final class IterativeCrossValidatedMahoutKNNRecommenderEvaluator
 
         boolean perUser = true;
         long seed = SEED;
+        SplitManifest manifest = new SplitManifest();
+        File manifestFile = new File(outPath + SplitManifest.MANIFEST_NAME);
+        try {
+            manifest.setSource(new File(inFile));
+            manifest.setParameter("splitter", IterativeCrossValidationSplitter.class.getName());
+            manifest.setParameter("folds", "" + nFolds);
+            manifest.setParameter("perUser", "" + perUser);
+            manifest.setParameter("seed", "" + seed);
+            if (manifest.isUpToDate(manifestFile)) {
+                System.out.println("Splits are up to date according to " + manifestFile);
+                return;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         Parser<Long, Long> parser = new MovielensParser();
 
         DataModelIF<Long, Long> data = null;
@@ -127,7 +143,18 @@ public final class IterativeCrossValidatedMahoutKNNRecommenderEvaluator
             e.printStackTrace();
         }
 
-        new IterativeCrossValidationSplitter<Long,Long>(nFolds, perUser, seed, outPath).split(data);
+        IterativeCrossValidationSplitter<Long, Long> splitter = new IterativeCrossValidationSplitter<Long, Long>(nFolds, perUser, seed, outPath);
+        splitter.split(data);
+        String[] files = splitter.getSplitFiles();
+        try {
+            for (String file : files) {
+                manifest.recordFile(file);
+            }
+            manifest.setSplitFileCount(files.length);
+            manifest.write(manifestFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         File dir = new File(outPath);
         if (!dir.exists()) {
             if (!dir.mkdir()) {
@@ -25,6 +25,7 @@ import java.util.List;
 import net.recommenders.rival.core.DataModelFactory;
 import net.recommenders.rival.evaluation.metric.error.RMSE;
 import net.recommenders.rival.split.splitter.TemporalSplitter;
+import net.recommenders.rival.split.splitter.SplitManifest;
 
 /**
  * RiVal Movielens100k Mahout Example, using temporal splitting.
@@ -90,6 +91,21 @@ public final class TemporalSplitMahoutKNNRecommenderEvaluator {
     dd.downloadAndUnzip();
     boolean perUser = true;
     boolean perItem = false;
+    SplitManifest manifest = new SplitManifest();
+    File manifestFile = new File(outPath + SplitManifest.MANIFEST_NAME);
+    try {
+      manifest.setSource(new File(inFile));
+      manifest.setParameter("splitter", TemporalSplitter.class.getName());
+      manifest.setParameter("percentage", "" + percentage);
+      manifest.setParameter("perUser", "" + perUser);
+      manifest.setParameter("perItem", "" + perItem);
+      if (manifest.isUpToDate(manifestFile)) {
+        System.out.println("Splits are up to date according to " + manifestFile);
+        return;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
     Parser<Long, Long> parser = new MovielensParser();
     DataModelIF<Long, Long> data = null;
     try {
@@ -116,10 +132,18 @@ public final class TemporalSplitMahoutKNNRecommenderEvaluator {
       try {
         DataModelUtils.saveDataModel(training, trainingFile, overwrite, "\t");
         DataModelUtils.saveDataModel(test, testFile, overwrite, "\t");
-      } catch (FileNotFoundException | UnsupportedEncodingException e) {
+        manifest.recordFile(trainingFile);
+        manifest.recordFile(testFile);
+      } catch (IOException e) {
         e.printStackTrace();
       }
     }
+    manifest.setSplitFileCount(splits.length);
+    try {
+      manifest.write(manifestFile);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
   }
 
   /**
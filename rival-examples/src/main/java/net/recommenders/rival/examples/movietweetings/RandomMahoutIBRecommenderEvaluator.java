@@ -19,6 +19,7 @@ import net.recommenders.rival.recommend.frameworks.RecommenderIO;
 import net.recommenders.rival.recommend.frameworks.mahout.GenericRecommenderBuilder;
 import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
 import net.recommenders.rival.split.splitter.RandomSplitter;
+import net.recommenders.rival.split.splitter.SplitManifest;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
 import org.apache.mahout.cf.taste.impl.model.file.FileDataModel;
@@ -113,6 +114,22 @@ public final class RandomMahoutIBRecommenderEvaluator {
     dd.download();
     boolean perUser = true;
     long seed = SEED;
+    SplitManifest manifest = new SplitManifest();
+    File manifestFile = new File(outPath + SplitManifest.MANIFEST_NAME);
+    try {
+      manifest.setSource(new File(inFile));
+      manifest.setParameter("splitter", RandomSplitter.class.getName());
+      manifest.setParameter("percentage", "" + percentage);
+      manifest.setParameter("perUser", "" + perUser);
+      manifest.setParameter("perItem", "" + false);
+      manifest.setParameter("seed", "" + seed);
+      if (manifest.isUpToDate(manifestFile)) {
+        System.out.println("Splits are up to date according to " + manifestFile);
+        return;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
     UIPParser parser = new UIPParser();
     parser.setDelimiter(':');
     parser.setUserTok(USER_TOK);
@@ -144,10 +161,18 @@ public final class RandomMahoutIBRecommenderEvaluator {
       try {
         DataModelUtils.saveDataModel(training, trainingFile, overwrite, "\t");
         DataModelUtils.saveDataModel(test, testFile, overwrite, "\t");
-      } catch (FileNotFoundException | UnsupportedEncodingException e) {
+        manifest.recordFile(trainingFile);
+        manifest.recordFile(testFile);
+      } catch (IOException e) {
         e.printStackTrace();
       }
     }
+    manifest.setSplitFileCount(splits.length);
+    try {
+      manifest.write(manifestFile);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
   }
 
   /**
@@ -1,5 +1,6 @@
 package net.recommenders.rival.recommend.frameworks;
 import java.io.File;
+import java.io.IOException;
 import java.util.Map.Entry;
 import java.util.Properties;
 import net.recommenders.rival.core.DataModelIF;
@@ -19,7 +20,8 @@ public abstract class AbstractRunner<U extends java.lang.Object, I extends java.
   public enum RUN_OPTIONS {
     RETURN_RECS,
     OUTPUT_RECS,
-    RETURN_AND_OUTPUT_RECS
+    RETURN_AND_OUTPUT_RECS,
+    STREAM_RECS
   }
 
   /**
@@ -32,6 +34,24 @@ public abstract class AbstractRunner<U extends java.lang.Object, I extends java.
      */
   public static final int DEFAULT_ITERATIONS = 50;
 
+  /**
+     * Every item not rated by the user in training is a candidate (full
+     * ranking).
+     */
+  public static final String CANDIDATES_ALL = "all";
+
+  /**
+     * Only the items of the user in the test set are candidates (as in the
+     * UserTest strategy).
+     */
+  public static final String CANDIDATES_USER_TEST = "usertest";
+
+  /**
+     * Only the items in the test set not rated by the user in training are
+     * candidates (as in the TestItems strategy).
+     */
+  public static final String CANDIDATES_TEST_ITEMS = "testitems";
+
   /**
      * The properties.
      */
@@ -52,6 +72,16 @@ public abstract class AbstractRunner<U extends java.lang.Object, I extends java.
      */
   private boolean alreadyRecommended;
 
+  /**
+     * Listener of the recommendations (null if there is none).
+     */
+  private RecommendationListener listener;
+
+  /**
+     * Statistics of the run.
+     */
+  private final RunStatistics statistics;
+
   /**
      * Default constructor.
      *
@@ -69,6 +99,7 @@ public abstract class AbstractRunner<U extends java.lang.Object, I extends java.
       System.out.println("File exists: " + filePath);
     }
     path = properties.getProperty(RecommendationRunner.OUTPUT, "");
+    statistics = new RunStatistics(fileName);
   }
 
   /**
@@ -93,9 +124,18 @@ public abstract class AbstractRunner<U extends java.lang.Object, I extends java.
       }
       num += ".";
     }
+    if (Integer.parseInt(properties.getProperty(RecommendationRunner.CUTOFF, "-1")) > 0) {
+      num += "top" + properties.getProperty(RecommendationRunner.CUTOFF) + ".";
+    }
+    if (!properties.getProperty(RecommendationRunner.CANDIDATES, CANDIDATES_ALL).equals(CANDIDATES_ALL)) {
+      num += properties.getProperty(RecommendationRunner.CANDIDATES) + ".";
+    }
     String trainingSet = properties.getProperty(RecommendationRunner.TRAINING_SET);
     trainingSet = trainingSet.substring(trainingSet.lastIndexOf("/") + 1, trainingSet.lastIndexOf("_train"));
-    fileName = trainingSet + "." + properties.getProperty(RecommendationRunner.FRAMEWORK) + "." + properties.getProperty(RecommendationRunner.RECOMMENDER).substring(properties.getProperty(RecommendationRunner.RECOMMENDER).lastIndexOf(".") + 1) + "." + type + num + "tsv";
+    fileName = trainingSet + "." + properties.getProperty(RecommendationRunner.FRAMEWORK) + "." + properties.getProperty(RecommendationRunner.RECOMMENDER).substring(properties.getProperty(RecommendationRunner.RECOMMENDER).lastIndexOf(".") + 1) + "." + type + num + properties.getProperty(RecommendationRunner.OUTPUT_FORMAT, RecommendationSink.FORMAT_TEXT);
+    if (Boolean.parseBoolean(properties.getProperty(RecommendationRunner.OUTPUT_COMPRESS, "false"))) {
+      fileName += RecommendationSink.COMPRESSED_EXTENSION;
+    }
     System.out.println(fileName);
   }
 
@@ -135,6 +175,28 @@ public abstract class AbstractRunner<U extends java.lang.Object, I extends java.
     return fileName;
   }
 
+  /**
+     * Gets the maximum number of recommendations per user (see
+     * {@link RecommendationRunner#CUTOFF}).
+     *
+     * @return the maximum number of recommendations per user, or a non
+     * positive number when every candidate should be returned
+     */
+  protected int getCutoff() {
+    return Integer.parseInt(properties.getProperty(RecommendationRunner.CUTOFF, "-1"));
+  }
+
+  /**
+     * Gets which items should be scored for each user (see
+     * {@link RecommendationRunner#CANDIDATES}).
+     *
+     * @return one of {@link #CANDIDATES_ALL}, {@link #CANDIDATES_USER_TEST}
+     * or {@link #CANDIDATES_TEST_ITEMS}
+     */
+  protected String getCandidates() {
+    return properties.getProperty(RecommendationRunner.CANDIDATES, CANDIDATES_ALL);
+  }
+
   /**
      * Gets the path.
      *
@@ -144,6 +206,53 @@ public abstract class AbstractRunner<U extends java.lang.Object, I extends java.
     return path;
   }
 
+  /**
+     * Gets the statistics of the run (phase times, users and items scored,
+     * heap and garbage collection); see {@link RunStatistics}.
+     *
+     * @return the statistics
+     */
+  public RunStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+     * Gets the cache of trained models (see
+     * {@link RecommendationRunner#MODEL_CACHE}).
+     *
+     * @return the cache, or null if models should not be cached
+     */
+  protected ModelCache getModelCache() {
+    String dir = properties.getProperty(RecommendationRunner.MODEL_CACHE);
+    return dir == null ? null : new ModelCache(new File(dir));
+  }
+
+  /**
+     * Opens the sink where the recommendations of a run are written, using
+     * the output format, compression and buffer size in the properties (and
+     * the listener, if any).
+     *
+     * @param name name of the output file, if null recommendations will not
+     * be printed
+     * @param model if not null, recommendations will be saved here
+     * @return the sink
+     * @throws IOException when the output file cannot be created
+     */
+  protected RecommendationSink openSink(final String name, final DataModelIF<Long, Long> model) throws IOException {
+    return new RecommendationSink(getPath(), name, properties.getProperty(RecommendationRunner.OUTPUT_FORMAT, RecommendationSink.FORMAT_TEXT), Boolean.parseBoolean(properties.getProperty(RecommendationRunner.OUTPUT_COMPRESS, "false")), Integer.parseInt(properties.getProperty(RecommendationRunner.OUTPUT_BUFFER, "" + RecommendationSink.DEFAULT_BUFFER_SIZE)), model, listener);
+  }
+
+  /**
+     * Sets a listener that receives the recommendations of every user as they
+     * are generated. With {@link RUN_OPTIONS#STREAM_RECS} the recommendations
+     * are only passed to the listener (they are neither returned nor printed).
+     *
+     * @param theListener the listener (null to remove it)
+     */
+  public void setRecommendationListener(final RecommendationListener theListener) {
+    this.listener = theListener;
+  }
+
   /**
      * Runs the recommender. Training and test models will be read from file.
      *
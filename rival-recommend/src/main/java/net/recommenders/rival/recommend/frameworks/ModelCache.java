@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Directory where trained models (factorizations, similarity matrices,
+ * engines) are kept between runs. Every model is stored under a key derived
+ * from the parameters that determine it and from a fingerprint of the
+ * training data, so a rerun with the same training split and parameters can
+ * skip the training.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class ModelCache {
+
+    /**
+     * Extension of the files being written.
+     */
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    /**
+     * The directory of the cache.
+     */
+    private final File dir;
+
+    /**
+     * Constructor.
+     *
+     * @param directory the directory of the cache (created if needed)
+     */
+    public ModelCache(final File directory) {
+        this.dir = directory;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            System.out.println("Directory " + dir + " could not be created");
+        }
+    }
+
+    /**
+     * Creates the key of a model.
+     *
+     * @param parts the values that determine the model (framework,
+     * recommender, parameters, training fingerprint); null values are allowed
+     * @return the key (SHA-256 of the parts, in hexadecimal)
+     */
+    public static String key(final Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (Object part : parts) {
+            sb.append(part).append('\u0000');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Fingerprint of an interaction. The fingerprint of a training set is the
+     * sum of the fingerprints of its interactions, so it does not depend on
+     * the order in which they are visited.
+     *
+     * @param user the user
+     * @param item the item
+     * @param value the preference value
+     * @return the fingerprint of the interaction
+     */
+    public static long fingerprint(final long user, final long item, final double value) {
+        long h = user * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(item * 0xC2B2AE3D27D4EB4FL, 31);
+        h ^= Double.doubleToLongBits(value) * 0x165667B19E3779F9L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Gets the file where a model is stored.
+     *
+     * @param key the key of the model
+     * @param extension the extension (type of model)
+     * @return the file (it may not exist)
+     */
+    public File getFile(final String key, final String extension) {
+        return new File(dir, key + "." + extension);
+    }
+
+    /**
+     * Gets the file where a model is written before it is committed, see
+     * {@link #commit(java.lang.String, java.lang.String)}.
+     *
+     * @param key the key of the model
+     * @param extension the extension (type of model)
+     * @return the temporary file
+     */
+    public File getTemporaryFile(final String key, final String extension) {
+        return new File(dir, key + "." + extension + TEMPORARY_EXTENSION);
+    }
+
+    /**
+     * Moves a model from its temporary file to its final file, so that
+     * interrupted writes are never read.
+     *
+     * @param key the key of the model
+     * @param extension the extension (type of model)
+     * @throws IOException when the file cannot be moved
+     */
+    public void commit(final String key, final String extension) throws IOException {
+        Files.move(getTemporaryFile(key, extension).toPath(), getFile(key, extension).toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a serialized model.
+     *
+     * @param key the key of the model
+     * @param extension the extension (type of model)
+     * @return the model, or null if it is not in the cache or it cannot be
+     * read
+     */
+    public Object read(final String key, final String extension) {
+        File file = getFile(key, extension);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Cached model " + file + " could not be read: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a serializable model.
+     *
+     * @param key the key of the model
+     * @param extension the extension (type of model)
+     * @param model the model
+     * @throws IOException when the model cannot be written
+     */
+    public void write(final String key, final String extension, final Serializable model) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(getTemporaryFile(key, extension))))) {
+            out.writeObject(model);
+        }
+        commit(key, extension);
+    }
+}
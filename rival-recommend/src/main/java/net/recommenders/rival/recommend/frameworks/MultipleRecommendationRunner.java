@@ -19,10 +19,20 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
+import net.recommenders.rival.recommend.frameworks.mahout.GenericRecommenderBuilder;
+import net.recommenders.rival.recommend.frameworks.mahout.MahoutRecommenderRunner;
+import net.recommenders.rival.recommend.frameworks.mahout.TopKUserNeighborhoods;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.model.file.FileDataModel;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.recommender.Recommender;
+import org.apache.mahout.cf.taste.similarity.UserSimilarity;
 
 /**
  * Runner of multiple recommenders.
@@ -71,6 +81,14 @@ public final class MultipleRecommendationRunner {
      * Property key.
      */
     public static final String LENSKIT_SVD_RECS = "lenskit.rec.svd";
+    /**
+     * Property key.
+     */
+    public static final String RIVAL_ITEMBASED_RECS = "rival.rec.ib";
+    /**
+     * Property key.
+     */
+    public static final String RIVAL_SIMILARITIES = "rival.sim";
     /**
      * Property key.
      */
@@ -83,6 +101,36 @@ public final class MultipleRecommendationRunner {
      * Property key.
      */
     public static final String OUTPUT = "output";
+    /**
+     * Property key: when true, Mahout user-based recommenders of the same
+     * split and similarity share the similarities and neighbors for every
+     * neighborhood size, see
+     * {@link #runMahoutUserBasedGrid(java.util.Set, java.util.Properties)}.
+     */
+    public static final String GRID = "grid.shared";
+    /**
+     * Property key: number of recommenders run at the same time (see
+     * {@link RecommenderScheduler}); recommenders are run one after the
+     * other when not set.
+     */
+    public static final String WORKERS = "scheduler.workers";
+    /**
+     * Property key: heap (in megabytes) available for the recommenders run at
+     * the same time, 80% of the maximum heap when not set.
+     */
+    public static final String HEAP_BUDGET = "scheduler.heap";
+    /**
+     * Property key: bytes of heap estimated per byte of training file, see
+     * {@link RecommenderScheduler#DEFAULT_MEMORY_FACTOR}.
+     */
+    public static final String MEMORY_FACTOR = "scheduler.memory.factor";
+    /**
+     * Properties of {@link RecommendationRunner} passed on to every runner
+     * when they are given.
+     */
+    private static final String[] RUNNER_PROPERTIES = {RecommendationRunner.THREADS, RecommendationRunner.USER_BATCH,
+        RecommendationRunner.CUTOFF, RecommendationRunner.CANDIDATES, RecommendationRunner.OUTPUT_FORMAT,
+        RecommendationRunner.OUTPUT_COMPRESS, RecommendationRunner.OUTPUT_BUFFER, RecommendationRunner.MODEL_CACHE};
 
     /**
      * Utility classes should not have a public or default constructor.
@@ -113,6 +161,7 @@ public final class MultipleRecommendationRunner {
 
         runLenskitRecommenders(paths, properties);
         runMahoutRecommenders(paths, properties);
+        runRivalRecommenders(paths, properties);
     }
 
     /**
@@ -122,9 +171,29 @@ public final class MultipleRecommendationRunner {
      * @param properties the properties.
      */
     public static void runLenskitRecommenders(final Set<String> paths, final Properties properties) {
-        for (AbstractRunner<Long, Long> rec : instantiateLenskitRecommenders(paths, properties)) {
-            RecommendationRunner.run(rec);
+        runRecommenders(instantiateLenskitRecommenders(paths, properties), properties);
+    }
+
+    /**
+     * Runs already instantiated recommenders, one after the other or
+     * concurrently (see {@link #WORKERS}).
+     *
+     * @param recs the recommenders.
+     * @param properties the properties.
+     */
+    public static void runRecommenders(final AbstractRunner<Long, Long>[] recs, final Properties properties) {
+        int workers = Integer.parseInt(properties.getProperty(WORKERS, "1"));
+        if (workers <= 1) {
+            for (AbstractRunner<Long, Long> rec : recs) {
+                RecommendationRunner.run(rec);
+            }
+            return;
         }
+        long budget = properties.containsKey(HEAP_BUDGET)
+                ? Long.parseLong(properties.getProperty(HEAP_BUDGET)) << 20
+                : (long) (RecommenderScheduler.DEFAULT_HEAP_FRACTION * Runtime.getRuntime().maxMemory());
+        double factor = Double.parseDouble(properties.getProperty(MEMORY_FACTOR, "" + RecommenderScheduler.DEFAULT_MEMORY_FACTOR));
+        new RecommenderScheduler(workers, budget, factor).run(Arrays.asList(recs));
     }
 
     /**
@@ -151,6 +220,7 @@ public final class MultipleRecommendationRunner {
                 prop.setProperty(RecommendationRunner.TEST_SET, path + "_test.dat");
                 prop.setProperty(RecommendationRunner.OUTPUT, properties.getProperty(OUTPUT, ""));
                 prop.setProperty(RecommendationRunner.FRAMEWORK, "lenskit");
+                copyRunnerProperties(properties, prop);
                 for (String ubRec : ubRecs) {
                     if (ubRec.trim().isEmpty()) {
                         continue;
@@ -206,8 +276,122 @@ public final class MultipleRecommendationRunner {
      * @param properties the properties.
      */
     public static void runMahoutRecommenders(final Set<String> paths, final Properties properties) {
-        for (AbstractRunner<Long, Long> rec : instantiateMahoutRecommenders(paths, properties)) {
-            RecommendationRunner.run(rec);
+        Properties others = properties;
+        if (Boolean.parseBoolean(properties.getProperty(GRID))) {
+            others = new Properties();
+            others.putAll(properties);
+            others.setProperty(MAHOUT_USERBASED_RECS, "");
+        }
+        runRecommenders(instantiateMahoutRecommenders(paths, others), properties);
+        if (others != properties) {
+            runMahoutUserBasedGrid(paths, properties);
+        }
+    }
+
+    /**
+     * Runs the Mahout user-based recommenders computing, for every split,
+     * recommender and similarity, the similarities once and the neighbors of
+     * every neighborhood size from them (see {@link TopKUserNeighborhoods}).
+     * The time written for each neighborhood size only includes the
+     * similarities and neighbors it computed first.
+     *
+     * @param paths the input and output paths.
+     * @param properties the properties.
+     */
+    public static void runMahoutUserBasedGrid(final Set<String> paths, final Properties properties) {
+        try {
+            String[] ubRecs = properties.getProperty(MAHOUT_USERBASED_RECS).split(",");
+            String[] similarities = properties.getProperty(MAHOUT_SIMILARITIES).split(",");
+            String[] neighborhoods = properties.getProperty(N).split(",");
+
+            for (String path : paths) {
+                Properties prop = new Properties();
+                prop.setProperty(RecommendationRunner.TRAINING_SET, path + "_train.dat");
+                prop.setProperty(RecommendationRunner.TEST_SET, path + "_test.dat");
+                prop.setProperty(RecommendationRunner.OUTPUT, properties.getProperty(OUTPUT, ""));
+                prop.setProperty(RecommendationRunner.FRAMEWORK, "mahout");
+                copyRunnerProperties(properties, prop);
+                DataModel[] models = null;
+                for (String ubRec : ubRecs) {
+                    if (ubRec.trim().isEmpty()) {
+                        continue;
+                    }
+                    prop.setProperty(RecommendationRunner.RECOMMENDER, ubRec);
+                    for (String sim : similarities) {
+                        prop.setProperty(RecommendationRunner.SIMILARITY, sim);
+                        List<MahoutRecommenderRunner> runners = new ArrayList<MahoutRecommenderRunner>();
+                        List<String> sizes = new ArrayList<String>();
+                        for (String n : neighborhoods) {
+                            prop.setProperty(RecommendationRunner.NEIGHBORHOOD, n);
+                            MahoutRecommenderRunner runner = new MahoutRecommenderRunner(prop);
+                            if (!runner.isAlreadyRecommended()) {
+                                runners.add(runner);
+                                sizes.add(n);
+                            }
+                        }
+                        prop.remove(RecommendationRunner.NEIGHBORHOOD);
+                        prop.remove(RecommendationRunner.SIMILARITY);
+                        if (runners.isEmpty()) {
+                            continue;
+                        }
+                        try {
+                            if (models == null) {
+                                models = new DataModel[]{
+                                    new FileDataModel(new File(path + "_train.dat")),
+                                    new FileDataModel(new File(path + "_test.dat"))};
+                            }
+                            runUserBasedGroup(runners, sizes, ubRec, sim, models[0], models[1]);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        } catch (TasteException e) {
+                            e.printStackTrace();
+                        } catch (RecommenderException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (NullPointerException e) {
+            System.out.println("Properties not set (Mahout recommenders)");
+        }
+    }
+
+    /**
+     * Runs the user-based recommenders of a grid that share the recommender,
+     * the similarity and the training split.
+     *
+     * @param runners the runners, one per neighborhood size
+     * @param sizes the neighborhood sizes (-1 is the square root of the
+     * number of items)
+     * @param recType the recommender type (as Mahout class)
+     * @param simType the similarity type (as Mahout class)
+     * @param training the training model
+     * @param test the test model
+     * @throws TasteException when the similarities or the recommendations
+     * cannot be computed
+     * @throws RecommenderException when the recommenders cannot be
+     * instantiated
+     */
+    private static void runUserBasedGroup(final List<MahoutRecommenderRunner> runners, final List<String> sizes, final String recType,
+            final String simType, final DataModel training, final DataModel test) throws TasteException, RecommenderException {
+        int[] n = new int[sizes.size()];
+        for (int k = 0; k < n.length; k++) {
+            n[k] = sizes.get(k).equals("-1") ? (int) Math.round(Math.sqrt(training.getNumItems())) : Integer.parseInt(sizes.get(k));
+        }
+        GenericRecommenderBuilder grb = new GenericRecommenderBuilder();
+        TopKUserNeighborhoods neighborhoods = new TopKUserNeighborhoods(n, (UserSimilarity) grb.buildSimilarity(training, simType), training);
+        for (int k = 0; k < n.length; k++) {
+            RunStatistics stats = runners.get(k).getStatistics();
+            stats.start();
+            try {
+                long t = stats.begin(RunStatistics.Phase.TRAIN);
+                Recommender recommender = grb.buildRecommender(training, recType, neighborhoods.forSize(n[k]), neighborhoods.getSimilarity());
+                stats.end(RunStatistics.Phase.TRAIN, t);
+                runners.get(k).runMahoutRecommender(AbstractRunner.RUN_OPTIONS.OUTPUT_RECS, recommender, training, test);
+            } finally {
+                stats.stop();
+            }
+            RecommendationRunner.writeStats(runners.get(k).getCanonicalFileName(), stats.toStats());
         }
     }
 
@@ -237,6 +421,7 @@ public final class MultipleRecommendationRunner {
                 prop.setProperty(RecommendationRunner.TEST_SET, path + "_test.dat");
                 prop.setProperty(RecommendationRunner.OUTPUT, properties.getProperty(OUTPUT, ""));
                 prop.setProperty(RecommendationRunner.FRAMEWORK, "mahout");
+                copyRunnerProperties(properties, prop);
                 // first IB because it (should) does not have neighborhood
                 for (String ibRec : ibRecs) {
                     if (ibRec.trim().isEmpty()) {
@@ -290,6 +475,79 @@ public final class MultipleRecommendationRunner {
         return recs;
     }
 
+    /**
+     * Runs RiVal's own recommenders.
+     *
+     * @param paths the input and output paths.
+     * @param properties the properties.
+     */
+    public static void runRivalRecommenders(final Set<String> paths, final Properties properties) {
+        runRecommenders(instantiateRivalRecommenders(paths, properties), properties);
+    }
+
+    /**
+     * Instantiates RiVal's own recommenders based on the provided properties;
+     * the number of threads, the cutoff, the candidates, the output format
+     * and the model cache (see {@link RecommendationRunner}) are passed on
+     * when given, as for the other frameworks.
+     *
+     * @param paths the input and output paths.
+     * @param properties the properties.
+     * @return an array of recommenders, prepared to be run.
+     */
+    @SuppressWarnings("unchecked")
+    public static AbstractRunner<Long, Long>[] instantiateRivalRecommenders(final Set<String> paths, final Properties properties) {
+        List<AbstractRunner<Long, Long>> recList = new ArrayList<AbstractRunner<Long, Long>>();
+        try {
+            String[] ibRecs = properties.getProperty(RIVAL_ITEMBASED_RECS).split(",");
+            String[] similarities = properties.getProperty(RIVAL_SIMILARITIES).split(",");
+            String[] neighborhoods = properties.getProperty(N).split(",");
+
+            for (String path : paths) {
+                Properties prop = new Properties();
+                prop.setProperty(RecommendationRunner.TRAINING_SET, path + "_train.dat");
+                prop.setProperty(RecommendationRunner.TEST_SET, path + "_test.dat");
+                prop.setProperty(RecommendationRunner.OUTPUT, properties.getProperty(OUTPUT, ""));
+                prop.setProperty(RecommendationRunner.FRAMEWORK, RecommendationRunner.RIVAL);
+                copyRunnerProperties(properties, prop);
+                for (String ibRec : ibRecs) {
+                    if (ibRec.trim().isEmpty()) {
+                        continue;
+                    }
+                    prop.setProperty(RecommendationRunner.RECOMMENDER, ibRec);
+                    for (String sim : similarities) {
+                        prop.setProperty(RecommendationRunner.SIMILARITY, sim);
+                        for (String n : neighborhoods) {
+                            prop.setProperty(RecommendationRunner.NEIGHBORHOOD, n);
+                            AbstractRunner<Long, Long> ar = RecommendationRunner.instantiateRecommender(prop);
+                            recList.add(ar);
+                        }
+                        prop.remove(RecommendationRunner.SIMILARITY);
+                    }
+                }
+            }
+        } catch (NullPointerException e) {
+            System.out.println("Properties not set (RiVal recommenders)");
+        }
+        AbstractRunner<Long, Long>[] recs = recList.toArray(new AbstractRunner[0]);
+        return recs;
+    }
+
+    /**
+     * Copies the properties passed on to every runner (see
+     * {@link #RUNNER_PROPERTIES}) that are given.
+     *
+     * @param properties the properties.
+     * @param runnerProperties the properties of a runner.
+     */
+    private static void copyRunnerProperties(final Properties properties, final Properties runnerProperties) {
+        for (String key : RUNNER_PROPERTIES) {
+            if (properties.containsKey(key)) {
+                runnerProperties.setProperty(key, properties.getProperty(key));
+            }
+        }
+    }
+
     /**
      * List all files at a certain path.
      *
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.util.List;
+import java.util.Properties;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.experiment.ExperimentNode;
+import net.recommenders.rival.core.experiment.FoldNode;
+import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
+
+/**
+ * Experiment node that trains a recommender (see
+ * {@link RecommendationRunner#instantiateRecommender(java.util.Properties)})
+ * on the training set of a fold and returns its recommendations for the
+ * users of the test set. The properties that do not change the
+ * recommendations (files, threads, model cache) are not parameters of the
+ * node.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class RecommendNode extends ExperimentNode<DataModelIF<Long, Long>> {
+
+    /**
+     * Properties used to run the recommender that are not parameters of the
+     * node (threads, model cache).
+     */
+    private final Properties settings;
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the node
+     * @param properties the properties of the recommender (see
+     * {@link RecommendationRunner})
+     * @param fold the node with the training and test sets
+     */
+    public RecommendNode(final String name, final Properties properties, final FoldNode fold) {
+        super(name, exclude(properties, RecommendationRunner.TRAINING_SET, RecommendationRunner.TEST_SET, RecommendationRunner.OUTPUT,
+                RecommendationRunner.OUTPUT_FORMAT, RecommendationRunner.OUTPUT_COMPRESS, RecommendationRunner.OUTPUT_BUFFER,
+                RecommendationRunner.THREADS, RecommendationRunner.USER_BATCH, RecommendationRunner.MODEL_CACHE), fold);
+        this.settings = new Properties();
+        for (String key : new String[]{RecommendationRunner.THREADS, RecommendationRunner.USER_BATCH, RecommendationRunner.MODEL_CACHE}) {
+            if (properties.getProperty(key) != null) {
+                settings.setProperty(key, properties.getProperty(key));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataModelIF<Long, Long> compute(final List<Object> inputValues) throws Exception {
+        Properties properties = getProperties();
+        properties.putAll(settings);
+        // the runners name their output after the training file, which is never written here
+        properties.setProperty(RecommendationRunner.TRAINING_SET, getName() + "_train");
+        properties.setProperty(RecommendationRunner.TEST_SET, getName() + "_test");
+        AbstractRunner<Long, Long> runner = RecommendationRunner.instantiateRecommender(properties);
+        if (runner == null) {
+            throw new RecommenderException("Recommender could not be instantiated: " + getName());
+        }
+        return runner.run(AbstractRunner.RUN_OPTIONS.RETURN_RECS, FoldNode.getTraining(inputValues.get(0)), FoldNode.getTest(inputValues.get(0)));
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the recommendations of a run one user at a time, as they are
+ * written to a {@link RecommendationSink}. Every user is received once, and
+ * the calls come from the thread writing to the sink.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public interface RecommendationListener {
+
+    /**
+     * Receives the recommendations of a user.
+     *
+     * @param user the user
+     * @param recommendations the recommendations (the list must not be
+     * modified)
+     * @throws IOException when the recommendations cannot be processed
+     */
+    void recommended(long user, List<RecommenderIO.Preference<Long, Long>> recommendations) throws IOException;
+}
@@ -23,7 +23,10 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import net.recommenders.rival.recommend.frameworks.lenskit.LenskitRecommenderRunner;
 import net.recommenders.rival.recommend.frameworks.mahout.MahoutRecommenderRunner;
+import net.recommenders.rival.recommend.frameworks.rival.ItemKnnRecommenderRunner;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -69,6 +72,46 @@ public final class RecommendationRunner {
      * The property key for the output.
      */
     public static final String OUTPUT = "output";
+    /**
+     * The property key for the number of threads used to generate
+     * recommendations.
+     */
+    public static final String THREADS = "recommendation.threads";
+    /**
+     * The property key for the number of users handed to a thread at once.
+     */
+    public static final String USER_BATCH = "recommendation.userbatch";
+    /**
+     * The property key for the maximum number of recommendations per user.
+     */
+    public static final String CUTOFF = "recommendation.cutoff";
+    /**
+     * The property key for the candidate items to be scored for each user
+     * (see {@link AbstractRunner#CANDIDATES_ALL},
+     * {@link AbstractRunner#CANDIDATES_USER_TEST} and
+     * {@link AbstractRunner#CANDIDATES_TEST_ITEMS}).
+     */
+    public static final String CANDIDATES = "recommendation.candidates";
+    /**
+     * The property key for the format of the recommendation files
+     * ({@link RecommendationSink#FORMAT_TEXT} or
+     * {@link RecommendationSink#FORMAT_BINARY}).
+     */
+    public static final String OUTPUT_FORMAT = "recommendation.output.format";
+    /**
+     * The property key to compress the recommendation files.
+     */
+    public static final String OUTPUT_COMPRESS = "recommendation.output.compress";
+    /**
+     * The property key for the size (in bytes) of the buffer used to write
+     * the recommendation files.
+     */
+    public static final String OUTPUT_BUFFER = "recommendation.output.buffer";
+    /**
+     * The property key for the directory where trained models are cached
+     * (see {@link ModelCache}).
+     */
+    public static final String MODEL_CACHE = "recommendation.model.cache";
     /**
      * The property key for the framework.
      */
@@ -82,14 +125,9 @@ public final class RecommendationRunner {
      */
     public static final String LENSKIT = "lenskit";
     /**
-     * The canonical path.
+     * The property key for RiVal's own recommenders.
      */
-    private static String statPath;
-    /**
-     * The execution time.
-     */
-    private static long time;
-
+    public static final String RIVAL = "rival";
     /**
      * Utility classes should not have a public or default constructor.
      */
@@ -129,23 +167,28 @@ public final class RecommendationRunner {
     }
 
     /**
-     * Run recommendations based on an already instantiated recommender.
+     * Run recommendations based on an already instantiated recommender. The
+     * statistics of the run (see {@link AbstractRunner#getStatistics()}) are
+     * available through JMX while it is in progress, and are written to its
+     * {@code .stats} file when it finishes.
      *
      * @param rr abstract recommender already initialized
      */
     public static void run(final AbstractRunner rr) {
-        time = System.currentTimeMillis();
-        boolean statsExist = false;
-        statPath = rr.getCanonicalFileName();
-        statsExist = rr.isAlreadyRecommended();
+        // local state, several runners may run at the same time (see RecommenderScheduler)
+        String statPath = rr.getCanonicalFileName();
+        boolean statsExist = rr.isAlreadyRecommended();
+        RunStatistics stats = rr.getStatistics();
+        stats.start();
         try {
             rr.run(AbstractRunner.RUN_OPTIONS.OUTPUT_RECS);
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            stats.stop();
         }
-        time = System.currentTimeMillis() - time;
         if (!statsExist) {
-            writeStats(statPath, "time", time);
+            writeStats(statPath, stats.toStats());
         }
     }
 
@@ -175,6 +218,8 @@ public final class RecommendationRunner {
             rr = new MahoutRecommenderRunner(properties);
         } else if (properties.getProperty(FRAMEWORK).equals(LENSKIT)) {
             rr = new LenskitRecommenderRunner(properties);
+        } else if (properties.getProperty(FRAMEWORK).equals(RIVAL)) {
+            rr = new ItemKnnRecommenderRunner(properties);
         }
         return rr;
     }
@@ -187,10 +232,23 @@ public final class RecommendationRunner {
      * @param stat the value
      */
     public static void writeStats(final String path, final String statLabel, final long stat) {
+        writeStats(path, Collections.singletonMap(statLabel, stat));
+    }
+
+    /**
+     * Write several system stats to file, one per line and in the order of
+     * the map (see {@link RunStatistics#toStats()}).
+     *
+     * @param path the path to write to
+     * @param stats the values, by label
+     */
+    public static void writeStats(final String path, final Map<String, Long> stats) {
         BufferedWriter out = null;
         try {
             out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path, true), "UTF-8"));
-            out.write(statLabel + "\t" + stat + "\n");
+            for (Map.Entry<String, Long> e : stats.entrySet()) {
+                out.write(e.getKey() + "\t" + e.getValue() + "\n");
+            }
             out.flush();
             out.close();
         } catch (IOException e) {
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import net.recommenders.rival.core.DataModelIF;
+
+/**
+ * Destination of the recommendations generated in a run. The output file is
+ * opened once and kept open until the sink is closed; records are formatted
+ * directly into a large byte buffer, which is written when it is full.
+ *
+ * Two formats are available: {@link #FORMAT_TEXT}, with the same lines as
+ * {@link RecommenderIO#writeData(long, java.util.List, java.lang.String, java.lang.String, boolean, net.recommenders.rival.core.DataModelIF)}
+ * (user, item and score separated by tabs), and {@link #FORMAT_BINARY}, with
+ * a header ({@link #BINARY_MAGIC}) followed by fixed-size records (user and
+ * item as longs, score as a double, big-endian), which can be read with
+ * {@link RecommenderIO#readBinaryData(java.io.File, net.recommenders.rival.core.DataModelIF)}.
+ * Both of them can be compressed with GZIP. The recommendations can also be
+ * passed, one user at a time, to a {@link RecommendationListener}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class RecommendationSink implements Closeable {
+
+    /**
+     * Text format (also used as file extension).
+     */
+    public static final String FORMAT_TEXT = "tsv";
+    /**
+     * Binary format (also used as file extension).
+     */
+    public static final String FORMAT_BINARY = "bin";
+    /**
+     * Extension of compressed files.
+     */
+    public static final String COMPRESSED_EXTENSION = ".gz";
+    /**
+     * First four bytes of a binary file.
+     */
+    public static final int BINARY_MAGIC = 0x52565201;
+    /**
+     * Default size of the buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    /**
+     * Maximum size of a record in the text format, in bytes (two longs, a
+     * double, and separators).
+     */
+    private static final int MAX_TEXT_RECORD = 20 + 1 + 20 + 1 + 32 + 1;
+
+    /**
+     * The output stream (null if recommendations are not printed).
+     */
+    private final OutputStream out;
+    /**
+     * True if the binary format is used.
+     */
+    private final boolean binary;
+    /**
+     * The model where recommendations are stored (null if not returned).
+     */
+    private final DataModelIF<Long, Long> model;
+    /**
+     * The buffer.
+     */
+    private final byte[] buffer;
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int count;
+    /**
+     * Scratch space to format longs.
+     */
+    private final byte[] digits = new byte[20];
+    /**
+     * Scratch space to format doubles.
+     */
+    private final StringBuilder number = new StringBuilder(32);
+    /**
+     * The listener (null if there is none).
+     */
+    private final RecommendationListener listener;
+    /**
+     * Recommendations written one at a time, not yet passed to the listener.
+     */
+    private final List<RecommenderIO.Preference<Long, Long>> block;
+    /**
+     * The user of {@link #block}.
+     */
+    private long blockUser;
+
+    /**
+     * Constructor.
+     *
+     * @param path directory where the file will be written (created if
+     * needed)
+     * @param fileName name of the file, if null recommendations will not be
+     * printed
+     * @param format the format, {@link #FORMAT_TEXT} or {@link #FORMAT_BINARY}
+     * @param compress true if the file should be compressed
+     * @param bufferSize the size of the buffer, in bytes
+     * @param model if not null, recommendations will be saved here
+     * @throws IOException when the file cannot be created
+     */
+    public RecommendationSink(final String path, final String fileName, final String format, final boolean compress,
+            final int bufferSize, final DataModelIF<Long, Long> model) throws IOException {
+        this(path, fileName, format, compress, bufferSize, model, null);
+    }
+
+    /**
+     * Constructor with a listener.
+     *
+     * @param path directory where the file will be written (created if
+     * needed)
+     * @param fileName name of the file, if null recommendations will not be
+     * printed
+     * @param format the format, {@link #FORMAT_TEXT} or {@link #FORMAT_BINARY}
+     * @param compress true if the file should be compressed
+     * @param bufferSize the size of the buffer, in bytes
+     * @param model if not null, recommendations will be saved here
+     * @param theListener if not null, recommendations will be passed to it
+     * @throws IOException when the file cannot be created
+     */
+    public RecommendationSink(final String path, final String fileName, final String format, final boolean compress,
+            final int bufferSize, final DataModelIF<Long, Long> model, final RecommendationListener theListener) throws IOException {
+        this.listener = theListener;
+        this.block = new ArrayList<>();
+        this.binary = FORMAT_BINARY.equals(format);
+        this.model = model;
+        this.buffer = new byte[Math.max(bufferSize, MAX_TEXT_RECORD)];
+        this.count = 0;
+        if ((path != null) && (fileName != null)) {
+            File dir = new File(path);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Directory " + path + " could not be created");
+            }
+            OutputStream os = new FileOutputStream(new File(dir, fileName));
+            this.out = compress ? new GZIPOutputStream(os, 1 << 16) : os;
+            if (binary) {
+                writeInt(BINARY_MAGIC);
+            }
+        } else {
+            this.out = null;
+        }
+    }
+
+    /**
+     * Writes a recommendation. The recommendations of a user must be written
+     * one after the other.
+     *
+     * @param user the user
+     * @param item the item
+     * @param score the score of the item for the user
+     * @throws IOException when the recommendation cannot be written
+     */
+    public void write(final long user, final long item, final double score) throws IOException {
+        if (listener != null) {
+            if (!block.isEmpty() && blockUser != user) {
+                flushBlock();
+            }
+            blockUser = user;
+            block.add(new RecommenderIO.Preference<>(user, item, score));
+        }
+        writeRecord(user, item, score);
+    }
+
+    /**
+     * Writes a recommendation to the model and the file.
+     *
+     * @param user the user
+     * @param item the item
+     * @param score the score of the item for the user
+     * @throws IOException when the recommendation cannot be written
+     */
+    private void writeRecord(final long user, final long item, final double score) throws IOException {
+        if (model != null) {
+            model.addPreference(user, item, score);
+        }
+        if (out == null) {
+            return;
+        }
+        if (count + MAX_TEXT_RECORD > buffer.length) {
+            flushBuffer();
+        }
+        if (binary) {
+            writeLong(user);
+            writeLong(item);
+            writeLong(Double.doubleToLongBits(score));
+        } else {
+            formatLong(user);
+            buffer[count++] = '\t';
+            formatLong(item);
+            buffer[count++] = '\t';
+            formatDouble(score);
+            buffer[count++] = '\n';
+        }
+    }
+
+    /**
+     * Writes the recommendations of a user.
+     *
+     * @param user the user
+     * @param recommendations the recommendations
+     * @throws IOException when the recommendations cannot be written
+     */
+    public void write(final long user, final List<RecommenderIO.Preference<Long, Long>> recommendations) throws IOException {
+        if (listener != null) {
+            flushBlock();
+            listener.recommended(user, recommendations);
+        }
+        for (RecommenderIO.Preference<Long, Long> recItem : recommendations) {
+            writeRecord(user, recItem.getItem(), recItem.getScore());
+        }
+    }
+
+    /**
+     * Passes the recommendations written one at a time to the listener.
+     *
+     * @throws IOException when the listener fails
+     */
+    private void flushBlock() throws IOException {
+        if (!block.isEmpty()) {
+            List<RecommenderIO.Preference<Long, Long>> recommendations = new ArrayList<>(block);
+            block.clear();
+            listener.recommended(blockUser, recommendations);
+        }
+    }
+
+    /**
+     * Writes an int in the buffer (big-endian).
+     *
+     * @param v the int
+     */
+    private void writeInt(final int v) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[count++] = (byte) (v >>> shift);
+        }
+    }
+
+    /**
+     * Writes a long in the buffer (big-endian).
+     *
+     * @param v the long
+     */
+    private void writeLong(final long v) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[count++] = (byte) (v >>> shift);
+        }
+    }
+
+    /**
+     * Formats a long in the buffer, as {@link Long#toString(long)}.
+     *
+     * @param v the long
+     */
+    private void formatLong(final long v) {
+        if (v == Long.MIN_VALUE) {
+            formatChars(Long.toString(v));
+            return;
+        }
+        long x = v;
+        if (x < 0) {
+            buffer[count++] = '-';
+            x = -x;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + (x % 10));
+            x /= 10;
+        } while (x > 0);
+        while (n > 0) {
+            buffer[count++] = digits[--n];
+        }
+    }
+
+    /**
+     * Formats a double in the buffer, as {@link Double#toString(double)}
+     * (without creating a string).
+     *
+     * @param v the double
+     */
+    private void formatDouble(final double v) {
+        number.setLength(0);
+        number.append(v);
+        formatChars(number);
+    }
+
+    /**
+     * Copies ASCII characters to the buffer.
+     *
+     * @param chars the characters
+     */
+    private void formatChars(final CharSequence chars) {
+        for (int k = 0; k < chars.length(); k++) {
+            buffer[count++] = (byte) chars.charAt(k);
+        }
+    }
+
+    /**
+     * Writes the buffer to the output stream.
+     *
+     * @throws IOException when the buffer cannot be written
+     */
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes the pending recommendations to the file.
+     *
+     * @throws IOException when the recommendations cannot be written
+     */
+    public void flush() throws IOException {
+        if (out != null) {
+            flushBuffer();
+            out.flush();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (listener != null) {
+                flushBlock();
+            }
+        } finally {
+            if (out != null) {
+                try {
+                    flushBuffer();
+                } finally {
+                    out.close();
+                }
+            }
+        }
+    }
+}
@@ -18,12 +18,18 @@ package net.recommenders.rival.recommend.frameworks;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 //import org.grouplens.lenskit.scored.ScoredId;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 import net.recommenders.rival.core.DataModelIF;
 
 /**
@@ -40,7 +46,9 @@ public final class RecommenderIO {
     }
 
     /**
-     * Write recommendations to file.
+     * Write recommendations to file. The file is opened and closed in every
+     * call, see {@link RecommendationSink} to write every recommendation of a
+     * run through the same file.
      *
      * @param user the user
      * @param recommendations the recommendations
@@ -93,6 +101,39 @@ public final class RecommenderIO {
         }
     }
 
+    /**
+     * Reads recommendations written in the binary format of
+     * {@link RecommendationSink} (compressed or not, depending on the
+     * extension of the file).
+     *
+     * @param file the file
+     * @param model the model where the recommendations are stored
+     * @return the model
+     * @throws IOException when the file cannot be read or it is not in the
+     * binary format
+     */
+    public static DataModelIF<Long, Long> readBinaryData(final File file, final DataModelIF<Long, Long> model) throws IOException {
+        InputStream is = new FileInputStream(file);
+        if (file.getName().endsWith(RecommendationSink.COMPRESSED_EXTENSION)) {
+            is = new GZIPInputStream(is, 1 << 16);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(is, RecommendationSink.DEFAULT_BUFFER_SIZE))) {
+            if (in.readInt() != RecommendationSink.BINARY_MAGIC) {
+                throw new IOException("Not a binary recommendation file: " + file);
+            }
+            while (true) {
+                long user;
+                try {
+                    user = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                model.addPreference(user, in.readLong(), in.readDouble());
+            }
+        }
+        return model;
+    }
+
     public static class Preference<U, I> {
 
         private U user;
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs several recommenders concurrently. The memory of each job is
+ * estimated from the size of its training file, and a job only starts when a
+ * worker is free and the estimated memory of the running jobs plus its own
+ * fits in the heap budget (a job that does not fit on its own runs alone).
+ * Jobs with larger training files, which usually take longer, are started
+ * first to shorten the total time. Each job writes its statistics to its
+ * {@code .stats} file, as in {@link RecommendationRunner#run(AbstractRunner)}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class RecommenderScheduler {
+
+    /**
+     * Default number of bytes of heap estimated per byte of training file.
+     */
+    public static final double DEFAULT_MEMORY_FACTOR = 32.0;
+    /**
+     * Default fraction of the maximum heap available for the running jobs.
+     */
+    public static final double DEFAULT_HEAP_FRACTION = 0.8;
+    /**
+     * Maximum number of jobs running at the same time.
+     */
+    private final int workers;
+    /**
+     * Heap (in bytes) available for the running jobs.
+     */
+    private final long heapBudget;
+    /**
+     * Bytes of heap estimated per byte of training file.
+     */
+    private final double memoryFactor;
+    /**
+     * Lock protecting the running jobs and their memory.
+     */
+    private final Object lock = new Object();
+    /**
+     * Number of running jobs.
+     */
+    private int running;
+    /**
+     * Estimated memory of the running jobs.
+     */
+    private long used;
+
+    /**
+     * Constructor.
+     *
+     * @param nWorkers maximum number of jobs running at the same time
+     * @param budget heap (in bytes) available for the running jobs
+     * @param factor bytes of heap estimated per byte of training file
+     */
+    public RecommenderScheduler(final int nWorkers, final long budget, final double factor) {
+        this.workers = Math.max(1, nWorkers);
+        this.heapBudget = budget;
+        this.memoryFactor = factor;
+    }
+
+    /**
+     * Constructor with the default memory factor and 80% of the maximum
+     * heap as budget.
+     *
+     * @param nWorkers maximum number of jobs running at the same time
+     */
+    public RecommenderScheduler(final int nWorkers) {
+        this(nWorkers, (long) (DEFAULT_HEAP_FRACTION * Runtime.getRuntime().maxMemory()), DEFAULT_MEMORY_FACTOR);
+    }
+
+    /**
+     * Estimates the heap needed by a job.
+     *
+     * @param runner the job
+     * @return the estimated memory in bytes (0 if the job has no training
+     * file or it has already been run)
+     */
+    public long estimateMemory(final AbstractRunner<?, ?> runner) {
+        if (runner.isAlreadyRecommended()) {
+            return 0L;
+        }
+        String training = runner.getProperties().getProperty(RecommendationRunner.TRAINING_SET);
+        return training == null ? 0L : (long) (memoryFactor * new File(training).length());
+    }
+
+    /**
+     * Runs the jobs and waits until all of them finish.
+     *
+     * @param runners the jobs (null jobs are ignored)
+     */
+    public void run(final Collection<? extends AbstractRunner<?, ?>> runners) {
+        List<Job> pending = new ArrayList<Job>();
+        for (AbstractRunner<?, ?> runner : runners) {
+            if (runner != null) {
+                pending.add(new Job(runner, estimateMemory(runner)));
+            }
+        }
+        // largest (longest) jobs first
+        Collections.sort(pending, new Comparator<Job>() {
+            @Override
+            public int compare(final Job a, final Job b) {
+                return Long.compare(b.memory, a.memory);
+            }
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            synchronized (lock) {
+                while (!pending.isEmpty()) {
+                    Iterator<Job> it = pending.iterator();
+                    boolean started = false;
+                    while (it.hasNext() && running < workers) {
+                        final Job job = it.next();
+                        if (running == 0 || used + job.memory <= heapBudget) {
+                            it.remove();
+                            running++;
+                            used += job.memory;
+                            pool.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        RecommendationRunner.run(job.runner);
+                                    } finally {
+                                        synchronized (lock) {
+                                            running--;
+                                            used -= job.memory;
+                                            lock.notifyAll();
+                                        }
+                                    }
+                                }
+                            });
+                            started = true;
+                        }
+                    }
+                    if (!started) {
+                        lock.wait();
+                    }
+                }
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A job with its estimated memory.
+     */
+    private static final class Job {
+
+        /**
+         * The runner.
+         */
+        private final AbstractRunner<?, ?> runner;
+        /**
+         * The estimated memory.
+         */
+        private final long memory;
+
+        /**
+         * Constructor.
+         *
+         * @param r the runner
+         * @param m the estimated memory
+         */
+        private Job(final AbstractRunner<?, ?> r, final long m) {
+            this.runner = r;
+            this.memory = m;
+        }
+    }
+}
@@ -0,0 +1,526 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instrumentation of a recommender run (see {@link AbstractRunner#getStatistics()}):
+ * the time spent in each {@link Phase}, the users recommended and the
+ * candidate items scored, and the heap and garbage collection activity
+ * between {@link #start()} and {@link #stop()}. Recommendations may be
+ * timed from several threads at once: the recommend time is the wall-clock
+ * time during which at least one thread was recommending, and the time added
+ * over the threads is given apart (see {@link #getRecommendCpuTime()}). While the run is in progress, the statistics are
+ * registered as an MBean (see {@link #getObjectName()}), so they can be
+ * watched with any JMX console. Heap and garbage collection figures are
+ * those of the whole JVM, which includes other runs executed at the same
+ * time.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class RunStatistics implements RunStatisticsMBean {
+
+    /**
+     * Domain of the MBeans.
+     */
+    public static final String JMX_DOMAIN = "net.recommenders.rival";
+    /**
+     * Logger.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(RunStatistics.class);
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /**
+     * Value of the times not yet recorded.
+     */
+    private static final long NOT_SET = Long.MIN_VALUE;
+
+    /**
+     * Phases of a run.
+     */
+    public enum Phase {
+
+        /**
+         * Reading the training and test data from file.
+         */
+        LOAD,
+        /**
+         * Converting or wrapping the data for the framework.
+         */
+        CONVERT,
+        /**
+         * Training the recommender (building models, similarities or
+         * neighborhoods).
+         */
+        TRAIN,
+        /**
+         * Scoring the candidate items of the users.
+         */
+        RECOMMEND,
+        /**
+         * Writing the recommendations.
+         */
+        WRITE;
+
+        /**
+         * Gets the label of the phase in the statistics.
+         *
+         * @return the label
+         */
+        public String getLabel() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * Name of the run.
+     */
+    private final String name;
+    /**
+     * Time (in nanoseconds) spent in each phase.
+     */
+    private final AtomicLongArray phaseTimes = new AtomicLongArray(Phase.values().length);
+    /**
+     * Users recommended.
+     */
+    private final AtomicLong users = new AtomicLong();
+    /**
+     * Candidate items scored.
+     */
+    private final AtomicLong itemsScored = new AtomicLong();
+    /**
+     * When the first recommendation started.
+     */
+    private final AtomicLong firstRecommendation = new AtomicLong(NOT_SET);
+    /**
+     * When the last recommendation (or write) finished.
+     */
+    private final AtomicLong lastRecommendation = new AtomicLong(NOT_SET);
+    /**
+     * Lock of the recommendations in progress.
+     */
+    private final Object recommendLock = new Object();
+    /**
+     * Recommendations in progress (from different threads).
+     */
+    private int recommending;
+    /**
+     * When the first of the recommendations in progress started.
+     */
+    private long recommendingSince;
+    /**
+     * Wall-clock time (in nanoseconds) with some recommendation in progress.
+     */
+    private long recommendWallTime;
+    /**
+     * Last phase started (null if none).
+     */
+    private volatile Phase phase;
+    /**
+     * When the run started.
+     */
+    private volatile long startTime = NOT_SET;
+    /**
+     * When the run finished.
+     */
+    private volatile long endTime = NOT_SET;
+    /**
+     * Heap in use when the run started.
+     */
+    private volatile long heapBefore;
+    /**
+     * Heap in use when the run finished.
+     */
+    private volatile long heapAfter;
+    /**
+     * Garbage collections before the run.
+     */
+    private volatile long gcCountBefore;
+    /**
+     * Garbage collection time (in milliseconds) before the run.
+     */
+    private volatile long gcTimeBefore;
+    /**
+     * Garbage collections during the run (once finished).
+     */
+    private volatile long gcCount;
+    /**
+     * Garbage collection time during the run (once finished).
+     */
+    private volatile long gcTime;
+    /**
+     * Name of the registered MBean (null if not registered).
+     */
+    private ObjectName objectName;
+
+    /**
+     * Constructor.
+     *
+     * @param runName name of the run
+     */
+    public RunStatistics(final String runName) {
+        this.name = runName;
+    }
+
+    /**
+     * Starts the run: records the heap and garbage collection activity and
+     * registers the MBean.
+     */
+    public synchronized void start() {
+        heapBefore = getUsedHeap();
+        gcCountBefore = getTotalGcCount();
+        gcTimeBefore = getTotalGcTime();
+        endTime = NOT_SET;
+        startTime = System.nanoTime();
+        try {
+            objectName = getObjectName();
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException e) {
+            objectName = null;
+            LOG.warn("Statistics of " + name + " not available through JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finishes the run: records the heap and garbage collection activity and
+     * unregisters the MBean.
+     */
+    public synchronized void stop() {
+        endTime = System.nanoTime();
+        gcCount = getTotalGcCount() - gcCountBefore;
+        gcTime = getTotalGcTime() - gcTimeBefore;
+        heapAfter = getUsedHeap();
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warn("MBean " + objectName + " could not be unregistered: " + e.getMessage());
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * Gets the name of the MBean of these statistics.
+     *
+     * @return the name
+     * @throws JMException when the name of the run is not valid
+     */
+    public ObjectName getObjectName() throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=RecommendationRun,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Enters a phase, see {@link #end(net.recommenders.rival.recommend.frameworks.RunStatistics.Phase, long)}.
+     *
+     * @param p the phase
+     * @return the current time, in nanoseconds
+     */
+    public long begin(final Phase p) {
+        phase = p;
+        long now = System.nanoTime();
+        if (p == Phase.RECOMMEND) {
+            firstRecommendation.compareAndSet(NOT_SET, now);
+            synchronized (recommendLock) {
+                if (recommending++ == 0) {
+                    recommendingSince = now;
+                }
+            }
+        }
+        return now;
+    }
+
+    /**
+     * Adds the time since a phase was entered to the phase.
+     *
+     * @param p the phase
+     * @param since the time returned by {@link #begin(net.recommenders.rival.recommend.frameworks.RunStatistics.Phase)}
+     * @return the current time, in nanoseconds
+     */
+    public long end(final Phase p, final long since) {
+        long now = System.nanoTime();
+        phaseTimes.addAndGet(p.ordinal(), now - since);
+        if (p == Phase.RECOMMEND) {
+            synchronized (recommendLock) {
+                if (recommending > 0 && --recommending == 0) {
+                    recommendWallTime += now - recommendingSince;
+                }
+            }
+        }
+        if (p == Phase.RECOMMEND || p == Phase.WRITE) {
+            long last = lastRecommendation.get();
+            while ((last == NOT_SET || last < now) && !lastRecommendation.compareAndSet(last, now)) {
+                last = lastRecommendation.get();
+            }
+        }
+        return now;
+    }
+
+    /**
+     * Counts recommended users.
+     *
+     * @param nUsers the number of users
+     * @param nItems the number of candidate items scored for them (when
+     * every item is a candidate, the number of items in training per user)
+     */
+    public void recommended(final long nUsers, final long nItems) {
+        users.addAndGet(nUsers);
+        itemsScored.addAndGet(nItems);
+    }
+
+    /**
+     * Gets the time spent in a phase (for {@link Phase#RECOMMEND}, the
+     * wall-clock time, see {@link #getRecommendCpuTime()}).
+     *
+     * @param p the phase
+     * @return the time, in milliseconds
+     */
+    public long getTime(final Phase p) {
+        if (p == Phase.RECOMMEND) {
+            synchronized (recommendLock) {
+                return recommendWallTime / NANOS_PER_MILLI;
+            }
+        }
+        return phaseTimes.get(p.ordinal()) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Gets the statistics to be written in the {@code .stats} file, in
+     * order: the total time ("time"), the time of each phase
+     * ("time.load", ...) with the recommend time added over the threads
+     * after the recommend time ("time.recommend.cpu"), users, items scored, users per second (rounded),
+     * heap before and after (in bytes), and number and time of garbage
+     * collections.
+     *
+     * @return the statistics, by label
+     */
+    public Map<String, Long> toStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("time", getElapsedTime());
+        for (Phase p : Phase.values()) {
+            stats.put("time." + p.getLabel(), getTime(p));
+            if (p == Phase.RECOMMEND) {
+                stats.put("time." + p.getLabel() + ".cpu", getRecommendCpuTime());
+            }
+        }
+        stats.put("users", getUsers());
+        stats.put("items.scored", getItemsScored());
+        stats.put("users.per.second", Math.round(getUsersPerSecond()));
+        stats.put("heap.before", getHeapBefore());
+        stats.put("heap.after", getHeapUsed());
+        stats.put("gc.count", getGcCount());
+        stats.put("gc.time", getGcTime());
+        return stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPhase() {
+        if (endTime != NOT_SET) {
+            return "finished";
+        }
+        Phase p = phase;
+        return p == null ? "started" : p.getLabel();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getElapsedTime() {
+        if (startTime == NOT_SET) {
+            return 0L;
+        }
+        return ((endTime == NOT_SET ? System.nanoTime() : endTime) - startTime) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLoadTime() {
+        return getTime(Phase.LOAD);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getConvertTime() {
+        return getTime(Phase.CONVERT);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTrainTime() {
+        return getTime(Phase.TRAIN);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRecommendTime() {
+        return getTime(Phase.RECOMMEND);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRecommendCpuTime() {
+        return phaseTimes.get(Phase.RECOMMEND.ordinal()) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWriteTime() {
+        return getTime(Phase.WRITE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getUsers() {
+        return users.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getItemsScored() {
+        return itemsScored.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getUsersPerSecond() {
+        long first = firstRecommendation.get();
+        long last = lastRecommendation.get();
+        if (first == NOT_SET || last == NOT_SET || last <= first) {
+            return 0.0;
+        }
+        return getUsers() * NANOS_PER_SECOND / (last - first);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHeapBefore() {
+        return heapBefore;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHeapUsed() {
+        return endTime == NOT_SET ? getUsedHeap() : heapAfter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getGcCount() {
+        if (startTime == NOT_SET) {
+            return 0L;
+        }
+        return endTime == NOT_SET ? getTotalGcCount() - gcCountBefore : gcCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getGcTime() {
+        if (startTime == NOT_SET) {
+            return 0L;
+        }
+        return endTime == NOT_SET ? getTotalGcTime() - gcTimeBefore : gcTime;
+    }
+
+    /**
+     * Gets the heap in use.
+     *
+     * @return the heap, in bytes
+     */
+    private static long getUsedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Gets the number of garbage collections since the JVM started.
+     *
+     * @return the number of collections
+     */
+    private static long getTotalGcCount() {
+        long n = 0L;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            n += Math.max(0L, gc.getCollectionCount());
+        }
+        return n;
+    }
+
+    /**
+     * Gets the time spent in garbage collection since the JVM started.
+     *
+     * @return the time, in milliseconds
+     */
+    private static long getTotalGcTime() {
+        long t = 0L;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            t += Math.max(0L, gc.getCollectionTime());
+        }
+        return t;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+/**
+ * Management interface of a {@link RunStatistics}, exposed through JMX while
+ * the run is in progress. Times are in milliseconds and memory in bytes.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public interface RunStatisticsMBean {
+
+    /**
+     * Gets the name of the run (the name of its output file).
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Gets the phase the run is in.
+     *
+     * @return the name of the phase, "finished" when the run is over
+     */
+    String getPhase();
+
+    /**
+     * Gets the time since the run started (until it finished).
+     *
+     * @return the time
+     */
+    long getElapsedTime();
+
+    /**
+     * Gets the time spent loading the data from file.
+     *
+     * @return the time
+     */
+    long getLoadTime();
+
+    /**
+     * Gets the time spent converting or wrapping the data for the framework.
+     *
+     * @return the time
+     */
+    long getConvertTime();
+
+    /**
+     * Gets the time spent training the recommender.
+     *
+     * @return the time
+     */
+    long getTrainTime();
+
+    /**
+     * Gets the time spent generating recommendations (wall-clock, when
+     * several threads recommend at the same time).
+     *
+     * @return the time
+     */
+    long getRecommendTime();
+
+    /**
+     * Gets the time spent generating recommendations, added over the
+     * threads.
+     *
+     * @return the time
+     */
+    long getRecommendCpuTime();
+
+    /**
+     * Gets the time spent writing recommendations.
+     *
+     * @return the time
+     */
+    long getWriteTime();
+
+    /**
+     * Gets the number of users recommended so far.
+     *
+     * @return the number of users
+     */
+    long getUsers();
+
+    /**
+     * Gets the number of candidate items scored so far.
+     *
+     * @return the number of items
+     */
+    long getItemsScored();
+
+    /**
+     * Gets the number of users recommended per second since the first
+     * recommendation.
+     *
+     * @return the number of users per second
+     */
+    double getUsersPerSecond();
+
+    /**
+     * Gets the heap in use when the run started.
+     *
+     * @return the heap
+     */
+    long getHeapBefore();
+
+    /**
+     * Gets the heap in use now (or when the run finished).
+     *
+     * @return the heap
+     */
+    long getHeapUsed();
+
+    /**
+     * Gets the number of garbage collections since the run started.
+     *
+     * @return the number of collections
+     */
+    long getGcCount();
+
+    /**
+     * Gets the time spent in garbage collection since the run started.
+     *
+     * @return the time
+     */
+    long getGcTime();
+}
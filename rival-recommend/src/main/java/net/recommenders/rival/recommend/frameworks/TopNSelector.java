@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selection of the N items with the highest scores. Items are kept in a
+ * bounded min-heap (on primitive arrays), so adding an item costs O(log N)
+ * and the memory does not depend on the number of candidate items.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class TopNSelector {
+
+    /**
+     * Maximum number of items to keep (not positive means no limit).
+     */
+    private final int n;
+    /**
+     * Items in the heap.
+     */
+    private long[] items;
+    /**
+     * Scores of the items in the heap.
+     */
+    private double[] scores;
+    /**
+     * Number of items in the heap.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param cutoff maximum number of items to keep; if it is not positive,
+     * every item is kept
+     */
+    public TopNSelector(final int cutoff) {
+        this.n = cutoff;
+        int capacity = cutoff > 0 ? cutoff : 16;
+        this.items = new long[capacity];
+        this.scores = new double[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Checks if an element of the heap should be ranked below another one:
+     * lower score or, for the same score, greater item id.
+     *
+     * @param a position of the first element
+     * @param b position of the second element
+     * @return true if the first element is ranked below the second one
+     */
+    private boolean below(final int a, final int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && items[a] > items[b]);
+    }
+
+    /**
+     * Adds an item; if the selector is full, the item replaces the lowest
+     * ranked one only when its score is higher.
+     *
+     * @param item the item
+     * @param score the score of the item
+     */
+    public void add(final long item, final double score) {
+        if (Double.isNaN(score)) {
+            return;
+        }
+        if (n <= 0 || size < n) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, 2 * size);
+                scores = Arrays.copyOf(scores, 2 * size);
+            }
+            items[size] = item;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0] || (score == scores[0] && item < items[0])) {
+            items[0] = item;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Moves an element up in the heap.
+     *
+     * @param pos the position of the element
+     */
+    private void siftUp(final int pos) {
+        int k = pos;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!below(k, parent)) {
+                break;
+            }
+            swap(k, parent);
+            k = parent;
+        }
+    }
+
+    /**
+     * Moves an element down in the heap.
+     *
+     * @param pos the position of the element
+     * @param length the number of elements of the heap
+     */
+    private void siftDown(final int pos, final int length) {
+        int k = pos;
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && below(child + 1, child)) {
+                child++;
+            }
+            if (!below(child, k)) {
+                break;
+            }
+            swap(k, child);
+            k = child;
+        }
+    }
+
+    /**
+     * Swaps two elements of the heap.
+     *
+     * @param a position of the first element
+     * @param b position of the second element
+     */
+    private void swap(final int a, final int b) {
+        long item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    /**
+     * Gets the number of selected items.
+     *
+     * @return the number of selected items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every item.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the selected items sorted by decreasing score (ties are sorted by
+     * increasing item id) and clears the selector.
+     *
+     * @param user the user the items are recommended to
+     * @return the selected items as preferences of the user
+     */
+    public List<RecommenderIO.Preference<Long, Long>> toPreferences(final long user) {
+        sort();
+        List<RecommenderIO.Preference<Long, Long>> prefs = new ArrayList<>(size);
+        for (int k = 0; k < size; k++) {
+            prefs.add(new RecommenderIO.Preference<>(user, items[k], scores[k]));
+        }
+        size = 0;
+        return prefs;
+    }
+
+    /**
+     * Copies the selected items sorted by decreasing score (ties are sorted by
+     * increasing item id) and clears the selector.
+     *
+     * @param outItems where the items are copied (at least {@link #size()}
+     * long)
+     * @param outScores where the scores are copied (at least {@link #size()}
+     * long)
+     * @return the number of items copied
+     */
+    public int drainTo(final long[] outItems, final double[] outScores) {
+        sort();
+        int copied = size;
+        System.arraycopy(items, 0, outItems, 0, copied);
+        System.arraycopy(scores, 0, outScores, 0, copied);
+        size = 0;
+        return copied;
+    }
+
+    /**
+     * Sorts the heap by decreasing rank (heap sort: the lowest ranked element
+     * is moved to the end each time).
+     */
+    private void sort() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+}
@@ -16,14 +16,15 @@
 package net.recommenders.rival.recommend.frameworks.lenskit;
 
 import it.unimi.dsi.fastutil.longs.LongSet;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import net.recommenders.rival.core.TemporalDataModelIF;
 import org.lenskit.data.dao.DataAccessObject;
 import org.lenskit.data.dao.EntityCollectionDAO;
+import org.lenskit.data.dao.EntityCollectionDAOBuilder;
 import org.lenskit.data.dao.EntityQuery;
 import org.lenskit.data.dao.Query;
+import org.lenskit.data.entities.CommonAttributes;
 import org.lenskit.data.entities.Entity;
 import org.lenskit.data.entities.EntityType;
 import org.lenskit.data.entities.TypedName;
@@ -54,11 +55,17 @@ public class EventDAOWrapper implements DataAccessObject {
      * @param model the model to be used to create the wrapped model
      */
     public EventDAOWrapper(final TemporalDataModelIF<Long, Long> model) {
-        List<Rating> events = new ArrayList<>();
+        // ratings are packed into primitive columns as they are added, no list of events is kept
+        EntityCollectionDAOBuilder builder = EntityCollectionDAO.newBuilder();
+        builder.addEntityLayout(Rating.ENTITY_TYPE, Rating.ATTRIBUTES, RatingBuilder.class);
+        builder.addIndex(Rating.ENTITY_TYPE, CommonAttributes.USER_ID);
+        builder.addIndex(Rating.ENTITY_TYPE, CommonAttributes.ITEM_ID);
         RatingBuilder rb = new RatingBuilder();
+        long id = 0L;
         for (Long u : model.getUsers()) {
             rb.setUserId(u);
             for (Long i : model.getUserItems(u)) {
+                rb.setId(++id);
                 rb.setItemId(i);
                 rb.setRating(model.getUserItemPreference(u, i));
                 Iterable<Long> timestamps = model.getUserItemTimestamps(u, i);
@@ -70,10 +77,10 @@ public class EventDAOWrapper implements DataAccessObject {
                     }
                 }
                 rb.setTimestamp(t);
-                events.add(rb.build());
+                builder.addEntity(rb.build());
             }
         }
-        wrapper = EntityCollectionDAO.create(events);
+        wrapper = builder.build();
     }
 
     /**
@@ -1,15 +1,17 @@
 package net.recommenders.rival.recommend.frameworks.lenskit;
 import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 import java.util.Properties;
+import java.util.Set;
 import net.recommenders.rival.core.DataModelFactory;
 import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.TemporalDataModelIF;
 import net.recommenders.rival.recommend.frameworks.AbstractRunner;
+import net.recommenders.rival.recommend.frameworks.ModelCache;
 import net.recommenders.rival.recommend.frameworks.RecommendationRunner;
-import net.recommenders.rival.recommend.frameworks.RecommenderIO;
+import net.recommenders.rival.recommend.frameworks.RecommendationSink;
+import net.recommenders.rival.recommend.frameworks.RunStatistics;
 import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
 import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
 import org.grouplens.lenskit.iterative.IterationCount;
@@ -18,15 +20,18 @@ import org.grouplens.lenskit.iterative.StoppingCondition;
 import org.lenskit.LenskitConfiguration;
 import org.lenskit.LenskitRecommender;
 import org.lenskit.LenskitRecommenderEngine;
+import org.lenskit.RecommenderConfigurationException;
 import org.lenskit.api.ItemRecommender;
 import org.lenskit.api.ItemScorer;
 import org.lenskit.api.RecommenderBuildException;
 import org.lenskit.api.Result;
+import org.lenskit.api.ResultList;
 import org.lenskit.baseline.BaselineScorer;
 import org.lenskit.baseline.UserMeanItemScorer;
 import org.lenskit.data.dao.DataAccessObject;
 import org.lenskit.data.dao.file.StaticDataSource;
 import org.lenskit.data.dao.file.TextEntitySource;
+import org.lenskit.data.ratings.Rating;
 import org.lenskit.data.ratings.RatingSummary;
 import org.lenskit.data.ratings.RatingVectorPDAO;
 import org.lenskit.data.ratings.StandardRatingVectorPDAO;
@@ -73,6 +78,7 @@ public class LenskitRecommenderRunner extends AbstractRunner<Long, Long> {
     if (isAlreadyRecommended()) {
       return null;
     }
+    long t = getStatistics().begin(RunStatistics.Phase.LOAD);
     File trainingFile = new File(getProperties().getProperty(RecommendationRunner.TRAINING_SET));
     File testFile = new File(getProperties().getProperty(RecommendationRunner.TEST_SET));
     TextEntitySource tesTraining = new TextEntitySource();
@@ -87,6 +93,7 @@ public class LenskitRecommenderRunner extends AbstractRunner<Long, Long> {
     StaticDataSource sourceTest = new StaticDataSource("test");
     sourceTest.addSource(tesTest);
     DataAccessObject test = sourceTest.get();
+    getStatistics().end(RunStatistics.Phase.LOAD, t);
     return runLenskitRecommender(opts, base, test);
   }
 
@@ -106,8 +113,10 @@ public class LenskitRecommenderRunner extends AbstractRunner<Long, Long> {
     if (isAlreadyRecommended()) {
       return null;
     }
+    long t = getStatistics().begin(RunStatistics.Phase.CONVERT);
     DataAccessObject trainingModelLensKit = new EventDAOWrapper(trainingModel);
     DataAccessObject testModelLensKit = new EventDAOWrapper(testModel);
+    getStatistics().end(RunStatistics.Phase.CONVERT, t);
     return runLenskitRecommender(opts, trainingModelLensKit, testModelLensKit);
   }
 
@@ -133,6 +142,8 @@ public class LenskitRecommenderRunner extends AbstractRunner<Long, Long> {
     if (isAlreadyRecommended()) {
       return null;
     }
+    RunStatistics stats = getStatistics();
+    long t = stats.begin(RunStatistics.Phase.TRAIN);
     LenskitConfiguration config = new LenskitConfiguration();
     int nItems = RatingSummary.create(trainingModel).getItems().size();
     try {
@@ -168,7 +179,7 @@ public class LenskitRecommenderRunner extends AbstractRunner<Long, Long> {
     RatingVectorPDAO test = new StandardRatingVectorPDAO(testModel);
     LenskitRecommender rec = null;
     try {
-      LenskitRecommenderEngine engine = LenskitRecommenderEngine.build(config, trainingModel);
+      LenskitRecommenderEngine engine = buildEngine(config, trainingModel);
       rec = engine.createRecommender(trainingModel);
     } catch (RecommenderBuildException e) {
       LOGGER.error(e.getMessage());
@@ -176,13 +187,11 @@ public class LenskitRecommenderRunner extends AbstractRunner<Long, Long> {
       throw new RecommenderException("Problem with LenskitRecommenderEngine: " + e.getMessage());
     }
     ItemRecommender irec = null;
-    ItemScorer iscore = null;
     if (rec != null) {
       irec = rec.getItemRecommender();
-      iscore = rec.getItemScorer();
     }
     assert irec != null;
-    assert iscore != null;
+    stats.end(RunStatistics.Phase.TRAIN, t);
     DataModelIF<Long, Long> model = null;
     switch (opts) {
       case RETURN_AND_OUTPUT_RECS:
@@ -201,21 +210,66 @@ public class LenskitRecommenderRunner extends AbstractRunner<Long, Long> {
       default:
       name = null;
     }
-    boolean createFile = true;
-    for (IdBox<Long2DoubleMap> u : test.streamUsers()) {
-      long user = u.getId();
-      List<Long> recItems = irec.recommend(user);
-      List<RecommenderIO.Preference<Long, Long>> prefs = new ArrayList<>();
-      for (Long i : recItems) {
-        Result r = iscore.score(user, i);
-        if (r != null) {
-          double s = r.getScore();
-          prefs.add(new RecommenderIO.Preference<>(user, i, s));
+    int cutoff = getCutoff();
+    String candidates = getCandidates();
+    // LensKit keeps the top-N items while scoring, so the scores are taken from the same pass
+    Set<Long> testItems = CANDIDATES_TEST_ITEMS.equals(candidates) ? RatingSummary.create(testModel).getItems() : null;
+    try (RecommendationSink sink = openSink(name, model)) {
+      for (IdBox<Long2DoubleMap> u : test.streamUsers()) {
+        long user = u.getId();
+        Set<Long> userCandidates = CANDIDATES_USER_TEST.equals(candidates) ? u.getValue().keySet() : testItems;
+        t = stats.begin(RunStatistics.Phase.RECOMMEND);
+        ResultList results = irec.recommendWithDetails(user, cutoff > 0 ? cutoff : -1, userCandidates, null);
+        stats.recommended(1, userCandidates == null ? nItems : userCandidates.size());
+        t = stats.end(RunStatistics.Phase.RECOMMEND, t);
+        for (Result r : results) {
+          sink.write(user, r.getId(), r.getScore());
         }
+        stats.end(RunStatistics.Phase.WRITE, t);
       }
-      RecommenderIO.writeData(user, prefs, getPath(), name, !createFile, model);
-      createFile = false;
+    } catch (IOException e) {
+      throw new RecommenderException("Could not write recommendations: " + e.getMessage());
     }
     return model;
   }
+
+  /**
+     * Builds the recommender engine, or loads it from the model cache (see
+     * {@link RecommendationRunner#MODEL_CACHE}) when it was built in a
+     * previous run with the same training data and parameters.
+     *
+     * @param config the configuration of the recommender
+     * @param trainingModel the training data
+     * @return the engine
+     * @throws RecommenderBuildException when the engine cannot be built
+     */
+  private LenskitRecommenderEngine buildEngine(final LenskitConfiguration config, final DataAccessObject trainingModel) throws RecommenderBuildException {
+    ModelCache cache = getModelCache();
+    if (cache == null) {
+      return LenskitRecommenderEngine.build(config, trainingModel);
+    }
+    long hash = 0L;
+    long n = 0L;
+    for (Rating r : trainingModel.query(Rating.class).get()) {
+      hash += ModelCache.fingerprint(r.getUserId(), r.getItemId(), r.getValue());
+      n++;
+    }
+    String key = ModelCache.key(RecommendationRunner.LENSKIT, getProperties().getProperty(RecommendationRunner.RECOMMENDER), getProperties().getProperty(RecommendationRunner.SIMILARITY), getProperties().getProperty(RecommendationRunner.NEIGHBORHOOD), getProperties().getProperty(RecommendationRunner.FACTORS), DEFAULT_ITERATIONS, Long.toHexString(hash) + "-" + n);
+    File file = cache.getFile(key, "engine");
+    if (file.exists()) {
+      try {
+        return LenskitRecommenderEngine.load(file);
+      } catch (IOException | RecommenderConfigurationException e) {
+        LOGGER.warn("Cached engine " + file + " could not be loaded: " + e.getMessage());
+      }
+    }
+    LenskitRecommenderEngine engine = LenskitRecommenderEngine.build(config, trainingModel);
+    try {
+      engine.write(cache.getTemporaryFile(key, "engine"));
+      cache.commit(key, "engine");
+    } catch (IOException e) {
+      LOGGER.warn("Engine could not be cached: " + e.getMessage());
+    }
+    return engine;
+  }
 }
\ No newline at end of file
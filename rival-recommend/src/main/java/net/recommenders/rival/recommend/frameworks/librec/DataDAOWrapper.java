@@ -16,16 +16,12 @@
 package net.recommenders.rival.recommend.frameworks.librec;
 
 import com.google.common.collect.BiMap;
-import java.io.File;
-import java.io.PrintStream;
 import net.librec.common.LibrecException;
 import net.librec.conf.Configuration;
-import net.librec.conf.Configured;
 import net.librec.data.DataAppender;
 import net.librec.data.DataContext;
 import net.librec.data.DataModel;
 import net.librec.data.DataSplitter;
-import net.librec.data.model.TextDataModel;
 import net.librec.math.structure.DataSet;
 import net.recommenders.rival.core.TemporalDataModelIF;
 
@@ -51,35 +47,15 @@ public class DataDAOWrapper implements DataModel {
      */
     public DataDAOWrapper(final TemporalDataModelIF<Long, Long> model) {
         super();
+        // build LibRec's structures directly from the model (no temporary file)
+        Configuration confTraining = new Configuration();
+        confTraining.set("data.model.splitter", "ratio");
+        confTraining.set("data.splitter.trainset.ratio", "0.999");
+        confTraining.set("data.splitter.ratio", "rating");
+        wrapper = new InMemoryDataModel(model, confTraining);
         try {
-            // generate file based on the model
-            File path = File.createTempFile("librec", "datadao");
-            PrintStream out = new PrintStream(path);
-            for (Long u : model.getUsers()) {
-                for (Long i : model.getUserItems(u)) {
-                    Double d = model.getUserItemPreference(u, i);
-                    Iterable<Long> time = model.getUserItemTimestamps(u, i);
-                    if (time == null) {
-                        out.println(u + "\t" + i + "\t" + d);
-                    } else {
-                        for (Long t : time) {
-                            out.println(u + "\t" + i + "\t" + d + "\t" + t);
-                            break;
-                        }
-                    }
-                }
-            }
-            out.close();
-            // create the wrapper based on this file
-            Configuration confTraining = new Configuration();
-            confTraining.set(Configured.CONF_DATA_INPUT_PATH, path.getAbsolutePath());
-            confTraining.set(Configured.CONF_DATA_COLUMN_FORMAT, "UIR");
-            confTraining.set("data.model.splitter", "ratio");
-            confTraining.set("data.splitter.trainset.ratio", "0.999");
-            confTraining.set("data.splitter.ratio", "rating");
-            wrapper = new TextDataModel(confTraining);
             wrapper.buildDataModel();
-        } catch (Exception e) {
+        } catch (LibrecException e) {
             e.printStackTrace();
         }
     }
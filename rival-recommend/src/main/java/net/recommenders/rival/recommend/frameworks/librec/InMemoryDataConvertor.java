@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.librec;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Table;
+import java.io.IOException;
+import net.librec.data.convertor.AbstractDataConvertor;
+import net.librec.math.structure.SparseMatrix;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * LibRec convertor that builds the preference and datetime matrices directly
+ * from a RiVal model, without writing and parsing a text file. Inner ids are
+ * assigned in the order in which users and items are iterated in the model,
+ * as LibRec's text convertor does with the lines of a file.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class InMemoryDataConvertor extends AbstractDataConvertor {
+
+    /**
+     * The model to convert.
+     */
+    private final TemporalDataModelIF<Long, Long> model;
+    /**
+     * Mapping from user ids to inner ids.
+     */
+    private BiMap<String, Integer> userIds;
+    /**
+     * Mapping from item ids to inner ids.
+     */
+    private BiMap<String, Integer> itemIds;
+
+    /**
+     * Constructor.
+     *
+     * @param dataModel the model to convert
+     */
+    public InMemoryDataConvertor(final TemporalDataModelIF<Long, Long> dataModel) {
+        this.model = dataModel;
+    }
+
+    /**
+     * Gets the inner id of a user or item, assigning a new one if needed.
+     *
+     * @param ids the mapping of ids
+     * @param id the user or item
+     * @return the inner id
+     */
+    private static int innerId(final BiMap<String, Integer> ids, final Long id) {
+        String key = id.toString();
+        Integer inner = ids.get(key);
+        if (inner == null) {
+            inner = ids.size();
+            ids.put(key, inner);
+        }
+        return inner;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void processData() throws IOException {
+        userIds = HashBiMap.create();
+        itemIds = HashBiMap.create();
+        Table<Integer, Integer, Double> prefs = HashBasedTable.create();
+        Table<Integer, Integer, Double> times = HashBasedTable.create();
+        Multimap<Integer, Integer> colMap = HashMultimap.create();
+        Multimap<Integer, Integer> timeColMap = HashMultimap.create();
+        for (Long u : model.getUsers()) {
+            int row = innerId(userIds, u);
+            for (Long i : model.getUserItems(u)) {
+                int col = innerId(itemIds, i);
+                prefs.put(row, col, model.getUserItemPreference(u, i));
+                colMap.put(col, row);
+                Iterable<Long> time = model.getUserItemTimestamps(u, i);
+                if (time != null) {
+                    for (Long t : time) {
+                        times.put(row, col, t.doubleValue());
+                        timeColMap.put(col, row);
+                        break;
+                    }
+                }
+            }
+        }
+        preferenceMatrix = new SparseMatrix(userIds.size(), itemIds.size(), prefs, colMap);
+        datetimeMatrix = new SparseMatrix(userIds.size(), itemIds.size(), times, timeColMap);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void progress() {
+        // the conversion is not reported
+    }
+
+    /**
+     * Gets the mapping from user ids to inner ids.
+     *
+     * @return the mapping
+     */
+    public BiMap<String, Integer> getUserIds() {
+        return userIds;
+    }
+
+    /**
+     * Gets the mapping from item ids to inner ids.
+     *
+     * @return the mapping
+     */
+    public BiMap<String, Integer> getItemIds() {
+        return itemIds;
+    }
+}
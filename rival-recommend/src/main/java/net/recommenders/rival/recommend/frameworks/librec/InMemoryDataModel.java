@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.librec;
+
+import com.google.common.collect.BiMap;
+import java.io.IOException;
+import net.librec.common.LibrecException;
+import net.librec.conf.Configuration;
+import net.librec.data.DataModel;
+import net.librec.data.model.AbstractDataModel;
+import net.librec.math.structure.DataSet;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * LibRec data model built from a RiVal model in memory, see
+ * {@link InMemoryDataConvertor}. The configuration decides how the data is
+ * split, as with LibRec's text data model.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class InMemoryDataModel extends AbstractDataModel implements DataModel {
+
+    /**
+     * The model to convert.
+     */
+    private final TemporalDataModelIF<Long, Long> model;
+
+    /**
+     * Constructor.
+     *
+     * @param dataModel the model to convert
+     * @param configuration LibRec's configuration (splitter, etc.)
+     */
+    public InMemoryDataModel(final TemporalDataModelIF<Long, Long> dataModel, final Configuration configuration) {
+        this.model = dataModel;
+        this.conf = configuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void buildConvert() throws LibrecException {
+        dataConvertor = new InMemoryDataConvertor(model);
+        try {
+            dataConvertor.processData();
+        } catch (IOException e) {
+            throw new LibrecException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BiMap<String, Integer> getUserMappingData() {
+        return ((InMemoryDataConvertor) dataConvertor).getUserIds();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BiMap<String, Integer> getItemMappingData() {
+        return ((InMemoryDataConvertor) dataConvertor).getItemIds();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataSet getDatetimeDataSet() {
+        return dataConvertor.getDatetimeMatrix();
+    }
+}
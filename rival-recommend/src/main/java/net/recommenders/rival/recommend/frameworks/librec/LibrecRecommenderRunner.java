@@ -16,7 +16,9 @@
 package net.recommenders.rival.recommend.frameworks.librec;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +29,7 @@ import net.librec.conf.Configuration;
 import net.librec.conf.Configured;
 import net.librec.data.DataModel;
 import net.librec.data.model.TextDataModel;
-import net.librec.filter.GenericRecommendedFilter;
+import net.librec.math.structure.SparseMatrix;
 import net.librec.recommender.Recommender;
 import net.librec.recommender.RecommenderContext;
 import net.librec.recommender.item.RecommendedItem;
@@ -37,7 +39,10 @@ import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.TemporalDataModelIF;
 import net.recommenders.rival.recommend.frameworks.AbstractRunner;
 import net.recommenders.rival.recommend.frameworks.RecommendationRunner;
+import net.recommenders.rival.recommend.frameworks.RecommendationSink;
 import net.recommenders.rival.recommend.frameworks.RecommenderIO;
+import net.recommenders.rival.recommend.frameworks.RunStatistics;
+import net.recommenders.rival.recommend.frameworks.TopNSelector;
 import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +84,7 @@ public class LibrecRecommenderRunner extends AbstractRunner<Long, Long> {
             return null;
         }
 
+        long t = getStatistics().begin(RunStatistics.Phase.LOAD);
         File trainingFile = new File(getProperties().getProperty(RecommendationRunner.TRAINING_SET));
         File testFile = new File(getProperties().getProperty(RecommendationRunner.TEST_SET));
 
@@ -100,6 +106,7 @@ public class LibrecRecommenderRunner extends AbstractRunner<Long, Long> {
             confTest.set("data.splitter.ratio", "rating");
             DataModel test = new TextDataModel(confTest);
             test.buildDataModel();
+            getStatistics().end(RunStatistics.Phase.LOAD, t);
 
             return runLibrecRecommender(opts, training, test);
         } catch (LibrecException e) {
@@ -126,8 +133,10 @@ public class LibrecRecommenderRunner extends AbstractRunner<Long, Long> {
             return null;
         }
         // transform from core's DataModels to LibRec's DataModel
+        long t = getStatistics().begin(RunStatistics.Phase.CONVERT);
         DataModel trainingModelLibrec = new DataDAOWrapper(trainingModel);
         DataModel testModelLibrec = new DataDAOWrapper(testModel);
+        getStatistics().end(RunStatistics.Phase.CONVERT, t);
 
         return runLibrecRecommender(opts, trainingModelLibrec, testModelLibrec);
     }
@@ -156,6 +165,8 @@ public class LibrecRecommenderRunner extends AbstractRunner<Long, Long> {
             return null;
         }
 
+        RunStatistics stats = getStatistics();
+        long t = stats.begin(RunStatistics.Phase.TRAIN);
         Configuration conf = new Configuration();
         RecommenderContext rc = new RecommenderContext(conf, trainingModel);
 
@@ -216,54 +227,119 @@ public class LibrecRecommenderRunner extends AbstractRunner<Long, Long> {
             return model;
         } else {
             try {
-                // train the model
+                // train the model (LibRec also scores every item here)
                 rec.recommend(rc);
             } catch (Exception e) {
                 LOGGER.error(e.getMessage());
                 e.printStackTrace();
             }
         }
+        stats.end(RunStatistics.Phase.TRAIN, t);
 
         List<RecommendedItem> recommendedItemList = rec.getRecommendedList();
-        boolean createFile = true;
-        // rows: users
-        // columns: items
-        for (Map.Entry<String, Integer> e : testModel.getUserMappingData().entrySet()) {
-            Long user = Long.parseLong(e.getKey());
-            int u = e.getValue();
-            Set<String> notInTrainingItems = new HashSet<>();
-            for (Map.Entry<String, Integer> e2 : trainingModel.getItemMappingData().entrySet()) {
-                String item = e2.getKey();
-                int i = e2.getValue();
-                // ignore if item belongs to the training profile of user
-                if (notInTrainingItems.contains(item)) {
-                    continue;
+        // LibRec ranks every item, so the cutoff and the candidates can only be applied to its list
+        int cutoff = getCutoff();
+        String candidates = getCandidates();
+        TopNSelector selector = new TopNSelector(cutoff);
+        Set<String> testItems = CANDIDATES_TEST_ITEMS.equals(candidates) ? testModel.getItemMappingData().keySet() : null;
+        try (RecommendationSink sink = openSink(name, model)) {
+            // rows: users
+            // columns: items
+            Map<String, List<RecommendedItem>> recommendationsByUser = groupByUser(recommendedItemList);
+            Map<String, Integer> trainingItems = trainingModel.getItemMappingData();
+            SparseMatrix trainData = trainingModel.getDataSplitter().getTrainData();
+            for (Map.Entry<String, Integer> e : testModel.getUserMappingData().entrySet()) {
+                t = stats.begin(RunStatistics.Phase.RECOMMEND);
+                Long user = Long.parseLong(e.getKey());
+                List<RecommendedItem> userRecs = recommendationsByUser.get(e.getKey());
+                if (userRecs == null) {
+                    userRecs = new ArrayList<>();
                 }
-                if (!trainingModel.getDataSplitter().getTrainData().contains(u, i)) {
-                    notInTrainingItems.add(item);
+                // items in the training profile of the user, from its sparse row
+                Integer uTraining = trainingModel.getUserMappingData().get(e.getKey());
+                Set<Integer> userTrainingItems = uTraining == null || uTraining >= trainData.numRows()
+                        ? new HashSet<Integer>() : trainData.getColumnsSet(uTraining);
+                Set<String> userCandidates = testItems;
+                if (CANDIDATES_USER_TEST.equals(candidates)) {
+                    userCandidates = getTestItems(testModel, e.getValue());
+                }
+                List<RecommendedItem> recs = new ArrayList<>();
+                for (RecommendedItem recommendedItem : userRecs) {
+                    Integer i = trainingItems.get(recommendedItem.getItemId());
+                    // ignore if item belongs to the training profile of user
+                    if (i == null || userTrainingItems.contains(i)) {
+                        continue;
+                    }
+                    if (userCandidates == null || userCandidates.contains(recommendedItem.getItemId())) {
+                        recs.add(recommendedItem);
+                    }
                 }
-            }
-            // 
-            List<String> userIdList = new ArrayList<>();
-            userIdList.add(e.getKey());
-            List<String> itemIdList = new ArrayList<>(notInTrainingItems);
-            // filter the recommended result
-            //   The GenericRecommendedFilter instance returns the recommendedList 
-            //   that contains the recommendedItem with only the specific userId or itemId
-            GenericRecommendedFilter filter = new GenericRecommendedFilter();
-            filter.setUserIdList(userIdList);
-            filter.setItemIdList(itemIdList);
-            List<RecommendedItem> recs = filter.filter(recommendedItemList);
 
-            // end of ranking creation
-            List<RecommenderIO.Preference<Long, Long>> prefs = new ArrayList<>();
-            for (RecommendedItem recommendedItem : recs) {
-                prefs.add(new RecommenderIO.Preference<>(user, Long.parseLong(recommendedItem.getItemId()), recommendedItem.getValue()));
+                // end of ranking creation
+                List<RecommenderIO.Preference<Long, Long>> prefs = new ArrayList<>();
+                if (cutoff > 0) {
+                    for (RecommendedItem recommendedItem : recs) {
+                        selector.add(Long.parseLong(recommendedItem.getItemId()), recommendedItem.getValue());
+                    }
+                    prefs = selector.toPreferences(user);
+                } else {
+                    for (RecommendedItem recommendedItem : recs) {
+                        prefs.add(new RecommenderIO.Preference<>(user, Long.parseLong(recommendedItem.getItemId()), recommendedItem.getValue()));
+                    }
+                }
+                stats.recommended(1, userRecs.size());
+                t = stats.end(RunStatistics.Phase.RECOMMEND, t);
+                sink.write(user, prefs);
+                stats.end(RunStatistics.Phase.WRITE, t);
             }
-            //
-            RecommenderIO.writeData(user, prefs, getPath(), name, !createFile, model);
-            createFile = false;
+        } catch (IOException e) {
+            throw new RecommenderException("Could not write recommendations: " + e.getMessage());
         }
         return model;
     }
+
+    /**
+     * Groups recommendations by user, in one pass over the list (the order of
+     * the recommendations of each user is kept).
+     *
+     * @param recommendations the recommendations of every user (null if the
+     * recommender did not generate any)
+     * @return the recommendations of each user
+     */
+    private static Map<String, List<RecommendedItem>> groupByUser(final List<RecommendedItem> recommendations) {
+        Map<String, List<RecommendedItem>> byUser = new HashMap<>();
+        if (recommendations == null) {
+            return byUser;
+        }
+        for (RecommendedItem recommendedItem : recommendations) {
+            List<RecommendedItem> userRecs = byUser.get(recommendedItem.getUserId());
+            if (userRecs == null) {
+                userRecs = new ArrayList<>();
+                byUser.put(recommendedItem.getUserId(), userRecs);
+            }
+            userRecs.add(recommendedItem);
+        }
+        return byUser;
+    }
+
+    /**
+     * Gets the items of a user in the test model (the model is split into
+     * train and test data when it is built, so both parts are considered).
+     *
+     * @param testModel the test model
+     * @param u the inner id of the user
+     * @return the (original) ids of the items of the user
+     */
+    private static Set<String> getTestItems(final DataModel testModel, final int u) {
+        Set<String> items = new HashSet<>();
+        Map<Integer, String> ids = testModel.getItemMappingData().inverse();
+        for (SparseMatrix m : new SparseMatrix[]{testModel.getDataSplitter().getTrainData(), testModel.getDataSplitter().getTestData()}) {
+            if (m != null && u < m.numRows()) {
+                for (int i : m.getColumns(u)) {
+                    items.add(ids.get(i));
+                }
+            }
+        }
+        return items;
+    }
 }
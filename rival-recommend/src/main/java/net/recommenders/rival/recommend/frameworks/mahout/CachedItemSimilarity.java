@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.mahout;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import org.apache.mahout.cf.taste.common.Refreshable;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
+
+/**
+ * Item similarities that the item-based recommenders read, so they can be
+ * cached (see {@link net.recommenders.rival.recommend.frameworks.ModelCache})
+ * instead of the similarities of every pair of items. Each item keeps a
+ * sparse row with the similarities computed from it (in the direction they
+ * were asked for, so the recommendations are the same as without the cache),
+ * and at most a given number of pairs are stored: once the bound is reached,
+ * the missing similarities are still computed but not stored.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class CachedItemSimilarity implements ItemSimilarity, Serializable {
+
+    /**
+     * Serial version.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Default maximum number of stored pairs (16 bytes each).
+     */
+    public static final long DEFAULT_MAX_PAIRS = 1L << 22;
+    /**
+     * Maximum number of stored pairs.
+     */
+    private final long maxPairs;
+    /**
+     * Number of stored pairs.
+     */
+    private long pairs;
+    /**
+     * Items of each row, sorted.
+     */
+    private final FastByIDMap<long[]> items;
+    /**
+     * Similarities of each row, in the same order as the items.
+     */
+    private final FastByIDMap<double[]> values;
+    /**
+     * The similarity that computes the missing pairs.
+     */
+    private transient ItemSimilarity similarity;
+    /**
+     * Whether some pairs were stored since the object was created or read.
+     */
+    private transient boolean modified;
+
+    /**
+     * Constructor with the default bound.
+     */
+    public CachedItemSimilarity() {
+        this(DEFAULT_MAX_PAIRS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param max the maximum number of stored pairs
+     */
+    public CachedItemSimilarity(final long max) {
+        this.maxPairs = max;
+        this.pairs = 0L;
+        this.items = new FastByIDMap<long[]>();
+        this.values = new FastByIDMap<double[]>();
+    }
+
+    /**
+     * Sets the similarity used to compute the missing pairs.
+     *
+     * @param itemSimilarity the item similarity
+     */
+    public void attach(final ItemSimilarity itemSimilarity) {
+        this.similarity = itemSimilarity;
+    }
+
+    /**
+     * Checks if some pairs were stored since the object was created or read,
+     * so it should be cached again.
+     *
+     * @return true if some pairs were stored
+     */
+    public synchronized boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Gets the number of stored pairs.
+     *
+     * @return the number of stored pairs
+     */
+    public synchronized long getStoredPairs() {
+        return pairs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double itemSimilarity(final long itemID1, final long itemID2) throws TasteException {
+        return itemSimilarities(itemID1, new long[]{itemID2})[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] itemSimilarities(final long itemID1, final long[] itemID2s) throws TasteException {
+        double[] result = new double[itemID2s.length];
+        int[] missing = new int[itemID2s.length];
+        int m = 0;
+        synchronized (this) {
+            long[] row = items.get(itemID1);
+            double[] rowValues = values.get(itemID1);
+            for (int k = 0; k < itemID2s.length; k++) {
+                int pos = row == null ? -1 : Arrays.binarySearch(row, itemID2s[k]);
+                if (pos >= 0) {
+                    result[k] = rowValues[pos];
+                } else {
+                    missing[m++] = k;
+                }
+            }
+        }
+        if (m == 0) {
+            return result;
+        }
+        long[] missingIDs = new long[m];
+        for (int k = 0; k < m; k++) {
+            missingIDs[k] = itemID2s[missing[k]];
+        }
+        double[] computed = similarity.itemSimilarities(itemID1, missingIDs);
+        for (int k = 0; k < m; k++) {
+            result[missing[k]] = computed[k];
+        }
+        store(itemID1, missingIDs, computed);
+        return result;
+    }
+
+    /**
+     * Adds some pairs to the row of an item, as long as the bound is not
+     * reached.
+     *
+     * @param itemID1 the item of the row
+     * @param ids the other items (may be repeated or already stored)
+     * @param sims their similarities
+     */
+    private synchronized void store(final long itemID1, final long[] ids, final double[] sims) {
+        long[] row = items.get(itemID1);
+        double[] rowValues = values.get(itemID1);
+        if (row == null) {
+            row = new long[0];
+            rowValues = new double[0];
+        }
+        // the new items that fit, without the stored or repeated ones
+        FastByIDMap<Double> added = new FastByIDMap<Double>();
+        for (int k = 0; k < ids.length && pairs + added.size() < maxPairs; k++) {
+            if (Arrays.binarySearch(row, ids[k]) < 0 && !added.containsKey(ids[k])) {
+                added.put(ids[k], sims[k]);
+            }
+        }
+        int n = added.size();
+        if (n == 0) {
+            return;
+        }
+        long[] addedIDs = new long[n];
+        LongPrimitiveIterator it = added.keySetIterator();
+        for (int k = 0; k < n; k++) {
+            addedIDs[k] = it.nextLong();
+        }
+        Arrays.sort(addedIDs);
+        long[] newRow = new long[row.length + n];
+        double[] newValues = new double[row.length + n];
+        int r = 0;
+        int k = 0;
+        for (int pos = 0; pos < newRow.length; pos++) {
+            if (k == n || (r < row.length && row[r] < addedIDs[k])) {
+                newRow[pos] = row[r];
+                newValues[pos] = rowValues[r++];
+            } else {
+                newRow[pos] = addedIDs[k];
+                newValues[pos] = added.get(addedIDs[k++]);
+            }
+        }
+        items.put(itemID1, newRow);
+        values.put(itemID1, newValues);
+        pairs += n;
+        modified = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] allSimilarItemIDs(final long itemID) throws TasteException {
+        return similarity.allSimilarItemIDs(itemID);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void refresh(final Collection<Refreshable> alreadyRefreshed) {
+        // the similarities are computed from a fixed training model
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.mahout;
+
+import java.io.Serializable;
+import java.util.Collection;
+import org.apache.mahout.cf.taste.common.Refreshable;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.neighborhood.NearestNUserNeighborhood;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.neighborhood.UserNeighborhood;
+import org.apache.mahout.cf.taste.similarity.PreferenceInferrer;
+import org.apache.mahout.cf.taste.similarity.UserSimilarity;
+
+/**
+ * Nearest neighbors of the users, with their similarities, so they can be
+ * cached (see {@link net.recommenders.rival.recommend.frameworks.ModelCache})
+ * instead of the similarities of every pair of users. The neighbors of a user
+ * are computed by Mahout's {@link NearestNUserNeighborhood} the first time
+ * they are asked for, and the similarities the user-based recommenders read
+ * (those between a user and its neighbors, see {@link #getSimilarity()}) are
+ * stored with them, in the same order of the users, so the recommendations
+ * are the same as without the cache. Only the users that were recommended
+ * are stored.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class CachedUserNeighborhood implements UserNeighborhood, Serializable {
+
+    /**
+     * Serial version.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The neighborhood size.
+     */
+    private final int size;
+    /**
+     * Neighbors of the users, sorted by decreasing similarity.
+     */
+    private final FastByIDMap<long[]> neighbors;
+    /**
+     * Similarities of the users with their neighbors, in the same order.
+     */
+    private final FastByIDMap<double[]> similarities;
+    /**
+     * The neighborhood that computes the missing neighbors.
+     */
+    private transient UserNeighborhood nearest;
+    /**
+     * The user similarity.
+     */
+    private transient UserSimilarity similarity;
+    /**
+     * Whether some neighbors were computed since the object was created or
+     * read.
+     */
+    private transient boolean modified;
+
+    /**
+     * Constructor.
+     *
+     * @param n the neighborhood size
+     */
+    public CachedUserNeighborhood(final int n) {
+        this.size = n;
+        this.neighbors = new FastByIDMap<long[]>();
+        this.similarities = new FastByIDMap<double[]>();
+    }
+
+    /**
+     * Sets the similarity and the data used to compute the missing
+     * neighbors.
+     *
+     * @param userSimilarity the user similarity
+     * @param dataModel the training data
+     * @throws TasteException when the neighborhood cannot be created
+     */
+    public void attach(final UserSimilarity userSimilarity, final DataModel dataModel) throws TasteException {
+        this.similarity = userSimilarity;
+        this.nearest = new NearestNUserNeighborhood(size, userSimilarity, dataModel);
+    }
+
+    /**
+     * Gets the neighborhood size.
+     *
+     * @return the neighborhood size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Checks if some neighbors were computed since the object was created or
+     * read, so it should be cached again.
+     *
+     * @return true if some neighbors were computed
+     */
+    public boolean isModified() {
+        synchronized (neighbors) {
+            return modified;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getUserNeighborhood(final long userID) throws TasteException {
+        synchronized (neighbors) {
+            long[] n = neighbors.get(userID);
+            if (n != null) {
+                return n;
+            }
+        }
+        long[] n = nearest.getUserNeighborhood(userID);
+        double[] sims = new double[n.length];
+        for (int k = 0; k < n.length; k++) {
+            sims[k] = similarity.userSimilarity(userID, n[k]);
+        }
+        synchronized (neighbors) {
+            neighbors.put(userID, n);
+            similarities.put(userID, sims);
+            modified = true;
+        }
+        return n;
+    }
+
+    /**
+     * Gets the user similarity for the recommenders that use this
+     * neighborhood: the similarity of a user with its neighbors is the stored
+     * one, the rest are computed by the attached similarity.
+     *
+     * @return the user similarity
+     */
+    public UserSimilarity getSimilarity() {
+        return new UserSimilarity() {
+            @Override
+            public double userSimilarity(final long userID1, final long userID2) throws TasteException {
+                long[] n;
+                double[] sims;
+                synchronized (neighbors) {
+                    n = neighbors.get(userID1);
+                    sims = similarities.get(userID1);
+                }
+                if (n != null) {
+                    for (int k = 0; k < n.length; k++) {
+                        if (n[k] == userID2) {
+                            return sims[k];
+                        }
+                    }
+                }
+                return similarity.userSimilarity(userID1, userID2);
+            }
+
+            @Override
+            public void setPreferenceInferrer(final PreferenceInferrer inferrer) {
+                similarity.setPreferenceInferrer(inferrer);
+            }
+
+            @Override
+            public void refresh(final Collection<Refreshable> alreadyRefreshed) {
+                // the similarities are computed from a fixed training model
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void refresh(final Collection<Refreshable> alreadyRefreshed) {
+        // the neighbors are computed from a fixed training model
+    }
+}
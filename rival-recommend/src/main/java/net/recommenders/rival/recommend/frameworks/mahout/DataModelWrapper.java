@@ -15,18 +15,15 @@
  */
 package net.recommenders.rival.recommend.frameworks.mahout;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
 import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
 import org.apache.mahout.cf.taste.impl.model.GenericDataModel;
-import org.apache.mahout.cf.taste.impl.model.GenericPreference;
+import org.apache.mahout.cf.taste.impl.model.GenericUserPreferenceArray;
 import org.apache.mahout.cf.taste.model.DataModel;
-import org.apache.mahout.cf.taste.model.Preference;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
 
 /**
@@ -51,29 +48,40 @@ public class DataModelWrapper implements DataModel {
      * @param model the model to be used to create the wrapped model
      */
     public DataModelWrapper(final net.recommenders.rival.core.TemporalDataModelIF<Long, Long> model) {
-        FastByIDMap<Collection<Preference>> data = new FastByIDMap<Collection<Preference>>();
-        FastByIDMap<FastByIDMap<Long>> timestampData = new FastByIDMap<FastByIDMap<Long>>();
+        // the preference arrays are filled directly, without intermediate Preference objects
+        FastByIDMap<PreferenceArray> userData = new FastByIDMap<PreferenceArray>(model.getNumUsers());
+        FastByIDMap<FastByIDMap<Long>> timestampData = new FastByIDMap<FastByIDMap<Long>>(model.getNumUsers());
+        boolean timed = false;
         for (Long u : model.getUsers()) {
-            List<Preference> prefs = new ArrayList<Preference>();
+            int n = 0;
+            for (Long i : model.getUserItems(u)) {
+                n++;
+            }
+            if (n == 0) {
+                continue;
+            }
+            PreferenceArray prefs = new GenericUserPreferenceArray(n);
+            prefs.setUserID(0, u);
             FastByIDMap<Long> userTimestamps = new FastByIDMap<Long>();
             timestampData.put(u, userTimestamps);
+            int k = 0;
             for (Long i : model.getUserItems(u)) {
+                prefs.setItemID(k, i);
+                prefs.setValue(k, model.getUserItemPreference(u, i).floatValue());
+                k++;
                 Iterable<Long> timestamps = model.getUserItemTimestamps(u, i);
-                long t = -1;
                 if (timestamps != null) {
-                    for (Long tt : timestamps) {
-                        t = tt;
+                    for (Long t : timestamps) {
+                        userTimestamps.put(i, t);
+                        timed = true;
                         break;
                     }
                 }
-                userTimestamps.put(i, t);
-                prefs.add(new GenericPreference(u, i, model.getUserItemPreference(u, i).floatValue()));
             }
-            data.put(u, prefs);
+            userData.put(u, prefs);
         }
 
-        FastByIDMap<PreferenceArray> userData = GenericDataModel.toDataMap(data, true);
-        wrapper = new GenericDataModel(userData, timestampData);
+        wrapper = new GenericDataModel(userData, timed ? timestampData : null);
     }
 
     /**
@@ -21,6 +21,7 @@ import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.eval.RecommenderBuilder;
 import org.apache.mahout.cf.taste.impl.recommender.RandomRecommender;
 import org.apache.mahout.cf.taste.impl.recommender.svd.Factorizer;
+import org.apache.mahout.cf.taste.impl.recommender.svd.PersistenceStrategy;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.neighborhood.UserNeighborhood;
 import org.apache.mahout.cf.taste.recommender.Recommender;
@@ -125,6 +126,39 @@ public final class GenericRecommenderBuilder implements RecommenderBuilder {
         return buildRecommender(dataModel, recType, null, NO_N, factors, iterations, facType);
     }
 
+    /**
+     * User-based recommender with an already built neighborhood (for
+     * instance, one shared between neighborhood sizes, see
+     * {@link TopKUserNeighborhoods}).
+     *
+     * @param dataModel the data model
+     * @param recType the recommender type (as Mahout class)
+     * @param neighborhood the neighborhood
+     * @param similarity the user similarity
+     * @return the recommender
+     * @throws RecommenderException when there is a problem with instantiation
+     */
+    public Recommender buildRecommender(final DataModel dataModel, final String recType, final UserNeighborhood neighborhood, final UserSimilarity similarity)
+            throws RecommenderException {
+        try {
+            return (Recommender) Class.forName(recType).getConstructor(DataModel.class, UserNeighborhood.class, UserSimilarity.class).newInstance(dataModel, neighborhood, similarity);
+        } catch (ClassNotFoundException e) {
+            throw new RecommenderException("Could not create Recommender class " + e.getMessage());
+        } catch (IllegalAccessException e) {
+            throw new RecommenderException("Could not create Recommender: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new RecommenderException("Could not create Recommender: " + e.getMessage());
+        } catch (InstantiationException e) {
+            throw new RecommenderException("Could not create Recommender: " + e.getMessage());
+        } catch (InvocationTargetException e) {
+            throw new RecommenderException("Could not create Recommender: " + e.getMessage());
+        } catch (NoSuchMethodException e) {
+            throw new RecommenderException("Could not create Recommender: " + e.getMessage());
+        } catch (SecurityException e) {
+            throw new RecommenderException("Could not create Recommender: " + e.getMessage());
+        }
+    }
+
     /**
      * General method to instantiate a Mahout recommender.
      *
@@ -147,44 +181,87 @@ public final class GenericRecommenderBuilder implements RecommenderBuilder {
             final int iterations,
             final String facType)
             throws RecommenderException {
-        String neighborhoodType = "org.apache.mahout.cf.taste.impl.neighborhood.NearestNUserNeighborhood";
         Object simObj = null;
-        /**
-         * Instantiate similarity class
-         */
         if (similarityType != null) {
-            Class<?> similarityClass = null;
-            try {
-                similarityClass = Class.forName(similarityType);
-                simObj = similarityClass.getConstructor(DataModel.class).newInstance(dataModel);
-            } catch (ClassNotFoundException e) {
-                e.printStackTrace();
-                throw new RecommenderException("Could not create Similarity class " + e.getMessage());
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-                throw new RecommenderException("Could not create Similarity class " + e.getMessage());
-            } catch (IllegalArgumentException e) {
-                e.printStackTrace();
-                throw new RecommenderException("Could not create Similarity class " + e.getMessage());
-            } catch (InstantiationException e) {
-                e.printStackTrace();
-                throw new RecommenderException("Could not create Similarity class " + e.getMessage());
-            } catch (InvocationTargetException e) {
-                e.printStackTrace();
-                throw new RecommenderException("Could not create Similarity class " + e.getMessage());
-            } catch (NoSuchMethodException e) {
-                e.printStackTrace();
-                throw new RecommenderException("Could not create Similarity class " + e.getMessage());
-            } catch (SecurityException e) {
-                e.printStackTrace();
-                throw new RecommenderException("Could not create Similarity class " + e.getMessage());
-            }
+            simObj = buildSimilarity(dataModel, similarityType);
+        }
+        return buildRecommender(dataModel, recType, simObj, neighborhoodSize, factors, iterations, facType, null);
+    }
+
+    /**
+     * Instantiates a Mahout similarity.
+     *
+     * @param dataModel the data model
+     * @param similarityType the type of the similarity (as Mahout class), e.g.
+     * PearsonCorrelation
+     * @return the similarity (a user similarity, an item similarity, or both)
+     * @throws RecommenderException when there is a problem with instantiation
+     */
+    public Object buildSimilarity(final DataModel dataModel, final String similarityType)
+            throws RecommenderException {
+        Object simObj = null;
+        Class<?> similarityClass = null;
+        try {
+            similarityClass = Class.forName(similarityType);
+            simObj = similarityClass.getConstructor(DataModel.class).newInstance(dataModel);
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+            throw new RecommenderException("Could not create Similarity class " + e.getMessage());
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+            throw new RecommenderException("Could not create Similarity class " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            throw new RecommenderException("Could not create Similarity class " + e.getMessage());
+        } catch (InstantiationException e) {
+            e.printStackTrace();
+            throw new RecommenderException("Could not create Similarity class " + e.getMessage());
+        } catch (InvocationTargetException e) {
+            e.printStackTrace();
+            throw new RecommenderException("Could not create Similarity class " + e.getMessage());
+        } catch (NoSuchMethodException e) {
+            e.printStackTrace();
+            throw new RecommenderException("Could not create Similarity class " + e.getMessage());
+        } catch (SecurityException e) {
+            e.printStackTrace();
+            throw new RecommenderException("Could not create Similarity class " + e.getMessage());
         }
+        return simObj;
+    }
+
+    /**
+     * Instantiates a Mahout recommender from an already built similarity (for
+     * instance, a cached one, see {@link CachedItemSimilarity}).
+     *
+     * @param dataModel the data model
+     * @param recType the type of the recommender (as Mahout class)
+     * @param simObj the similarity, see
+     * {@link #buildSimilarity(org.apache.mahout.cf.taste.model.DataModel, java.lang.String)}
+     * @param neighborhoodSize the neighborhood size
+     * @param factors number of factors
+     * @param iterations number of iterations
+     * @param facType the factorizer (as Mahout class)
+     * @param persistence where the factorization is loaded from and saved to
+     * (only used by factorization recommenders, may be null)
+     * @return the recommender
+     * @throws RecommenderException when there is a problem with instantiation
+     */
+    public Recommender buildRecommender(final DataModel dataModel,
+            final String recType,
+            final Object simObj,
+            final int neighborhoodSize,
+            final int factors,
+            final int iterations,
+            final String facType,
+            final PersistenceStrategy persistence)
+            throws RecommenderException {
+        String neighborhoodType = "org.apache.mahout.cf.taste.impl.neighborhood.NearestNUserNeighborhood";
+        Object facObj = null;
         /**
          * Instantiate neighborhood class
          */
         Object neighObj = null;
-        if (neighborhoodSize != NO_N) {
+        if (neighborhoodSize != NO_N && recType.contains("UserBased")) {
             Class<?> neighborhoodClass = null;
             try {
                 neighborhoodClass = Class.forName(neighborhoodType);
@@ -219,7 +296,7 @@ public final class GenericRecommenderBuilder implements RecommenderBuilder {
             Class<?> factorizerClass = null;
             try {
                 factorizerClass = Class.forName(facType);
-                simObj = factorizerClass.getConstructor(DataModel.class, int.class, int.class).newInstance(dataModel, factors, iterations);
+                facObj = factorizerClass.getConstructor(DataModel.class, int.class, int.class).newInstance(dataModel, factors, iterations);
             } catch (ClassNotFoundException e) {
                 e.printStackTrace();
                 throw new RecommenderException("Could not create Factorizer " + e.getMessage());
@@ -254,12 +331,14 @@ public final class GenericRecommenderBuilder implements RecommenderBuilder {
         }
         final Object recObj;
         try {
-            if (facType != null) {
-                recObj = recommenderClass.getConstructor(DataModel.class, Factorizer.class).newInstance(dataModel, (Factorizer) simObj);
+            if (facType != null && persistence != null) {
+                recObj = recommenderClass.getConstructor(DataModel.class, Factorizer.class, PersistenceStrategy.class).newInstance(dataModel, (Factorizer) facObj, persistence);
+            } else if (facType != null) {
+                recObj = recommenderClass.getConstructor(DataModel.class, Factorizer.class).newInstance(dataModel, (Factorizer) facObj);
             } else if (recType.contains("UserBased")) {
                 // user-based similarity with neighborhood
                 recObj = recommenderClass.getConstructor(DataModel.class, UserNeighborhood.class, UserSimilarity.class).newInstance(dataModel, neighObj, simObj);
-            } else if (similarityType != null) {
+            } else if (simObj != null) {
                 // item-based similarity, no neighborhood
                 recObj = recommenderClass.getConstructor(DataModel.class, ItemSimilarity.class).newInstance(dataModel, simObj);
             } else {
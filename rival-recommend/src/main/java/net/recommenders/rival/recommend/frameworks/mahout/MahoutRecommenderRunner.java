@@ -16,21 +16,41 @@
 package net.recommenders.rival.recommend.frameworks.mahout;
 
 import net.recommenders.rival.recommend.frameworks.AbstractRunner;
+import net.recommenders.rival.recommend.frameworks.ModelCache;
 import net.recommenders.rival.recommend.frameworks.RecommendationRunner;
+import net.recommenders.rival.recommend.frameworks.RecommendationSink;
 import net.recommenders.rival.recommend.frameworks.RecommenderIO;
+import net.recommenders.rival.recommend.frameworks.RunStatistics;
+import net.recommenders.rival.recommend.frameworks.TopNSelector;
 import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
 import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
 import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
 import org.apache.mahout.cf.taste.impl.model.file.FileDataModel;
+import org.apache.mahout.cf.taste.impl.recommender.svd.Factorization;
+import org.apache.mahout.cf.taste.impl.recommender.svd.FilePersistenceStrategy;
+import org.apache.mahout.cf.taste.impl.recommender.svd.PersistenceStrategy;
 import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.apache.mahout.cf.taste.recommender.Recommender;
+import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
+import org.apache.mahout.cf.taste.similarity.UserSimilarity;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.recommenders.rival.core.DataModelFactory;
 import net.recommenders.rival.core.DataModelIF;
 
@@ -46,6 +66,25 @@ public class MahoutRecommenderRunner extends AbstractRunner<Long, Long> {
      * Default neighborhood size.
      */
     public static final int DEFAULT_NEIGHBORHOOD_SIZE = 50;
+    /**
+     * Default number of users handed to a thread at once.
+     */
+    public static final int DEFAULT_USER_BATCH = 64;
+    /**
+     * Key in the model cache of the neighbors or similarities read by the
+     * last recommender built from the cache.
+     */
+    private String cachedKey;
+    /**
+     * Neighbors read by the last user-based recommender built from the model
+     * cache (null if none).
+     */
+    private CachedUserNeighborhood cachedNeighborhood;
+    /**
+     * Similarities read by the last item-based recommender built from the
+     * model cache (null if none).
+     */
+    private CachedItemSimilarity cachedSimilarity;
 
     /**
      * Default constructor.
@@ -74,8 +113,10 @@ public class MahoutRecommenderRunner extends AbstractRunner<Long, Long> {
         if (isAlreadyRecommended()) {
             return null;
         }
+        long t = getStatistics().begin(RunStatistics.Phase.LOAD);
         DataModel trainingModel = new FileDataModel(new File(getProperties().getProperty(RecommendationRunner.TRAINING_SET)));
         DataModel testModel = new FileDataModel(new File(getProperties().getProperty(RecommendationRunner.TEST_SET)));
+        getStatistics().end(RunStatistics.Phase.LOAD, t);
         return runMahoutRecommender(opts, trainingModel, testModel);
     }
 
@@ -103,8 +144,10 @@ public class MahoutRecommenderRunner extends AbstractRunner<Long, Long> {
             return null;
         }
         // transform from core's DataModels to Mahout's DataModels
+        long t = getStatistics().begin(RunStatistics.Phase.CONVERT);
         DataModel trainingModelMahout = new DataModelWrapper(trainingModel);
         DataModel testModelMahout = new DataModelWrapper(testModel);
+        getStatistics().end(RunStatistics.Phase.CONVERT, t);
 
         return runMahoutRecommender(opts, trainingModelMahout, testModelMahout);
     }
@@ -141,23 +184,57 @@ public class MahoutRecommenderRunner extends AbstractRunner<Long, Long> {
         }
 
 
+        long t = getStatistics().begin(RunStatistics.Phase.TRAIN);
         Recommender recommender = null;
-        if (getProperties().getProperty(RecommendationRunner.FACTORS) == null) {
-            recommender = grb.buildRecommender(
-                    trainingModel,
-                    getProperties().getProperty(RecommendationRunner.RECOMMENDER),
-                    getProperties().getProperty(RecommendationRunner.SIMILARITY),
-                    Integer.parseInt(getProperties().getProperty(RecommendationRunner.NEIGHBORHOOD)));
+        ModelCache cache = getModelCache();
+        if (cache == null) {
+            if (getProperties().getProperty(RecommendationRunner.FACTORS) == null) {
+                recommender = grb.buildRecommender(
+                        trainingModel,
+                        getProperties().getProperty(RecommendationRunner.RECOMMENDER),
+                        getProperties().getProperty(RecommendationRunner.SIMILARITY),
+                        Integer.parseInt(getProperties().getProperty(RecommendationRunner.NEIGHBORHOOD)));
+            }
+            if (getProperties().getProperty(RecommendationRunner.FACTORS) != null) {
+                recommender = grb.buildRecommender(
+                        trainingModel,
+                        getProperties().getProperty(RecommendationRunner.RECOMMENDER),
+                        getProperties().getProperty(RecommendationRunner.FACTORIZER),
+                        DEFAULT_ITERATIONS,
+                        Integer.parseInt(getProperties().getProperty(RecommendationRunner.FACTORS)));
+            }
+        } else {
+            recommender = buildCachedRecommender(grb, cache, trainingModel);
         }
-        if (getProperties().getProperty(RecommendationRunner.FACTORS) != null) {
-            recommender = grb.buildRecommender(
-                    trainingModel,
-                    getProperties().getProperty(RecommendationRunner.RECOMMENDER),
-                    getProperties().getProperty(RecommendationRunner.FACTORIZER),
-                    DEFAULT_ITERATIONS,
-                    Integer.parseInt(getProperties().getProperty(RecommendationRunner.FACTORS)));
+        getStatistics().end(RunStatistics.Phase.TRAIN, t);
+        DataModelIF<Long, Long> recs = runMahoutRecommender(opts, recommender, trainingModel, testModel);
+        if (cache != null) {
+            storeCachedSimilarities(cache);
         }
+        return recs;
+    }
 
+    /**
+     * Runs an already built Mahout recommender (for instance, one sharing its
+     * neighborhoods with other runners, see {@link TopKUserNeighborhoods})
+     * using the provided datamodels and the previously provided properties.
+     *
+     * @param opts see {@link net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS}
+     * @param recommender the recommender
+     * @param trainingModel model used to train the recommender.
+     * @param testModel model to be used to test the recommender.
+     * @return see
+     * {@link #runMahoutRecommender(net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS, org.apache.mahout.cf.taste.model.DataModel, org.apache.mahout.cf.taste.model.DataModel)}
+     * @throws RecommenderException when the recommendations cannot be
+     * written
+     * @throws TasteException when there is a problem with the Mahout
+     * recommender
+     */
+    public DataModelIF<Long, Long> runMahoutRecommender(final RUN_OPTIONS opts, final Recommender recommender, final DataModel trainingModel, final DataModel testModel)
+            throws RecommenderException, TasteException {
+        if (isAlreadyRecommended()) {
+            return null;
+        }
         LongPrimitiveIterator users = testModel.getUserIDs();
 
         DataModelIF<Long, Long> model = null;
@@ -178,23 +255,389 @@ public class MahoutRecommenderRunner extends AbstractRunner<Long, Long> {
             default:
                 name = null;
         }
-        boolean createFile = true;
+        int cutoff = getCutoff();
+        String candidates = getCandidates();
+        int threads = Integer.parseInt(getProperties().getProperty(RecommendationRunner.THREADS, "1"));
+        try (RecommendationSink sink = openSink(name, model)) {
+            RunStatistics stats = getStatistics();
+            if (threads > 1) {
+                recommendInParallel(new BatchRecommendation(recommender, trainingModel, testModel, cutoff, candidates, stats), users, threads,
+                        Integer.parseInt(getProperties().getProperty(RecommendationRunner.USER_BATCH, "" + DEFAULT_USER_BATCH)), sink);
+                return model;
+            }
+            while (users.hasNext()) {
+                long u = users.nextLong();
+                long t = stats.begin(RunStatistics.Phase.RECOMMEND);
+                List<RecommenderIO.Preference<Long, Long>> recs = null;
+                try {
+                    recs = recommend(recommender, trainingModel, testModel, u, cutoff, candidates, stats);
+                } catch (TasteException e) {
+                    e.printStackTrace();
+                }
+                // the phase is ended even if the user failed, other threads may be timed with it
+                t = stats.end(RunStatistics.Phase.RECOMMEND, t);
+                if (recs != null) {
+                    sink.write(u, recs);
+                    stats.end(RunStatistics.Phase.WRITE, t);
+                }
+            }
+        } catch (IOException e) {
+            throw new RecommenderException("Could not write recommendations: " + e.getMessage());
+        }
+        return model;
+    }
+
+    /**
+     * Builds the recommender reusing the models trained in previous runs with
+     * the same training data and parameters: factorizations are loaded and
+     * saved through Mahout's {@link FilePersistenceStrategy} (see
+     * {@link CachedFactorization}); for similarities, only what the
+     * recommenders read is kept, that is, the neighbors of the recommended
+     * users (see {@link CachedUserNeighborhood}) or the similarities between
+     * the items that were compared (see {@link CachedItemSimilarity}), and it
+     * is written back once the recommendations are done (see
+     * {@link #storeCachedSimilarities(ModelCache)}).
+     *
+     * @param grb the recommender builder
+     * @param cache the model cache
+     * @param trainingModel the training data
+     * @return the recommender
+     * @throws RecommenderException when the recommender cannot be instantiated
+     * @throws TasteException when the neighborhood cannot be created
+     */
+    private Recommender buildCachedRecommender(final GenericRecommenderBuilder grb, final ModelCache cache, final DataModel trainingModel)
+            throws RecommenderException, TasteException {
+        cachedKey = null;
+        cachedNeighborhood = null;
+        cachedSimilarity = null;
+        String rec = getProperties().getProperty(RecommendationRunner.RECOMMENDER);
+        String training = fingerprint(trainingModel);
+        if (getProperties().getProperty(RecommendationRunner.FACTORS) != null) {
+            String fac = getProperties().getProperty(RecommendationRunner.FACTORIZER);
+            int factors = Integer.parseInt(getProperties().getProperty(RecommendationRunner.FACTORS));
+            String key = ModelCache.key(RecommendationRunner.MAHOUT, rec, fac, factors, DEFAULT_ITERATIONS, training);
+            return grb.buildRecommender(trainingModel, rec, null, GenericRecommenderBuilder.NO_N, factors, DEFAULT_ITERATIONS, fac,
+                    new CachedFactorization(cache, key));
+        }
+        String sim = getProperties().getProperty(RecommendationRunner.SIMILARITY);
+        int neighborhood = Integer.parseInt(getProperties().getProperty(RecommendationRunner.NEIGHBORHOOD));
+        if (sim == null) {
+            return grb.buildRecommender(trainingModel, rec, null, neighborhood);
+        }
+        Object simObj = grb.buildSimilarity(trainingModel, sim);
+        if (rec.contains("UserBased")) {
+            cachedKey = ModelCache.key(RecommendationRunner.MAHOUT, "user", sim, neighborhood, training);
+            Object cached = cache.read(cachedKey, "neighbors");
+            cachedNeighborhood = cached instanceof CachedUserNeighborhood ? (CachedUserNeighborhood) cached : new CachedUserNeighborhood(neighborhood);
+            cachedNeighborhood.attach((UserSimilarity) simObj, trainingModel);
+            return grb.buildRecommender(trainingModel, rec, cachedNeighborhood, cachedNeighborhood.getSimilarity());
+        }
+        cachedKey = ModelCache.key(RecommendationRunner.MAHOUT, "item", sim, training);
+        Object cached = cache.read(cachedKey, "similarity");
+        cachedSimilarity = cached instanceof CachedItemSimilarity ? (CachedItemSimilarity) cached : new CachedItemSimilarity();
+        cachedSimilarity.attach((ItemSimilarity) simObj);
+        return grb.buildRecommender(trainingModel, rec, cachedSimilarity, neighborhood, GenericRecommenderBuilder.NOFACTORS, GenericRecommenderBuilder.NOITER, null, null);
+    }
+
+    /**
+     * Writes to the model cache the neighbors or similarities read by the
+     * last recommender built from it, if some of them were not cached yet.
+     *
+     * @param cache the model cache
+     */
+    private void storeCachedSimilarities(final ModelCache cache) {
+        try {
+            if (cachedNeighborhood != null && cachedNeighborhood.isModified()) {
+                cache.write(cachedKey, "neighbors", cachedNeighborhood);
+            } else if (cachedSimilarity != null && cachedSimilarity.isModified()) {
+                cache.write(cachedKey, "similarity", cachedSimilarity);
+            }
+        } catch (IOException e) {
+            System.out.println("Similarities could not be cached: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the training data, see
+     * {@link ModelCache#fingerprint(long, long, double)}.
+     *
+     * @param trainingModel the training data
+     * @return the fingerprint
+     * @throws TasteException when the data cannot be read
+     */
+    private static String fingerprint(final DataModel trainingModel) throws TasteException {
+        long hash = 0L;
+        long n = 0L;
+        LongPrimitiveIterator users = trainingModel.getUserIDs();
         while (users.hasNext()) {
-            long u = users.nextLong();
+            PreferenceArray prefs = trainingModel.getPreferencesFromUser(users.nextLong());
+            for (int k = 0; k < prefs.length(); k++) {
+                hash += ModelCache.fingerprint(prefs.getUserID(k), prefs.getItemID(k), prefs.getValue(k));
+                n++;
+            }
+        }
+        return Long.toHexString(hash) + "-" + n;
+    }
+
+    /**
+     * Generates the recommendations of a user. When every item is a
+     * candidate, the recommender selects the top items itself; otherwise,
+     * only the candidate items are scored, and the best ones are kept in a
+     * {@link TopNSelector}.
+     *
+     * @param recommender the recommender
+     * @param trainingModel the training model
+     * @param testModel the test model
+     * @param u the user
+     * @param cutoff the number of recommendations (not positive means every
+     * item)
+     * @param candidates the candidate items mode, see
+     * {@link AbstractRunner#CANDIDATES_ALL}
+     * @param stats where the user and its candidate items are counted
+     * @return the recommendations of the user
+     * @throws TasteException when the recommendations cannot be generated
+     */
+    private static List<RecommenderIO.Preference<Long, Long>> recommend(final Recommender recommender, final DataModel trainingModel,
+            final DataModel testModel, final long u, final int cutoff, final String candidates, final RunStatistics stats) throws TasteException {
+        if (CANDIDATES_ALL.equals(candidates)) {
+            stats.recommended(1, trainingModel.getNumItems());
+            List<RecommendedItem> items = recommender.recommend(u, cutoff > 0 ? cutoff : trainingModel.getNumItems());
+            List<RecommenderIO.Preference<Long, Long>> prefs = new ArrayList<>(items.size());
+            for (RecommendedItem i : items) {
+                prefs.add(new RecommenderIO.Preference<>(u, i.getItemID(), i.getValue()));
+            }
+            return prefs;
+        }
+        FastIDSet trainingItems = trainingModel.getItemIDsFromUser(u);
+        LongPrimitiveIterator items = CANDIDATES_USER_TEST.equals(candidates)
+                ? testModel.getItemIDsFromUser(u).iterator()
+                : testModel.getItemIDs();
+        TopNSelector selector = new TopNSelector(cutoff);
+        long scored = 0L;
+        while (items.hasNext()) {
+            long i = items.nextLong();
+            if (trainingItems.contains(i)) {
+                continue;
+            }
+            scored++;
             try {
-                List<RecommendedItem> items = recommender.recommend(u, trainingModel.getNumItems());
-                //
-                List<RecommenderIO.Preference<Long, Long>> prefs = new ArrayList<>();
-                for (RecommendedItem i: items){
-                    prefs.add(new RecommenderIO.Preference<>(u, i.getItemID(), i.getValue()));
+                selector.add(i, recommender.estimatePreference(u, i));
+            } catch (NoSuchItemException e) {
+                // the item is not in the training set: it cannot be scored
+            }
+        }
+        stats.recommended(1, scored);
+        return selector.toPreferences(u);
+    }
+
+    /**
+     * Generates the recommendations of every user with several threads.
+     * Users are grouped in batches that are recommended concurrently, with a
+     * bounded number of batches in flight; the batches are written in the
+     * same order as the users, so the output is the same as the sequential
+     * one.
+     *
+     * @param prototype the task with the recommender (it must be thread-safe
+     * for reading) and the recommendation settings
+     * @param users the users to generate recommendations for
+     * @param threads the number of threads
+     * @param batchSize the number of users in a batch
+     * @param sink the sink where recommendations are written
+     * @throws TasteException when the recommendations cannot be generated
+     * @throws IOException when the recommendations cannot be written
+     */
+    private void recommendInParallel(final BatchRecommendation prototype, final LongPrimitiveIterator users,
+            final int threads, final int batchSize, final RecommendationSink sink) throws TasteException, IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // batches waiting to be written (at most two per thread), in order
+        Deque<long[]> pendingUsers = new ArrayDeque<>();
+        Deque<Future<List<List<RecommenderIO.Preference<Long, Long>>>>> pending = new ArrayDeque<>();
+        try {
+            while (users.hasNext() || !pending.isEmpty()) {
+                while (users.hasNext() && pending.size() < 2 * threads) {
+                    long[] batch = new long[batchSize];
+                    int n = 0;
+                    while (n < batchSize && users.hasNext()) {
+                        batch[n++] = users.nextLong();
+                    }
+                    batch = Arrays.copyOf(batch, n);
+                    pendingUsers.add(batch);
+                    pending.add(executor.submit(prototype.forUsers(batch)));
+                }
+                long[] batch = pendingUsers.poll();
+                List<List<RecommenderIO.Preference<Long, Long>>> recs = pending.poll().get();
+                long t = getStatistics().begin(RunStatistics.Phase.WRITE);
+                for (int k = 0; k < batch.length; k++) {
+                    if (recs.get(k) != null) {
+                        sink.write(batch[k], recs.get(k));
+                    }
                 }
-                //
-                RecommenderIO.writeData(u, prefs, getPath(), name, !createFile, model);
-                createFile = false;
-            } catch (TasteException e) {
-                e.printStackTrace();
+                getStatistics().end(RunStatistics.Phase.WRITE, t);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TasteException(e);
+        } catch (ExecutionException e) {
+            throw new TasteException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Task that generates the recommendations of a batch of users.
+     */
+    private static final class BatchRecommendation implements Callable<List<List<RecommenderIO.Preference<Long, Long>>>> {
+
+        /**
+         * The recommender.
+         */
+        private final Recommender recommender;
+        /**
+         * The training model.
+         */
+        private final DataModel trainingModel;
+        /**
+         * The test model.
+         */
+        private final DataModel testModel;
+        /**
+         * The number of recommendations for every user.
+         */
+        private final int cutoff;
+        /**
+         * The candidate items mode.
+         */
+        private final String candidates;
+        /**
+         * Where the time and the users of the batch are recorded.
+         */
+        private final RunStatistics stats;
+        /**
+         * The users of the batch.
+         */
+        private final long[] users;
+
+        /**
+         * Constructor of a task without users, see {@link #forUsers(long[])}.
+         *
+         * @param rec the recommender
+         * @param training the training model
+         * @param test the test model
+         * @param n the number of recommendations for every user
+         * @param mode the candidate items mode
+         * @param statistics where the time and the users are recorded
+         */
+        BatchRecommendation(final Recommender rec, final DataModel training, final DataModel test, final int n, final String mode,
+                final RunStatistics statistics) {
+            this(rec, training, test, n, mode, statistics, new long[0]);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param rec the recommender
+         * @param training the training model
+         * @param test the test model
+         * @param n the number of recommendations for every user
+         * @param mode the candidate items mode
+         * @param statistics where the time and the users are recorded
+         * @param batch the users of the batch
+         */
+        private BatchRecommendation(final Recommender rec, final DataModel training, final DataModel test, final int n,
+                final String mode, final RunStatistics statistics, final long[] batch) {
+            this.recommender = rec;
+            this.trainingModel = training;
+            this.testModel = test;
+            this.cutoff = n;
+            this.candidates = mode;
+            this.stats = statistics;
+            this.users = batch;
+        }
+
+        /**
+         * Creates a task with the same settings for another batch of users.
+         *
+         * @param batch the users of the batch
+         * @return the task
+         */
+        BatchRecommendation forUsers(final long[] batch) {
+            return new BatchRecommendation(recommender, trainingModel, testModel, cutoff, candidates, stats, batch);
+        }
+
+        /**
+         * Generates the recommendations of the batch.
+         *
+         * @return the recommendations of every user, in the same order as
+         * the users of the batch (null for the users whose recommendations
+         * could not be generated)
+         */
+        @Override
+        public List<List<RecommenderIO.Preference<Long, Long>>> call() {
+            long t = stats.begin(RunStatistics.Phase.RECOMMEND);
+            List<List<RecommenderIO.Preference<Long, Long>>> recs = new ArrayList<>(users.length);
+            for (long u : users) {
+                try {
+                    recs.add(recommend(recommender, trainingModel, testModel, u, cutoff, candidates, stats));
+                } catch (TasteException e) {
+                    e.printStackTrace();
+                    recs.add(null);
+                }
+            }
+            stats.end(RunStatistics.Phase.RECOMMEND, t);
+            return recs;
+        }
+    }
+
+    /**
+     * Factorization stored in the model cache. It is written with Mahout's
+     * {@link FilePersistenceStrategy} to a temporary file, which is then
+     * moved to its final file (see
+     * {@link ModelCache#commit(java.lang.String, java.lang.String)}), so that
+     * an interrupted or concurrent run never leaves a truncated factorization
+     * to be loaded.
+     */
+    private static final class CachedFactorization implements PersistenceStrategy {
+
+        /**
+         * Extension of the factorizations in the cache.
+         */
+        private static final String EXTENSION = "factorization";
+        /**
+         * The model cache.
+         */
+        private final ModelCache cache;
+        /**
+         * The key of the factorization.
+         */
+        private final String key;
+
+        /**
+         * Constructor.
+         *
+         * @param modelCache the model cache
+         * @param factorizationKey the key of the factorization
+         */
+        CachedFactorization(final ModelCache modelCache, final String factorizationKey) {
+            this.cache = modelCache;
+            this.key = factorizationKey;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Factorization load() throws IOException {
+            return new FilePersistenceStrategy(cache.getFile(key, EXTENSION)).load();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void maybePersist(final Factorization factorization) throws IOException {
+            new FilePersistenceStrategy(cache.getTemporaryFile(key, EXTENSION)).maybePersist(factorization);
+            cache.commit(key, EXTENSION);
         }
-        return model;
     }
 }
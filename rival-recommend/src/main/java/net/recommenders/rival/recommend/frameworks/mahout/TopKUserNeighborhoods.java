@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.mahout;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.common.Refreshable;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveArrayIterator;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.neighborhood.NearestNUserNeighborhood;
+import org.apache.mahout.cf.taste.impl.recommender.TopItems;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.neighborhood.UserNeighborhood;
+import org.apache.mahout.cf.taste.similarity.PreferenceInferrer;
+import org.apache.mahout.cf.taste.similarity.UserSimilarity;
+
+/**
+ * Nearest neighbors of every user for all the neighborhood sizes of a grid.
+ * The similarities between a user and the rest of users are computed once,
+ * and the neighbors of each size are selected from them in the same way as
+ * {@link NearestNUserNeighborhood} does (the first n neighbors of a larger
+ * neighborhood are not always the same when there are ties in the
+ * similarities, so they are not reused). The similarities between the users
+ * and their neighbors are kept for the recommenders (see
+ * {@link #getSimilarity()}), so they are not computed again either.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class TopKUserNeighborhoods {
+
+    /**
+     * The neighborhood sizes, sorted and without duplicates.
+     */
+    private final int[] sizes;
+    /**
+     * The user similarity.
+     */
+    private final UserSimilarity similarity;
+    /**
+     * The users, in the order they are given by the data model.
+     */
+    private final long[] users;
+    /**
+     * Neighbors of the users whose neighborhoods have been computed.
+     */
+    private final FastByIDMap<Neighbors> neighbors;
+
+    /**
+     * Neighbors of a user, one list per size, and their similarities.
+     */
+    private static final class Neighbors {
+
+        /**
+         * The neighbors, one list per size.
+         */
+        private final long[][] lists;
+        /**
+         * The similarities of the user with the neighbors.
+         */
+        private final FastByIDMap<Double> similarities;
+
+        /**
+         * Constructor.
+         *
+         * @param lists the neighbors, one list per size
+         * @param similarities the similarities of the user with the neighbors
+         */
+        private Neighbors(final long[][] lists, final FastByIDMap<Double> similarities) {
+            this.lists = lists;
+            this.similarities = similarities;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sizes the neighborhood sizes
+     * @param similarity the user similarity
+     * @param dataModel the data model
+     * @throws TasteException when the users cannot be read
+     */
+    public TopKUserNeighborhoods(final int[] sizes, final UserSimilarity similarity, final DataModel dataModel) throws TasteException {
+        int[] s = sizes.clone();
+        Arrays.sort(s);
+        int k = 0;
+        for (int i = 0; i < s.length; i++) {
+            if (s[i] < 1) {
+                throw new IllegalArgumentException("Neighborhood size " + s[i] + " must be at least 1");
+            }
+            if (k == 0 || s[k - 1] != s[i]) {
+                s[k++] = s[i];
+            }
+        }
+        this.sizes = Arrays.copyOf(s, k);
+        this.similarity = similarity;
+        this.users = new long[dataModel.getNumUsers()];
+        LongPrimitiveIterator it = dataModel.getUserIDs();
+        for (int i = 0; i < users.length; i++) {
+            users[i] = it.nextLong();
+        }
+        this.neighbors = new FastByIDMap<Neighbors>();
+    }
+
+    /**
+     * Gets the largest neighborhood size.
+     *
+     * @return the largest neighborhood size
+     */
+    public int getMaxSize() {
+        return sizes.length == 0 ? 0 : sizes[sizes.length - 1];
+    }
+
+    /**
+     * Gets the nearest neighbors of a user (computed for all the sizes the
+     * first time the user is asked for).
+     *
+     * @param user the user
+     * @param size the neighborhood size (one of the sizes of the constructor)
+     * @return the neighbors, sorted by decreasing similarity
+     * @throws TasteException when the neighbors cannot be computed
+     */
+    public long[] getNeighbors(final long user, final int size) throws TasteException {
+        int k = Arrays.binarySearch(sizes, size);
+        if (k < 0) {
+            throw new IllegalArgumentException("Neighborhood size " + size + " not in " + Arrays.toString(sizes));
+        }
+        Neighbors n;
+        synchronized (neighbors) {
+            n = neighbors.get(user);
+        }
+        if (n == null) {
+            n = computeNeighbors(user);
+            synchronized (neighbors) {
+                neighbors.put(user, n);
+            }
+        }
+        return n.lists[k];
+    }
+
+    /**
+     * Computes the neighbors of a user for every size, with the same
+     * estimator and selection as {@link NearestNUserNeighborhood} (without
+     * minimum similarity or sampling).
+     *
+     * @param user the user
+     * @return the neighbors
+     * @throws TasteException when the similarities cannot be computed
+     */
+    private Neighbors computeNeighbors(final long user) throws TasteException {
+        final FastByIDMap<Double> sims = new FastByIDMap<Double>(users.length);
+        for (long other : users) {
+            double sim;
+            if (other == user) {
+                sim = Double.NaN;
+            } else {
+                try {
+                    sim = similarity.userSimilarity(user, other);
+                } catch (NoSuchUserException e) {
+                    sim = Double.NaN;
+                }
+            }
+            sims.put(other, sim);
+        }
+        TopItems.Estimator<Long> estimator = new TopItems.Estimator<Long>() {
+            @Override
+            public double estimate(final Long other) {
+                return sims.get(other);
+            }
+        };
+        long[][] n = new long[sizes.length][];
+        FastByIDMap<Double> kept = new FastByIDMap<Double>();
+        for (int k = 0; k < sizes.length; k++) {
+            n[k] = TopItems.getTopUsers(Math.min(sizes[k], users.length), new LongPrimitiveArrayIterator(users), null, estimator);
+            for (long other : n[k]) {
+                kept.put(other, sims.get(other));
+            }
+        }
+        return new Neighbors(n, kept);
+    }
+
+    /**
+     * Gets the user similarity for the recommenders that use these
+     * neighborhoods: the similarity of a user with its neighbors is the one
+     * computed with the neighbors (in the same order of the users, since not
+     * every similarity is symmetric up to the last decimal), the rest are
+     * computed by the user similarity of the constructor.
+     *
+     * @return the user similarity
+     */
+    public UserSimilarity getSimilarity() {
+        return new UserSimilarity() {
+            @Override
+            public double userSimilarity(final long userID1, final long userID2) throws TasteException {
+                Neighbors n;
+                synchronized (neighbors) {
+                    n = neighbors.get(userID1);
+                }
+                Double sim = n == null ? null : n.similarities.get(userID2);
+                return sim == null ? similarity.userSimilarity(userID1, userID2) : sim;
+            }
+
+            @Override
+            public void setPreferenceInferrer(final PreferenceInferrer inferrer) {
+                similarity.setPreferenceInferrer(inferrer);
+            }
+
+            @Override
+            public void refresh(final Collection<Refreshable> alreadyRefreshed) {
+                // the similarities are computed from a fixed training model
+            }
+        };
+    }
+
+    /**
+     * Gets the neighborhood of one of the sizes.
+     *
+     * @param size the neighborhood size (one of the sizes of the
+     * constructor)
+     * @return the neighborhood
+     */
+    public UserNeighborhood forSize(final int size) {
+        if (Arrays.binarySearch(sizes, size) < 0) {
+            throw new IllegalArgumentException("Neighborhood size " + size + " not in " + Arrays.toString(sizes));
+        }
+        return new UserNeighborhood() {
+            @Override
+            public long[] getUserNeighborhood(final long userID) throws TasteException {
+                return getNeighbors(userID, size);
+            }
+
+            @Override
+            public void refresh(final Collection<Refreshable> alreadyRefreshed) {
+                // the lists are computed from a fixed training model
+            }
+        };
+    }
+}
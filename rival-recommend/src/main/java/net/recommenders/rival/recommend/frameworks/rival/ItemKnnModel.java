@@ -0,0 +1,380 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.rival;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.recommend.frameworks.RecommenderIO;
+import net.recommenders.rival.recommend.frameworks.TopNSelector;
+
+/**
+ * Item-based nearest neighbors model on primitive arrays. The ratings are
+ * stored by user and by item in compressed sparse row (CSR) arrays, the
+ * item-item similarities are computed as a sparse product of the rating
+ * matrix with itself (in parallel, one item at a time), and only the k most
+ * similar items (with positive similarity) of every item are kept.
+ *
+ * The score of an item not rated by a user is the average of the user's
+ * ratings on the items that have it as neighbor, weighted by their
+ * similarity.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class ItemKnnModel {
+
+    /**
+     * Cosine similarity between the rating vectors of two items.
+     */
+    public static final String COSINE = "cosine";
+    /**
+     * Pearson correlation, as the cosine between the rating vectors of two
+     * items centered on the mean rating of each item.
+     */
+    public static final String PEARSON = "pearson";
+    /**
+     * Users, sorted.
+     */
+    private final long[] userIds;
+    /**
+     * Items, sorted.
+     */
+    private final long[] itemIds;
+    /**
+     * Start of the ratings of each user (plus the end of the last user).
+     */
+    private final int[] userPtr;
+    /**
+     * Items rated by the users, by user (sorted within each user).
+     */
+    private final int[] userItems;
+    /**
+     * Ratings, by user.
+     */
+    private final double[] userValues;
+    /**
+     * Start of the ratings of each item (plus the end of the last item).
+     */
+    private final int[] itemPtr;
+    /**
+     * Users who rated the items, by item (sorted within each item).
+     */
+    private final int[] itemUsers;
+    /**
+     * Position of each rating of {@link #itemUsers} in {@link #userValues}.
+     */
+    private final int[] itemPos;
+    /**
+     * Start of the neighbors of each item (plus the end of the last item).
+     */
+    private int[] neighborPtr;
+    /**
+     * Neighbors of the items, by item (sorted by decreasing similarity).
+     */
+    private int[] neighbors;
+    /**
+     * Similarities of the neighbors.
+     */
+    private double[] neighborSims;
+
+    /**
+     * Constructor. The neighbors are computed with
+     * {@link #computeNeighbors(java.lang.String, int, int)}.
+     *
+     * @param training the training data
+     */
+    public ItemKnnModel(final TemporalDataModelIF<Long, Long> training) {
+        userIds = toSortedArray(training.getUsers());
+        itemIds = toSortedArray(training.getItems());
+        int nUsers = userIds.length;
+        int nItems = itemIds.length;
+        userPtr = new int[nUsers + 1];
+        int[] row = new int[nItems];
+        List<int[]> rows = new ArrayList<int[]>(nUsers);
+        for (int u = 0; u < nUsers; u++) {
+            int n = 0;
+            for (Long i : training.getUserItems(userIds[u])) {
+                row[n++] = Arrays.binarySearch(itemIds, i);
+            }
+            int[] r = Arrays.copyOf(row, n);
+            Arrays.sort(r);
+            rows.add(r);
+            userPtr[u + 1] = userPtr[u] + n;
+        }
+        userItems = new int[userPtr[nUsers]];
+        userValues = new double[userPtr[nUsers]];
+        int[] itemCount = new int[nItems];
+        for (int u = 0; u < nUsers; u++) {
+            int[] r = rows.get(u);
+            for (int k = 0; k < r.length; k++) {
+                int p = userPtr[u] + k;
+                userItems[p] = r[k];
+                userValues[p] = training.getUserItemPreference(userIds[u], itemIds[r[k]]);
+                itemCount[r[k]]++;
+            }
+            rows.set(u, null);
+        }
+        // transpose: users are visited in order, so they are sorted within each item
+        itemPtr = new int[nItems + 1];
+        for (int i = 0; i < nItems; i++) {
+            itemPtr[i + 1] = itemPtr[i] + itemCount[i];
+        }
+        itemUsers = new int[userItems.length];
+        itemPos = new int[userItems.length];
+        int[] next = Arrays.copyOf(itemPtr, nItems);
+        for (int u = 0; u < nUsers; u++) {
+            for (int p = userPtr[u]; p < userPtr[u + 1]; p++) {
+                int q = next[userItems[p]]++;
+                itemUsers[q] = u;
+                itemPos[q] = p;
+            }
+        }
+    }
+
+    /**
+     * Gets the ids of an iterable, sorted.
+     *
+     * @param ids the ids
+     * @return the sorted ids
+     */
+    private static long[] toSortedArray(final Iterable<Long> ids) {
+        long[] a = new long[16];
+        int n = 0;
+        for (Long id : ids) {
+            if (n == a.length) {
+                a = Arrays.copyOf(a, 2 * n);
+            }
+            a[n++] = id;
+        }
+        a = Arrays.copyOf(a, n);
+        Arrays.sort(a);
+        return a;
+    }
+
+    /**
+     * Gets the number of items.
+     *
+     * @return the number of items
+     */
+    public int getNumItems() {
+        return itemIds.length;
+    }
+
+    /**
+     * Computes the k nearest neighbors of every item.
+     *
+     * @param similarity {@link #COSINE} or {@link #PEARSON}
+     * @param k the number of neighbors (not positive means every item with
+     * positive similarity)
+     * @param threads the number of threads
+     * @throws InterruptedException when the computation is interrupted
+     * @throws ExecutionException when the computation fails
+     */
+    public void computeNeighbors(final String similarity, final int k, final int threads) throws InterruptedException, ExecutionException {
+        final int nItems = itemIds.length;
+        // values used in the product, by user (centered on the item means for Pearson)
+        final double[] values = Arrays.copyOf(userValues, userValues.length);
+        if (PEARSON.equals(similarity)) {
+            for (int i = 0; i < nItems; i++) {
+                double sum = 0.0;
+                for (int q = itemPtr[i]; q < itemPtr[i + 1]; q++) {
+                    sum += values[itemPos[q]];
+                }
+                double mean = sum / Math.max(1, itemPtr[i + 1] - itemPtr[i]);
+                for (int q = itemPtr[i]; q < itemPtr[i + 1]; q++) {
+                    values[itemPos[q]] -= mean;
+                }
+            }
+        } else if (!COSINE.equals(similarity)) {
+            throw new IllegalArgumentException("Unknown similarity: " + similarity);
+        }
+        final double[] norms = new double[nItems];
+        for (int i = 0; i < nItems; i++) {
+            double sum = 0.0;
+            for (int q = itemPtr[i]; q < itemPtr[i + 1]; q++) {
+                sum += values[itemPos[q]] * values[itemPos[q]];
+            }
+            norms[i] = Math.sqrt(sum);
+        }
+        final int[][] nbs = new int[nItems][];
+        final double[][] sims = new double[nItems][];
+        final AtomicInteger nextItem = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<?>> workers = new ArrayList<Future<?>>();
+            for (int w = 0; w < Math.max(1, threads); w++) {
+                workers.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        double[] dot = new double[nItems];
+                        int[] seen = new int[nItems];
+                        int[] touched = new int[nItems];
+                        long[] topItems = new long[nItems];
+                        double[] topSims = new double[nItems];
+                        TopNSelector top = new TopNSelector(k);
+                        for (int i = nextItem.getAndIncrement(); i < nItems; i = nextItem.getAndIncrement()) {
+                            int nTouched = 0;
+                            for (int q = itemPtr[i]; q < itemPtr[i + 1]; q++) {
+                                int u = itemUsers[q];
+                                double x = values[itemPos[q]];
+                                for (int p = userPtr[u]; p < userPtr[u + 1]; p++) {
+                                    int j = userItems[p];
+                                    if (seen[j] != i + 1) {
+                                        seen[j] = i + 1;
+                                        touched[nTouched++] = j;
+                                    }
+                                    dot[j] += x * values[p];
+                                }
+                            }
+                            for (int t = 0; t < nTouched; t++) {
+                                int j = touched[t];
+                                double s = dot[j] / (norms[i] * norms[j]);
+                                if (j != i && s > 0.0) {
+                                    top.add(j, s);
+                                }
+                                dot[j] = 0.0;
+                            }
+                            int n = top.drainTo(topItems, topSims);
+                            nbs[i] = new int[n];
+                            for (int t = 0; t < n; t++) {
+                                nbs[i][t] = (int) topItems[t];
+                            }
+                            sims[i] = Arrays.copyOf(topSims, n);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> w : workers) {
+                w.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        neighborPtr = new int[nItems + 1];
+        for (int i = 0; i < nItems; i++) {
+            neighborPtr[i + 1] = neighborPtr[i] + nbs[i].length;
+        }
+        neighbors = new int[neighborPtr[nItems]];
+        neighborSims = new double[neighborPtr[nItems]];
+        for (int i = 0; i < nItems; i++) {
+            System.arraycopy(nbs[i], 0, neighbors, neighborPtr[i], nbs[i].length);
+            System.arraycopy(sims[i], 0, neighborSims, neighborPtr[i], sims[i].length);
+        }
+    }
+
+    /**
+     * Creates a scorer; every thread needs its own scorer.
+     *
+     * @return the scorer
+     */
+    public Scorer newScorer() {
+        return new Scorer();
+    }
+
+    /**
+     * Scores the items for a user, with buffers reused between users.
+     */
+    public final class Scorer {
+
+        /**
+         * Weighted sum of ratings of each item.
+         */
+        private final double[] num;
+        /**
+         * Sum of similarities of each item.
+         */
+        private final double[] den;
+        /**
+         * Items with some score.
+         */
+        private final int[] touched;
+        /**
+         * Items rated by the user.
+         */
+        private final boolean[] rated;
+
+        /**
+         * Constructor.
+         */
+        private Scorer() {
+            num = new double[itemIds.length];
+            den = new double[itemIds.length];
+            touched = new int[itemIds.length];
+            rated = new boolean[itemIds.length];
+        }
+
+        /**
+         * Recommends items to a user.
+         *
+         * @param user the user
+         * @param cutoff the number of recommendations (not positive means
+         * every item with a score)
+         * @param candidates the items that can be recommended, sorted (null
+         * means every item)
+         * @return the recommendations, by decreasing score
+         */
+        public List<RecommenderIO.Preference<Long, Long>> recommend(final long user, final int cutoff, final long[] candidates) {
+            TopNSelector top = new TopNSelector(cutoff);
+            int u = Arrays.binarySearch(userIds, user);
+            if (u < 0) {
+                return top.toPreferences(user);
+            }
+            int nTouched = 0;
+            for (int p = userPtr[u]; p < userPtr[u + 1]; p++) {
+                int i = userItems[p];
+                rated[i] = true;
+                double r = userValues[p];
+                for (int q = neighborPtr[i]; q < neighborPtr[i + 1]; q++) {
+                    int j = neighbors[q];
+                    if (den[j] == 0.0) {
+                        touched[nTouched++] = j;
+                    }
+                    num[j] += neighborSims[q] * r;
+                    den[j] += neighborSims[q];
+                }
+            }
+            if (candidates == null) {
+                for (int t = 0; t < nTouched; t++) {
+                    int j = touched[t];
+                    if (!rated[j]) {
+                        top.add(itemIds[j], num[j] / den[j]);
+                    }
+                }
+            } else {
+                for (long c : candidates) {
+                    int j = Arrays.binarySearch(itemIds, c);
+                    if (j >= 0 && den[j] > 0.0 && !rated[j]) {
+                        top.add(c, num[j] / den[j]);
+                    }
+                }
+            }
+            for (int t = 0; t < nTouched; t++) {
+                num[touched[t]] = 0.0;
+                den[touched[t]] = 0.0;
+            }
+            for (int p = userPtr[u]; p < userPtr[u + 1]; p++) {
+                rated[userItems[p]] = false;
+            }
+            return top.toPreferences(user);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.rival;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.SimpleParser;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.recommend.frameworks.AbstractRunner;
+import net.recommenders.rival.recommend.frameworks.RecommendationRunner;
+import net.recommenders.rival.recommend.frameworks.RecommendationSink;
+import net.recommenders.rival.recommend.frameworks.RecommenderIO;
+import net.recommenders.rival.recommend.frameworks.RunStatistics;
+import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
+
+/**
+ * A runner for the item-based nearest neighbors recommender implemented on
+ * RiVal's own data model (see {@link ItemKnnModel}), without converting the
+ * data to other frameworks. The {@link RecommendationRunner#RECOMMENDER}
+ * property must be {@link #ITEM_KNN}; the similarity ({@link ItemKnnModel#COSINE} or
+ * {@link ItemKnnModel#PEARSON}) and the number of neighbors per item are
+ * taken from the {@link RecommendationRunner#SIMILARITY} and
+ * {@link RecommendationRunner#NEIGHBORHOOD} properties; both the similarities
+ * and the recommendations are computed with
+ * {@link RecommendationRunner#THREADS} threads.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class ItemKnnRecommenderRunner extends AbstractRunner<Long, Long> {
+
+    /**
+     * Name of the item-based nearest neighbors recommender.
+     */
+    public static final String ITEM_KNN = "ItemKNN";
+    /**
+     * Default number of neighbors per item.
+     */
+    public static final int DEFAULT_NEIGHBORHOOD_SIZE = 50;
+    /**
+     * Default number of users recommended in each parallel task.
+     */
+    public static final int DEFAULT_USER_BATCH = 64;
+
+    /**
+     * Default constructor.
+     *
+     * @param props the properties.
+     */
+    public ItemKnnRecommenderRunner(final Properties props) {
+        super(props);
+    }
+
+    /**
+     * Runs the recommender.
+     *
+     * @param opts see
+     * {@link net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS}
+     * @return see
+     * {@link #run(net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS, net.recommenders.rival.core.TemporalDataModelIF, net.recommenders.rival.core.TemporalDataModelIF)}
+     * @throws RecommenderException see
+     * {@link #run(net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS, net.recommenders.rival.core.TemporalDataModelIF, net.recommenders.rival.core.TemporalDataModelIF)}
+     * @throws IOException when paths in property object are incorrect.
+     */
+    @Override
+    public DataModelIF<Long, Long> run(final RUN_OPTIONS opts) throws RecommenderException, IOException {
+        if (isAlreadyRecommended()) {
+            return null;
+        }
+        long t = getStatistics().begin(RunStatistics.Phase.LOAD);
+        SimpleParser parser = new SimpleParser();
+        TemporalDataModelIF<Long, Long> trainingModel = parser.parseTemporalData(new File(getProperties().getProperty(RecommendationRunner.TRAINING_SET)));
+        TemporalDataModelIF<Long, Long> testModel = parser.parseTemporalData(new File(getProperties().getProperty(RecommendationRunner.TEST_SET)));
+        getStatistics().end(RunStatistics.Phase.LOAD, t);
+        return run(opts, trainingModel, testModel);
+    }
+
+    /**
+     * Runs the recommender using the provided datamodels.
+     *
+     * @param opts see
+     * {@link net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS}
+     * @param trainingModel model to be used to train the recommender.
+     * @param testModel model to be used to test the recommender.
+     * @return nothing when opts is
+     * {@link net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS#OUTPUT_RECS},
+     * otherwise, when opts is
+     * {@link net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS#RETURN_RECS}
+     * or
+     * {@link net.recommenders.rival.recommend.frameworks.AbstractRunner.RUN_OPTIONS#RETURN_AND_OUTPUT_RECS}
+     * it returns the predictions
+     * @throws RecommenderException when the recommender or the similarity are
+     * unknown or the recommendations cannot be computed or written
+     */
+    @Override
+    public DataModelIF<Long, Long> run(final RUN_OPTIONS opts, final TemporalDataModelIF<Long, Long> trainingModel, final TemporalDataModelIF<Long, Long> testModel)
+            throws RecommenderException {
+        if (isAlreadyRecommended()) {
+            return null;
+        }
+        String recommender = getProperties().getProperty(RecommendationRunner.RECOMMENDER);
+        if (!ITEM_KNN.equals(recommender)) {
+            throw new RecommenderException("Unknown recommender: " + recommender);
+        }
+        String similarity = getProperties().getProperty(RecommendationRunner.SIMILARITY, ItemKnnModel.COSINE);
+        if (!ItemKnnModel.COSINE.equals(similarity) && !ItemKnnModel.PEARSON.equals(similarity)) {
+            throw new RecommenderException("Unknown similarity: " + similarity);
+        }
+        RunStatistics stats = getStatistics();
+        long t = stats.begin(RunStatistics.Phase.TRAIN);
+        ItemKnnModel knn = new ItemKnnModel(trainingModel);
+        String neighborhood = getProperties().getProperty(RecommendationRunner.NEIGHBORHOOD, "" + DEFAULT_NEIGHBORHOOD_SIZE);
+        int k = neighborhood.equals("-1") ? (int) Math.round(Math.sqrt(knn.getNumItems())) : Integer.parseInt(neighborhood);
+        int threads = Integer.parseInt(getProperties().getProperty(RecommendationRunner.THREADS, "1"));
+        try {
+            knn.computeNeighbors(similarity, k, threads);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RecommenderException("Similarities interrupted");
+        } catch (ExecutionException e) {
+            throw new RecommenderException("Could not compute similarities: " + e.getCause());
+        }
+        stats.end(RunStatistics.Phase.TRAIN, t);
+
+        DataModelIF<Long, Long> model = null;
+        switch (opts) {
+            case RETURN_AND_OUTPUT_RECS:
+            case RETURN_RECS:
+                model = DataModelFactory.getDefaultModel();
+                break;
+            default:
+                model = null;
+        }
+        String name = null;
+        switch (opts) {
+            case RETURN_AND_OUTPUT_RECS:
+            case OUTPUT_RECS:
+                name = getFileName();
+                break;
+            default:
+                name = null;
+        }
+        int batchSize = Integer.parseInt(getProperties().getProperty(RecommendationRunner.USER_BATCH, "" + DEFAULT_USER_BATCH));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        // batches waiting to be written (at most two per thread), in order
+        Deque<Future<List<List<RecommenderIO.Preference<Long, Long>>>>> pending = new ArrayDeque<>();
+        List<Long> users = new ArrayList<>();
+        for (Long u : testModel.getUsers()) {
+            users.add(u);
+        }
+        // the test items are sorted once, and shared by every batch
+        long[] testItems = null;
+        if (CANDIDATES_TEST_ITEMS.equals(getCandidates())) {
+            List<Long> items = new ArrayList<>();
+            for (Long i : testModel.getItems()) {
+                items.add(i);
+            }
+            testItems = toSortedArray(items);
+        }
+        try (RecommendationSink sink = openSink(name, model)) {
+            int next = 0;
+            while (next < users.size() || !pending.isEmpty()) {
+                while (next < users.size() && pending.size() < 2 * Math.max(1, threads)) {
+                    int end = Math.min(users.size(), next + batchSize);
+                    pending.add(executor.submit(new BatchRecommendation(knn, testModel, testItems, users.subList(next, end))));
+                    next = end;
+                }
+                List<List<RecommenderIO.Preference<Long, Long>>> batch = pending.poll().get();
+                t = stats.begin(RunStatistics.Phase.WRITE);
+                for (List<RecommenderIO.Preference<Long, Long>> recs : batch) {
+                    if (!recs.isEmpty()) {
+                        sink.write(recs.get(0).getUser(), recs);
+                    }
+                }
+                stats.end(RunStatistics.Phase.WRITE, t);
+            }
+        } catch (IOException e) {
+            throw new RecommenderException("Could not write recommendations: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RecommenderException("Recommendations interrupted");
+        } catch (ExecutionException e) {
+            throw new RecommenderException("Could not compute recommendations: " + e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return model;
+    }
+
+    /**
+     * Recommendations for a batch of users.
+     */
+    private final class BatchRecommendation implements Callable<List<List<RecommenderIO.Preference<Long, Long>>>> {
+
+        /**
+         * The model.
+         */
+        private final ItemKnnModel knn;
+        /**
+         * The test model.
+         */
+        private final TemporalDataModelIF<Long, Long> testModel;
+        /**
+         * The items in the test set, sorted (null if they are not the
+         * candidates).
+         */
+        private final long[] testItems;
+        /**
+         * The users of the batch.
+         */
+        private final List<Long> users;
+
+        /**
+         * Constructor.
+         *
+         * @param model the model
+         * @param test the test model
+         * @param sortedTestItems the items in the test set, sorted (null if
+         * they are not the candidates)
+         * @param batch the users of the batch
+         */
+        private BatchRecommendation(final ItemKnnModel model, final TemporalDataModelIF<Long, Long> test, final long[] sortedTestItems, final List<Long> batch) {
+            this.knn = model;
+            this.testModel = test;
+            this.testItems = sortedTestItems;
+            this.users = batch;
+        }
+
+        /**
+         * Gets the candidate items of a user.
+         *
+         * @param user the user
+         * @return the candidates, sorted (null if every item is a candidate)
+         */
+        private long[] candidates(final Long user) {
+            if (CANDIDATES_USER_TEST.equals(getCandidates())) {
+                List<Long> items = new ArrayList<>();
+                for (Long i : testModel.getUserItems(user)) {
+                    items.add(i);
+                }
+                return toSortedArray(items);
+            }
+            return testItems;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<List<RecommenderIO.Preference<Long, Long>>> call() {
+            long t = getStatistics().begin(RunStatistics.Phase.RECOMMEND);
+            ItemKnnModel.Scorer scorer = knn.newScorer();
+            List<List<RecommenderIO.Preference<Long, Long>>> recs = new ArrayList<>(users.size());
+            long scored = 0L;
+            for (Long u : users) {
+                long[] userCandidates = candidates(u);
+                scored += userCandidates == null ? knn.getNumItems() : userCandidates.length;
+                recs.add(scorer.recommend(u, getCutoff(), userCandidates));
+            }
+            getStatistics().recommended(users.size(), scored);
+            getStatistics().end(RunStatistics.Phase.RECOMMEND, t);
+            return recs;
+        }
+    }
+
+    /**
+     * Gets a list of ids as a sorted array.
+     *
+     * @param ids the ids
+     * @return the sorted ids
+     */
+    private static long[] toSortedArray(final List<Long> ids) {
+        long[] a = new long[ids.size()];
+        for (int k = 0; k < a.length; k++) {
+            a[k] = ids.get(k);
+        }
+        Arrays.sort(a);
+        return a;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link MultipleRecommendationRunner}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class MultipleRecommendationRunnerTest {
+
+    /**
+     * Folder for the splits, the recommendations and the models.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes a random training and test split.
+     *
+     * @return the path of the split (without "_train.dat" or "_test.dat")
+     * @throws Exception when the files cannot be written
+     */
+    private String writeSplit() throws Exception {
+        File splits = folder.newFolder("splits");
+        Random rnd = new Random(2016L);
+        try (PrintStream training = new PrintStream(new File(splits, "data_train.dat"), "UTF-8");
+                PrintStream test = new PrintStream(new File(splits, "data_test.dat"), "UTF-8")) {
+            for (long u = 1L; u <= 40L; u++) {
+                for (long i = 1L; i <= 30L; i++) {
+                    if (rnd.nextDouble() < 0.4) {
+                        training.println(u + "\t" + i + "\t" + (1 + rnd.nextInt(5)));
+                    } else if (rnd.nextDouble() < 0.1) {
+                        test.println(u + "\t" + i + "\t" + (1 + rnd.nextInt(5)));
+                    }
+                }
+            }
+        }
+        return new File(splits, "data").getPath();
+    }
+
+    /**
+     * Creates the properties of Mahout user-based recommenders.
+     *
+     * @param neighborhoods the neighborhood sizes, separated by commas
+     * @return the properties
+     */
+    private static Properties userBasedProperties(final String neighborhoods) {
+        Properties properties = new Properties();
+        properties.setProperty(MultipleRecommendationRunner.MAHOUT_ITEMBASED_RECS, "");
+        properties.setProperty(MultipleRecommendationRunner.MAHOUT_USERBASED_RECS, "org.apache.mahout.cf.taste.impl.recommender.GenericUserBasedRecommender");
+        properties.setProperty(MultipleRecommendationRunner.MAHOUT_SVD_RECS, "");
+        properties.setProperty(MultipleRecommendationRunner.MAHOUT_SVD_FACTORIZER, "");
+        properties.setProperty(MultipleRecommendationRunner.MAHOUT_SIMILARITIES, "org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity,"
+                + "org.apache.mahout.cf.taste.impl.similarity.EuclideanDistanceSimilarity");
+        properties.setProperty(MultipleRecommendationRunner.N, neighborhoods);
+        return properties;
+    }
+
+    @Test
+    public void testSharedGridMatchesSeparateRuns() throws Exception {
+        Set<String> paths = Collections.singleton(writeSplit());
+        Properties properties = userBasedProperties("5,10,-1,40");
+        properties.setProperty(MultipleRecommendationRunner.OUTPUT, folder.newFolder("separate").getPath());
+        MultipleRecommendationRunner.runMahoutRecommenders(paths, properties);
+        properties.setProperty(MultipleRecommendationRunner.GRID, "true");
+        properties.setProperty(MultipleRecommendationRunner.OUTPUT, folder.newFolder("grid").getPath());
+        MultipleRecommendationRunner.runMahoutRecommenders(paths, properties);
+
+        String[] files = new File(folder.getRoot(), "separate").list(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.endsWith(".tsv");
+            }
+        });
+        // two similarities and four sizes (-1 is the square root of the number of items)
+        assertEquals(2 * 4, files.length);
+        for (String file : files) {
+            assertArrayEquals(file, Files.readAllBytes(new File(folder.getRoot(), "separate/" + file).toPath()),
+                    Files.readAllBytes(new File(folder.getRoot(), "grid/" + file).toPath()));
+        }
+    }
+
+    @Test
+    public void testModelCacheIsPassedOn() throws Exception {
+        Set<String> paths = Collections.singleton(writeSplit());
+        File cache = folder.newFolder("cache");
+        Properties properties = userBasedProperties("10");
+        properties.setProperty(MultipleRecommendationRunner.MAHOUT_SIMILARITIES, "org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity");
+        properties.setProperty(RecommendationRunner.MODEL_CACHE, cache.getPath());
+        properties.setProperty(RecommendationRunner.THREADS, "2");
+        properties.setProperty(RecommendationRunner.CUTOFF, "5");
+        String file = "data.mahout.GenericUserBasedRecommender.PearsonCorrelationSimilarity.10.top5.tsv";
+
+        properties.setProperty(MultipleRecommendationRunner.OUTPUT, folder.newFolder("first").getPath());
+        MultipleRecommendationRunner.runMahoutRecommenders(paths, properties);
+        File[] models = cache.listFiles();
+        assertEquals(1, models.length);
+        assertTrue(models[0].setLastModified(0L));
+
+        // the second run reads the similarities: the model is not written again
+        properties.setProperty(MultipleRecommendationRunner.OUTPUT, folder.newFolder("second").getPath());
+        MultipleRecommendationRunner.runMahoutRecommenders(paths, properties);
+        assertEquals(1, cache.list().length);
+        assertEquals(0L, models[0].lastModified());
+        assertArrayEquals(Files.readAllBytes(new File(folder.getRoot(), "first/" + file).toPath()),
+                Files.readAllBytes(new File(folder.getRoot(), "second/" + file).toPath()));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test for {@link RecommendationSink}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class RecommendationSinkTest {
+
+    /**
+     * Folder for the recommendations.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates random recommendations for some users.
+     *
+     * @return the recommendations of every user
+     */
+    private static List<List<RecommenderIO.Preference<Long, Long>>> randomRecommendations() {
+        Random rnd = new Random(2016L);
+        List<List<RecommenderIO.Preference<Long, Long>>> recs = new ArrayList<>();
+        for (long u = -3L; u < 20L; u++) {
+            List<RecommenderIO.Preference<Long, Long>> prefs = new ArrayList<>();
+            for (int k = 0; k < 10; k++) {
+                double score = k == 0 ? 1e-12 : (k == 1 ? Double.NaN : rnd.nextGaussian() * Math.pow(10, rnd.nextInt(12) - 4));
+                prefs.add(new RecommenderIO.Preference<>(u * 1000003L, rnd.nextLong(), score));
+            }
+            recs.add(prefs);
+        }
+        return recs;
+    }
+
+    @Test
+    public void testTextSameAsWriteData() throws Exception {
+        List<List<RecommenderIO.Preference<Long, Long>>> recs = randomRecommendations();
+        String path = folder.getRoot().getPath();
+        DataModelIF<Long, Long> model = DataModelFactory.getDefaultModel();
+        try (RecommendationSink sink = new RecommendationSink(path, "sink.tsv", RecommendationSink.FORMAT_TEXT, false, 100, model)) {
+            for (List<RecommenderIO.Preference<Long, Long>> prefs : recs) {
+                sink.write(prefs.get(0).getUser(), prefs);
+            }
+        }
+        boolean append = false;
+        for (List<RecommenderIO.Preference<Long, Long>> prefs : recs) {
+            RecommenderIO.writeData(prefs.get(0).getUser(), prefs, path, "io.tsv", append, null);
+            append = true;
+        }
+        assertArrayEquals(Files.readAllBytes(new File(path, "io.tsv").toPath()),
+                Files.readAllBytes(new File(path, "sink.tsv").toPath()));
+        assertEquals(recs.size(), model.getNumUsers());
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        List<List<RecommenderIO.Preference<Long, Long>>> recs = randomRecommendations();
+        String path = folder.getRoot().getPath();
+        String name = "sink." + RecommendationSink.FORMAT_BINARY + RecommendationSink.COMPRESSED_EXTENSION;
+        DataModelIF<Long, Long> expected = DataModelFactory.getDefaultModel();
+        try (RecommendationSink sink = new RecommendationSink(path, name, RecommendationSink.FORMAT_BINARY, true,
+                RecommendationSink.DEFAULT_BUFFER_SIZE, expected)) {
+            for (List<RecommenderIO.Preference<Long, Long>> prefs : recs) {
+                sink.write(prefs.get(0).getUser(), prefs);
+            }
+        }
+        DataModelIF<Long, Long> actual = RecommenderIO.readBinaryData(new File(path, name), DataModelFactory.<Long, Long>getDefaultModel());
+        assertEquals(expected.getNumUsers(), actual.getNumUsers());
+        for (Long u : expected.getUsers()) {
+            for (Long i : expected.getUserItems(u)) {
+                assertEquals(expected.getUserItemPreference(u, i), actual.getUserItemPreference(u, i), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testListenerReceivesOneBlockPerUser() throws Exception {
+        List<List<RecommenderIO.Preference<Long, Long>>> recs = randomRecommendations();
+        final List<List<RecommenderIO.Preference<Long, Long>>> received = new ArrayList<>();
+        RecommendationListener listener = new RecommendationListener() {
+            @Override
+            public void recommended(final long user, final List<RecommenderIO.Preference<Long, Long>> recommendations) {
+                received.add(recommendations);
+            }
+        };
+        try (RecommendationSink sink = new RecommendationSink(null, null, RecommendationSink.FORMAT_TEXT, false, 100, null, listener)) {
+            for (int k = 0; k < recs.size(); k++) {
+                List<RecommenderIO.Preference<Long, Long>> prefs = recs.get(k);
+                if (k % 2 == 0) {
+                    sink.write(prefs.get(0).getUser(), prefs);
+                } else {
+                    for (RecommenderIO.Preference<Long, Long> p : prefs) {
+                        sink.write(p.getUser(), p.getItem(), p.getScore());
+                    }
+                }
+            }
+        }
+        assertEquals(recs.size(), received.size());
+        for (int k = 0; k < recs.size(); k++) {
+            assertEquals(recs.get(k).size(), received.get(k).size());
+            for (int j = 0; j < recs.get(k).size(); j++) {
+                assertEquals(recs.get(k).get(j).getItem(), received.get(k).get(j).getItem());
+                assertEquals(recs.get(k).get(j).getScore(), received.get(k).get(j).getScore(), 0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link RecommenderScheduler}, with jobs that only record when they
+ * run.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class RecommenderSchedulerTest {
+
+    /**
+     * Folder for the training files and the statistics.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    /**
+     * Names of the jobs, in the order they started.
+     */
+    private final List<String> started = new ArrayList<String>();
+    /**
+     * Names of the jobs running at the moment.
+     */
+    private final Set<String> running = new HashSet<String>();
+    /**
+     * Jobs running at the same time as each job when it started.
+     */
+    private final List<Set<String>> together = new ArrayList<Set<String>>();
+
+    /**
+     * A job that records when it starts and finishes.
+     */
+    private final class FakeRunner extends AbstractRunner<Long, Long> {
+
+        /**
+         * The name of the job.
+         */
+        private final String name;
+        /**
+         * Latch the job waits for before finishing (or null).
+         */
+        private final CountDownLatch wait;
+        /**
+         * Latch the job counts down when it starts (or null).
+         */
+        private final CountDownLatch signal;
+
+        /**
+         * Constructor.
+         *
+         * @param props the properties
+         * @param jobName the name of the job
+         * @param waitFor latch to wait for before finishing (or null)
+         * @param signalTo latch to count down when starting (or null)
+         */
+        private FakeRunner(final Properties props, final String jobName, final CountDownLatch waitFor, final CountDownLatch signalTo) {
+            super(props);
+            this.name = jobName;
+            this.wait = waitFor;
+            this.signal = signalTo;
+        }
+
+        @Override
+        public DataModelIF<Long, Long> run(final RUN_OPTIONS opts) throws Exception {
+            synchronized (running) {
+                started.add(name);
+                running.add(name);
+                together.add(new HashSet<String>(running));
+            }
+            if (signal != null) {
+                signal.countDown();
+            }
+            if (wait == null || !wait.await(10, TimeUnit.SECONDS)) {
+                Thread.sleep(50L);
+            }
+            synchronized (running) {
+                running.remove(name);
+            }
+            return null;
+        }
+
+        @Override
+        public DataModelIF<Long, Long> run(final RUN_OPTIONS opts, final TemporalDataModelIF<Long, Long> trainingModel,
+                final TemporalDataModelIF<Long, Long> testModel) throws Exception {
+            return run(opts);
+        }
+    }
+
+    /**
+     * Creates a job whose training file has some bytes.
+     *
+     * @param name the name of the job
+     * @param bytes the size of the training file
+     * @param waitFor latch to wait for before finishing (or null)
+     * @param signalTo latch to count down when starting (or null)
+     * @return the job
+     * @throws Exception when the training file cannot be written
+     */
+    private FakeRunner job(final String name, final int bytes, final CountDownLatch waitFor, final CountDownLatch signalTo) throws Exception {
+        File training = new File(folder.getRoot(), name + "_train.dat");
+        Files.write(training.toPath(), new byte[bytes]);
+        Properties properties = new Properties();
+        properties.setProperty(RecommendationRunner.TRAINING_SET, training.getPath());
+        properties.setProperty(RecommendationRunner.OUTPUT, folder.getRoot().getPath());
+        properties.setProperty(RecommendationRunner.FRAMEWORK, "fake");
+        properties.setProperty(RecommendationRunner.RECOMMENDER, name);
+        return new FakeRunner(properties, name, waitFor, signalTo);
+    }
+
+    @Test
+    public void testLargestFirst() throws Exception {
+        List<FakeRunner> jobs = Arrays.asList(job("small", 10, null, null), job("large", 30, null, null), job("medium", 20, null, null));
+        new RecommenderScheduler(1, Long.MAX_VALUE, 1.0).run(jobs);
+
+        assertEquals(Arrays.asList("large", "medium", "small"), started);
+        for (FakeRunner job : jobs) {
+            assertTrue(new File(job.getCanonicalFileName()).exists());
+        }
+    }
+
+    @Test
+    public void testHeapBudget() throws Exception {
+        // "b" and "d" fit together in the budget: "b" waits until "d" starts
+        CountDownLatch pair = new CountDownLatch(1);
+        List<FakeRunner> jobs = Arrays.asList(job("a", 150, null, null), job("b", 60, pair, null),
+                job("c", 50, null, null), job("d", 30, null, pair));
+        new RecommenderScheduler(3, 100L, 1.0).run(jobs);
+
+        assertEquals(4, started.size());
+        // the job that does not fit on its own runs first and alone
+        assertEquals("a", started.get(0));
+        assertEquals(new HashSet<String>(Arrays.asList("a")), together.get(0));
+        assertEquals(0L, pair.getCount());
+        for (Set<String> jobsTogether : together) {
+            long memory = 0L;
+            for (String name : jobsTogether) {
+                memory += new File(folder.getRoot(), name + "_train.dat").length();
+            }
+            assertTrue(jobsTogether.toString(), jobsTogether.size() == 1 || memory <= 100L);
+        }
+    }
+}
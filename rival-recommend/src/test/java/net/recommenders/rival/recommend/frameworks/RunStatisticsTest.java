@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks;
+
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link RunStatistics}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class RunStatisticsTest {
+
+    @Test
+    public void testOverlappingRecommendations() throws Exception {
+        RunStatistics stats = new RunStatistics("overlapping");
+        stats.start();
+        // two batches recommended at the same time, as two threads would
+        long first = stats.begin(RunStatistics.Phase.RECOMMEND);
+        Thread.sleep(50L);
+        long second = stats.begin(RunStatistics.Phase.RECOMMEND);
+        Thread.sleep(100L);
+        stats.end(RunStatistics.Phase.RECOMMEND, first);
+        Thread.sleep(50L);
+        stats.end(RunStatistics.Phase.RECOMMEND, second);
+        // no recommendation in progress: not counted
+        Thread.sleep(50L);
+        long third = stats.begin(RunStatistics.Phase.RECOMMEND);
+        Thread.sleep(50L);
+        stats.end(RunStatistics.Phase.RECOMMEND, third);
+        stats.stop();
+
+        Map<String, Long> values = stats.toStats();
+        long wall = values.get("time.recommend");
+        long cpu = values.get("time.recommend.cpu");
+        assertEquals(stats.getRecommendTime(), wall);
+        assertEquals(stats.getRecommendCpuTime(), cpu);
+        assertTrue(wall >= 250L - 2L);
+        // the overlap is only counted once in the wall-clock time
+        assertTrue(cpu - wall >= 100L - 2L);
+        assertTrue(stats.getElapsedTime() - wall >= 50L - 2L);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.mahout;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.Random;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.recommend.frameworks.AbstractRunner;
+import net.recommenders.rival.recommend.frameworks.RecommendationRunner;
+import org.apache.mahout.cf.taste.common.Refreshable;
+import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link MahoutRecommenderRunner}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class MahoutRecommenderRunnerTest {
+
+    /**
+     * Folder for the recommendations.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Runs an item-based recommender with a number of threads.
+     *
+     * @param threads the number of threads
+     * @param training the training model
+     * @param test the test model
+     * @return the recommendations
+     * @throws Exception when the recommender fails
+     */
+    private DataModelIF<Long, Long> run(final int threads, final TemporalDataModelIF<Long, Long> training,
+            final TemporalDataModelIF<Long, Long> test) throws Exception {
+        return new MahoutRecommenderRunner(properties(threads)).run(AbstractRunner.RUN_OPTIONS.RETURN_AND_OUTPUT_RECS, training, test);
+    }
+
+    /**
+     * Creates the properties of an item-based recommender.
+     *
+     * @param threads the number of threads
+     * @return the properties
+     */
+    private Properties properties(final int threads) {
+        Properties props = new Properties();
+        props.setProperty(RecommendationRunner.RECOMMENDER, "org.apache.mahout.cf.taste.impl.recommender.GenericItemBasedRecommender");
+        props.setProperty(RecommendationRunner.SIMILARITY, "org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity");
+        props.setProperty(RecommendationRunner.NEIGHBORHOOD, "10");
+        props.setProperty(RecommendationRunner.FRAMEWORK, RecommendationRunner.MAHOUT);
+        props.setProperty(RecommendationRunner.TRAINING_SET, "data_train.csv");
+        props.setProperty(RecommendationRunner.OUTPUT, new File(folder.getRoot(), "t" + threads).getPath());
+        props.setProperty(RecommendationRunner.THREADS, "" + threads);
+        props.setProperty(RecommendationRunner.USER_BATCH, "3");
+        return props;
+    }
+
+    /**
+     * Creates a random training model and fills a test model.
+     *
+     * @param test the test model
+     * @return the training model
+     */
+    private static TemporalDataModelIF<Long, Long> randomModels(final TemporalDataModelIF<Long, Long> test) {
+        Random rnd = new Random(2016L);
+        TemporalDataModelIF<Long, Long> training = DataModelFactory.getDefaultTemporalModel();
+        for (long u = 1L; u <= 40L; u++) {
+            for (long i = 1L; i <= 30L; i++) {
+                if (rnd.nextDouble() < 0.4) {
+                    training.addPreference(u, i, 1.0 + rnd.nextInt(5));
+                } else if (rnd.nextDouble() < 0.1) {
+                    test.addPreference(u, i, 1.0 + rnd.nextInt(5));
+                }
+            }
+        }
+        return training;
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        TemporalDataModelIF<Long, Long> test = DataModelFactory.getDefaultTemporalModel();
+        TemporalDataModelIF<Long, Long> training = randomModels(test);
+        DataModelIF<Long, Long> sequential = run(1, training, test);
+        DataModelIF<Long, Long> parallel = run(4, training, test);
+        assertTrue(sequential.getNumUsers() > 0);
+        assertEquals(sequential.getNumUsers(), parallel.getNumUsers());
+        for (Long u : sequential.getUsers()) {
+            for (Long i : sequential.getUserItems(u)) {
+                assertEquals(sequential.getUserItemPreference(u, i), parallel.getUserItemPreference(u, i), 0.0);
+            }
+        }
+        String file = "data.mahout.GenericItemBasedRecommender.PearsonCorrelationSimilarity.10.tsv";
+        assertArrayEquals(Files.readAllBytes(new File(folder.getRoot(), "t1/" + file).toPath()),
+                Files.readAllBytes(new File(folder.getRoot(), "t4/" + file).toPath()));
+    }
+
+    @Test
+    public void testCutoffAndCandidates() throws Exception {
+        TemporalDataModelIF<Long, Long> test = DataModelFactory.getDefaultTemporalModel();
+        TemporalDataModelIF<Long, Long> training = randomModels(test);
+        Properties props = properties(1);
+        props.setProperty(RecommendationRunner.CUTOFF, "5");
+        DataModelIF<Long, Long> top = new MahoutRecommenderRunner(props).run(AbstractRunner.RUN_OPTIONS.RETURN_RECS, training, test);
+        DataModelIF<Long, Long> all = run(1, training, test);
+        assertEquals(all.getNumUsers(), top.getNumUsers());
+        for (Long u : top.getUsers()) {
+            int n = 0;
+            for (Long i : top.getUserItems(u)) {
+                assertEquals(all.getUserItemPreference(u, i), top.getUserItemPreference(u, i), 1e-6);
+                n++;
+            }
+            int total = 0;
+            for (Long i : all.getUserItems(u)) {
+                total++;
+            }
+            assertEquals(Math.min(5, total), n);
+        }
+
+        props = properties(2);
+        props.setProperty(RecommendationRunner.CANDIDATES, AbstractRunner.CANDIDATES_USER_TEST);
+        DataModelIF<Long, Long> candidates = new MahoutRecommenderRunner(props).run(AbstractRunner.RUN_OPTIONS.RETURN_RECS, training, test);
+        for (Long u : candidates.getUsers()) {
+            for (Long i : candidates.getUserItems(u)) {
+                assertFalse(Double.isNaN(test.getUserItemPreference(u, i)));
+            }
+        }
+    }
+
+    @Test
+    public void testModelCache() throws Exception {
+        TemporalDataModelIF<Long, Long> test = DataModelFactory.getDefaultTemporalModel();
+        TemporalDataModelIF<Long, Long> training = randomModels(test);
+        File cache = folder.newFolder("cache");
+        for (String rec : new String[]{"GenericItemBasedRecommender", "GenericUserBasedRecommender"}) {
+            Properties props = properties(1);
+            props.setProperty(RecommendationRunner.RECOMMENDER, "org.apache.mahout.cf.taste.impl.recommender." + rec);
+            props.setProperty(RecommendationRunner.NEIGHBORHOOD, "5");
+            DataModelIF<Long, Long> expected = new MahoutRecommenderRunner(props).run(AbstractRunner.RUN_OPTIONS.RETURN_RECS, training, test);
+            assertTrue(expected.getNumUsers() > 0);
+            props.setProperty(RecommendationRunner.MODEL_CACHE, cache.getPath());
+            for (int run = 0; run < 3; run++) {
+                // the last run reads from several threads what the previous ones cached
+                props.setProperty(RecommendationRunner.THREADS, run < 2 ? "1" : "4");
+                DataModelIF<Long, Long> cached = new MahoutRecommenderRunner(props).run(AbstractRunner.RUN_OPTIONS.RETURN_RECS, training, test);
+                assertEquals(expected.getNumUsers(), cached.getNumUsers());
+                for (Long u : expected.getUsers()) {
+                    assertEquals(expected.getUserItems(u), cached.getUserItems(u));
+                    for (Long i : expected.getUserItems(u)) {
+                        assertEquals(expected.getUserItemPreference(u, i), cached.getUserItemPreference(u, i), 0.0);
+                    }
+                }
+            }
+        }
+        assertEquals(2, cache.list().length);
+    }
+
+    @Test
+    public void testCachedItemSimilarityBound() throws Exception {
+        ItemSimilarity delegate = new ItemSimilarity() {
+            @Override
+            public double itemSimilarity(final long itemID1, final long itemID2) {
+                return itemID1 - itemID2;
+            }
+
+            @Override
+            public double[] itemSimilarities(final long itemID1, final long[] itemID2s) {
+                double[] sims = new double[itemID2s.length];
+                for (int k = 0; k < sims.length; k++) {
+                    sims[k] = itemSimilarity(itemID1, itemID2s[k]);
+                }
+                return sims;
+            }
+
+            @Override
+            public long[] allSimilarItemIDs(final long itemID) {
+                return new long[0];
+            }
+
+            @Override
+            public void refresh(final Collection<Refreshable> alreadyRefreshed) {
+            }
+        };
+        CachedItemSimilarity similarity = new CachedItemSimilarity(5L);
+        similarity.attach(delegate);
+        assertFalse(similarity.isModified());
+        assertArrayEquals(new double[]{-2.0, -1.0, -2.0}, similarity.itemSimilarities(1L, new long[]{3L, 2L, 3L}), 0.0);
+        assertEquals(2L, similarity.getStoredPairs());
+        assertTrue(similarity.isModified());
+        assertArrayEquals(new double[]{1.0, 2.0, 3.0, 4.0, 5.0}, similarity.itemSimilarities(6L, new long[]{5L, 4L, 3L, 2L, 1L}), 0.0);
+        assertEquals(5L, similarity.getStoredPairs());
+        assertEquals(-1.0, similarity.itemSimilarity(1L, 2L), 0.0);
+        assertEquals(1.0, similarity.itemSimilarity(2L, 1L), 0.0);
+        assertEquals(5L, similarity.getStoredPairs());
+    }
+}
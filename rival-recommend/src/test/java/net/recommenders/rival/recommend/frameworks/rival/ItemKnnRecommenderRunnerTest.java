@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.recommend.frameworks.rival;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.Random;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.recommend.frameworks.AbstractRunner;
+import net.recommenders.rival.recommend.frameworks.RecommendationRunner;
+import net.recommenders.rival.recommend.frameworks.RunStatistics;
+import net.recommenders.rival.recommend.frameworks.exceptions.RecommenderException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link ItemKnnRecommenderRunner}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class ItemKnnRecommenderRunnerTest {
+
+    /**
+     * Folder for the recommendations.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates the properties of the recommender.
+     *
+     * @param similarity the similarity
+     * @param threads the number of threads
+     * @return the properties
+     */
+    private Properties properties(final String similarity, final int threads) {
+        Properties props = new Properties();
+        props.setProperty(RecommendationRunner.RECOMMENDER, ItemKnnRecommenderRunner.ITEM_KNN);
+        props.setProperty(RecommendationRunner.SIMILARITY, similarity);
+        props.setProperty(RecommendationRunner.NEIGHBORHOOD, "10");
+        props.setProperty(RecommendationRunner.FRAMEWORK, RecommendationRunner.RIVAL);
+        props.setProperty(RecommendationRunner.TRAINING_SET, "data_train.csv");
+        props.setProperty(RecommendationRunner.OUTPUT, new File(folder.getRoot(), similarity + threads).getPath());
+        props.setProperty(RecommendationRunner.THREADS, "" + threads);
+        props.setProperty(RecommendationRunner.USER_BATCH, "3");
+        return props;
+    }
+
+    /**
+     * Creates a random training model and fills a test model.
+     *
+     * @param test the test model
+     * @return the training model
+     */
+    private static TemporalDataModelIF<Long, Long> randomModels(final TemporalDataModelIF<Long, Long> test) {
+        Random rnd = new Random(2016L);
+        TemporalDataModelIF<Long, Long> training = DataModelFactory.getDefaultTemporalModel();
+        for (long u = 1L; u <= 40L; u++) {
+            for (long i = 1L; i <= 30L; i++) {
+                if (rnd.nextDouble() < 0.4) {
+                    training.addPreference(u, i, 1.0 + rnd.nextInt(5));
+                } else if (rnd.nextDouble() < 0.1) {
+                    test.addPreference(u, i, 1.0 + rnd.nextInt(5));
+                }
+            }
+        }
+        return training;
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        TemporalDataModelIF<Long, Long> test = DataModelFactory.getDefaultTemporalModel();
+        TemporalDataModelIF<Long, Long> training = randomModels(test);
+        for (String similarity : new String[]{ItemKnnModel.COSINE, ItemKnnModel.PEARSON}) {
+            ItemKnnRecommenderRunner sequentialRunner = new ItemKnnRecommenderRunner(properties(similarity, 1));
+            ItemKnnRecommenderRunner parallelRunner = new ItemKnnRecommenderRunner(properties(similarity, 4));
+            DataModelIF<Long, Long> sequential = sequentialRunner.run(AbstractRunner.RUN_OPTIONS.RETURN_AND_OUTPUT_RECS, training, test);
+            DataModelIF<Long, Long> parallel = parallelRunner.run(AbstractRunner.RUN_OPTIONS.RETURN_AND_OUTPUT_RECS, training, test);
+            assertTrue(sequential.getNumUsers() > 0);
+            assertEquals(sequential.getNumUsers(), parallel.getNumUsers());
+            RunStatistics stats = parallelRunner.getStatistics();
+            assertEquals(test.getNumUsers(), stats.getUsers());
+            assertEquals(sequentialRunner.getStatistics().getItemsScored(), stats.getItemsScored());
+            assertEquals(test.getNumUsers() * 30L, stats.getItemsScored());
+            for (Long u : sequential.getUsers()) {
+                for (Long i : sequential.getUserItems(u)) {
+                    assertEquals(sequential.getUserItemPreference(u, i), parallel.getUserItemPreference(u, i), 0.0);
+                    // scores are averages of ratings of items the user has not rated
+                    assertTrue(Double.isNaN(training.getUserItemPreference(u, i)));
+                    double score = sequential.getUserItemPreference(u, i);
+                    assertTrue(score > 1.0 - 1e-9 && score < 5.0 + 1e-9);
+                }
+            }
+            String file = "data.rival.ItemKNN." + similarity + ".10.tsv";
+            assertArrayEquals(Files.readAllBytes(new File(folder.getRoot(), similarity + "1/" + file).toPath()),
+                    Files.readAllBytes(new File(folder.getRoot(), similarity + "4/" + file).toPath()));
+        }
+    }
+
+    @Test(expected = RecommenderException.class)
+    public void testUnknownSimilarity() throws Exception {
+        TemporalDataModelIF<Long, Long> test = DataModelFactory.getDefaultTemporalModel();
+        TemporalDataModelIF<Long, Long> training = randomModels(test);
+        new ItemKnnRecommenderRunner(properties("jaccard", 1)).run(AbstractRunner.RUN_OPTIONS.RETURN_RECS, training, test);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Runner of the synthetic data set generator.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class GeneratorRunner {
+
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String USERS = "generator.users";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String ITEMS = "generator.items";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String POPULARITY_EXPONENT = "generator.popularity.exponent";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String MIN_ACTIVITY = "generator.activity.min";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String MAX_ACTIVITY = "generator.activity.max";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String ACTIVITY_EXPONENT = "generator.activity.exponent";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String RATINGS = "generator.ratings";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String RATING_PROBABILITIES = "generator.ratings.probabilities";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String FIRST_TIMESTAMP = "generator.timestamp.first";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String TIMESTAMP_SPREAD = "generator.timestamp.spread";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String SEED = "generator.seed";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String OUTPUT_FILE = "generator.output.file";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String OUTPUT_FORMAT = "generator.output.format";
+    /**
+     * Default exponents (as observed in many rating data sets).
+     */
+    public static final String DEFAULT_EXPONENT = "1.0";
+    /**
+     * Default rating values.
+     */
+    public static final String DEFAULT_RATINGS = "1,2,3,4,5";
+    /**
+     * Default rating probabilities (close to those of MovieLens 100K).
+     */
+    public static final String DEFAULT_RATING_PROBABILITIES = "0.06,0.11,0.27,0.34,0.22";
+    /**
+     * Default first timestamp.
+     */
+    public static final String DEFAULT_FIRST_TIMESTAMP = "874724710";
+    /**
+     * Default timestamp spread (about 7 months, as MovieLens 100K).
+     */
+    public static final String DEFAULT_TIMESTAMP_SPREAD = "18000000";
+
+    /**
+     * Utility classes should not have a public or default constructor.
+     */
+    private GeneratorRunner() {
+    }
+
+    /**
+     * Main method that loads properties from a file (given by the system
+     * property "propertyFile") and runs the generator.
+     *
+     * @param args program arguments (not used)
+     * @throws IOException when the file cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        String propertyFile = System.getProperty("propertyFile");
+
+        final Properties properties = new Properties();
+        try {
+            properties.load(new FileInputStream(propertyFile));
+        } catch (IOException ie) {
+            ie.printStackTrace();
+        }
+
+        run(properties);
+    }
+
+    /**
+     * Generates a data set file according to the properties.
+     *
+     * @param properties the properties
+     * @return the number of interactions generated
+     * @throws IOException when the file cannot be written
+     */
+    public static long run(final Properties properties) throws IOException {
+        File file = new File(properties.getProperty(OUTPUT_FILE));
+        SyntheticDataGenerator.Format format = SyntheticDataGenerator.Format.valueOf(
+                properties.getProperty(OUTPUT_FORMAT, SyntheticDataGenerator.Format.SIMPLE.toString()));
+        System.out.println("Generation started: " + file);
+        long n = instantiateGenerator(properties).generate(file, format);
+        System.out.println("Generation finished: " + n + " interactions");
+        return n;
+    }
+
+    /**
+     * Instantiates a generator according to the properties.
+     *
+     * @param properties the properties
+     * @return the generator
+     */
+    public static SyntheticDataGenerator instantiateGenerator(final Properties properties) {
+        int nItems = Integer.parseInt(properties.getProperty(ITEMS));
+        int minActivity = Integer.parseInt(properties.getProperty(MIN_ACTIVITY, "1"));
+        return new SyntheticDataGenerator(
+                Integer.parseInt(properties.getProperty(USERS)),
+                nItems,
+                Double.parseDouble(properties.getProperty(POPULARITY_EXPONENT, DEFAULT_EXPONENT)),
+                minActivity,
+                Integer.parseInt(properties.getProperty(MAX_ACTIVITY, Integer.toString(nItems))),
+                Double.parseDouble(properties.getProperty(ACTIVITY_EXPONENT, DEFAULT_EXPONENT)),
+                parseDoubles(properties.getProperty(RATINGS, DEFAULT_RATINGS)),
+                parseDoubles(properties.getProperty(RATING_PROBABILITIES, DEFAULT_RATING_PROBABILITIES)),
+                Long.parseLong(properties.getProperty(FIRST_TIMESTAMP, DEFAULT_FIRST_TIMESTAMP)),
+                Long.parseLong(properties.getProperty(TIMESTAMP_SPREAD, DEFAULT_TIMESTAMP_SPREAD)),
+                Long.parseLong(properties.getProperty(SEED)));
+    }
+
+    /**
+     * Parses a list of numbers separated by commas.
+     *
+     * @param values the list
+     * @return the numbers
+     */
+    private static double[] parseDoubles(final String values) {
+        String[] toks = values.split(",");
+        double[] d = new double[toks.length];
+        for (int k = 0; k < toks.length; k++) {
+            d[k] = Double.parseDouble(toks[k].trim());
+        }
+        return d;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.generator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * Generator of synthetic interactions, to test RiVal at scales where no real
+ * data set is at hand.
+ *
+ * Users are generated one after the other: the number of items of each user
+ * (its activity) follows a Zipf distribution between a minimum and a maximum,
+ * the items are drawn from a Zipf distribution over their popularity rank
+ * (item 1 being the most popular), the ratings from a discrete distribution,
+ * and the timestamps uniformly within a period. Only the items of the current
+ * user are kept in memory, hence the memory does not grow with the number of
+ * interactions; and since everything comes from one seeded random generator,
+ * the same parameters always produce the same interactions.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class SyntheticDataGenerator {
+
+    /**
+     * Maximum number of draws per interaction of a user: when the distinct
+     * items cannot be found within these draws (the activity is close to the
+     * number of items and the popularity is very skewed), the user gets fewer
+     * items.
+     */
+    private static final int MAX_DRAWS_PER_INTERACTION = 10;
+
+    /**
+     * Format of the generated files, one interaction per line.
+     */
+    public enum Format {
+
+        /**
+         * user, item, rating and timestamp, separated by tabs (as read by
+         * {@link net.recommenders.rival.core.SimpleParser}).
+         */
+        SIMPLE,
+        /**
+         * user, item, rating and timestamp, separated by "::" (as read by
+         * {@link net.recommenders.rival.split.parser.MovielensParser}).
+         */
+        MOVIELENS
+    }
+
+    /**
+     * Receives the generated interactions.
+     */
+    private interface InteractionHandler {
+
+        /**
+         * Handles an interaction.
+         *
+         * @param user the user
+         * @param item the item
+         * @param rating the rating
+         * @param timestamp the timestamp
+         * @throws IOException when the interaction cannot be written
+         */
+        void handle(long user, long item, double rating, long timestamp) throws IOException;
+    }
+
+    /**
+     * Number of users.
+     */
+    private final int numUsers;
+    /**
+     * Sampler of the item popularity ranks.
+     */
+    private final ZipfSampler itemSampler;
+    /**
+     * Sampler of the user activity (offset by the minimum activity).
+     */
+    private final ZipfSampler activitySampler;
+    /**
+     * Minimum number of items per user.
+     */
+    private final int minActivity;
+    /**
+     * Rating values.
+     */
+    private final double[] ratings;
+    /**
+     * Cumulative probabilities of the rating values.
+     */
+    private final double[] ratingCdf;
+    /**
+     * First timestamp.
+     */
+    private final long firstTimestamp;
+    /**
+     * Length of the period of the timestamps.
+     */
+    private final long timestampSpread;
+    /**
+     * Seed of the random generator.
+     */
+    private final long seed;
+
+    /**
+     * Constructor.
+     *
+     * @param nUsers number of users
+     * @param nItems number of items
+     * @param popularityExponent exponent of the Zipf distribution of the
+     * item popularity (0 for uniform)
+     * @param theMinActivity minimum number of items per user
+     * @param maxActivity maximum number of items per user (at most nItems)
+     * @param activityExponent exponent of the Zipf distribution of the user
+     * activity (0 for uniform)
+     * @param theRatings rating values
+     * @param ratingProbabilities probability of each rating value (normalized
+     * if they do not add up to 1)
+     * @param theFirstTimestamp first timestamp
+     * @param theTimestampSpread length of the period of the timestamps
+     * @param theSeed seed of the random generator
+     */
+    public SyntheticDataGenerator(final int nUsers, final int nItems,
+            final double popularityExponent, final int theMinActivity, final int maxActivity, final double activityExponent,
+            final double[] theRatings, final double[] ratingProbabilities,
+            final long theFirstTimestamp, final long theTimestampSpread, final long theSeed) {
+        if (nUsers < 0) {
+            throw new IllegalArgumentException("The number of users cannot be negative: " + nUsers);
+        }
+        if (theMinActivity < 1 || theMinActivity > maxActivity || maxActivity > nItems) {
+            throw new IllegalArgumentException("The activity must be between 1 and the number of items (" + nItems + "): "
+                    + theMinActivity + " - " + maxActivity);
+        }
+        if (theRatings.length == 0 || theRatings.length != ratingProbabilities.length) {
+            throw new IllegalArgumentException("There must be one probability for each rating value");
+        }
+        if (theTimestampSpread < 1) {
+            throw new IllegalArgumentException("The timestamp spread must be positive: " + theTimestampSpread);
+        }
+        this.numUsers = nUsers;
+        this.itemSampler = new ZipfSampler(nItems, popularityExponent);
+        this.activitySampler = new ZipfSampler(maxActivity - theMinActivity + 1, activityExponent);
+        this.minActivity = theMinActivity;
+        this.ratings = theRatings.clone();
+        this.ratingCdf = new double[ratingProbabilities.length];
+        double sum = 0.0;
+        for (int k = 0; k < ratingProbabilities.length; k++) {
+            if (ratingProbabilities[k] < 0.0) {
+                throw new IllegalArgumentException("Probabilities cannot be negative: " + ratingProbabilities[k]);
+            }
+            sum += ratingProbabilities[k];
+            ratingCdf[k] = sum;
+        }
+        if (sum <= 0.0) {
+            throw new IllegalArgumentException("Probabilities cannot add up to 0");
+        }
+        for (int k = 0; k < ratingCdf.length; k++) {
+            ratingCdf[k] /= sum;
+        }
+        this.firstTimestamp = theFirstTimestamp;
+        this.timestampSpread = theTimestampSpread;
+        this.seed = theSeed;
+    }
+
+    /**
+     * Generates the interactions into a data model; the timestamps are also
+     * added when the model is temporal.
+     *
+     * @param model the data model
+     * @return the number of interactions
+     */
+    @SuppressWarnings("unchecked")
+    public long generate(final DataModelIF<Long, Long> model) {
+        final TemporalDataModelIF<Long, Long> temporalModel = (model instanceof TemporalDataModelIF) ? (TemporalDataModelIF<Long, Long>) model : null;
+        try {
+            return generate(new InteractionHandler() {
+                @Override
+                public void handle(final long user, final long item, final double rating, final long timestamp) {
+                    model.addPreference(user, item, rating);
+                    if (temporalModel != null) {
+                        temporalModel.addTimestamp(user, item, timestamp);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            // the handler does not throw it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generates the interactions into a file, written as they are generated.
+     *
+     * @param file the file
+     * @param format the format of the file
+     * @return the number of interactions
+     * @throws IOException when the file cannot be written
+     */
+    public long generate(final File file, final Format format) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+            return generate(out, format);
+        }
+    }
+
+    /**
+     * Generates the interactions into a writer.
+     *
+     * @param out the writer
+     * @param format the format of the lines
+     * @return the number of interactions
+     * @throws IOException when the interactions cannot be written
+     */
+    public long generate(final Writer out, final Format format) throws IOException {
+        final String delimiter = (format == Format.MOVIELENS) ? "::" : "\t";
+        final StringBuilder line = new StringBuilder();
+        return generate(new InteractionHandler() {
+            @Override
+            public void handle(final long user, final long item, final double rating, final long timestamp) throws IOException {
+                line.setLength(0);
+                line.append(user).append(delimiter).append(item).append(delimiter);
+                if (rating == Math.rint(rating)) {
+                    line.append((long) rating);
+                } else {
+                    line.append(rating);
+                }
+                line.append(delimiter).append(timestamp).append('\n');
+                out.append(line);
+            }
+        });
+    }
+
+    /**
+     * Generates the interactions, user by user.
+     *
+     * @param handler the handler of the interactions
+     * @return the number of interactions
+     * @throws IOException when the handler fails
+     */
+    private long generate(final InteractionHandler handler) throws IOException {
+        Random rnd = new Random(seed);
+        Set<Integer> userItems = new HashSet<>();
+        long n = 0L;
+        for (int u = 1; u <= numUsers; u++) {
+            int activity = minActivity - 1 + activitySampler.sample(rnd);
+            userItems.clear();
+            for (long draws = 0; userItems.size() < activity && draws < (long) activity * MAX_DRAWS_PER_INTERACTION; draws++) {
+                int item = itemSampler.sample(rnd);
+                if (userItems.add(item)) {
+                    handler.handle(u, item, sampleRating(rnd), firstTimestamp + (long) (rnd.nextDouble() * timestampSpread));
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Draws a rating value.
+     *
+     * @param rnd the random generator
+     * @return the rating
+     */
+    private double sampleRating(final Random rnd) {
+        double p = rnd.nextDouble();
+        for (int k = 0; k < ratingCdf.length - 1; k++) {
+            if (p < ratingCdf[k]) {
+                return ratings[k];
+            }
+        }
+        return ratings[ratings.length - 1];
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.generator;
+
+import java.util.Random;
+
+/**
+ * Sampler of a Zipf distribution over {1, ..., n}, where the probability of k
+ * is proportional to 1 / k^exponent. It uses the rejection-inversion method
+ * of [Hormann and Derflinger, 1996], so sampling takes constant time and
+ * memory whatever the number of elements.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public final class ZipfSampler {
+
+    /**
+     * Threshold below which the helper functions use their Taylor expansion.
+     */
+    private static final double TAYLOR_THRESHOLD = 1e-8;
+    /**
+     * Number of elements.
+     */
+    private final int numberOfElements;
+    /**
+     * Exponent of the distribution.
+     */
+    private final double exponent;
+    /**
+     * Integral of h at 1.5, minus h(1).
+     */
+    private final double hIntegralX1;
+    /**
+     * Integral of h at n + 0.5.
+     */
+    private final double hIntegralNumberOfElements;
+    /**
+     * Acceptance bound of the samples close to the inverse.
+     */
+    private final double s;
+
+    /**
+     * Constructor.
+     *
+     * @param theNumberOfElements number of elements (at least 1)
+     * @param theExponent exponent of the distribution (0 is uniform)
+     */
+    public ZipfSampler(final int theNumberOfElements, final double theExponent) {
+        if (theNumberOfElements < 1) {
+            throw new IllegalArgumentException("The number of elements must be positive: " + theNumberOfElements);
+        }
+        if (theExponent < 0.0 || Double.isNaN(theExponent)) {
+            throw new IllegalArgumentException("The exponent cannot be negative: " + theExponent);
+        }
+        this.numberOfElements = theNumberOfElements;
+        this.exponent = theExponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralNumberOfElements = hIntegral(theNumberOfElements + 0.5);
+        this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+    }
+
+    /**
+     * Gets the number of elements.
+     *
+     * @return the number of elements
+     */
+    public int getNumberOfElements() {
+        return numberOfElements;
+    }
+
+    /**
+     * Gets the exponent.
+     *
+     * @return the exponent
+     */
+    public double getExponent() {
+        return exponent;
+    }
+
+    /**
+     * Draws a sample.
+     *
+     * @param rnd the random generator
+     * @return a value between 1 and the number of elements
+     */
+    public int sample(final Random rnd) {
+        while (true) {
+            double u = hIntegralNumberOfElements + rnd.nextDouble() * (hIntegralX1 - hIntegralNumberOfElements);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > numberOfElements) {
+                k = numberOfElements;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    /**
+     * Integral of h, (x^(1 - exponent) - 1) / (1 - exponent), or log(x) when
+     * the exponent is 1.
+     *
+     * @param x the point
+     * @return the integral
+     */
+    private double hIntegral(final double x) {
+        double logX = Math.log(x);
+        return helper2((1.0 - exponent) * logX) * logX;
+    }
+
+    /**
+     * The unnormalized density, 1 / x^exponent.
+     *
+     * @param x the point
+     * @return the density
+     */
+    private double h(final double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    /**
+     * Inverse of {@link #hIntegral(double)}.
+     *
+     * @param x the value of the integral
+     * @return the point
+     */
+    private double hIntegralInverse(final double x) {
+        double t = x * (1.0 - exponent);
+        if (t < -1.0) {
+            // numerical error
+            t = -1.0;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * Computes log(1 + x) / x, also near 0.
+     *
+     * @param x the value
+     * @return log(1 + x) / x
+     */
+    private static double helper1(final double x) {
+        if (Math.abs(x) > TAYLOR_THRESHOLD) {
+            return Math.log1p(x) / x;
+        }
+        return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    /**
+     * Computes (exp(x) - 1) / x, also near 0.
+     *
+     * @param x the value
+     * @return (exp(x) - 1) / x
+     */
+    private static double helper2(final double x) {
+        if (Math.abs(x) > TAYLOR_THRESHOLD) {
+            return Math.expm1(x) / x;
+        }
+        return 1.0 + x * 0.5 * (1.0 + x * 1.0 / 3.0 * (1.0 + 0.25 * x));
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * RiVal synthetic data set generators.
+ */
+package net.recommenders.rival.split.generator;
@@ -24,6 +24,8 @@ import net.recommenders.rival.core.Parser;
 import net.recommenders.rival.core.SimpleParser;
 import net.recommenders.rival.core.TemporalDataModel;
 import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.core.metrics.Counter;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
 
 /**
  * A parser based on the format of Movielens files.
@@ -64,11 +66,18 @@ public class MovielensParser implements Parser<Long, Long> {
     public TemporalDataModelIF<Long, Long> parseTemporalData(final File f) throws IOException {
         TemporalDataModelIF<Long, Long> dataset = DataModelFactory.getDefaultTemporalModel();
 
+        Counter lines = MetricsRegistry.getDefault().counter(LINES);
         BufferedReader br = SimpleParser.getBufferedReader(f);
         String line;
+        int n = 0;
         while ((line = br.readLine()) != null) {
             parseLine(line, dataset);
+            if (++n == LINES_BATCH) {
+                lines.inc(n);
+                n = 0;
+            }
         }
+        lines.inc(n);
         br.close();
 
         return dataset;
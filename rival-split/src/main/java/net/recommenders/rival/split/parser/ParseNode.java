@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.core.experiment.ExperimentNode;
+
+/**
+ * Experiment node that parses a dataset with the parser in
+ * {@link ParserRunner#DATASET_PARSER}. The content of the dataset file is
+ * part of the key of the node, so the node is run again when the file
+ * changes.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class ParseNode extends ExperimentNode<TemporalDataModelIF<Long, Long>> {
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the node
+     * @param properties the properties of the parser (see
+     * {@link ParserRunner})
+     */
+    public ParseNode(final String name, final Properties properties) {
+        super(name, properties);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String fingerprint() throws IOException {
+        return fingerprint(new File(getProperties().getProperty(ParserRunner.DATASET_FILE)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TemporalDataModelIF<Long, Long> compute(final List<Object> inputValues) throws Exception {
+        Properties properties = getProperties();
+        return ParserRunner.instantiateParser(properties).parseTemporalData(new File(properties.getProperty(ParserRunner.DATASET_FILE)));
+    }
+}
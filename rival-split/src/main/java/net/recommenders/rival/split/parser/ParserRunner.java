@@ -19,12 +19,19 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import net.recommenders.rival.core.DataModel;
 import net.recommenders.rival.core.Parser;
 import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.core.metrics.Counter;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
+import net.recommenders.rival.core.metrics.Timer;
 
 /**
- * Runner for the parser classes.
+ * Runner for the parser classes. Besides the lines counted by the parsers
+ * ({@link Parser#LINES}), the time of each parse ({@link #TIME}), the bytes
+ * read ({@link #BYTES}) and the lines parsed per second ({@link #RATE}) are
+ * published in the default {@link MetricsRegistry}.
  *
  * @author <a href="http://github.com/abellogin">Alejandro</a>
  */
@@ -46,6 +53,18 @@ public final class ParserRunner {
      * Variable that represent the name of a property in the file.
      */
     public static final String LASTFM_USEARTISTS = "dataset.parser.lastfm.useartists";
+    /**
+     * Name of the timer of the parses.
+     */
+    public static final String TIME = "parser.time";
+    /**
+     * Name of the counter of bytes read.
+     */
+    public static final String BYTES = "parser.bytes";
+    /**
+     * Name of the histogram of lines parsed per second.
+     */
+    public static final String RATE = "parser.lines.per.second";
 
     /**
      * Utility classes should not have a public or default constructor.
@@ -75,6 +94,12 @@ public final class ParserRunner {
         System.out.println("Parsing started");
         TemporalDataModelIF<Long, Long> model = null;
         File file = new File(properties.getProperty(DATASET_FILE));
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        Counter lines = metrics.counter(Parser.LINES);
+        Timer timer = metrics.timer(TIME);
+        long linesBefore = lines.getCount();
+        metrics.getProgress().track("parsing " + file.getName(), lines, 0);
+        long start = timer.start();
         String parserClassName = properties.getProperty(DATASET_PARSER);
         Class<?> parserClass = Class.forName(parserClassName);
         Parser<Long, Long> parser = instantiateParser(properties);
@@ -89,6 +114,15 @@ public final class ParserRunner {
         } else {
             model = parser.parseTemporalData(file);
         }
+        long nanos = timer.stop(start);
+        metrics.getProgress().untrack("parsing " + file.getName());
+        metrics.counter(BYTES).inc(file.length());
+        long parsed = lines.getCount() - linesBefore;
+        if (nanos > 0 && parsed > 0) {
+            long rate = Math.round(parsed * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+            metrics.histogram(RATE).update(rate);
+            System.out.println("Parsed " + parsed + " lines (" + rate + " lines/s)");
+        }
         System.out.println("Parsing finished");
         return model;
     }
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.splitter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writer of several fold files at the same time. Lines are batched in memory
+ * per file and the batches are handed, through bounded queues, to dedicated
+ * I/O threads that own large buffered (and optionally gzip-compressed)
+ * writers. Lines should be written from a single thread.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class FoldWriter implements Closeable {
+
+    /**
+     * Default size (in characters) of the batch of each file.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+    /**
+     * Default size (in bytes) of the buffer of each file.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    /**
+     * Default number of batches waiting in the queue of each I/O thread.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    /**
+     * Batch used to signal an I/O thread that there is nothing else to write.
+     */
+    private static final Batch END = new Batch(-1, null);
+    /**
+     * Pending lines of each file.
+     */
+    private final StringBuilder[] batches;
+    /**
+     * Size of the batch of each file.
+     */
+    private final int batchSize;
+    /**
+     * Queue of each I/O thread.
+     */
+    private final BlockingQueue<Batch>[] queues;
+    /**
+     * The I/O threads.
+     */
+    private final Thread[] threads;
+    /**
+     * The writers of each file (only used by its I/O thread).
+     */
+    private final Writer[] writers;
+    /**
+     * First error found by an I/O thread.
+     */
+    private volatile IOException error;
+    /**
+     * Flag that indicates if the writer has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructor with default parameters.
+     *
+     * @param files the files to be written
+     * @param compress flag to compress the files with gzip
+     * @param ioThreads number of I/O threads
+     * @throws IOException when a file cannot be created
+     */
+    public FoldWriter(final String[] files, final boolean compress, final int ioThreads) throws IOException {
+        this(files, compress, ioThreads, DEFAULT_BATCH_SIZE, DEFAULT_BUFFER_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param files the files to be written
+     * @param compress flag to compress the files with gzip
+     * @param ioThreads number of I/O threads (at most one per file)
+     * @param theBatchSize size (in characters) of the batch of each file
+     * @param bufferSize size (in bytes) of the buffer of each file
+     * @param queueCapacity number of batches that can wait in the queue of
+     * each I/O thread
+     * @throws IOException when a file cannot be created
+     */
+    @SuppressWarnings("unchecked")
+    public FoldWriter(final String[] files, final boolean compress, final int ioThreads,
+            final int theBatchSize, final int bufferSize, final int queueCapacity) throws IOException {
+        this.batchSize = theBatchSize;
+        this.batches = new StringBuilder[files.length];
+        this.writers = new Writer[files.length];
+        try {
+            for (int f = 0; f < files.length; f++) {
+                batches[f] = new StringBuilder(theBatchSize + 1024);
+                OutputStream os = new FileOutputStream(files[f]);
+                if (compress) {
+                    os = new GZIPOutputStream(os, bufferSize);
+                }
+                writers[f] = new OutputStreamWriter(new BufferedOutputStream(os, bufferSize), "UTF-8");
+            }
+        } catch (IOException e) {
+            for (Writer w : writers) {
+                if (w != null) {
+                    w.close();
+                }
+            }
+            throw e;
+        }
+        int nThreads = Math.max(1, Math.min(ioThreads, files.length));
+        this.queues = new BlockingQueue[nThreads];
+        this.threads = new Thread[nThreads];
+        for (int t = 0; t < nThreads; t++) {
+            final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues[t] = queue;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drain(queue);
+                }
+            }, "fold-writer-" + t);
+            threads[t].setDaemon(true);
+            threads[t].start();
+        }
+    }
+
+    /**
+     * Writes the batches received in a queue until the end is signaled.
+     *
+     * @param queue the queue
+     */
+    private void drain(final BlockingQueue<Batch> queue) {
+        while (true) {
+            Batch b;
+            try {
+                b = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (b == END) {
+                return;
+            }
+            if (error != null) {
+                // keep consuming so that the producer does not block
+                continue;
+            }
+            try {
+                writers[b.getFile()].write(b.getText());
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * Writes a line in a file.
+     *
+     * @param file the index of the file
+     * @param line the line (without the line terminator)
+     * @throws IOException when an I/O thread failed
+     */
+    public void writeLine(final int file, final CharSequence line) throws IOException {
+        StringBuilder sb = batches[file];
+        sb.append(line).append('\n');
+        if (sb.length() >= batchSize) {
+            submit(file);
+        }
+    }
+
+    /**
+     * Sends the pending lines of a file to its I/O thread.
+     *
+     * @param file the index of the file
+     * @throws IOException when an I/O thread failed
+     */
+    private void submit(final int file) throws IOException {
+        if (error != null) {
+            throw error;
+        }
+        StringBuilder sb = batches[file];
+        if (sb.length() == 0) {
+            return;
+        }
+        try {
+            queues[file % queues.length].put(new Batch(file, sb.toString()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + file, e);
+        }
+        sb.setLength(0);
+    }
+
+    /**
+     * Writes the pending lines, waits for the I/O threads and closes every
+     * file.
+     *
+     * @throws IOException when a file could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException e = null;
+        try {
+            for (int f = 0; f < batches.length; f++) {
+                submit(f);
+            }
+        } catch (IOException ex) {
+            e = ex;
+        }
+        for (int t = 0; t < threads.length; t++) {
+            try {
+                queues[t].put(END);
+                threads[t].join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Writer w : writers) {
+            try {
+                w.close();
+            } catch (IOException ex) {
+                if (e == null) {
+                    e = ex;
+                }
+            }
+        }
+        if (e == null) {
+            e = error;
+        }
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Lines to be written in a file.
+     */
+    private static final class Batch {
+
+        /**
+         * The index of the file.
+         */
+        private final int file;
+        /**
+         * The text to be written.
+         */
+        private final String text;
+
+        /**
+         * Constructor.
+         *
+         * @param f the index of the file
+         * @param t the text
+         */
+        Batch(final int f, final String t) {
+            this.file = f;
+            this.text = t;
+        }
+
+        /**
+         * Gets the index of the file.
+         *
+         * @return the index of the file
+         */
+        int getFile() {
+            return file;
+        }
+
+        /**
+         * Gets the text.
+         *
+         * @return the text
+         */
+        String getText() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.splitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * Interactions of a data model stored as parallel primitive arrays (one
+ * position per user, item and timestamp), with users and items mapped to dense
+ * indices. Several {@link InteractionView}s can be created on top of the same
+ * instance without copying the data.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ *
+ * @param <U> generic type for users
+ * @param <I> generic type for items
+ */
+public class InteractionArrays<U, I> {
+
+    /**
+     * Value stored as timestamp when an interaction has no temporal
+     * information.
+     */
+    public static final long NO_TIMESTAMP = -1L;
+    /**
+     * Users, indexed by their dense index.
+     */
+    private final List<U> users;
+    /**
+     * Items, indexed by their dense index.
+     */
+    private final List<I> items;
+    /**
+     * Mapping from users to their dense index.
+     */
+    private final Map<U, Integer> userIndex;
+    /**
+     * Mapping from items to their dense index.
+     */
+    private final Map<I, Integer> itemIndex;
+    /**
+     * User index of every interaction.
+     */
+    private final int[] userIdx;
+    /**
+     * Item index of every interaction.
+     */
+    private final int[] itemIdx;
+    /**
+     * Preference of every interaction.
+     */
+    private final double[] prefs;
+    /**
+     * Timestamp of every interaction.
+     */
+    private final long[] times;
+    /**
+     * Flag that indicates if the interactions have temporal information.
+     */
+    private final boolean temporal;
+    /**
+     * Flag that indicates if the interactions are sorted by time.
+     */
+    private boolean sortedByTime;
+
+    /**
+     * Constructor with all the arrays already allocated.
+     *
+     * @param n number of interactions
+     * @param isTemporal flag that indicates if the interactions have temporal
+     * information
+     */
+    private InteractionArrays(final int n, final boolean isTemporal) {
+        this.users = new ArrayList<>();
+        this.items = new ArrayList<>();
+        this.userIndex = new HashMap<>();
+        this.itemIndex = new HashMap<>();
+        this.userIdx = new int[n];
+        this.itemIdx = new int[n];
+        this.prefs = new double[n];
+        this.times = new long[n];
+        this.temporal = isTemporal;
+        this.sortedByTime = false;
+    }
+
+    /**
+     * Constructor of a time-sorted copy, sharing the users and items of the
+     * source.
+     *
+     * @param source the interactions to copy
+     * @param perm the positions of the source, sorted by time
+     */
+    private InteractionArrays(final InteractionArrays<U, I> source, final int[] perm) {
+        this.users = source.users;
+        this.items = source.items;
+        this.userIndex = source.userIndex;
+        this.itemIndex = source.itemIndex;
+        this.userIdx = new int[perm.length];
+        this.itemIdx = new int[perm.length];
+        this.prefs = new double[perm.length];
+        this.times = new long[perm.length];
+        for (int p = 0; p < perm.length; p++) {
+            set(p, source.userIdx[perm[p]], source.itemIdx[perm[p]], source.prefs[perm[p]], source.times[perm[p]]);
+        }
+        this.temporal = source.temporal;
+        this.sortedByTime = true;
+    }
+
+    /**
+     * Creates the arrays from a temporal data model: one position is used for
+     * every timestamp of a (user, item) pair. Pairs without timestamps are
+     * ignored.
+     *
+     * @param data the data model
+     * @param <U> generic type for users
+     * @param <I> generic type for items
+     * @return the interactions of the model as parallel arrays
+     */
+    public static <U, I> InteractionArrays<U, I> fromTemporalModel(final TemporalDataModelIF<U, I> data) {
+        return fromTemporalModel(data, false);
+    }
+
+    /**
+     * Creates the arrays from a temporal data model: one position is used for
+     * every timestamp of a (user, item) pair. The positions of a user, and
+     * those of a pair, are contiguous.
+     *
+     * @param data the data model
+     * @param keepUntimed if true, a pair without timestamps is stored in one
+     * position with {@link #NO_TIMESTAMP}; otherwise, it is ignored
+     * @param <U> generic type for users
+     * @param <I> generic type for items
+     * @return the interactions of the model as parallel arrays
+     */
+    public static <U, I> InteractionArrays<U, I> fromTemporalModel(final TemporalDataModelIF<U, I> data, final boolean keepUntimed) {
+        int n = 0;
+        for (U u : data.getUsers()) {
+            for (I i : data.getUserItems(u)) {
+                Iterable<Long> time = data.getUserItemTimestamps(u, i);
+                if (time != null) {
+                    for (Long t : time) {
+                        n++;
+                    }
+                } else if (keepUntimed) {
+                    n++;
+                }
+            }
+        }
+        InteractionArrays<U, I> arrays = new InteractionArrays<>(n, true);
+        int pos = 0;
+        for (U u : data.getUsers()) {
+            int uIdx = arrays.indexUser(u);
+            for (I i : data.getUserItems(u)) {
+                Iterable<Long> time = data.getUserItemTimestamps(u, i);
+                if (time == null && !keepUntimed) {
+                    continue;
+                }
+                int iIdx = arrays.indexItem(i);
+                double pref = data.getUserItemPreference(u, i);
+                if (time == null) {
+                    arrays.set(pos++, uIdx, iIdx, pref, NO_TIMESTAMP);
+                } else {
+                    for (Long t : time) {
+                        arrays.set(pos++, uIdx, iIdx, pref, t);
+                    }
+                }
+            }
+        }
+        return arrays;
+    }
+
+    /**
+     * Creates the arrays from a data model: one position is used for every
+     * (user, item) pair.
+     *
+     * @param data the data model
+     * @param <U> generic type for users
+     * @param <I> generic type for items
+     * @return the interactions of the model as parallel arrays
+     */
+    public static <U, I> InteractionArrays<U, I> fromModel(final DataModelIF<U, I> data) {
+        int n = 0;
+        for (U u : data.getUsers()) {
+            for (I i : data.getUserItems(u)) {
+                n++;
+            }
+        }
+        InteractionArrays<U, I> arrays = new InteractionArrays<>(n, false);
+        int pos = 0;
+        for (U u : data.getUsers()) {
+            int uIdx = arrays.indexUser(u);
+            for (I i : data.getUserItems(u)) {
+                arrays.set(pos++, uIdx, arrays.indexItem(i), data.getUserItemPreference(u, i), NO_TIMESTAMP);
+            }
+        }
+        return arrays;
+    }
+
+    /**
+     * Gets (or creates) the dense index of a user.
+     *
+     * @param u the user
+     * @return the index of the user
+     */
+    private int indexUser(final U u) {
+        Integer idx = userIndex.get(u);
+        if (idx == null) {
+            idx = users.size();
+            users.add(u);
+            userIndex.put(u, idx);
+        }
+        return idx;
+    }
+
+    /**
+     * Gets (or creates) the dense index of an item.
+     *
+     * @param i the item
+     * @return the index of the item
+     */
+    private int indexItem(final I i) {
+        Integer idx = itemIndex.get(i);
+        if (idx == null) {
+            idx = items.size();
+            items.add(i);
+            itemIndex.put(i, idx);
+        }
+        return idx;
+    }
+
+    /**
+     * Stores an interaction in a given position.
+     *
+     * @param pos the position
+     * @param u the user index
+     * @param i the item index
+     * @param pref the preference
+     * @param t the timestamp
+     */
+    private void set(final int pos, final int u, final int i, final double pref, final long t) {
+        userIdx[pos] = u;
+        itemIdx[pos] = i;
+        prefs[pos] = pref;
+        times[pos] = t;
+    }
+
+    /**
+     * Gets the interactions sorted (stably) by timestamp. The arrays of this
+     * instance are never modified, so the views built on it stay valid: if
+     * the interactions are not sorted yet, a sorted copy is returned, which
+     * shares the users and items (and their indices) with this instance.
+     *
+     * @return this instance, if it is already sorted by time, or a sorted
+     * copy otherwise
+     */
+    public InteractionArrays<U, I> timeSorted() {
+        if (sortedByTime) {
+            return this;
+        }
+        final int[] perm = new int[size()];
+        for (int p = 0; p < perm.length; p++) {
+            perm[p] = p;
+        }
+        sort(perm, 0, perm.length, new PositionComparator() {
+            @Override
+            public int compare(final int a, final int b) {
+                return Long.compare(times[a], times[b]);
+            }
+        });
+        return new InteractionArrays<>(this, perm);
+    }
+
+    /**
+     * Finds the first position whose timestamp is greater or equal than the
+     * given one. The interactions must be sorted by time.
+     *
+     * @param t the timestamp
+     * @return the first position with a timestamp not lower than t (or
+     * {@link #size()} if there is none)
+     */
+    public int lowerBound(final long t) {
+        if (!sortedByTime) {
+            throw new IllegalStateException("Interactions are not sorted by time");
+        }
+        int lo = 0;
+        int hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Comparator of positions in the arrays.
+     */
+    interface PositionComparator {
+
+        /**
+         * Compares two positions.
+         *
+         * @param a first position
+         * @param b second position
+         * @return a negative integer, zero, or a positive integer as the first
+         * position is less than, equal to, or greater than the second
+         */
+        int compare(int a, int b);
+    }
+
+    /**
+     * Stable (merge) sort of a range of positions using a comparator.
+     *
+     * @param a the positions to sort
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @param c the comparator
+     */
+    static void sort(final int[] a, final int from, final int to, final PositionComparator c) {
+        final int[] buffer = new int[to - from];
+        for (int width = 1; width < to - from; width <<= 1) {
+            for (int lo = from; lo < to - width; lo += width << 1) {
+                int mid = lo + width;
+                int hi = Math.min(mid + width, to);
+                int i = lo;
+                int j = mid;
+                int k = 0;
+                while (i < mid && j < hi) {
+                    if (c.compare(a[j], a[i]) < 0) {
+                        buffer[k++] = a[j++];
+                    } else {
+                        buffer[k++] = a[i++];
+                    }
+                }
+                while (i < mid) {
+                    buffer[k++] = a[i++];
+                }
+                while (j < hi) {
+                    buffer[k++] = a[j++];
+                }
+                System.arraycopy(buffer, 0, a, lo, k);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of interactions.
+     *
+     * @return the number of interactions
+     */
+    public int size() {
+        return userIdx.length;
+    }
+
+    /**
+     * Gets the number of distinct users.
+     *
+     * @return the number of users
+     */
+    public int getNumUsers() {
+        return users.size();
+    }
+
+    /**
+     * Gets the number of distinct items.
+     *
+     * @return the number of items
+     */
+    public int getNumItems() {
+        return items.size();
+    }
+
+    /**
+     * Gets the user with a given index.
+     *
+     * @param idx the index
+     * @return the user
+     */
+    public U getUser(final int idx) {
+        return users.get(idx);
+    }
+
+    /**
+     * Gets the item with a given index.
+     *
+     * @param idx the index
+     * @return the item
+     */
+    public I getItem(final int idx) {
+        return items.get(idx);
+    }
+
+    /**
+     * Gets the index of a user.
+     *
+     * @param u the user
+     * @return the index of the user, or -1 if it is unknown
+     */
+    public int getUserIndex(final U u) {
+        Integer idx = userIndex.get(u);
+        if (idx == null) {
+            return -1;
+        }
+        return idx;
+    }
+
+    /**
+     * Gets the index of an item.
+     *
+     * @param i the item
+     * @return the index of the item, or -1 if it is unknown
+     */
+    public int getItemIndex(final I i) {
+        Integer idx = itemIndex.get(i);
+        if (idx == null) {
+            return -1;
+        }
+        return idx;
+    }
+
+    /**
+     * Gets the user index of the interaction at a position.
+     *
+     * @param pos the position
+     * @return the user index
+     */
+    public int userAt(final int pos) {
+        return userIdx[pos];
+    }
+
+    /**
+     * Gets the item index of the interaction at a position.
+     *
+     * @param pos the position
+     * @return the item index
+     */
+    public int itemAt(final int pos) {
+        return itemIdx[pos];
+    }
+
+    /**
+     * Gets the preference of the interaction at a position.
+     *
+     * @param pos the position
+     * @return the preference
+     */
+    public double prefAt(final int pos) {
+        return prefs[pos];
+    }
+
+    /**
+     * Gets the timestamp of the interaction at a position.
+     *
+     * @param pos the position
+     * @return the timestamp
+     */
+    public long timeAt(final int pos) {
+        return times[pos];
+    }
+
+    /**
+     * Checks if the interactions have temporal information.
+     *
+     * @return true if the interactions have temporal information
+     */
+    public boolean isTemporal() {
+        return temporal;
+    }
+
+    /**
+     * Checks if the interactions are sorted by time.
+     *
+     * @return true if the interactions are sorted by time
+     */
+    public boolean isSortedByTime() {
+        return sortedByTime;
+    }
+}
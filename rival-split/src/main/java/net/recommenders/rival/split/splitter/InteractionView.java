@@ -0,0 +1,495 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.splitter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * Read-only data model backed by a range of positions of an
+ * {@link InteractionArrays} instance. The data is not copied: the only memory
+ * used by the view is a per-user index over its positions, which is built the
+ * first time the view is queried (not in the constructor, because subclasses
+ * decide which positions belong to the view, see {@link #contains(int)}).
+ * Once built, the index is read without locking.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ *
+ * @param <U> generic type for users
+ * @param <I> generic type for items
+ */
+public class InteractionView<U, I> implements TemporalDataModelIF<U, I> {
+
+    /**
+     * The shared interactions.
+     */
+    private final InteractionArrays<U, I> store;
+    /**
+     * First position of the view (inclusive).
+     */
+    private final int from;
+    /**
+     * Last position of the view (exclusive).
+     */
+    private final int to;
+    /**
+     * Per-user index of the view (lazily built, null when not built yet).
+     */
+    private volatile Index index;
+
+    /**
+     * Constructor.
+     *
+     * @param interactions the shared interactions
+     * @param fromPos first position of the view (inclusive)
+     * @param toPos last position of the view (exclusive)
+     */
+    public InteractionView(final InteractionArrays<U, I> interactions, final int fromPos, final int toPos) {
+        this.store = interactions;
+        this.from = fromPos;
+        this.to = toPos;
+    }
+
+    /**
+     * Gets the shared interactions this view is built on.
+     *
+     * @return the shared interactions
+     */
+    public InteractionArrays<U, I> getInteractions() {
+        return store;
+    }
+
+    /**
+     * Gets the first position of the view (inclusive).
+     *
+     * @return the first position of the view
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets the last position of the view (exclusive).
+     *
+     * @return the last position of the view
+     */
+    public int getTo() {
+        return to;
+    }
+
+    /**
+     * Checks if a position of the shared interactions belongs to this view.
+     *
+     * @param pos the position, between {@link #getFrom()} and
+     * {@link #getTo()}
+     * @return true if the position belongs to the view
+     */
+    protected boolean contains(final int pos) {
+        return true;
+    }
+
+    /**
+     * Gets the per-user index of the view, building it if needed.
+     *
+     * @return the index
+     */
+    private Index index() {
+        Index idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null) {
+                    idx = buildIndex();
+                    index = idx;
+                }
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * Builds the per-user index of the view.
+     *
+     * @return the index
+     */
+    private Index buildIndex() {
+        int n = 0;
+        for (int p = from; p < to; p++) {
+            if (contains(p)) {
+                n++;
+            }
+        }
+        final int[] positions = new int[n];
+        n = 0;
+        for (int p = from; p < to; p++) {
+            if (contains(p)) {
+                positions[n++] = p;
+            }
+        }
+        InteractionArrays.sort(positions, 0, positions.length, new InteractionArrays.PositionComparator() {
+            @Override
+            public int compare(final int a, final int b) {
+                int c = Integer.compare(store.userAt(a), store.userAt(b));
+                if (c == 0) {
+                    c = Integer.compare(store.itemAt(a), store.itemAt(b));
+                }
+                if (c == 0) {
+                    c = Long.compare(store.timeAt(a), store.timeAt(b));
+                }
+                return c;
+            }
+        });
+        int nUsers = 0;
+        for (int k = 0; k < positions.length; k++) {
+            if (k == 0 || store.userAt(positions[k]) != store.userAt(positions[k - 1])) {
+                nUsers++;
+            }
+        }
+        final int[] users = new int[nUsers];
+        final int[] starts = new int[nUsers + 1];
+        nUsers = 0;
+        for (int k = 0; k < positions.length; k++) {
+            if (k == 0 || store.userAt(positions[k]) != store.userAt(positions[k - 1])) {
+                users[nUsers] = store.userAt(positions[k]);
+                starts[nUsers] = k;
+                nUsers++;
+            }
+        }
+        starts[nUsers] = positions.length;
+        final boolean[] seen = new boolean[store.getNumItems()];
+        int nItems = 0;
+        for (int p : positions) {
+            if (!seen[store.itemAt(p)]) {
+                seen[store.itemAt(p)] = true;
+                nItems++;
+            }
+        }
+        final int[] items = new int[nItems];
+        nItems = 0;
+        for (int i = 0; i < seen.length; i++) {
+            if (seen[i]) {
+                items[nItems++] = i;
+            }
+        }
+        return new Index(positions, users, starts, items);
+    }
+
+    /**
+     * Finds the block of a user in the index.
+     *
+     * @param idx the index
+     * @param u the user
+     * @return the block of the user in {@link Index#viewUsers}, or -1 if the
+     * user does not belong to the view
+     */
+    private int userBlock(final Index idx, final U u) {
+        final int[] viewUsers = idx.viewUsers;
+        int uIdx = store.getUserIndex(u);
+        if (uIdx < 0) {
+            return -1;
+        }
+        int lo = 0;
+        int hi = viewUsers.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (viewUsers[mid] < uIdx) {
+                lo = mid + 1;
+            } else if (viewUsers[mid] > uIdx) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first offset (in {@link Index#order}) of a user-item pair.
+     *
+     * @param idx the index
+     * @param block the block of the user
+     * @param i the item
+     * @return the first offset of the pair, or -1 if the pair does not belong
+     * to the view
+     */
+    private int pairStart(final Index idx, final int block, final I i) {
+        final int[] order = idx.order;
+        final int[] userStarts = idx.userStarts;
+        int iIdx = store.getItemIndex(i);
+        if (block < 0 || iIdx < 0) {
+            return -1;
+        }
+        int lo = userStarts[block];
+        int hi = userStarts[block + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (store.itemAt(order[mid]) < iIdx) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if (lo < userStarts[block + 1] && store.itemAt(order[lo]) == iIdx) {
+            return lo;
+        }
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Double getUserItemPreference(final U u, final I i) {
+        final Index idx = index();
+        int k = pairStart(idx, userBlock(idx, u), i);
+        if (k < 0) {
+            return Double.NaN;
+        }
+        return store.prefAt(idx.order[k]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<I> getUserItems(final U u) {
+        final Index idx = index();
+        final int block = userBlock(idx, u);
+        if (block < 0) {
+            return null;
+        }
+        final int[] order = idx.order;
+        final int[] userStarts = idx.userStarts;
+        final List<I> items = new ArrayList<>();
+        for (int k = userStarts[block]; k < userStarts[block + 1]; k++) {
+            if (k == userStarts[block] || store.itemAt(order[k]) != store.itemAt(order[k - 1])) {
+                items.add(store.getItem(store.itemAt(order[k])));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Long> getUserItemTimestamps(final U u, final I i) {
+        if (!store.isTemporal()) {
+            return null;
+        }
+        final Index idx = index();
+        final int block = userBlock(idx, u);
+        int k = pairStart(idx, block, i);
+        if (k < 0) {
+            return null;
+        }
+        final int[] order = idx.order;
+        final int[] userStarts = idx.userStarts;
+        final List<Long> timestamps = new ArrayList<>();
+        final int iIdx = store.itemAt(order[k]);
+        for (; k < userStarts[block + 1] && store.itemAt(order[k]) == iIdx; k++) {
+            if (store.timeAt(order[k]) != InteractionArrays.NO_TIMESTAMP) {
+                timestamps.add(store.timeAt(order[k]));
+            }
+        }
+        if (timestamps.isEmpty()) {
+            return null;
+        }
+        return timestamps;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<I> getItems() {
+        final int[] viewItems = index().viewItems;
+        return new Iterable<I>() {
+            @Override
+            public Iterator<I> iterator() {
+                return new IndexIterator<I>(viewItems) {
+                    @Override
+                    protected I get(final int idx) {
+                        return store.getItem(idx);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<U> getUsers() {
+        final int[] viewUsers = index().viewUsers;
+        return new Iterable<U>() {
+            @Override
+            public Iterator<U> iterator() {
+                return new IndexIterator<U>(viewUsers) {
+                    @Override
+                    protected U get(final int idx) {
+                        return store.getUser(idx);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumItems() {
+        return index().viewItems.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumUsers() {
+        return index().viewUsers.length;
+    }
+
+    /**
+     * Views are read-only.
+     *
+     * @param u the user.
+     * @param i the item.
+     * @param d the preference.
+     */
+    @Override
+    public void addPreference(final U u, final I i, final Double d) {
+        throw new UnsupportedOperationException("Views are read-only");
+    }
+
+    /**
+     * Views are read-only.
+     *
+     * @param u the user.
+     * @param i the item.
+     * @param t the timestamp.
+     */
+    @Override
+    public void addTimestamp(final U u, final I i, final Long t) {
+        throw new UnsupportedOperationException("Views are read-only");
+    }
+
+    /**
+     * Releases the index of the view (the shared interactions are not
+     * modified).
+     */
+    @Override
+    public synchronized void clear() {
+        index = null;
+    }
+
+    /**
+     * Per-user index of a view.
+     */
+    private static final class Index {
+
+        /**
+         * Positions of the view sorted by user, item and time.
+         */
+        private final int[] order;
+        /**
+         * Distinct user indices in the view, in increasing order.
+         */
+        private final int[] viewUsers;
+        /**
+         * Offsets in {@link #order} where the interactions of each user
+         * start.
+         */
+        private final int[] userStarts;
+        /**
+         * Distinct item indices in the view.
+         */
+        private final int[] viewItems;
+
+        /**
+         * Constructor.
+         *
+         * @param o positions of the view sorted by user, item and time
+         * @param u distinct user indices in the view
+         * @param s offsets where the interactions of each user start
+         * @param i distinct item indices in the view
+         */
+        Index(final int[] o, final int[] u, final int[] s, final int[] i) {
+            this.order = o;
+            this.viewUsers = u;
+            this.userStarts = s;
+            this.viewItems = i;
+        }
+    }
+
+    /**
+     * Iterator over an array of dense indices that maps them to objects.
+     *
+     * @param <T> type of the objects
+     */
+    private abstract static class IndexIterator<T> implements Iterator<T> {
+
+        /**
+         * The indices.
+         */
+        private final int[] indices;
+        /**
+         * The next position.
+         */
+        private int next;
+
+        /**
+         * Constructor.
+         *
+         * @param idx the indices
+         */
+        IndexIterator(final int[] idx) {
+            this.indices = idx;
+            this.next = 0;
+        }
+
+        /**
+         * Maps an index to its object.
+         *
+         * @param idx the index
+         * @return the object
+         */
+        protected abstract T get(int idx);
+
+        @Override
+        public boolean hasNext() {
+            return next < indices.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return get(indices[next++]);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -16,36 +16,49 @@
 package net.recommenders.rival.split.splitter;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.TemporalDataModelIF;
 
 /**
- * Class replicates CrossValidationSplitter but each 
- * generated fold is written directly to a file 
- * instead of keeping N+1 times (original dataset + N folds) 
- * all at the same time in memory.  
- *   
+ * Class replicates CrossValidationSplitter but each
+ * generated fold is written directly to a file
+ * instead of keeping N+1 times (original dataset + N folds)
+ * all at the same time in memory.
+ *
+ * Every line is formatted once and handed to a {@link FoldWriter}, which
+ * batches the lines of each fold file and writes them from dedicated I/O
+ * threads.
+ *
  * @author <a href="https://github.com/afcarvalho1991">André Carvalho</a>
  *
  * @param <U> type of users
  * @param <I> type of items
  */
-public class IterativeCrossValidationSplitter<U, I>  extends CrossValidationSplitter<U, I> 
-{
+public class IterativeCrossValidationSplitter<U, I> extends CrossValidationSplitter<U, I> {
 
-	/** 
-	 * Folder where the generated splits are written to
-	 */
-	private String outPath;
-	
-	 /**
+    /**
+     * Default number of I/O threads.
+     */
+    public static final int DEFAULT_IO_THREADS = 2;
+    /**
+     * Folder where the generated splits are written to.
+     */
+    private String outPath;
+    /**
+     * Flag to compress the generated splits with gzip.
+     */
+    private boolean compress;
+    /**
+     * Number of threads used to write the generated splits.
+     */
+    private int ioThreads;
+
+    /**
      * Constructor.
      *
      * @param nFold number of folds that the data will be split into
@@ -53,209 +66,121 @@ public class IterativeCrossValidationSplitter<U, I>  extends CrossValidationSpli
      * @param seed value to initialize a Random class
      * @param outPath is folder to where each split (train and test) is going to be written to
      */
-	public IterativeCrossValidationSplitter(int nFold, boolean perUsers, long seed, String outPath) 
-	{
-		super(nFold, perUsers, seed);
-		this.outPath = outPath;
-	}
+    public IterativeCrossValidationSplitter(final int nFold, final boolean perUsers, final long seed, final String outPath) {
+        this(nFold, perUsers, seed, outPath, false, DEFAULT_IO_THREADS);
+    }
 
-	 /**
+    /**
+     * Constructor.
+     *
+     * @param nFold number of folds that the data will be split into
+     * @param perUsers flag to do the split in a per user basis
+     * @param seed value to initialize a Random class
+     * @param outPath is folder to where each split (train and test) is going to be written to
+     * @param compressSplits flag to gzip the splits (a ".gz" suffix is added
+     * to the file names)
+     * @param nIOThreads number of threads used to write the splits
+     */
+    public IterativeCrossValidationSplitter(final int nFold, final boolean perUsers, final long seed, final String outPath,
+            final boolean compressSplits, final int nIOThreads) {
+        super(nFold, perUsers, seed);
+        this.outPath = outPath;
+        this.compress = compressSplits;
+        this.ioThreads = nIOThreads;
+    }
+
+    /**
+     * Gets the names of the files where the splits are written, in the same
+     * order as the splits would be returned by
+     * {@link CrossValidationSplitter}: training and test files of each fold.
+     *
+     * @return the names of the split files
+     */
+    public String[] getSplitFiles() {
+        String suffix = compress ? ".csv.gz" : ".csv";
+        String[] files = new String[2 * nFolds];
+        for (int i = 0; i < nFolds; i++) {
+            files[2 * i] = outPath + "train_" + i + suffix;
+            files[2 * i + 1] = outPath + "test_" + i + suffix;
+        }
+        return files;
+    }
+
+    /**
      * {@inheritDoc}
+     *
+     * The splits are written to disk, hence this method always returns null.
      */
     @Override
-    public DataModelIF<U, I>[] split(final DataModelIF<U, I> data)  
-    {
-    	try 
-    	{
-	        File dir = new File(outPath);
-	        if (!dir.exists()) {
-	            dir.mkdir();
-	        }
-	        final FileWriter[] splits = new FileWriter[2 * nFolds];
-	        for (int i = 0; i < nFolds; i++) 
-	        {
-	        	String 	trainingFile = outPath+"train_"+i+".csv",
-	        			testFile 	 = outPath+"test_"+i+".csv";
-	        	splits[2 * i] 		= new FileWriter(trainingFile);
-	            splits[2 * i + 1] 	= new FileWriter(testFile);
-	            
-	        }
-	        
-	        if (perUser) 
-	        {
-	            int n = 0;
-	            for (U user : data.getUsers()) {
-	                List<I> items = new ArrayList<I>(data.getUserItemPreferences().get(user).keySet());
-	                Collections.shuffle(items, rnd);
-	                for (I item : items) {
-	                    Double pref = data.getUserItemPreferences().get(user).get(item);
-	                    int curFold = n % nFolds;
-	                    for (int i = 0; i < nFolds; i++) {
-	                    	FileWriter f_writer = splits[2 * i]; // training
-	                        if (i == curFold) {
-	                        	f_writer = splits[2 * i + 1]; // test
-	                        }
-	                        
-	                        if(f_writer==null) continue; // not a "valid" fold already computed
-	                        
-	                        if (pref != null) {
-	                        	f_writer.write(user+"\t"+item+"\t"+pref);
-	                        }
-	                        f_writer.write("\n");
-	                        f_writer.flush();
-	                    }
-	                    n++;
-	                }
-	            }
-	        } 
-	        else {
-	            List<U> users = new ArrayList<U>(data.getUsers());
-	            Collections.shuffle(users, rnd);
-	            int n = 0;
-	            for (U user : users) 
-	            {
-	                List<I> items = new ArrayList<I>(data.getUserItemPreferences().get(user).keySet());
-	                Collections.shuffle(items, rnd);
-	                for (I item : items) {
-	                    Double pref = data.getUserItemPreferences().get(user).get(item);
-	                    int curFold = n % nFolds;
-	                    for (int i = 0; i < nFolds; i++) 
-	                    {
-	                    	FileWriter f_writer = splits[2 * i]; // training
-	                        if (i == curFold) f_writer = splits[2 * i + 1]; // test
-	                        
-	                        if(f_writer==null) continue; // not a "valid" fold already computed
-	                        
-	                        
-	                        if (pref != null) {
-	                        	f_writer.write(user+"\t"+item+"\t"+pref);
-	                        }
-							f_writer.write("\n");
-							f_writer.flush();
-	                    }
-	                    n++;
-	                }
-	            }
-	        }
-	        
-	        // Close files
-	        for (int i = 0; i < nFolds; i++) 
-	        {
-	            splits[2 * i].close();
-	            splits[2 * i + 1].close();
-	        }
-	        
-	    } catch (IOException e) {e.printStackTrace();}
+    public DataModelIF<U, I>[] split(final DataModelIF<U, I> data) {
+        writeSplits(data, null);
         return null;
     }
-    
+
     /**
      * {@inheritDoc}
-     * @returns 
+     *
+     * The splits are written to disk, hence this method always returns null.
      */
     @Override
-    public TemporalDataModelIF<U, I>[] split(final TemporalDataModelIF<U, I> data) 
-    {
-        try 
-    	{
-	        File dir = new File(outPath);
-	        if (!dir.exists()) {
-	            dir.mkdir();
-	        }
-	        final FileWriter[] splits = new FileWriter[2 * nFolds];
-	        for (int i = 0; i < nFolds; i++) 
-	        {
-	        	String 	trainingFile = outPath+"train_"+i+".csv",
-	        			testFile 	 = outPath+"test_"+i+".csv";
-	        	splits[2 * i] 		= new FileWriter(trainingFile);
-	            splits[2 * i + 1] 	= new FileWriter(testFile);
-	            
-	        }
-	        
-	        if (perUser) 
-	        {
-	            int n = 0;
-	            for (U user : data.getUsers()) {
-	                List<I> items = new ArrayList<I>(data.getUserItemPreferences().get(user).keySet());
-	                Collections.shuffle(items, rnd);
-	                for (I item : items) {
-	                    Double pref = data.getUserItemPreferences().get(user).get(item);
-	                    Set<Long> time = null;
-	                    if (data.getUserItemTimestamps().containsKey(user) && data.getUserItemTimestamps().get(user).containsKey(item)) {
-	                        time = data.getUserItemTimestamps().get(user).get(item);
-	                    }
-	                    int curFold = n % nFolds;
-	                    for (int i = 0; i < nFolds; i++) {
-	                    	FileWriter f_writer = splits[2 * i]; // training
-	                        if (i == curFold) {
-	                        	f_writer = splits[2 * i + 1]; // test
-	                        }
-	                        
-	                        if(f_writer==null) continue; // not a "valid" fold already computed
-	                        
-	                        if (pref != null) {
-	                        	f_writer.write(user+"\t"+item+"\t"+pref);
-	                        }
-	                        if (time != null) {
-	                            for (Long t : time) {
-	                            	f_writer.write("\t"+t);
-	                            }
-	                        }
-	                        f_writer.write("\n");
-	                        f_writer.flush();
-	                    }
-	                    n++;
-	                }
-	            }
-	        } 
-	        else {
-	            List<U> users = new ArrayList<U>(data.getUsers());
-	            Collections.shuffle(users, rnd);
-	            int n = 0;
-	            for (U user : users) 
-	            {
-	                List<I> items = new ArrayList<I>(data.getUserItemPreferences().get(user).keySet());
-	                Collections.shuffle(items, rnd);
-	                for (I item : items) {
-	                    Double pref = data.getUserItemPreferences().get(user).get(item);
-	                    Set<Long> time = null;
-	                    if (data.getUserItemTimestamps().containsKey(user) && data.getUserItemTimestamps().get(user).containsKey(item)) {
-	                        time = data.getUserItemTimestamps().get(user).get(item);
-	                    }
-	                    int curFold = n % nFolds;
-	                    for (int i = 0; i < nFolds; i++) 
-	                    {
-	                    	FileWriter f_writer = splits[2 * i]; // training
-	                        if (i == curFold) f_writer = splits[2 * i + 1]; // test
-	                        
-	                        if(f_writer==null) continue; // not a "valid" fold already computed
-	                        
-	                        
-	                        if (pref != null) {
-	                        	f_writer.write(user+"\t"+item+"\t"+pref);
-	                        }
-	                        if (time != null) {
-	                            for (Long t : time) {
-	                            	f_writer.write("\t"+t);
-	                            }
-	                        }
-							f_writer.write("\n");
-							f_writer.flush();
-	                    }
-	                    n++;
-	                }
-	            }
-	        }
-	        
-	        // Close files
-	        for (int i = 0; i < nFolds; i++) 
-	        {
-	            splits[2 * i].close();
-	            splits[2 * i + 1].close();
-	        }
-	        
-	    } catch (IOException e) {e.printStackTrace();}
+    public TemporalDataModelIF<U, I>[] split(final TemporalDataModelIF<U, I> data) {
+        writeSplits(data, data);
         return null;
     }
-    
-}
\ No newline at end of file
+
+    /**
+     * Assigns every interaction to a fold and writes it to the test file of
+     * that fold and to the training file of the rest.
+     *
+     * @param data the data
+     * @param temporalData the same data, when timestamps should be written
+     * (null otherwise)
+     */
+    private void writeSplits(final DataModelIF<U, I> data, final TemporalDataModelIF<U, I> temporalData) {
+        File dir = new File(outPath);
+        if (!dir.exists()) {
+            dir.mkdir();
+        }
+        try (FoldWriter writer = new FoldWriter(getSplitFiles(), compress, ioThreads)) {
+            List<U> users = new ArrayList<>();
+            for (U u : data.getUsers()) {
+                users.add(u);
+            }
+            if (!perUser) {
+                Collections.shuffle(users, rnd);
+            }
+            StringBuilder line = new StringBuilder();
+            int n = 0;
+            for (U user : users) {
+                List<I> items = new ArrayList<>();
+                for (I i : data.getUserItems(user)) {
+                    items.add(i);
+                }
+                Collections.shuffle(items, rnd);
+                for (I item : items) {
+                    line.setLength(0);
+                    line.append(user).append('\t').append(item).append('\t').append(data.getUserItemPreference(user, item));
+                    if (temporalData != null) {
+                        Iterable<Long> time = temporalData.getUserItemTimestamps(user, item);
+                        if (time != null) {
+                            for (Long t : time) {
+                                line.append('\t').append(t);
+                            }
+                        }
+                    }
+                    int curFold = n % nFolds;
+                    for (int i = 0; i < nFolds; i++) {
+                        if (i == curFold) {
+                            writer.writeLine(2 * i + 1, line); // test
+                        } else {
+                            writer.writeLine(2 * i, line); // training
+                        }
+                    }
+                    n++;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,520 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.splitter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.SimpleParser;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * Iterative k-core filter: removes users with less than a minimum number of
+ * interactions and items with less than a minimum number of interactions,
+ * until every remaining user and item satisfies both constraints.
+ *
+ * The filter works on dense user and item indices: the degrees are kept in
+ * primitive arrays that are decremented in place, and only the users and items
+ * whose degree drops below the threshold are (re)visited, using a worklist.
+ * Each round of the worklist corresponds to one iteration of the naive
+ * algorithm, and its statistics are recorded.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class KCoreFilter {
+
+    /**
+     * Minimum number of interactions of a user.
+     */
+    private final int minUserInteractions;
+    /**
+     * Minimum number of interactions of an item.
+     */
+    private final int minItemInteractions;
+    /**
+     * Statistics of the iterations of the last execution.
+     */
+    private final List<IterationStats> statistics;
+
+    /**
+     * Constructor.
+     *
+     * @param minUser minimum number of interactions of a user
+     * @param minItem minimum number of interactions of an item
+     */
+    public KCoreFilter(final int minUser, final int minItem) {
+        this.minUserInteractions = minUser;
+        this.minItemInteractions = minItem;
+        this.statistics = new ArrayList<>();
+    }
+
+    /**
+     * Gets the statistics of every iteration of the last execution.
+     *
+     * @return the statistics of every iteration
+     */
+    public List<IterationStats> getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Filters a data model. Every (user, item) pair counts as one interaction.
+     *
+     * @param data the data model
+     * @param <U> generic type for users
+     * @param <I> generic type for items
+     * @return a read-only view with the pairs that survive the filter
+     */
+    public <U, I> DataModelIF<U, I> filter(final DataModelIF<U, I> data) {
+        InteractionArrays<U, I> interactions = InteractionArrays.fromModel(data);
+        return new MaskedInteractionView<>(interactions, filterPairs(interactions), true);
+    }
+
+    /**
+     * Filters a temporal data model. Every (user, item) pair counts as one
+     * interaction, regardless of its number of timestamps.
+     *
+     * @param data the data model
+     * @param <U> generic type for users
+     * @param <I> generic type for items
+     * @return a read-only view with the pairs (and their timestamps) that
+     * survive the filter
+     */
+    public <U, I> TemporalDataModelIF<U, I> filter(final TemporalDataModelIF<U, I> data) {
+        InteractionArrays<U, I> interactions = InteractionArrays.fromTemporalModel(data, true);
+        return new MaskedInteractionView<>(interactions, filterPairs(interactions), true);
+    }
+
+    /**
+     * Filters the interactions of an {@link InteractionArrays} instance whose
+     * pairs are stored in contiguous positions.
+     *
+     * @param interactions the interactions
+     * @return true for the positions that survive the filter
+     */
+    private boolean[] filterPairs(final InteractionArrays<?, ?> interactions) {
+        final int n = interactions.size();
+        // first position of every pair
+        int nPairs = 0;
+        for (int p = 0; p < n; p++) {
+            if (isPairStart(interactions, p)) {
+                nPairs++;
+            }
+        }
+        final int[] starts = new int[nPairs];
+        final int[] users = new int[nPairs];
+        final int[] items = new int[nPairs];
+        nPairs = 0;
+        for (int p = 0; p < n; p++) {
+            if (isPairStart(interactions, p)) {
+                starts[nPairs] = p;
+                users[nPairs] = interactions.userAt(p);
+                items[nPairs] = interactions.itemAt(p);
+                nPairs++;
+            }
+        }
+        final boolean[] alivePairs = filter(users, items, nPairs, interactions.getNumUsers(), interactions.getNumItems());
+        final boolean[] alive = new boolean[n];
+        for (int k = 0; k < nPairs; k++) {
+            int end = k + 1 < nPairs ? starts[k + 1] : n;
+            Arrays.fill(alive, starts[k], end, alivePairs[k]);
+        }
+        return alive;
+    }
+
+    /**
+     * Checks if a position is the first one of a (user, item) pair.
+     *
+     * @param interactions the interactions
+     * @param p the position
+     * @return true if the position starts a new pair
+     */
+    private static boolean isPairStart(final InteractionArrays<?, ?> interactions, final int p) {
+        return p == 0 || interactions.userAt(p) != interactions.userAt(p - 1) || interactions.itemAt(p) != interactions.itemAt(p - 1);
+    }
+
+    /**
+     * Filters a file of records (one interaction per line, with the user and
+     * the item in the first two fields) without building a data model: the
+     * file is read once to compute the core, on two integers per record, and a
+     * second time to copy the surviving lines. Every line counts as one
+     * interaction; empty lines and lines with less than two fields are
+     * skipped (and not copied).
+     *
+     * @param in the input file (it can be compressed, see
+     * {@link SimpleParser#getBufferedReader(File)})
+     * @param out the output file
+     * @param delimiter the regular expression that separates the fields
+     * @throws IOException when the files cannot be read or written
+     */
+    public void filter(final File in, final File out, final String delimiter) throws IOException {
+        Map<String, Integer> userIndex = new HashMap<>();
+        Map<String, Integer> itemIndex = new HashMap<>();
+        int[] users = new int[1024];
+        int[] items = new int[1024];
+        int n = 0;
+        try (BufferedReader br = open(in)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] toks = fields(line, delimiter);
+                if (toks == null) {
+                    continue;
+                }
+                if (n == users.length) {
+                    users = Arrays.copyOf(users, 2 * n);
+                    items = Arrays.copyOf(items, 2 * n);
+                }
+                users[n] = index(userIndex, toks[0]);
+                items[n] = index(itemIndex, toks[1]);
+                n++;
+            }
+        }
+        boolean[] alive = filter(users, items, n, userIndex.size(), itemIndex.size());
+        try (BufferedReader br = open(in); PrintStream ps = new PrintStream(out, "UTF-8")) {
+            String line;
+            int k = 0;
+            while ((line = br.readLine()) != null) {
+                if (fields(line, delimiter) != null && alive[k++]) {
+                    ps.println(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a file of records, see {@link SimpleParser#getBufferedReader(File)}.
+     *
+     * @param in the file
+     * @return the reader
+     * @throws IOException when the file cannot be read
+     */
+    private static BufferedReader open(final File in) throws IOException {
+        BufferedReader br = SimpleParser.getBufferedReader(in);
+        if (br == null) {
+            throw new IOException("Cannot read " + in);
+        }
+        return br;
+    }
+
+    /**
+     * Splits a record into the user, the item and the rest of the line.
+     *
+     * @param line the line
+     * @param delimiter the regular expression that separates the fields
+     * @return the fields, or null if the line is not a record (it is empty
+     * or has less than two fields), so it is skipped
+     */
+    private static String[] fields(final String line, final String delimiter) {
+        if (line.isEmpty()) {
+            return null;
+        }
+        String[] toks = line.split(delimiter, 3);
+        if (toks.length < 2) {
+            return null;
+        }
+        return toks;
+    }
+
+    /**
+     * Gets (or creates) the dense index of a key.
+     *
+     * @param index the mapping from keys to indices
+     * @param key the key
+     * @return the index of the key
+     */
+    private static int index(final Map<String, Integer> index, final String key) {
+        Integer idx = index.get(key);
+        if (idx == null) {
+            idx = index.size();
+            index.put(key, idx);
+        }
+        return idx;
+    }
+
+    /**
+     * Computes the k-core of a set of interactions given as dense indices.
+     *
+     * @param users user index of every interaction
+     * @param items item index of every interaction
+     * @param n number of interactions
+     * @param nUsers number of users (indices are lower than this)
+     * @param nItems number of items (indices are lower than this)
+     * @return true for the interactions that survive the filter
+     */
+    public boolean[] filter(final int[] users, final int[] items, final int n, final int nUsers, final int nItems) {
+        statistics.clear();
+        final int[] userDegree = new int[nUsers];
+        final int[] itemDegree = new int[nItems];
+        for (int k = 0; k < n; k++) {
+            userDegree[users[k]]++;
+            itemDegree[items[k]]++;
+        }
+        // adjacency lists (interactions of every user and item) in CSR form
+        final int[] userStarts = offsets(userDegree);
+        final int[] itemStarts = offsets(itemDegree);
+        final int[] userAdj = new int[n];
+        final int[] itemAdj = new int[n];
+        final int[] userFill = Arrays.copyOf(userStarts, nUsers);
+        final int[] itemFill = Arrays.copyOf(itemStarts, nItems);
+        for (int k = 0; k < n; k++) {
+            userAdj[userFill[users[k]]++] = k;
+            itemAdj[itemFill[items[k]]++] = k;
+        }
+        final boolean[] alive = new boolean[n];
+        Arrays.fill(alive, true);
+        final boolean[] userQueued = new boolean[nUsers];
+        final boolean[] itemQueued = new boolean[nItems];
+        // worklist of the current round: users are stored as u, items as -(i + 1)
+        int[] current = new int[16];
+        int nCurrent = 0;
+        for (int u = 0; u < nUsers; u++) {
+            if (userDegree[u] < minUserInteractions) {
+                userQueued[u] = true;
+                current = push(current, nCurrent++, u);
+            }
+        }
+        for (int i = 0; i < nItems; i++) {
+            if (itemDegree[i] < minItemInteractions) {
+                itemQueued[i] = true;
+                current = push(current, nCurrent++, -(i + 1));
+            }
+        }
+        int remainingUsers = nUsers;
+        int remainingItems = nItems;
+        int remainingInteractions = n;
+        int[] next = new int[16];
+        int iteration = 0;
+        while (nCurrent > 0) {
+            iteration++;
+            int nNext = 0;
+            int removedUsers = 0;
+            int removedItems = 0;
+            int removedInteractions = 0;
+            for (int w = 0; w < nCurrent; w++) {
+                final boolean isUser = current[w] >= 0;
+                final int idx = isUser ? current[w] : -current[w] - 1;
+                final int[] adj = isUser ? userAdj : itemAdj;
+                final int from = isUser ? userStarts[idx] : itemStarts[idx];
+                final int to = isUser ? userStarts[idx + 1] : itemStarts[idx + 1];
+                if (isUser) {
+                    removedUsers++;
+                } else {
+                    removedItems++;
+                }
+                for (int a = from; a < to; a++) {
+                    final int k = adj[a];
+                    if (!alive[k]) {
+                        continue;
+                    }
+                    alive[k] = false;
+                    removedInteractions++;
+                    userDegree[users[k]]--;
+                    itemDegree[items[k]]--;
+                    if (isUser) {
+                        final int i = items[k];
+                        if (!itemQueued[i] && itemDegree[i] < minItemInteractions) {
+                            itemQueued[i] = true;
+                            next = push(next, nNext++, -(i + 1));
+                        }
+                    } else {
+                        final int u = users[k];
+                        if (!userQueued[u] && userDegree[u] < minUserInteractions) {
+                            userQueued[u] = true;
+                            next = push(next, nNext++, u);
+                        }
+                    }
+                }
+            }
+            remainingUsers -= removedUsers;
+            remainingItems -= removedItems;
+            remainingInteractions -= removedInteractions;
+            statistics.add(new IterationStats(iteration, removedUsers, removedItems, removedInteractions,
+                    remainingUsers, remainingItems, remainingInteractions));
+            final int[] tmp = current;
+            current = next;
+            next = tmp;
+            nCurrent = nNext;
+        }
+        return alive;
+    }
+
+    /**
+     * Computes the start offsets of a CSR structure from the degrees.
+     *
+     * @param degree the degrees
+     * @return the offsets, with one extra position for the end
+     */
+    private static int[] offsets(final int[] degree) {
+        final int[] starts = new int[degree.length + 1];
+        for (int x = 0; x < degree.length; x++) {
+            starts[x + 1] = starts[x] + degree[x];
+        }
+        return starts;
+    }
+
+    /**
+     * Appends a value to a growable array.
+     *
+     * @param array the array
+     * @param size the number of values in the array
+     * @param value the value
+     * @return the array (possibly a new one)
+     */
+    private static int[] push(final int[] array, final int size, final int value) {
+        int[] a = array;
+        if (size == a.length) {
+            a = Arrays.copyOf(a, 2 * size);
+        }
+        a[size] = value;
+        return a;
+    }
+
+    /**
+     * Statistics of an iteration of the filter.
+     */
+    public static final class IterationStats {
+
+        /**
+         * The number of the iteration (starting at 1).
+         */
+        private final int iteration;
+        /**
+         * Users removed in the iteration.
+         */
+        private final int removedUsers;
+        /**
+         * Items removed in the iteration.
+         */
+        private final int removedItems;
+        /**
+         * Interactions removed in the iteration.
+         */
+        private final int removedInteractions;
+        /**
+         * Users remaining after the iteration.
+         */
+        private final int remainingUsers;
+        /**
+         * Items remaining after the iteration.
+         */
+        private final int remainingItems;
+        /**
+         * Interactions remaining after the iteration.
+         */
+        private final int remainingInteractions;
+
+        /**
+         * Constructor.
+         *
+         * @param it the number of the iteration
+         * @param ru users removed
+         * @param ri items removed
+         * @param rx interactions removed
+         * @param u remaining users
+         * @param i remaining items
+         * @param x remaining interactions
+         */
+        IterationStats(final int it, final int ru, final int ri, final int rx, final int u, final int i, final int x) {
+            this.iteration = it;
+            this.removedUsers = ru;
+            this.removedItems = ri;
+            this.removedInteractions = rx;
+            this.remainingUsers = u;
+            this.remainingItems = i;
+            this.remainingInteractions = x;
+        }
+
+        /**
+         * Gets the number of the iteration (starting at 1).
+         *
+         * @return the number of the iteration
+         */
+        public int getIteration() {
+            return iteration;
+        }
+
+        /**
+         * Gets the number of users removed in the iteration.
+         *
+         * @return the number of users removed
+         */
+        public int getRemovedUsers() {
+            return removedUsers;
+        }
+
+        /**
+         * Gets the number of items removed in the iteration.
+         *
+         * @return the number of items removed
+         */
+        public int getRemovedItems() {
+            return removedItems;
+        }
+
+        /**
+         * Gets the number of interactions removed in the iteration.
+         *
+         * @return the number of interactions removed
+         */
+        public int getRemovedInteractions() {
+            return removedInteractions;
+        }
+
+        /**
+         * Gets the number of users remaining after the iteration.
+         *
+         * @return the number of remaining users
+         */
+        public int getRemainingUsers() {
+            return remainingUsers;
+        }
+
+        /**
+         * Gets the number of items remaining after the iteration.
+         *
+         * @return the number of remaining items
+         */
+        public int getRemainingItems() {
+            return remainingItems;
+        }
+
+        /**
+         * Gets the number of interactions remaining after the iteration.
+         *
+         * @return the number of remaining interactions
+         */
+        public int getRemainingInteractions() {
+            return remainingInteractions;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "Iteration " + iteration + ": removed " + removedUsers + " users, " + removedItems + " items, "
+                    + removedInteractions + " interactions; remaining " + remainingUsers + " users, "
+                    + remainingItems + " items, " + remainingInteractions + " interactions";
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.splitter;
+
+/**
+ * View over the positions of an {@link InteractionArrays} instance whose
+ * assignment mask has a given value. Two complementary views (one per mask
+ * value) partition the interactions without copying them.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ *
+ * @param <U> generic type for users
+ * @param <I> generic type for items
+ */
+public class MaskedInteractionView<U, I> extends InteractionView<U, I> {
+
+    /**
+     * Assignment of every position of the shared interactions.
+     */
+    private final boolean[] mask;
+    /**
+     * Value of the mask for the positions that belong to this view.
+     */
+    private final boolean selected;
+
+    /**
+     * Constructor.
+     *
+     * @param interactions the shared interactions
+     * @param assignment assignment of every position of the interactions
+     * @param value value of the assignment for the positions of this view
+     */
+    public MaskedInteractionView(final InteractionArrays<U, I> interactions, final boolean[] assignment, final boolean value) {
+        super(interactions, 0, interactions.size());
+        this.mask = assignment;
+        this.selected = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean contains(final int pos) {
+        return mask[pos] == selected;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.splitter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+
+/**
+ * Rolling-origin (sliding window) temporal splitter: for every origin, the
+ * interactions in [origin - trainingWindow, origin) are used for training
+ * and those in [origin, origin + testWindow) for test. The origin starts at
+ * the first timestamp plus the training window (or the step, for expanding
+ * windows) and moves forward by a fixed step.
+ *
+ * The interactions are sorted by time only once, and every split is a
+ * read-only {@link InteractionView} over the shared sorted arrays, so
+ * generating many splits costs roughly one copy of the data.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ *
+ * @param <U> generic type for users
+ * @param <I> generic type for items
+ */
+public class RollingOriginSplitter<U, I> implements Splitter<U, I> {
+
+    /**
+     * Length of the training window (if not positive, all the interactions
+     * before the origin are used, i.e., an expanding window).
+     */
+    private long trainingWindow;
+    /**
+     * Length of the test window.
+     */
+    private long testWindow;
+    /**
+     * Distance between two consecutive origins.
+     */
+    private long step;
+
+    /**
+     * Constructor.
+     *
+     * @param trainingWindowLength length of the training window; if it is
+     * not positive, every interaction before the origin is used for training
+     * @param testWindowLength length of the test window
+     * @param stepLength distance between two consecutive origins
+     */
+    public RollingOriginSplitter(final long trainingWindowLength, final long testWindowLength, final long stepLength) {
+        if (testWindowLength <= 0 || stepLength <= 0) {
+            throw new IllegalArgumentException("Test window and step should be positive");
+        }
+        this.trainingWindow = trainingWindowLength;
+        this.testWindow = testWindowLength;
+        this.step = stepLength;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataModelIF<U, I>[] split(final DataModelIF<U, I> data) {
+        throw new IllegalArgumentException("Method not available");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TemporalDataModelIF<U, I>[] split(final TemporalDataModelIF<U, I> data) {
+        List<TemporalDataModelIF<U, I>> splits = new ArrayList<>();
+        for (TemporalDataModelIF<U, I>[] s : splitIterable(data)) {
+            splits.add(s[0]);
+            splits.add(s[1]);
+        }
+        @SuppressWarnings("unchecked")
+        final TemporalDataModelIF<U, I>[] array = new TemporalDataModelIF[splits.size()];
+        return splits.toArray(array);
+    }
+
+    /**
+     * Splits temporal data lazily: the interactions are sorted once and each
+     * (training, test) pair is created only when the iterator reaches it.
+     *
+     * @param data The data.
+     * @return an iterable over pairs of views, where the first element is the
+     * training split and the second one the test split.
+     */
+    public Iterable<TemporalDataModelIF<U, I>[]> splitIterable(final TemporalDataModelIF<U, I> data) {
+        return splitIterable(InteractionArrays.fromTemporalModel(data));
+    }
+
+    /**
+     * Splits interactions lazily (see {@link #splitIterable(TemporalDataModelIF)}).
+     *
+     * @param arrays the interactions; they are not modified (if they are not
+     * sorted by time, the views are built on a sorted copy, see
+     * {@link InteractionArrays#timeSorted()}), so other views built on them
+     * stay valid.
+     * @return an iterable over pairs of views, where the first element is the
+     * training split and the second one the test split.
+     */
+    public Iterable<TemporalDataModelIF<U, I>[]> splitIterable(final InteractionArrays<U, I> arrays) {
+        final InteractionArrays<U, I> interactions = arrays.timeSorted();
+        return new Iterable<TemporalDataModelIF<U, I>[]>() {
+            @Override
+            public Iterator<TemporalDataModelIF<U, I>[]> iterator() {
+                return new WindowIterator(interactions);
+            }
+        };
+    }
+
+    /**
+     * Iterator that creates the views of each window.
+     */
+    private class WindowIterator implements Iterator<TemporalDataModelIF<U, I>[]> {
+
+        /**
+         * The shared, sorted, interactions.
+         */
+        private final InteractionArrays<U, I> interactions;
+        /**
+         * The current origin.
+         */
+        private long origin;
+        /**
+         * The last timestamp in the data.
+         */
+        private final long last;
+
+        /**
+         * Constructor.
+         *
+         * @param sorted the shared interactions, sorted by time
+         */
+        WindowIterator(final InteractionArrays<U, I> sorted) {
+            this.interactions = sorted;
+            if (sorted.size() == 0) {
+                this.origin = 1L;
+                this.last = 0L;
+            } else {
+                if (trainingWindow > 0) {
+                    this.origin = sorted.timeAt(0) + trainingWindow;
+                } else {
+                    this.origin = sorted.timeAt(0) + step;
+                }
+                this.last = sorted.timeAt(sorted.size() - 1);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return origin <= last;
+        }
+
+        @Override
+        public TemporalDataModelIF<U, I>[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int trainingStart = 0;
+            if (trainingWindow > 0) {
+                trainingStart = interactions.lowerBound(origin - trainingWindow);
+            }
+            int testStart = interactions.lowerBound(origin);
+            int testEnd = interactions.lowerBound(origin + testWindow);
+            @SuppressWarnings("unchecked")
+            final TemporalDataModelIF<U, I>[] pair = new TemporalDataModelIF[2];
+            pair[0] = new InteractionView<>(interactions, trainingStart, testStart); // training
+            pair[1] = new InteractionView<>(interactions, testStart, testEnd); // test
+            origin += step;
+            return pair;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
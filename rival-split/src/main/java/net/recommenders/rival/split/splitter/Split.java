@@ -18,9 +18,7 @@ package net.recommenders.rival.split.splitter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Properties;
-
-import net.recommenders.rival.core.TemporalDataModelIF;
-import net.recommenders.rival.split.parser.ParserRunner;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
 
 /**
  * Main class that parses a data set and splits it according to a property file.
@@ -39,7 +37,7 @@ public final class Split {
      * Main method that loads properties from a file and runs a SplitterRunner.
      *
      * @param args program arguments (not used)
-     * @throws Exception see {@link net.recommenders.rival.split.splitter.SplitterRunner#run(Properties, TemporalDataModelIF, boolean)}
+     * @throws Exception see {@link net.recommenders.rival.split.splitter.SplitterRunner#run(Properties, boolean)}
      * @see net.recommenders.rival.split.splitter.SplitterRunner
      */
     public static void main(final String[] args) throws Exception {
@@ -52,6 +50,11 @@ public final class Split {
             ie.printStackTrace();
         }
 
-        SplitterRunner.run(properties, ParserRunner.run(properties), true);
+        MetricsRegistry.getDefault().configure(properties);
+        try {
+            SplitterRunner.run(properties, true);
+        } finally {
+            MetricsRegistry.getDefault().stop();
+        }
     }
 }
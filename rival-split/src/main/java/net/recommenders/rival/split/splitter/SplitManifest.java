@@ -0,0 +1,384 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.splitter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Description of a set of splits written to disk: the checksum of the source
+ * file, the parameters used to generate the splits and, for every split file,
+ * its checksum and number of rows. It is stored as a properties file next to
+ * the splits, so that a later run can check whether the splits are still
+ * valid.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class SplitManifest {
+
+    /**
+     * Default name of the manifest file.
+     */
+    public static final String MANIFEST_NAME = "split.manifest";
+    /**
+     * Key of the path of the source file.
+     */
+    private static final String SOURCE_FILE = "source.file";
+    /**
+     * Key of the checksum of the source file.
+     */
+    private static final String SOURCE_CHECKSUM = "source.checksum";
+    /**
+     * Prefix of the keys of the parameters.
+     */
+    private static final String PARAM_PREFIX = "param.";
+    /**
+     * Key of the number of split files.
+     */
+    private static final String FILE_COUNT = "file.count";
+    /**
+     * Key of the number of split files generated by the splitter (some of
+     * them may not have been recorded).
+     */
+    private static final String SPLIT_FILES = "split.files";
+    /**
+     * Prefix of the keys of the split files.
+     */
+    private static final String FILE_PREFIX = "file.";
+    /**
+     * Algorithm used to compute checksums.
+     */
+    private static final String DIGEST = "SHA-256";
+    /**
+     * Size of the buffer used to read files.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * Path of the source file.
+     */
+    private String sourceFile;
+    /**
+     * Checksum of the source file.
+     */
+    private String sourceChecksum;
+    /**
+     * Number of split files generated by the splitter.
+     */
+    private int splitFiles;
+    /**
+     * Parameters used to generate the splits.
+     */
+    private final Map<String, String> parameters;
+    /**
+     * Recorded split files, with their checksum and number of rows.
+     */
+    private final Map<String, FileSummary> files;
+
+    /**
+     * Constructor of an empty manifest.
+     */
+    public SplitManifest() {
+        this.parameters = new TreeMap<>();
+        this.files = new TreeMap<>();
+    }
+
+    /**
+     * Reads a manifest from a file.
+     *
+     * @param manifest the file
+     * @return the manifest, or null if the file does not exist
+     * @throws IOException when the file cannot be read
+     */
+    public static SplitManifest read(final File manifest) throws IOException {
+        if (!manifest.exists()) {
+            return null;
+        }
+        Properties p = new Properties();
+        try (InputStream in = new FileInputStream(manifest)) {
+            p.load(in);
+        }
+        SplitManifest m = new SplitManifest();
+        m.sourceFile = p.getProperty(SOURCE_FILE);
+        m.sourceChecksum = p.getProperty(SOURCE_CHECKSUM);
+        m.splitFiles = Integer.parseInt(p.getProperty(SPLIT_FILES, "-1"));
+        for (String key : p.stringPropertyNames()) {
+            if (key.startsWith(PARAM_PREFIX)) {
+                m.parameters.put(key.substring(PARAM_PREFIX.length()), p.getProperty(key));
+            }
+        }
+        int n = Integer.parseInt(p.getProperty(FILE_COUNT, "0"));
+        for (int f = 0; f < n; f++) {
+            String path = p.getProperty(FILE_PREFIX + f + ".path");
+            String checksum = p.getProperty(FILE_PREFIX + f + ".checksum");
+            long rows = Long.parseLong(p.getProperty(FILE_PREFIX + f + ".rows"));
+            m.files.put(path, new FileSummary(checksum, rows));
+        }
+        return m;
+    }
+
+    /**
+     * Writes the manifest to a file.
+     *
+     * @param manifest the file
+     * @throws IOException when the file cannot be written
+     */
+    public void write(final File manifest) throws IOException {
+        Properties p = new Properties();
+        if (sourceFile != null) {
+            p.setProperty(SOURCE_FILE, sourceFile);
+            p.setProperty(SOURCE_CHECKSUM, sourceChecksum);
+        }
+        for (Map.Entry<String, String> e : parameters.entrySet()) {
+            p.setProperty(PARAM_PREFIX + e.getKey(), e.getValue());
+        }
+        p.setProperty(SPLIT_FILES, Integer.toString(splitFiles));
+        p.setProperty(FILE_COUNT, Integer.toString(files.size()));
+        int f = 0;
+        for (Map.Entry<String, FileSummary> e : files.entrySet()) {
+            p.setProperty(FILE_PREFIX + f + ".path", e.getKey());
+            p.setProperty(FILE_PREFIX + f + ".checksum", e.getValue().getChecksum());
+            p.setProperty(FILE_PREFIX + f + ".rows", Long.toString(e.getValue().getRows()));
+            f++;
+        }
+        try (OutputStream out = new FileOutputStream(manifest)) {
+            p.store(out, "RiVal split manifest");
+        }
+    }
+
+    /**
+     * Records the source file of the splits.
+     *
+     * @param source the source file
+     * @throws IOException when the file cannot be read
+     */
+    public void setSource(final File source) throws IOException {
+        this.sourceFile = source.getPath();
+        this.sourceChecksum = summarize(source).getChecksum();
+    }
+
+    /**
+     * Records a parameter used to generate the splits.
+     *
+     * @param key the name of the parameter
+     * @param value the value of the parameter
+     */
+    public void setParameter(final String key, final String value) {
+        parameters.put(key, value);
+    }
+
+    /**
+     * Records the number of split files generated by the splitter.
+     *
+     * @param n the number of split files
+     */
+    public void setSplitFileCount(final int n) {
+        this.splitFiles = n;
+    }
+
+    /**
+     * Checks if every split file generated by the splitter was recorded.
+     *
+     * @return true if every split file was recorded
+     */
+    public boolean isComplete() {
+        return splitFiles >= 0 && splitFiles == files.size();
+    }
+
+    /**
+     * Records a split file (reading its current content).
+     *
+     * @param file the split file
+     * @throws IOException when the file cannot be read
+     */
+    public void recordFile(final String file) throws IOException {
+        files.put(file, summarize(new File(file)));
+    }
+
+    /**
+     * Checks if this manifest describes splits generated from the same
+     * source content and with the same parameters as another one.
+     *
+     * @param other the other manifest
+     * @return true if the source and the parameters are the same
+     */
+    public boolean hasSameOrigin(final SplitManifest other) {
+        return other != null
+                && sourceChecksum != null
+                && sourceChecksum.equals(other.sourceChecksum)
+                && parameters.equals(other.parameters);
+    }
+
+    /**
+     * Checks if the splits described by a manifest file are still valid for
+     * this manifest: they were generated from the same source content and
+     * with the same parameters, every split file was recorded, and none of
+     * them has been modified. Useful for callers that split the data
+     * themselves and write this manifest afterwards.
+     * @param manifest the manifest file of a previous run
+     * @return true if the splits do not need to be generated again
+     * @throws IOException when the manifest or the split files cannot be read
+     */
+    public boolean isUpToDate(final File manifest) throws IOException {
+        SplitManifest previous = read(manifest);
+        if (!hasSameOrigin(previous) || !previous.isComplete()) {
+            return false;
+        }
+        for (String file : previous.getFiles()) {
+            if (!previous.verifyFile(file)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a split file is recorded in the manifest.
+     *
+     * @param file the split file
+     * @return true if the file is recorded
+     */
+    public boolean isRecorded(final String file) {
+        return files.containsKey(file);
+    }
+
+    /**
+     * Checks if a split file exists and its content matches the one recorded
+     * in the manifest.
+     *
+     * @param file the split file
+     * @return true if the file is recorded and has not been modified
+     * @throws IOException when the file cannot be read
+     */
+    public boolean verifyFile(final String file) throws IOException {
+        FileSummary recorded = files.get(file);
+        File f = new File(file);
+        if (recorded == null || !f.exists()) {
+            return false;
+        }
+        FileSummary current = summarize(f);
+        return recorded.getRows() == current.getRows() && recorded.getChecksum().equals(current.getChecksum());
+    }
+
+    /**
+     * Gets the recorded split files.
+     *
+     * @return the recorded split files
+     */
+    public Iterable<String> getFiles() {
+        return files.keySet();
+    }
+
+    /**
+     * Gets the number of rows of a recorded split file.
+     *
+     * @param file the split file
+     * @return the number of rows, or -1 if the file is not recorded
+     */
+    public long getRows(final String file) {
+        FileSummary s = files.get(file);
+        if (s == null) {
+            return -1L;
+        }
+        return s.getRows();
+    }
+
+    /**
+     * Reads a file once to compute its checksum and its number of lines.
+     *
+     * @param file the file
+     * @return the checksum and the number of lines of the file
+     * @throws IOException when the file cannot be read
+     */
+    private static FileSummary summarize(final File file) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(DIGEST);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        long rows = 0L;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                md.update(buffer, 0, n);
+                for (int k = 0; k < n; k++) {
+                    if (buffer[k] == '\n') {
+                        rows++;
+                    }
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return new FileSummary(sb.toString(), rows);
+    }
+
+    /**
+     * Checksum and number of rows of a file.
+     */
+    private static final class FileSummary {
+
+        /**
+         * The checksum.
+         */
+        private final String checksum;
+        /**
+         * The number of rows.
+         */
+        private final long rows;
+
+        /**
+         * Constructor.
+         *
+         * @param c the checksum
+         * @param r the number of rows
+         */
+        FileSummary(final String c, final long r) {
+            this.checksum = c;
+            this.rows = r;
+        }
+
+        /**
+         * Gets the checksum.
+         *
+         * @return the checksum
+         */
+        String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * Gets the number of rows.
+         *
+         * @return the number of rows
+         */
+        long getRows() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.splitter;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Properties;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.core.experiment.ExperimentNode;
+import net.recommenders.rival.split.parser.ParserRunner;
+
+/**
+ * Experiment node that splits the data with the splitter in
+ * {@link SplitterRunner#DATASET_SPLITTER} (after the k-core filter, if any),
+ * as {@link SplitterRunner} does, but keeping the splits in memory. The
+ * properties about the output files are not parameters of the node; use a
+ * {@link net.recommenders.rival.core.experiment.FoldNode} to take one fold.
+ * Splits that are views over shared data (e.g., those of
+ * {@link RollingOriginSplitter}, or after the k-core filter) are copied into
+ * regular data models, so that the output can be stored.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class SplitNode extends ExperimentNode<TemporalDataModelIF<Long, Long>[]> {
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the node
+     * @param properties the properties of the splitter (see
+     * {@link SplitterRunner})
+     * @param data the node with the data to split
+     */
+    public SplitNode(final String name, final Properties properties, final ExperimentNode<? extends TemporalDataModelIF<Long, Long>> data) {
+        super(name, exclude(properties, SplitterRunner.SPLIT_OUTPUT_FOLDER, SplitterRunner.SPLIT_OUTPUT_OVERWRITE, SplitterRunner.SPLIT_FIELD_DELIMITER,
+                SplitterRunner.SPLIT_TRAINING_PREFIX, SplitterRunner.SPLIT_TRAINING_SUFFIX, SplitterRunner.SPLIT_TEST_PREFIX, SplitterRunner.SPLIT_TEST_SUFFIX,
+                ParserRunner.DATASET_FILE, ParserRunner.DATASET_PARSER), data);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public TemporalDataModelIF<Long, Long>[] compute(final List<Object> inputValues) {
+        Properties properties = getProperties();
+        TemporalDataModelIF<Long, Long> data = (TemporalDataModelIF<Long, Long>) inputValues.get(0);
+        Splitter<Long, Long> splitter = SplitterRunner.instantiateSplitter(properties);
+        TemporalDataModelIF<Long, Long>[] splits = splitter.split(SplitterRunner.applyKCore(properties, data));
+        for (int k = 0; k < splits.length; k++) {
+            if (!(splits[k] instanceof Serializable)) {
+                splits[k] = materialize(splits[k]);
+            }
+        }
+        return splits;
+    }
+
+    /**
+     * Copies a data model into a regular (serializable) temporal data model.
+     *
+     * @param view the data model
+     * @return the copy
+     */
+    private static TemporalDataModelIF<Long, Long> materialize(final TemporalDataModelIF<Long, Long> view) {
+        TemporalDataModelIF<Long, Long> model = DataModelFactory.getDefaultTemporalModel();
+        for (Long u : view.getUsers()) {
+            for (Long i : view.getUserItems(u)) {
+                model.addPreference(u, i, view.getUserItemPreference(u, i));
+                Iterable<Long> timestamps = view.getUserItemTimestamps(u, i);
+                if (timestamps != null) {
+                    for (Long t : timestamps) {
+                        model.addTimestamp(u, i, t);
+                    }
+                }
+            }
+        }
+        return model;
+    }
+}
@@ -15,16 +15,28 @@
  */
 package net.recommenders.rival.split.splitter;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 
 import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.DataModelUtils;
 import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.core.metrics.MetricsRegistry;
+import net.recommenders.rival.core.metrics.Timer;
+import net.recommenders.rival.split.parser.ParserRunner;
 
 /**
- * Class that splits a dataset according to some properties.
+ * Class that splits a dataset according to some properties. The time spent
+ * splitting ({@link #SPLIT_TIME}) and saving each split file
+ * ({@link #SAVE_TIME}), and the files ({@link #FILES}) and bytes
+ * ({@link #BYTES}) written are published in the default
+ * {@link MetricsRegistry}.
  *
  * @author <a href="http://github.com/abellogin">Alejandro</a>
  */
@@ -54,10 +66,34 @@ public final class SplitterRunner {
      * Variable that represent the name of a property in the file.
      */
     public static final String SPLIT_RANDOM_PERCENTAGE = "split.random.percentage";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String SPLIT_VALIDATION_PERCENTAGE = "split.validation.percentage";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String SPLIT_ROLLING_TRAINING_WINDOW = "split.rolling.training.window";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String SPLIT_ROLLING_TEST_WINDOW = "split.rolling.test.window";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String SPLIT_ROLLING_STEP = "split.rolling.step";
     /**
      * Variable that represent the name of a property in the file.
      */
     public static final String SPLIT_OUTPUT_FOLDER = "split.output.folder";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String SPLIT_KCORE_USERS = "split.kcore.users";
+    /**
+     * Variable that represent the name of a property in the file.
+     */
+    public static final String SPLIT_KCORE_ITEMS = "split.kcore.items";
     /**
      * Variable that represent the name of a property in the file.
      */
@@ -83,6 +119,22 @@ public final class SplitterRunner {
      * Variable that represent the field delimiter for each line
      */
     public static final String SPLIT_FIELD_DELIMITER = "split.delimiter";
+    /**
+     * Name of the timer of the splits.
+     */
+    public static final String SPLIT_TIME = "splitter.split";
+    /**
+     * Name of the timer of the split files saved.
+     */
+    public static final String SAVE_TIME = "splitter.save";
+    /**
+     * Name of the counter of split files saved.
+     */
+    public static final String FILES = "splitter.files";
+    /**
+     * Name of the counter of bytes written.
+     */
+    public static final String BYTES = "splitter.bytes";
 
     /**
      * Utility classes should not have a public or default constructor.
@@ -118,7 +170,10 @@ public final class SplitterRunner {
         String splitTestSuffix = properties.getProperty(SPLIT_TEST_SUFFIX);
         // generate splits
         Splitter<U, I> splitter = instantiateSplitter(properties);
-        splits = splitter.split(data);
+        Timer timer = MetricsRegistry.getDefault().timer(SPLIT_TIME);
+        long start = timer.start();
+        splits = splitter.split(applyKCore(properties, data));
+        timer.stop(start);
         if (doDataClear) {
             data.clear();
         }
@@ -129,9 +184,165 @@ public final class SplitterRunner {
             TemporalDataModelIF<U, I> test = splits[2 * i + 1];
             String trainingFile = outputFolder + splitTrainingPrefix + i + splitTrainingSuffix;
             String testFile = outputFolder + splitTestPrefix + i + splitTestSuffix;
-            DataModelUtils.saveDataModel(training, trainingFile, overwrite, fieldDelimiter);
-            DataModelUtils.saveDataModel(test, testFile, overwrite, fieldDelimiter);
+            save(training, trainingFile, overwrite, fieldDelimiter);
+            save(test, testFile, overwrite, fieldDelimiter);
+        }
+    }
+
+    /**
+     * Parses the dataset and splits it according to the properties, keeping a
+     * {@link SplitManifest} in the output folder. If the source file and the
+     * splitting parameters have not changed since the manifest was written,
+     * only the split files that are missing or were modified are written
+     * again; if none of them is, the dataset is not even parsed. When the
+     * splits are overwritten, the manifest is not checked and every file is
+     * written. Existing files that are not overwritten and were not recorded
+     * by a previous run are kept but not recorded, since their content may
+     * come from other parameters, so the splits are not up to date until they
+     * are written by this runner.
+     *
+     * @param properties  property file
+     * @param doDataClear flag to clear the memory used for the data before
+     *                    saving the splits
+     * @throws ClassNotFoundException    see {@link ParserRunner#run(Properties)}
+     * @throws IllegalAccessException    see {@link ParserRunner#run(Properties)}
+     * @throws InstantiationException    see {@link ParserRunner#run(Properties)}
+     * @throws InvocationTargetException see {@link ParserRunner#run(Properties)}
+     * @throws NoSuchMethodException     see {@link ParserRunner#run(Properties)}
+     * @throws IOException               when the dataset, the splits or the
+     *                                   manifest cannot be read or written
+     */
+    public static void run(final Properties properties, final boolean doDataClear)
+            throws ClassNotFoundException, IllegalAccessException, InstantiationException,
+            InvocationTargetException, NoSuchMethodException, IOException {
+        String outputFolder = properties.getProperty(SPLIT_OUTPUT_FOLDER);
+        Boolean overwrite = Boolean.parseBoolean(properties.getProperty(SPLIT_OUTPUT_OVERWRITE, "false"));
+        String fieldDelimiter = properties.getProperty(SPLIT_FIELD_DELIMITER, "\t");
+        File manifestFile = new File(outputFolder + SplitManifest.MANIFEST_NAME);
+        SplitManifest manifest = createManifest(properties);
+        SplitManifest previous = SplitManifest.read(manifestFile);
+        // files to be written again (null if every file should be written)
+        Set<String> stale = null;
+        if (!overwrite && manifest.hasSameOrigin(previous)) {
+            stale = new HashSet<>();
+            for (String file : previous.getFiles()) {
+                if (!previous.verifyFile(file)) {
+                    stale.add(file);
+                }
+            }
+            if (stale.isEmpty() && previous.isComplete()) {
+                System.out.println("Splits are up to date according to " + manifestFile);
+                return;
+            }
+        }
+        TemporalDataModelIF<Long, Long> data = ParserRunner.run(properties);
+        System.out.println("Start splitting");
+        Splitter<Long, Long> splitter = instantiateSplitter(properties);
+        Timer timer = MetricsRegistry.getDefault().timer(SPLIT_TIME);
+        long start = timer.start();
+        TemporalDataModelIF<Long, Long>[] splits = splitter.split(applyKCore(properties, data));
+        timer.stop(start);
+        if (doDataClear) {
+            data.clear();
+        }
+        System.out.println("Saving splits");
+        manifest.setSplitFileCount(splits.length);
+        for (int i = 0; i < splits.length / 2; i++) {
+            String[] files = new String[]{
+                outputFolder + properties.getProperty(SPLIT_TRAINING_PREFIX) + i + properties.getProperty(SPLIT_TRAINING_SUFFIX),
+                outputFolder + properties.getProperty(SPLIT_TEST_PREFIX) + i + properties.getProperty(SPLIT_TEST_SUFFIX)};
+            for (int j = 0; j < files.length; j++) {
+                String file = files[j];
+                boolean recorded = previous != null && previous.isRecorded(file);
+                if (stale != null && recorded && !stale.contains(file)) {
+                    System.out.println("Keeping " + file);
+                } else if (new File(file).exists() && !overwrite && !recorded) {
+                    // not written by this run: its content is unknown, so it is not recorded
+                    System.out.println("Keeping existing " + file + " (not overwritten, not recorded in the manifest)");
+                    continue;
+                } else {
+                    save(splits[2 * i + j], file, true, fieldDelimiter);
+                }
+                manifest.recordFile(file);
+            }
+        }
+        manifest.write(manifestFile);
+    }
+
+    /**
+     * Saves a split file (unless it exists and should not be overwritten),
+     * publishing its time and size.
+     *
+     * @param <U>       user identifier type
+     * @param <I>       item identifier type
+     * @param split     the split
+     * @param file      the path of the file
+     * @param overwrite whether the file should be overwritten if it exists
+     * @param delimiter the field delimiter
+     * @throws FileNotFoundException        see
+     *                                      {@link DataModelUtils#saveDataModel(TemporalDataModelIF, String, boolean, String)}
+     * @throws UnsupportedEncodingException see
+     *                                      {@link DataModelUtils#saveDataModel(TemporalDataModelIF, String, boolean, String)}
+     */
+    private static <U, I> void save(final TemporalDataModelIF<U, I> split, final String file, final boolean overwrite, final String delimiter)
+            throws FileNotFoundException, UnsupportedEncodingException {
+        if (!overwrite && new File(file).exists()) {
+            // not written by saveDataModel
+            return;
+        }
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        Timer timer = metrics.timer(SAVE_TIME);
+        long start = timer.start();
+        DataModelUtils.saveDataModel(split, file, overwrite, delimiter);
+        timer.stop(start);
+        metrics.counter(FILES).inc();
+        metrics.counter(BYTES).inc(new File(file).length());
+    }
+
+    /**
+     * Applies the k-core filter to the data, if any of its thresholds is
+     * defined in the properties.
+     *
+     * @param <U>        user identifier type
+     * @param <I>        item identifier type
+     * @param properties the properties
+     * @param data       the data
+     * @return the filtered data, or the same data if no filter is defined
+     */
+    static <U, I> TemporalDataModelIF<U, I> applyKCore(final Properties properties, final TemporalDataModelIF<U, I> data) {
+        String users = properties.getProperty(SPLIT_KCORE_USERS);
+        String items = properties.getProperty(SPLIT_KCORE_ITEMS);
+        if (users == null && items == null) {
+            return data;
+        }
+        KCoreFilter filter = new KCoreFilter(users == null ? 0 : Integer.parseInt(users), items == null ? 0 : Integer.parseInt(items));
+        TemporalDataModelIF<U, I> filtered = filter.filter(data);
+        for (KCoreFilter.IterationStats stats : filter.getStatistics()) {
+            System.out.println(stats);
+        }
+        return filtered;
+    }
+
+    /**
+     * Creates a manifest with the source file and the parameters that
+     * determine the content of the splits (every dataset and split property,
+     * except the path of the dataset, whose content is checked instead, and
+     * the overwrite flag).
+     *
+     * @param properties the properties
+     * @return a manifest without split files
+     * @throws IOException when the source file cannot be read
+     */
+    private static SplitManifest createManifest(final Properties properties) throws IOException {
+        SplitManifest manifest = new SplitManifest();
+        manifest.setSource(new File(properties.getProperty(ParserRunner.DATASET_FILE)));
+        for (String key : properties.stringPropertyNames()) {
+            if ((key.startsWith("dataset.") || key.startsWith("split."))
+                    && !key.equals(ParserRunner.DATASET_FILE) && !key.equals(SPLIT_OUTPUT_OVERWRITE)) {
+                manifest.setParameter(key, properties.getProperty(key));
+            }
         }
+        return manifest;
     }
 
     /**
@@ -157,6 +368,11 @@ public final class SplitterRunner {
             Long seed = Long.parseLong(properties.getProperty(SPLIT_SEED));
             Float percentage = Float.parseFloat(properties.getProperty(SPLIT_RANDOM_PERCENTAGE));
             splitter = new RandomSplitter<>(percentage, perUser, seed, doSplitPerItems);
+        } else if (splitterClassName.contains("RollingOrigin")) {
+            Long trainingWindow = Long.parseLong(properties.getProperty(SPLIT_ROLLING_TRAINING_WINDOW, "-1"));
+            Long testWindow = Long.parseLong(properties.getProperty(SPLIT_ROLLING_TEST_WINDOW));
+            Long step = Long.parseLong(properties.getProperty(SPLIT_ROLLING_STEP, properties.getProperty(SPLIT_ROLLING_TEST_WINDOW)));
+            splitter = new RollingOriginSplitter<>(trainingWindow, testWindow, step);
         } else if (splitterClassName.contains("Temporal")) {
             Float percentage = Float.parseFloat(properties.getProperty(SPLIT_RANDOM_PERCENTAGE));
             splitter = new TemporalSplitter<>(percentage, perUser, doSplitPerItems);
@@ -164,7 +380,12 @@ public final class SplitterRunner {
             Long seed = Long.parseLong(properties.getProperty(SPLIT_SEED));
             Float percentage = Float.parseFloat(properties.getProperty(SPLIT_RANDOM_PERCENTAGE));
             Splitter<U, I> randomSplitter = new RandomSplitter<>(percentage, perUser, seed, doSplitPerItems);
-            splitter = new ValidationSplitter<>(randomSplitter);
+            String validationPercentage = properties.getProperty(SPLIT_VALIDATION_PERCENTAGE);
+            if (validationPercentage == null) {
+                splitter = new ValidationSplitter<>(randomSplitter);
+            } else {
+                splitter = new ValidationSplitter<>(randomSplitter, Float.parseFloat(validationPercentage), perUser, seed);
+            }
         }
         return splitter;
     }
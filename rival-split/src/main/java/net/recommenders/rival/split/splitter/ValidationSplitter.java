@@ -1,17 +1,64 @@
 package net.recommenders.rival.split.splitter;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 import net.recommenders.rival.core.DataModelIF;
 import net.recommenders.rival.core.TemporalDataModelIF;
 
 
 public class ValidationSplitter<U, I> implements Splitter<U, I> {
     private final Splitter<U, I> splitter;
+    /**
+     * Percentage of the training data used for validation in the nested mode.
+     */
+    private final float validationPercentage;
+    /**
+     * The flag that indicates if the validation split should be done in a per
+     * user basis (nested mode).
+     */
+    private final boolean perUser;
+    /**
+     * An instance of a Random class (null if the nested mode is not used).
+     */
+    private final Random rnd;
 
     public ValidationSplitter(Splitter<U, I> splitter) {
         if (splitter instanceof ValidationSplitter) {
             throw new IllegalArgumentException("Unable to apply a validation splitter recursively!");
         }
         this.splitter = splitter;
+        this.validationPercentage = 0.0f;
+        this.perUser = false;
+        this.rnd = null;
+    }
+
+    /**
+     * Constructor for the nested mode: the wrapped splitter is only applied
+     * once, and every training split is then partitioned into training and
+     * validation with an assignment mask over a compact copy of it. The
+     * returned training and validation splits are read-only views.
+     *
+     * @param splitter the splitter that generates the training and test
+     * splits
+     * @param validationPercentageRatio percentage of the (user, item) pairs of
+     * each training split used for validation
+     * @param perUserFlag flag to do the validation split in a per user basis
+     * @param seed value to initialize a Random class
+     */
+    public ValidationSplitter(final Splitter<U, I> splitter, final float validationPercentageRatio, final boolean perUserFlag, final long seed) {
+        if (splitter instanceof ValidationSplitter) {
+            throw new IllegalArgumentException("Unable to apply a validation splitter recursively!");
+        }
+        if (validationPercentageRatio < 0.0f || validationPercentageRatio > 1.0f) {
+            throw new IllegalArgumentException("Validation percentage should be between 0 and 1");
+        }
+        this.splitter = splitter;
+        this.validationPercentage = validationPercentageRatio;
+        this.perUser = perUserFlag;
+        this.rnd = new Random(seed);
     }
 
     @SuppressWarnings("unchecked")
@@ -22,11 +69,21 @@ public class ValidationSplitter<U, I> implements Splitter<U, I> {
 
         for (int i = 0; i < trainingTestSplits.length / 2; i++) {
             DataModelIF<U, I> trainingVal = trainingTestSplits[2 * i];
-            DataModelIF<U, I>[] trainingValSplit = splitter.split(trainingVal);
             DataModelIF<U, I> test = trainingTestSplits[2 * i + 1];
 
-            newSplits[3 * i] = trainingValSplit[0];
-            newSplits[3 * i + 1] = trainingValSplit[1];
+            if (rnd != null) {
+                // release the training split as soon as it has been copied
+                trainingTestSplits[2 * i] = null;
+                InteractionArrays<U, I> interactions = InteractionArrays.fromModel(trainingVal);
+                trainingVal = null;
+                boolean[] validation = assignValidation(interactions);
+                newSplits[3 * i] = new MaskedInteractionView<>(interactions, validation, false);
+                newSplits[3 * i + 1] = new MaskedInteractionView<>(interactions, validation, true);
+            } else {
+                DataModelIF<U, I>[] trainingValSplit = splitter.split(trainingVal);
+                newSplits[3 * i] = trainingValSplit[0];
+                newSplits[3 * i + 1] = trainingValSplit[1];
+            }
             newSplits[3 * i + 2] = test;
         }
         return newSplits;
@@ -41,13 +98,82 @@ public class ValidationSplitter<U, I> implements Splitter<U, I> {
 
         for (int i = 0; i < trainingTestSplits.length / 2; i++) {
             TemporalDataModelIF<U, I> trainingVal = trainingTestSplits[2 * i];
-            TemporalDataModelIF<U, I>[] trainingValSplit = splitter.split(trainingVal);
             TemporalDataModelIF<U, I> test = trainingTestSplits[2 * i + 1];
 
-            newSplits[3 * i] = trainingValSplit[0];
-            newSplits[3 * i + 1] = trainingValSplit[1];
+            if (rnd != null) {
+                // release the training split as soon as it has been copied
+                trainingTestSplits[2 * i] = null;
+                InteractionArrays<U, I> interactions = InteractionArrays.fromTemporalModel(trainingVal, true);
+                trainingVal = null;
+                boolean[] validation = assignValidation(interactions);
+                newSplits[3 * i] = new MaskedInteractionView<>(interactions, validation, false);
+                newSplits[3 * i + 1] = new MaskedInteractionView<>(interactions, validation, true);
+            } else {
+                TemporalDataModelIF<U, I>[] trainingValSplit = splitter.split(trainingVal);
+                newSplits[3 * i] = trainingValSplit[0];
+                newSplits[3 * i + 1] = trainingValSplit[1];
+            }
             newSplits[3 * i + 2] = test;
         }
         return newSplits;
     }
+
+    /**
+     * Decides which (user, item) pairs go to validation. Every position of a
+     * pair gets the same assignment, so all its timestamps end up in the same
+     * split.
+     *
+     * @param interactions the interactions, with the positions of every user
+     * (and of every pair) stored contiguously
+     * @return true for the positions assigned to validation
+     */
+    private boolean[] assignValidation(final InteractionArrays<U, I> interactions) {
+        final int n = interactions.size();
+        final boolean[] validation = new boolean[n];
+        List<Integer> pairs = new ArrayList<>();
+        int p = 0;
+        while (p < n) {
+            // positions [p, userEnd) belong to the same user
+            int userEnd = p + 1;
+            while (userEnd < n && interactions.userAt(userEnd) == interactions.userAt(p)) {
+                userEnd++;
+            }
+            pairs.clear();
+            for (int k = p; k < userEnd; k++) {
+                if (k == p || interactions.itemAt(k) != interactions.itemAt(k - 1)) {
+                    pairs.add(k);
+                }
+            }
+            if (perUser) {
+                Collections.shuffle(pairs, rnd);
+                int nValidation = Math.round(validationPercentage * pairs.size());
+                for (int k = 0; k < nValidation; k++) {
+                    markPair(interactions, validation, pairs.get(k));
+                }
+            } else {
+                for (int start : pairs) {
+                    if (rnd.nextDouble() < validationPercentage) {
+                        markPair(interactions, validation, start);
+                    }
+                }
+            }
+            p = userEnd;
+        }
+        return validation;
+    }
+
+    /**
+     * Assigns every position of a pair to validation.
+     *
+     * @param interactions the interactions
+     * @param validation the assignment
+     * @param start first position of the pair
+     */
+    private static void markPair(final InteractionArrays<?, ?> interactions, final boolean[] validation, final int start) {
+        int k = start;
+        do {
+            validation[k++] = true;
+        } while (k < validation.length && interactions.userAt(k) == interactions.userAt(start)
+                && interactions.itemAt(k) == interactions.itemAt(start));
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 recommenders.net.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.recommenders.rival.split.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.SimpleParser;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.split.parser.MovielensParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SyntheticDataGenerator}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class SyntheticDataGeneratorTest {
+
+    /**
+     * Folder for the generated files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed the seed
+     * @return the generator
+     */
+    private static SyntheticDataGenerator generator(final long seed) {
+        return new SyntheticDataGenerator(500, 1000, 1.0, 5, 100, 1.0,
+                new double[]{1.0, 2.0, 3.0, 4.0, 5.0}, new double[]{0.1, 0.1, 0.2, 0.3, 0.3},
+                1000000000L, 1000000L, seed);
+    }
+
+    @Test
+    public void testSameSeedSameFile() throws IOException {
+        File f1 = folder.newFile("a.tsv");
+        File f2 = folder.newFile("b.tsv");
+        File f3 = folder.newFile("c.tsv");
+        generator(2016L).generate(f1, SyntheticDataGenerator.Format.SIMPLE);
+        generator(2016L).generate(f2, SyntheticDataGenerator.Format.SIMPLE);
+        generator(2017L).generate(f3, SyntheticDataGenerator.Format.SIMPLE);
+        assertArrayEquals(Files.readAllBytes(f1.toPath()), Files.readAllBytes(f2.toPath()));
+        assertTrue(!Files.readAllLines(f1.toPath()).equals(Files.readAllLines(f3.toPath())));
+    }
+
+    @Test
+    public void testFilesAndModelsAgree() throws IOException {
+        TemporalDataModelIF<Long, Long> model = DataModelFactory.getDefaultTemporalModel();
+        long n = generator(2016L).generate(model);
+        File simple = folder.newFile("simple.tsv");
+        File movielens = folder.newFile("ratings.dat");
+        assertEquals(n, generator(2016L).generate(simple, SyntheticDataGenerator.Format.SIMPLE));
+        assertEquals(n, generator(2016L).generate(movielens, SyntheticDataGenerator.Format.MOVIELENS));
+        TemporalDataModelIF<Long, Long> fromSimple = new SimpleParser().parseTemporalData(simple);
+        TemporalDataModelIF<Long, Long> fromMovielens = new MovielensParser().parseTemporalData(movielens);
+
+        long counted = 0L;
+        assertEquals(500, model.getNumUsers());
+        for (Long u : model.getUsers()) {
+            int activity = 0;
+            for (Long i : model.getUserItems(u)) {
+                activity++;
+                counted++;
+                double r = model.getUserItemPreference(u, i);
+                assertTrue(r >= 1.0 && r <= 5.0);
+                long t = model.getUserItemTimestamps(u, i).iterator().next();
+                assertTrue(t >= 1000000000L && t < 1001000000L);
+                assertEquals(r, fromSimple.getUserItemPreference(u, i), 0.0);
+                assertEquals(r, fromMovielens.getUserItemPreference(u, i), 0.0);
+                assertEquals(t, (long) fromMovielens.getUserItemTimestamps(u, i).iterator().next());
+            }
+            assertTrue(activity >= 5 && activity <= 100);
+        }
+        // items of a user are distinct
+        assertEquals(n, counted);
+        assertEquals(model.getNumUsers(), fromSimple.getNumUsers());
+        assertEquals(model.getNumItems(), fromMovielens.getNumItems());
+    }
+
+    @Test
+    public void testZipfPopularity() {
+        ZipfSampler sampler = new ZipfSampler(1000, 1.0);
+        Random rnd = new Random(2016L);
+        int[] counts = new int[1001];
+        int samples = 200000;
+        for (int k = 0; k < samples; k++) {
+            counts[sampler.sample(rnd)]++;
+        }
+        // P(1) = 1 / H(1000, 1), which is about 0.1336
+        assertEquals(0.1336, counts[1] / (double) samples, 0.005);
+        // P(1) / P(2) = 2
+        assertEquals(2.0, counts[1] / (double) counts[2], 0.1);
+    }
+}
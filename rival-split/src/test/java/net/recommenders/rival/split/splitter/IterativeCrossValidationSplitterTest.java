@@ -0,0 +1,100 @@
+package net.recommenders.rival.split.splitter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link IterativeCrossValidationSplitter}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class IterativeCrossValidationSplitterTest {
+
+    /**
+     * The number of users in the data model.
+     */
+    private static final int USERS = 50;
+    /**
+     * The number of items in the data model.
+     */
+    private static final int ITEMS = 40;
+    /**
+     * The number of folds.
+     */
+    private static final int FOLDS = 5;
+    /**
+     * Folder for the splits.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Counts the lines of a (possibly compressed) file.
+     *
+     * @param file the file
+     * @param compressed flag that indicates if the file is compressed
+     * @return the number of lines
+     * @throws IOException when the file cannot be read
+     */
+    private static int countLines(final String file, final boolean compressed) throws IOException {
+        InputStream is = new FileInputStream(file);
+        if (compressed) {
+            is = new GZIPInputStream(is);
+        }
+        int n = 0;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                assertEquals(4, line.split("\t").length);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Splits a model and checks the size of every file.
+     *
+     * @param compress flag to compress the splits
+     * @throws IOException when a split cannot be read
+     */
+    private void checkSplit(final boolean compress) throws IOException {
+        TemporalDataModelIF<Long, Long> dm = DataModelFactory.getDefaultTemporalModel();
+        for (long u = 1L; u <= USERS; u++) {
+            for (long i = 1L; i <= ITEMS; i++) {
+                dm.addPreference(u, i, 1.0 * (u + i) % 5);
+                dm.addTimestamp(u, i, u * i);
+            }
+        }
+        String path = folder.getRoot().getAbsolutePath() + File.separator;
+        IterativeCrossValidationSplitter<Long, Long> splitter = new IterativeCrossValidationSplitter<>(FOLDS, false, 1L, path, compress, 3);
+        splitter.split(dm);
+        String[] files = splitter.getSplitFiles();
+        int total = USERS * ITEMS;
+        for (int f = 0; f < FOLDS; f++) {
+            assertEquals(total - total / FOLDS, countLines(files[2 * f], compress));
+            assertEquals(total / FOLDS, countLines(files[2 * f + 1], compress));
+        }
+    }
+
+    @Test
+    public void testPlainSplit() throws IOException {
+        checkSplit(false);
+    }
+
+    @Test
+    public void testCompressedSplit() throws IOException {
+        checkSplit(true);
+    }
+}
@@ -0,0 +1,140 @@
+package net.recommenders.rival.split.splitter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.DataModelIF;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link KCoreFilter}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class KCoreFilterTest {
+
+    /**
+     * Folder for the record files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Computes the k-core by repeatedly counting the degrees of the
+     * remaining pairs.
+     *
+     * @param pairs the (user, item) pairs
+     * @param k the minimum number of interactions of users and items
+     * @return the pairs in the k-core
+     */
+    private static Set<String> naiveCore(final Set<String> pairs, final int k) {
+        Set<String> current = new HashSet<>(pairs);
+        boolean changed = true;
+        while (changed) {
+            Map<String, Integer> users = new HashMap<>();
+            Map<String, Integer> items = new HashMap<>();
+            for (String p : current) {
+                String[] t = p.split("\t");
+                users.put(t[0], users.containsKey(t[0]) ? users.get(t[0]) + 1 : 1);
+                items.put(t[1], items.containsKey(t[1]) ? items.get(t[1]) + 1 : 1);
+            }
+            Set<String> next = new HashSet<>();
+            for (String p : current) {
+                String[] t = p.split("\t");
+                if (users.get(t[0]) >= k && items.get(t[1]) >= k) {
+                    next.add(p);
+                }
+            }
+            changed = next.size() != current.size();
+            current = next;
+        }
+        return current;
+    }
+
+    @Test
+    public void testSameCoreAsNaiveAlgorithm() throws IOException {
+        Random rnd = new Random(2016L);
+        Set<String> pairs = new HashSet<>();
+        TemporalDataModelIF<Long, Long> dm = DataModelFactory.getDefaultTemporalModel();
+        File records = folder.newFile("records.tsv");
+        try (PrintStream out = new PrintStream(records, "UTF-8")) {
+            for (int x = 0; x < 2000; x++) {
+                // skewed ids, so that the core is not trivial
+                long u = (long) (200 * Math.pow(rnd.nextDouble(), 3));
+                long i = (long) (300 * Math.pow(rnd.nextDouble(), 2));
+                if (pairs.add(u + "\t" + i)) {
+                    dm.addPreference(u, i, 1.0);
+                    dm.addTimestamp(u, i, (long) x);
+                    dm.addTimestamp(u, i, x + 10000L);
+                    out.println(u + "\t" + i + "\t1.0");
+                }
+            }
+        }
+        int k = 5;
+        Set<String> expected = naiveCore(pairs, k);
+        assertTrue(expected.size() > 0 && expected.size() < pairs.size());
+
+        KCoreFilter filter = new KCoreFilter(k, k);
+        DataModelIF<Long, Long> filtered = filter.filter(dm);
+        Set<String> actual = new HashSet<>();
+        for (Long u : filtered.getUsers()) {
+            for (Long i : filtered.getUserItems(u)) {
+                actual.add(u + "\t" + i);
+            }
+        }
+        assertEquals(expected, actual);
+        KCoreFilter.IterationStats last = filter.getStatistics().get(filter.getStatistics().size() - 1);
+        assertEquals(expected.size(), last.getRemainingInteractions());
+
+        File output = new File(folder.getRoot(), "core.tsv");
+        filter.filter(records, output, "\t");
+        Set<String> fromFile = new HashSet<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(output), "UTF-8"))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] t = line.split("\t");
+                fromFile.add(t[0] + "\t" + t[1]);
+            }
+        }
+        assertEquals(expected, fromFile);
+    }
+
+    @Test
+    public void testShortLinesAreSkipped() throws IOException {
+        File records = folder.newFile("short.tsv");
+        try (PrintStream out = new PrintStream(records, "UTF-8")) {
+            out.println("1\t1\t1.0");
+            out.println("broken");
+            out.println("1\t2\t1.0");
+            out.println();
+            out.println("2\t1\t1.0");
+            out.println("2\t2\t1.0");
+            out.println("3\t3\t1.0");
+        }
+        File output = new File(folder.getRoot(), "short.core.tsv");
+        new KCoreFilter(2, 2).filter(records, output, "\t");
+        assertEquals(Arrays.asList("1\t1\t1.0", "1\t2\t1.0", "2\t1\t1.0", "2\t2\t1.0"), Files.readAllLines(output.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingInput() throws IOException {
+        new KCoreFilter(2, 2).filter(new File(folder.getRoot(), "missing.tsv"), new File(folder.getRoot(), "out.tsv"), "\t");
+    }
+}
@@ -0,0 +1,215 @@
+package net.recommenders.rival.split.splitter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import net.recommenders.rival.core.experiment.ExperimentGraph;
+import net.recommenders.rival.core.experiment.ExperimentNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RollingOriginSplitter}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class RollingOriginSplitterTest {
+
+    /**
+     * Folder where the outputs of the experiment graph are stored.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The number of users in the data model.
+     */
+    private static final int USERS = 10;
+    /**
+     * The number of items in the data model.
+     */
+    private static final int ITEMS = 10;
+
+    /**
+     * Creates a model where user u rated item i at time u * i.
+     *
+     * @return the model
+     */
+    private static TemporalDataModelIF<Long, Long> createModel() {
+        TemporalDataModelIF<Long, Long> dm = DataModelFactory.getDefaultTemporalModel();
+        for (long u = 1L; u <= USERS; u++) {
+            for (long i = 1L; i <= ITEMS; i++) {
+                dm.addPreference(u, i, 1.0 * u + i);
+                dm.addTimestamp(u, i, u * i);
+            }
+        }
+        return dm;
+    }
+
+    @Test
+    public void testSlidingWindows() {
+        TemporalDataModelIF<Long, Long>[] splits = new RollingOriginSplitter<Long, Long>(20L, 10L, 10L).split(createModel());
+        // origins: 21, 31, ..., 91 (last timestamp is 100)
+        assertEquals(2 * 8, splits.length);
+        for (int s = 0; s < splits.length / 2; s++) {
+            long origin = 21L + 10L * s;
+            TemporalDataModelIF<Long, Long> training = splits[2 * s];
+            TemporalDataModelIF<Long, Long> test = splits[2 * s + 1];
+            for (Long u : training.getUsers()) {
+                for (Long i : training.getUserItems(u)) {
+                    assertEquals(1.0 * u + i, training.getUserItemPreference(u, i), 0.0);
+                    for (Long t : training.getUserItemTimestamps(u, i)) {
+                        assertTrue(t >= origin - 20L && t < origin);
+                    }
+                }
+            }
+            for (Long u : test.getUsers()) {
+                for (Long i : test.getUserItems(u)) {
+                    for (Long t : test.getUserItemTimestamps(u, i)) {
+                        assertTrue(t >= origin && t < origin + 10L);
+                    }
+                }
+            }
+        }
+        // first training window [1, 21): user 1 and every item with u * i < 21
+        assertEquals(ITEMS, splits[0].getNumItems());
+        assertTrue(Double.isNaN(splits[0].getUserItemPreference(3L, 7L)));
+        assertNull(splits[1].getUserItems(1L));
+    }
+
+    @Test
+    public void testExpandingWindows() {
+        int n = 0;
+        int previous = 0;
+        for (TemporalDataModelIF<Long, Long>[] s : new RollingOriginSplitter<Long, Long>(-1L, 25L, 25L).splitIterable(createModel())) {
+            int size = 0;
+            for (Long u : s[0].getUsers()) {
+                for (Long i : s[0].getUserItems(u)) {
+                    size++;
+                }
+            }
+            assertTrue(size > previous);
+            previous = size;
+            n++;
+        }
+        // origins: 26, 51, 76
+        assertEquals(3, n);
+    }
+
+    @Test
+    public void testViewsKeptAcrossSplits() {
+        InteractionArrays<Long, Long> interactions = InteractionArrays.fromTemporalModel(createModel());
+        // the positions of the first user (the arrays are grouped by user, not sorted by time)
+        InteractionView<Long, Long> view = new InteractionView<>(interactions, 0, ITEMS);
+        int n = 0;
+        for (TemporalDataModelIF<Long, Long>[] s : new RollingOriginSplitter<Long, Long>(20L, 10L, 10L).splitIterable(interactions)) {
+            n++;
+        }
+        assertEquals(8, n);
+        assertFalse(interactions.isSortedByTime());
+        assertEquals(1, view.getNumUsers());
+        assertEquals(ITEMS, view.getNumItems());
+        for (long i = 1L; i <= ITEMS; i++) {
+            assertEquals(1.0 + i, view.getUserItemPreference(1L, i), 0.0);
+            assertEquals(Arrays.asList(i), view.getUserItemTimestamps(1L, i));
+        }
+    }
+
+    @Test
+    public void testViewIndexBuiltOnceForSeveralThreads() throws Exception {
+        InteractionArrays<Long, Long> interactions = InteractionArrays.fromTemporalModel(createModel());
+        final boolean[] mask = new boolean[interactions.size()];
+        for (int p = 0; p < mask.length; p++) {
+            mask[p] = p % 2 == 0;
+        }
+        final MaskedInteractionView<Long, Long> view = new MaskedInteractionView<>(interactions, mask, true);
+        final int[] counts = new int[4];
+        Thread[] threads = new Thread[counts.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int slot = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (Long u : view.getUsers()) {
+                        for (Long i : view.getUserItems(u)) {
+                            if (!Double.isNaN(view.getUserItemPreference(u, i))) {
+                                counts[slot]++;
+                            }
+                        }
+                    }
+                }
+            };
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (int c : counts) {
+            assertEquals(USERS * ITEMS / 2, c);
+        }
+        view.clear();
+        assertEquals(USERS, view.getNumUsers());
+        // every user has ITEMS consecutive positions, so the even ones are the same items
+        assertEquals(ITEMS / 2, view.getNumItems());
+    }
+
+    @Test
+    public void testSplitNodeIsStored() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(SplitterRunner.DATASET_SPLITTER, RollingOriginSplitter.class.getName());
+        properties.setProperty(SplitterRunner.SPLIT_ROLLING_TRAINING_WINDOW, "20");
+        properties.setProperty(SplitterRunner.SPLIT_ROLLING_TEST_WINDOW, "10");
+        ExperimentNode<TemporalDataModelIF<Long, Long>> data = new ExperimentNode<TemporalDataModelIF<Long, Long>>("data", new Properties()) {
+            @Override
+            public TemporalDataModelIF<Long, Long> compute(final List<Object> inputValues) {
+                return createModel();
+            }
+        };
+        TemporalDataModelIF<Long, Long>[] expected = new RollingOriginSplitter<Long, Long>(20L, 10L, 10L).split(createModel());
+        ExperimentGraph graph = new ExperimentGraph(folder.newFolder("outputs"), 2);
+        for (int run = 0; run < 2; run++) {
+            TemporalDataModelIF<Long, Long>[] splits = graph.run(new SplitNode("split", properties, data));
+            if (run == 0) {
+                assertEquals(Arrays.asList("data", "split"), graph.getExecutedNodes());
+            } else {
+                assertEquals(Arrays.asList("split"), graph.getLoadedNodes());
+            }
+            assertEquals(expected.length, splits.length);
+            for (int s = 0; s < expected.length; s++) {
+                assertEquals(expected[s].getNumUsers(), splits[s].getNumUsers());
+                assertEquals(expected[s].getNumItems(), splits[s].getNumItems());
+                for (Long u : expected[s].getUsers()) {
+                    for (Long i : expected[s].getUserItems(u)) {
+                        assertEquals(expected[s].getUserItemPreference(u, i), splits[s].getUserItemPreference(u, i));
+                        assertEquals(toSet(expected[s].getUserItemTimestamps(u, i)), toSet(splits[s].getUserItemTimestamps(u, i)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the timestamps of a pair.
+     *
+     * @param timestamps the timestamps
+     * @return the distinct timestamps
+     */
+    private static Set<Long> toSet(final Iterable<Long> timestamps) {
+        Set<Long> set = new HashSet<>();
+        for (Long t : timestamps) {
+            set.add(t);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,140 @@
+package net.recommenders.rival.split.splitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Properties;
+import net.recommenders.rival.split.parser.MovielensParser;
+import net.recommenders.rival.split.parser.ParserRunner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the split manifest written by
+ * {@link SplitterRunner#run(Properties, boolean)}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class SplitManifestTest {
+
+    /**
+     * Folder for the dataset and the splits.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates the properties of a 3-fold split of a small dataset.
+     *
+     * @return the properties
+     * @throws IOException when the dataset cannot be written
+     */
+    private Properties createProperties() throws IOException {
+        File data = folder.newFile("data.tsv");
+        try (PrintStream out = new PrintStream(data, "UTF-8")) {
+            for (int u = 1; u <= 10; u++) {
+                for (int i = 1; i <= 10; i++) {
+                    out.println(u + "\t" + i + "\t" + (1 + (u + i) % 5) + "\t" + (u * i));
+                }
+            }
+        }
+        Properties properties = new Properties();
+        properties.setProperty(ParserRunner.DATASET_FILE, data.getPath());
+        properties.setProperty(ParserRunner.DATASET_PARSER, MovielensParser.class.getName());
+        properties.setProperty(SplitterRunner.DATASET_SPLITTER, CrossValidationSplitter.class.getName());
+        properties.setProperty(SplitterRunner.SPLIT_CV_NFOLDS, "3");
+        properties.setProperty(SplitterRunner.SPLIT_PERUSER, "false");
+        properties.setProperty(SplitterRunner.SPLIT_SEED, "2016");
+        properties.setProperty(SplitterRunner.SPLIT_OUTPUT_FOLDER, folder.getRoot().getPath() + File.separator);
+        properties.setProperty(SplitterRunner.SPLIT_TRAINING_PREFIX, "train_");
+        properties.setProperty(SplitterRunner.SPLIT_TRAINING_SUFFIX, ".csv");
+        properties.setProperty(SplitterRunner.SPLIT_TEST_PREFIX, "test_");
+        properties.setProperty(SplitterRunner.SPLIT_TEST_SUFFIX, ".csv");
+        return properties;
+    }
+
+    @Test
+    public void testIncrementalRegeneration() throws Exception {
+        Properties properties = createProperties();
+        SplitterRunner.run(properties, true);
+        File manifestFile = new File(folder.getRoot(), SplitManifest.MANIFEST_NAME);
+        SplitManifest manifest = SplitManifest.read(manifestFile);
+        assertTrue(manifest.isComplete());
+        long total = 0L;
+        for (String file : manifest.getFiles()) {
+            assertTrue(manifest.verifyFile(file));
+            total += manifest.getRows(file);
+        }
+        // every rating appears in nFolds files
+        assertEquals(3 * 100L, total);
+
+        // nothing changed: the dataset is not parsed and the files are kept
+        long modified = new File(folder.getRoot(), "train_0.csv").lastModified();
+        SplitterRunner.run(properties, true);
+        assertEquals(modified, new File(folder.getRoot(), "train_0.csv").lastModified());
+
+        // a deleted fold is regenerated with the same content
+        File test1 = new File(folder.getRoot(), "test_1.csv");
+        assertTrue(test1.delete());
+        assertFalse(manifest.verifyFile(test1.getPath()));
+        SplitterRunner.run(properties, true);
+        assertTrue(manifest.verifyFile(test1.getPath()));
+
+        // a different seed invalidates every fold
+        properties.setProperty(SplitterRunner.SPLIT_SEED, "2017");
+        SplitterRunner.run(properties, true);
+        SplitManifest updated = SplitManifest.read(manifestFile);
+        assertFalse(updated.hasSameOrigin(manifest));
+        assertTrue(updated.verifyFile(test1.getPath()));
+        assertFalse(manifest.verifyFile(test1.getPath()));
+    }
+
+    @Test
+    public void testExistingSplitsWithoutManifest() throws Exception {
+        Properties properties = createProperties();
+        SplitterRunner.run(properties, true);
+        File manifestFile = new File(folder.getRoot(), SplitManifest.MANIFEST_NAME);
+        assertTrue(manifestFile.delete());
+
+        // the existing files are not overwritten, and not recorded either
+        File train0 = new File(folder.getRoot(), "train_0.csv");
+        assertTrue(train0.setLastModified(0L));
+        SplitterRunner.run(properties, true);
+        assertEquals(0L, train0.lastModified());
+        SplitManifest manifest = SplitManifest.read(manifestFile);
+        assertFalse(manifest.isComplete());
+        assertFalse(manifest.isRecorded(train0.getPath()));
+
+        // so the splits are not up to date until they are overwritten
+        assertTrue(manifestFile.setLastModified(0L));
+        SplitterRunner.run(properties, true);
+        assertTrue(manifestFile.lastModified() != 0L);
+        assertEquals(0L, train0.lastModified());
+
+        properties.setProperty(SplitterRunner.SPLIT_OUTPUT_OVERWRITE, "true");
+        SplitterRunner.run(properties, true);
+        assertTrue(train0.lastModified() != 0L);
+        manifest = SplitManifest.read(manifestFile);
+        assertTrue(manifest.isComplete());
+        for (String file : manifest.getFiles()) {
+            assertTrue(manifest.verifyFile(file));
+        }
+    }
+
+    @Test
+    public void testOverwriteSkipsManifest() throws Exception {
+        Properties properties = createProperties();
+        properties.setProperty(SplitterRunner.SPLIT_OUTPUT_OVERWRITE, "true");
+        SplitterRunner.run(properties, true);
+        // up to date, but overwritten anyway
+        File test2 = new File(folder.getRoot(), "test_2.csv");
+        assertTrue(test2.setLastModified(0L));
+        SplitterRunner.run(properties, true);
+        assertTrue(test2.lastModified() != 0L);
+        assertTrue(SplitManifest.read(new File(folder.getRoot(), SplitManifest.MANIFEST_NAME)).verifyFile(test2.getPath()));
+    }
+}
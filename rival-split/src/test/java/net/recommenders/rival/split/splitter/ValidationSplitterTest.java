@@ -0,0 +1,82 @@
+package net.recommenders.rival.split.splitter;
+
+import net.recommenders.rival.core.DataModelFactory;
+import net.recommenders.rival.core.TemporalDataModelIF;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the nested mode of {@link ValidationSplitter}.
+ *
+ * @author <a href="http://github.com/abellogin">Alejandro</a>
+ */
+public class ValidationSplitterTest {
+
+    /**
+     * The number of users in the data model.
+     */
+    private static final int USERS = 20;
+    /**
+     * The number of items in the data model.
+     */
+    private static final int ITEMS = 30;
+
+    /**
+     * Counts the (user, item) pairs of a model.
+     *
+     * @param dm the model
+     * @return the number of pairs
+     */
+    private static int size(final TemporalDataModelIF<Long, Long> dm) {
+        int n = 0;
+        for (Long u : dm.getUsers()) {
+            for (Long i : dm.getUserItems(u)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Test
+    public void testNestedValidation() {
+        TemporalDataModelIF<Long, Long> dm = DataModelFactory.getDefaultTemporalModel();
+        for (long u = 1L; u <= USERS; u++) {
+            for (long i = 1L; i <= ITEMS; i++) {
+                dm.addPreference(u, i, 1.0 * u * i);
+                dm.addTimestamp(u, i, u + i);
+                dm.addTimestamp(u, i, u + i + 1000L);
+            }
+        }
+        int nFolds = 4;
+        TemporalDataModelIF<Long, Long>[] splits = new ValidationSplitter<>(new CrossValidationSplitter<Long, Long>(nFolds, false, 1L), 0.1f, true, 1L).split(dm);
+        assertEquals(3 * nFolds, splits.length);
+        for (int f = 0; f < nFolds; f++) {
+            TemporalDataModelIF<Long, Long> training = splits[3 * f];
+            TemporalDataModelIF<Long, Long> validation = splits[3 * f + 1];
+            TemporalDataModelIF<Long, Long> test = splits[3 * f + 2];
+            assertEquals(USERS * ITEMS, size(training) + size(validation) + size(test));
+            // per user, 10% of the training pairs go to validation
+            for (Long u : validation.getUsers()) {
+                int nTraining = 0;
+                for (Long i : training.getUserItems(u)) {
+                    nTraining++;
+                }
+                int nValidation = 0;
+                for (Long i : validation.getUserItems(u)) {
+                    assertTrue(Double.isNaN(training.getUserItemPreference(u, i)));
+                    assertEquals(1.0 * u * i, validation.getUserItemPreference(u, i), 0.0);
+                    int nTimestamps = 0;
+                    for (Long t : validation.getUserItemTimestamps(u, i)) {
+                        nTimestamps++;
+                    }
+                    assertEquals(2, nTimestamps);
+                    assertNull(training.getUserItemTimestamps(u, i));
+                    nValidation++;
+                }
+                assertEquals(Math.round(0.1f * (nTraining + nValidation)), nValidation);
+            }
+        }
+    }
+}